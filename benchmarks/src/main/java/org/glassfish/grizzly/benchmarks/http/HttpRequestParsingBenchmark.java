@@ -0,0 +1,157 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.benchmarks.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.HttpCodecFilter;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpServerFilter;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.MimeHeaders;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.nio.NIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link HttpCodecFilter} request-line and header parsing, driven
+ * through {@link HttpServerFilter#handleRead(FilterChainContext)} without a
+ * live socket.
+ *
+ * Every invocation parses the request on a fresh (unconnected) connection, so
+ * the number includes the per-request {@link org.glassfish.grizzly.http.HttpRequestPacket}
+ * initialization the server performs for a new keep-alive request.
+ *
+ * The bulk (8 bytes at a time) header scanning can be compared with the
+ * byte by byte parsing by running the suite with
+ * <tt>-jvmArgsAppend -Dorg.glassfish.grizzly.http.HttpCodecFilter.bulkHeaderScan=false</tt>.
+ *
+ * {@link #parseAndLookup()} additionally reads the headers a typical handler
+ * looks at, the cache of repeated header values can be disabled with
+ * <tt>-jvmArgsAppend -Dorg.glassfish.grizzly.http.util.HeaderValueCache.size=0</tt>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HttpRequestParsingBenchmark {
+
+    private static final Charset ASCII = Charset.forName("ASCII");
+
+    @Param({"minimal", "api", "browser", "heavy"})
+    public String request;
+
+    @Param({"heap", "direct"})
+    public String bufferType;
+
+    private NIOTransport transport;
+    private HttpServerFilter filter;
+    private Buffer input;
+
+    @Setup
+    public void setup() {
+        transport = TCPNIOTransportBuilder.newInstance().build();
+        filter = new HttpServerFilter();
+
+        final byte[] bytes = HttpRequests.get(request).getBytes(ASCII);
+        final MemoryManager mm = new HeapMemoryManager();
+        if ("direct".equals(bufferType)) {
+            final ByteBuffer bb = ByteBuffer.allocateDirect(bytes.length);
+            bb.put(bytes).flip();
+            input = Buffers.wrap(mm, bb);
+        } else {
+            input = Buffers.wrap(mm, bytes);
+        }
+        input.allowBufferDispose(false);
+    }
+
+    @Benchmark
+    public Object parse() throws IOException {
+        input.position(0);
+        final FilterChainContext ctx =
+                FilterChainContext.create(new BenchmarkConnection(transport));
+        ctx.setMessage(input);
+        filter.handleRead(ctx);
+        return ctx.getMessage();
+    }
+
+    @Benchmark
+    public int parseAndLookup() throws IOException {
+        final HttpContent content = (HttpContent) parse();
+        final MimeHeaders headers = content.getHttpHeader().getHeaders();
+        
+        int result = 0;
+        final String acceptEncoding = headers.getHeader(Header.AcceptEncoding);
+        if (acceptEncoding != null) {
+            result += acceptEncoding.length();
+        }
+        final String userAgent = headers.getHeader(Header.UserAgent);
+        if (userAgent != null) {
+            result += userAgent.length();
+        }
+        if (headers.getValue(Header.Authorization) != null) {
+            result++;
+        }
+        if (headers.getValue(Header.IfNoneMatch) != null) {
+            result++;
+        }
+        
+        return result;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.benchmarks.http;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.HttpServerFilter;
+import org.glassfish.grizzly.http.PreEncodedHeaders;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.HttpStatus;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.nio.NIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the response header encoding of a small JSON API response,
+ * driven through {@link HttpServerFilter#handleWrite(FilterChainContext)}
+ * without a live socket.
+ * <p>
+ * The static headers are either set one by one on every response
+ * (<tt>headers=individual</tt>), or attached as a shared
+ * {@link PreEncodedHeaders} block (<tt>headers=preEncoded</tt>). Every
+ * invocation parses the request first, so the number includes the same
+ * request parsing cost in both modes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HttpResponseEncodingBenchmark {
+
+    private static final Charset ASCII = Charset.forName("ASCII");
+
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+    private static final String CACHE_CONTROL = "no-store";
+    private static final String NOSNIFF = "nosniff";
+    private static final String CORS_ORIGIN = "*";
+    private static final String SERVER = "Grizzly";
+
+    private static final PreEncodedHeaders PRE_ENCODED_HEADERS =
+            PreEncodedHeaders.builder()
+            .header(Header.ContentType, CONTENT_TYPE)
+            .header(Header.CacheControl, CACHE_CONTROL)
+            .header("X-Content-Type-Options", NOSNIFF)
+            .header("Access-Control-Allow-Origin", CORS_ORIGIN)
+            .header(Header.Server, SERVER)
+            .build();
+
+    @Param({"individual", "preEncoded"})
+    public String headers;
+
+    private NIOTransport transport;
+    private HttpServerFilter filter;
+    private Buffer input;
+    private boolean isPreEncoded;
+
+    @Setup
+    public void setup() {
+        transport = TCPNIOTransportBuilder.newInstance().build();
+        filter = new HttpServerFilter();
+        isPreEncoded = "preEncoded".equals(headers);
+
+        input = Buffers.wrap(new HeapMemoryManager(),
+                HttpRequests.get("api").getBytes(ASCII));
+        input.allowBufferDispose(false);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        input.position(0);
+        final FilterChainContext ctx =
+                FilterChainContext.create(new BenchmarkConnection(transport));
+        ctx.setMessage(input);
+        filter.handleRead(ctx);
+
+        final HttpRequestPacket request = (HttpRequestPacket)
+                ((HttpContent) ctx.getMessage()).getHttpHeader();
+        final HttpResponsePacket response = request.getResponse();
+        HttpStatus.OK_200.setValues(response);
+        response.setContentLength(27);
+
+        if (isPreEncoded) {
+            response.setPreEncodedHeaders(PRE_ENCODED_HEADERS);
+        } else {
+            response.setContentType(CONTENT_TYPE);
+            response.setHeader(Header.CacheControl, CACHE_CONTROL);
+            response.setHeader("X-Content-Type-Options", NOSNIFF);
+            response.setHeader("Access-Control-Allow-Origin", CORS_ORIGIN);
+            response.setHeader(Header.Server, SERVER);
+        }
+
+        ctx.setMessage(response);
+        filter.handleWrite(ctx);
+
+        final Buffer encoded = ctx.getMessage();
+        final int size = encoded.remaining();
+        encoded.tryDispose();
+        return size;
+    }
+}
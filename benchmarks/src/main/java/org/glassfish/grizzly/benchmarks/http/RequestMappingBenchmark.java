@@ -0,0 +1,148 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.benchmarks.http;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.http.server.util.Mapper;
+import org.glassfish.grizzly.http.server.util.MappingData;
+import org.glassfish.grizzly.http.server.util.RouteTree;
+import org.glassfish.grizzly.http.util.DataChunk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the request URI mapping with a large number of routes registered
+ * the same way <tt>HttpHandlerChain</tt> registers them: <tt>routes</tt>
+ * exact and prefix (<tt>/path/*</tt>) mappings spread over 100 contexts.
+ * <p>
+ * The URI is either converted to chars and mapped by the {@link Mapper}
+ * (<tt>router=mapper</tt>), or its bytes are mapped by the
+ * {@link RouteTree} compiled from the same {@link Mapper}
+ * (<tt>router=routeTree</tt>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RequestMappingBenchmark {
+
+    private static final Charset ASCII = Charset.forName("ASCII");
+    private static final String HOST = "localhost";
+    private static final int CONTEXTS = 100;
+    private static final int URIS = 1024;
+
+    @Param({"mapper", "routeTree"})
+    public String router;
+
+    @Param({"10000"})
+    public int routes;
+
+    private Mapper mapper;
+    private RouteTree routeTree;
+    private boolean useRouteTree;
+    private byte[][] uris;
+    private int next;
+
+    private final DataChunk host = DataChunk.newInstance();
+    private final DataChunk uri = DataChunk.newInstance();
+    private final MappingData mappingData = new MappingData();
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final String[] welcome = {"index.html", "index.htm"};
+
+        useRouteTree = "routeTree".equals(router);
+        mapper = new Mapper();
+        mapper.setDefaultHostName(HOST);
+
+        final String[] paths = new String[routes];
+        for (int i = 0; i < routes; i++) {
+            final String ctx = "/service" + (i % CONTEXTS);
+            final String path = "/api/v" + (i % 3) + "/resource" + i;
+            mapper.addContext(HOST, ctx, ctx, welcome, null);
+            if (i % 2 == 0) {
+                mapper.addWrapper(HOST, ctx, path, path);
+                paths[i] = ctx + path;
+            } else {
+                mapper.addWrapper(HOST, ctx, path + "/*", path);
+                paths[i] = ctx + path + "/" + random.nextInt(1000000);
+            }
+        }
+
+        routeTree = mapper.compileRoutes();
+        if (routeTree == null) {
+            throw new IllegalStateException("Routes can't be compiled");
+        }
+
+        uris = new byte[URIS][];
+        for (int i = 0; i < URIS; i++) {
+            uris[i] = paths[random.nextInt(routes)].getBytes(ASCII);
+        }
+    }
+
+    @Benchmark
+    public Object map() throws Exception {
+        final byte[] bytes = uris[next++ & (URIS - 1)];
+        mappingData.recycle();
+        uri.setBytes(bytes, 0, bytes.length);
+
+        if (!useRouteTree || !routeTree.map(uri, mappingData)) {
+            host.recycle();
+            mapper.mapUriWithSemicolon(host, uri, mappingData, 0);
+        }
+
+        return mappingData.wrapper;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.benchmarks.http2;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http2.hpack.Decoder;
+import org.glassfish.grizzly.http2.hpack.DecodingCallback;
+import org.glassfish.grizzly.http2.hpack.Encoder;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures HPACK {@link Encoder} and {@link Decoder} throughput for a typical
+ * browser request header block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HpackBenchmark {
+
+    private static final int TABLE_SIZE = 4096;
+
+    private static final String[][] HEADERS = {
+            {":method", "GET"},
+            {":scheme", "https"},
+            {":authority", "www.example.com"},
+            {":path", "/static/js/app.3f9a1c.js"},
+            {"user-agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/61.0.3163.100 Safari/537.36"},
+            {"accept", "*/*"},
+            {"referer", "https://www.example.com/products/list?page=2&sort=price"},
+            {"accept-encoding", "gzip, deflate, br"},
+            {"accept-language", "en-US,en;q=0.9,de;q=0.8"},
+            {"cookie", "_ga=GA1.2.1234567890.1500000000; session=Zm9vYmFyYmF6cXV4cXV1eGNvcmdl"},
+            {"if-none-match", "\"5a1b2c3d-1f4e\""}
+    };
+
+    private final MemoryManager memoryManager = new HeapMemoryManager();
+
+    private Encoder encoder;
+    private Buffer encodeBuffer;
+    private Buffer encoded;
+
+    @Setup
+    public void setup() {
+        encoder = new Encoder(TABLE_SIZE);
+        encodeBuffer = memoryManager.allocate(8192);
+        encodeBuffer.allowBufferDispose(false);
+
+        encoded = memoryManager.allocate(8192);
+        encoded.allowBufferDispose(false);
+        encode(new Encoder(TABLE_SIZE), encoded);
+        encoded.flip();
+    }
+
+    @Benchmark
+    public Buffer encode() {
+        encodeBuffer.clear();
+        encode(encoder, encodeBuffer);
+        return encodeBuffer;
+    }
+
+    @Benchmark
+    public void decode(final Blackhole bh) {
+        // new decoder each time, so the static header block is always valid
+        final Decoder decoder = new Decoder(TABLE_SIZE);
+        encoded.position(0);
+        decoder.decode(encoded, true, new DecodingCallback() {
+            @Override
+            public void onDecoded(final CharSequence name,
+                    final CharSequence value) {
+                bh.consume(name);
+                bh.consume(value);
+            }
+        });
+    }
+
+    private static void encode(final Encoder encoder, final Buffer out) {
+        for (String[] header : HEADERS) {
+            encoder.header(header[0], header[1]);
+            if (!encoder.encode(out)) {
+                throw new IllegalStateException("Encode buffer is too small");
+            }
+        }
+    }
+}
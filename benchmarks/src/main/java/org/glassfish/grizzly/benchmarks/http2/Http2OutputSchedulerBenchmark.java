@@ -0,0 +1,188 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.benchmarks.http2;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.http2.Http2OutputScheduler;
+import org.glassfish.grizzly.http2.Http2OutputScheduler.Entry;
+import org.glassfish.grizzly.http2.WeightedFairOutputScheduler;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replays the DATA frame order, produced by an {@link Http2OutputScheduler},
+ * over a simulated link: a bulk download is in progress, when a number of
+ * small responses become ready on the same connection.
+ * <p>
+ * The benchmark score is the scheduling cost, the
+ * <tt>ttfbMicros / smallStreams</tt> aux counters ratio is the average
+ * simulated time to the first DATA byte of a small response.
+ * The <tt>fifo</tt> scheduler writes the frames in the order they were
+ * queued, like the legacy output sink.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class Http2OutputSchedulerBenchmark {
+
+    private static final int MAX_FRAME_SIZE = 16384;
+    private static final int BULK_SIZE = 8 * 1024 * 1024;
+    // how much of the bulk response is written, when the small ones arrive
+    private static final int BULK_HEAD_SIZE = 256 * 1024;
+    private static final int SMALL_SIZE = 2048;
+
+    @Param({"fifo", "weighted-fair"})
+    String scheduler;
+
+    @Param({"8", "64"})
+    int smallStreams;
+
+    @Param({"100", "1000"})
+    int linkMbps;
+
+    private final Map<Entry, int[]> remaining = new IdentityHashMap<>();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Ttfb {
+        public long ttfbMicros;
+        public long smallStreams;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ttfbMicros = 0;
+            smallStreams = 0;
+        }
+    }
+
+    @Benchmark
+    public long writeAll(final Ttfb ttfb) {
+        final Http2OutputScheduler s = "fifo".equals(scheduler)
+                ? new FifoScheduler()
+                : new WeightedFairOutputScheduler(MAX_FRAME_SIZE);
+        remaining.clear();
+
+        final Entry bulk = new Entry(1, null, Entry.DEFAULT_WEIGHT,
+                Entry.DEFAULT_URGENCY, true);
+        remaining.put(bulk, new int[] {BULK_SIZE});
+        s.add(bulk);
+
+        final double bytesPerMicro = linkMbps / 8.0;
+        long bytesWritten = 0;
+        boolean smallAdded = false;
+
+        Entry entry;
+        while ((entry = s.poll()) != null) {
+            final int[] left = remaining.get(entry);
+            int quantum = s.getQuantum(entry);
+
+            while (left[0] > 0 && quantum > 0) {
+                if (entry != bulk && left[0] == SMALL_SIZE) {
+                    ttfb.ttfbMicros += (long) (bytesWritten / bytesPerMicro);
+                    ttfb.smallStreams++;
+                }
+
+                final int frameSize = Math.min(MAX_FRAME_SIZE,
+                        Math.min(left[0], quantum));
+                left[0] -= frameSize;
+                quantum -= frameSize;
+                bytesWritten += frameSize;
+
+                if (!smallAdded && bytesWritten >= BULK_HEAD_SIZE) {
+                    smallAdded = true;
+                    for (int i = 0; i < smallStreams; i++) {
+                        final Entry small = new Entry(3 + i * 2, null,
+                                Entry.DEFAULT_WEIGHT, Entry.DEFAULT_URGENCY, true);
+                        remaining.put(small, new int[] {SMALL_SIZE});
+                        s.add(small);
+                    }
+                }
+            }
+
+            if (left[0] > 0) {
+                s.add(entry);
+            }
+        }
+
+        return bytesWritten;
+    }
+
+    private static final class FifoScheduler implements Http2OutputScheduler {
+        private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+
+        @Override
+        public void add(final Entry entry) {
+            queue.add(entry);
+        }
+
+        @Override
+        public Entry poll() {
+            return queue.poll();
+        }
+
+        @Override
+        public int getQuantum(final Entry entry) {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+    }
+}
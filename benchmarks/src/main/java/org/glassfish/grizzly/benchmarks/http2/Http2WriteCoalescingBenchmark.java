@@ -0,0 +1,230 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.benchmarks.http2;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.ConnectionProbe;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.http.HttpClientFilter;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.RequestExecutorProvider;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http2.Http2AddOn;
+import org.glassfish.grizzly.http2.Http2ClientFilter;
+import org.glassfish.grizzly.http2.Http2Configuration;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sends a burst of concurrent HTTP/2 requests over one prior-knowledge
+ * connection and waits for all the responses, with and without
+ * {@link Http2Configuration#isCoalesceWrites() write coalescing} on the
+ * server.
+ * <p>
+ * The <tt>serverWrites / requests</tt> aux counters ratio is the number of
+ * socket write calls the server made per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class Http2WriteCoalescingBenchmark {
+
+    private static final int PORT = 18093;
+    private static final byte[] RESPONSE_BODY = "Hello, HTTP/2".getBytes();
+
+    @Param({"false", "true"})
+    public boolean coalesceWrites;
+
+    @Param({"1", "16"})
+    public int streams;
+
+    private HttpServer server;
+    private TCPNIOTransport client;
+    private Connection clientConnection;
+
+    private final AtomicLong serverWrites = new AtomicLong();
+    private final Semaphore responses = new Semaphore(0);
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long serverWrites;
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            serverWrites = 0;
+            requests = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        server = new HttpServer();
+        final NetworkListener listener =
+                new NetworkListener("bench", "127.0.0.1", PORT);
+        listener.registerAddOn(new Http2AddOn(Http2Configuration.builder()
+                .coalesceWrites(coalesceWrites)
+                .build()));
+        server.addListener(listener);
+        server.getServerConfiguration().addHttpHandler(new HttpHandler() {
+            @Override
+            public void service(final Request request,
+                    final Response response) throws Exception {
+                response.setContentType("text/plain");
+                response.setContentLength(RESPONSE_BODY.length);
+                response.getOutputStream().write(RESPONSE_BODY);
+            }
+
+            @Override
+            public RequestExecutorProvider getRequestExecutorProvider() {
+                return new RequestExecutorProvider.SameThreadProvider();
+            }
+        }, "/");
+        server.start();
+
+        listener.getTransport().getConnectionMonitoringConfig().addProbes(
+                new ConnectionProbe.Adapter() {
+                    @Override
+                    public void onWriteEvent(final Connection connection,
+                            final Buffer data, final long size) {
+                        serverWrites.incrementAndGet();
+                    }
+                });
+
+        client = TCPNIOTransportBuilder.newInstance().build();
+        client.setFilterChain(FilterChainBuilder.newInstance()
+                .add(new TransportFilter())
+                .add(new HttpClientFilter())
+                .add(new Http2ClientFilter(Http2Configuration.builder()
+                        .priorKnowledge(true)
+                        .build()))
+                .add(new ResponseCollectorFilter())
+                .build());
+        client.start();
+
+        clientConnection = client.connect("127.0.0.1", PORT)
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (clientConnection != null) {
+            clientConnection.closeSilently();
+        }
+        client.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Benchmark
+    public int requestBurst(final Counters counters) throws Exception {
+        final long writesBefore = serverWrites.get();
+
+        for (int i = 0; i < streams; i++) {
+            final HttpRequestPacket request = HttpRequestPacket.builder()
+                    .method(Method.GET)
+                    .uri("/")
+                    .protocol(Protocol.HTTP_2_0)
+                    .host("127.0.0.1:" + PORT)
+                    .build();
+            clientConnection.write(HttpContent.builder(request)
+                    .content(Buffers.EMPTY_BUFFER)
+                    .last(true)
+                    .build());
+        }
+
+        if (!responses.tryAcquire(streams, 10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Responses timed out");
+        }
+
+        counters.serverWrites += serverWrites.get() - writesBefore;
+        counters.requests += streams;
+
+        return streams;
+    }
+
+    private final class ResponseCollectorFilter extends BaseFilter {
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            final HttpContent httpContent = ctx.getMessage();
+            if (httpContent.isLast()) {
+                responses.release();
+            }
+            httpContent.recycle();
+            return ctx.getStopAction();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.benchmarks.memory;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.BuffersBuffer;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures composite {@link BuffersBuffer} construction via
+ * {@link BuffersBuffer#append(Buffer)}, slicing across buffer boundaries and
+ * byte-wise reads through the composite.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BuffersBufferBenchmark {
+
+    @Param({"2", "8", "32"})
+    public int parts;
+
+    @Param({"512"})
+    public int partSize;
+
+    private final MemoryManager memoryManager = new HeapMemoryManager();
+
+    private Buffer[] chunks;
+    private BuffersBuffer composite;
+
+    @Setup
+    public void setup() {
+        chunks = new Buffer[parts];
+        for (int i = 0; i < parts; i++) {
+            final Buffer chunk = memoryManager.allocate(partSize);
+            for (int j = 0; j < partSize; j++) {
+                chunk.put(j, (byte) j);
+            }
+            chunk.allowBufferDispose(false);
+            chunks[i] = chunk;
+        }
+
+        composite = newComposite();
+    }
+
+    @Benchmark
+    public Buffer append() {
+        return newComposite();
+    }
+
+    @Benchmark
+    public Buffer sliceAcrossBoundaries() {
+        final int half = partSize / 2;
+        return composite.slice(half, composite.limit() - half);
+    }
+
+    @Benchmark
+    public void absoluteGet(final Blackhole bh) {
+        final BuffersBuffer c = composite;
+        final int limit = c.limit();
+        int sum = 0;
+        for (int i = 0; i < limit; i++) {
+            sum += c.get(i);
+        }
+        bh.consume(sum);
+    }
+
+    private BuffersBuffer newComposite() {
+        final BuffersBuffer c = BuffersBuffer.create(memoryManager);
+        for (Buffer chunk : chunks) {
+            chunk.clear();
+            c.append(chunk);
+        }
+        c.allowInternalBuffersDispose(false);
+        return c;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.benchmarks.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.IOStrategy;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.strategies.AdaptiveIOStrategy;
+import org.glassfish.grizzly.strategies.LeaderFollowerNIOStrategy;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
+import org.glassfish.grizzly.strategies.VirtualThreadIOStrategy;
+import org.glassfish.grizzly.strategies.WorkerThreadIOStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the request throughput of the worker thread, leader-follower,
+ * virtual thread and adaptive {@link IOStrategy}s, when the server-side processing blocks
+ * (simulating JDBC or other blocking calls made by an application handler).
+ * Each benchmark thread is a client with its own connection, so the number
+ * of in-flight requests equals the number of benchmark threads.
+ *
+ * The virtual thread strategy falls back to platform worker threads, if the
+ * JVM running the benchmark doesn't support virtual threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Threads(64)
+@Fork(1)
+public class BlockingIOStrategyBenchmark {
+
+    private static final int PAYLOAD_SIZE = 64;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"worker-thread", "leader-follower", "virtual-thread", "adaptive"})
+        public String ioStrategy;
+
+        @Param({"0", "5"})
+        public int blockingMillis;
+
+        TCPNIOTransport server;
+        TCPNIOTransport client;
+        SocketAddress serverAddress;
+
+        final ConcurrentMap<Connection, BlockingQueue<Buffer>> replies =
+                new ConcurrentHashMap<Connection, BlockingQueue<Buffer>>();
+
+        @Setup
+        public void setup() throws Exception {
+            server = TCPNIOTransportBuilder.newInstance()
+                    .ioStrategy(strategy(ioStrategy))
+                    .build();
+            server.setFilterChain(FilterChainBuilder.newInstance()
+                    .add(new TransportFilter())
+                    .add(new BlockingEchoFilter(blockingMillis))
+                    .build());
+            serverAddress = server.bind(
+                    new InetSocketAddress("127.0.0.1", 0)).getLocalAddress();
+            server.start();
+
+            client = TCPNIOTransportBuilder.newInstance()
+                    .ioStrategy(SameThreadIOStrategy.getInstance())
+                    .build();
+            client.setFilterChain(FilterChainBuilder.newInstance()
+                    .add(new TransportFilter())
+                    .add(new ReplyCollectorFilter(replies))
+                    .build());
+            client.start();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            client.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        Connection connection;
+        BlockingQueue<Buffer> replies;
+        Buffer payload;
+
+        @Setup
+        public void setup(final Server server) throws Exception {
+            connection = server.client.connect(server.serverAddress)
+                    .get(10, TimeUnit.SECONDS);
+            replies = new LinkedBlockingQueue<Buffer>();
+            server.replies.put(connection, replies);
+
+            payload = Buffers.wrap(server.client.getMemoryManager(),
+                    new byte[PAYLOAD_SIZE]);
+            payload.allowBufferDispose(false);
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+        }
+    }
+
+    @Benchmark
+    public int request(final Client client) throws Exception {
+        client.payload.position(0);
+        client.connection.write(client.payload);
+
+        int received = 0;
+        while (received < PAYLOAD_SIZE) {
+            final Buffer reply = client.replies.poll(10, TimeUnit.SECONDS);
+            if (reply == null) {
+                throw new IllegalStateException("Reply timed out");
+            }
+            received += reply.remaining();
+            reply.tryDispose();
+        }
+
+        return received;
+    }
+
+    private static IOStrategy strategy(final String name) {
+        if ("worker-thread".equals(name)) {
+            return WorkerThreadIOStrategy.getInstance();
+        } else if ("leader-follower".equals(name)) {
+            return LeaderFollowerNIOStrategy.getInstance();
+        } else if ("virtual-thread".equals(name)) {
+            return VirtualThreadIOStrategy.getInstance();
+        } else if ("adaptive".equals(name)) {
+            return new AdaptiveIOStrategy();
+        }
+
+        throw new IllegalArgumentException("Unknown IOStrategy: " + name);
+    }
+
+    private static final class BlockingEchoFilter extends BaseFilter {
+        private final int blockingMillis;
+
+        private BlockingEchoFilter(final int blockingMillis) {
+            this.blockingMillis = blockingMillis;
+        }
+
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            if (blockingMillis > 0) {
+                try {
+                    Thread.sleep(blockingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            ctx.write(ctx.getMessage());
+            return ctx.getStopAction();
+        }
+    }
+
+    private static final class ReplyCollectorFilter extends BaseFilter {
+        private final ConcurrentMap<Connection, BlockingQueue<Buffer>> replies;
+
+        private ReplyCollectorFilter(
+                final ConcurrentMap<Connection, BlockingQueue<Buffer>> replies) {
+            this.replies = replies;
+        }
+
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            final BlockingQueue<Buffer> queue = replies.get(ctx.getConnection());
+            if (queue != null) {
+                queue.add(ctx.<Buffer>getMessage());
+            } else {
+                ctx.<Buffer>getMessage().tryDispose();
+            }
+            return ctx.getStopAction();
+        }
+    }
+}
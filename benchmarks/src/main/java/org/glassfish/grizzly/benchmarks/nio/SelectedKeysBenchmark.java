@@ -0,0 +1,157 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.benchmarks.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.nio.SelectedKeySet;
+import org.glassfish.grizzly.nio.Selectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a select-and-iterate cycle over the default {@link Selector}
+ * selected-key set with the array based {@link SelectedKeySet}, which
+ * {@link org.glassfish.grizzly.nio.SelectorRunner} uses when
+ * <tt>org.glassfish.grizzly.nio.SelectorRunner.optimize-selected-keys</tt>
+ * is set.
+ *
+ * Every connection is emulated by a {@link Pipe}, whose source channel is
+ * registered for <tt>OP_READ</tt>. <tt>readyKeys</tt> of them always have
+ * unread data, so each select reports the same number of ready keys.
+ * The score is in selects; multiply by <tt>readyKeys</tt> for events/sec.
+ * Run with <tt>-prof gc</tt> to get the allocation rate per select.
+ * Note, that 50k connections need ~100k file descriptors (<tt>ulimit -n</tt>),
+ * and that on JDK 9+ the optimization requires
+ * <tt>-jvmArgsAppend --add-opens=java.base/sun.nio.ch=ALL-UNNAMED</tt>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SelectedKeysBenchmark {
+
+    @Param({"false", "true"})
+    public boolean optimized;
+
+    @Param({"1000", "50000"})
+    public int connections;
+
+    @Param({"100", "1000"})
+    public int readyKeys;
+
+    private Selector selector;
+    private Pipe[] pipes;
+
+    @Setup
+    public void setup() throws IOException {
+        selector = Selectors.newSelector(SelectorProvider.provider(), optimized);
+        if (optimized && !Selectors.isSelectedKeysOptimized(selector)) {
+            throw new IllegalStateException(
+                    "Selector internals are not accessible");
+        }
+
+        pipes = new Pipe[connections];
+        final ByteBuffer data = ByteBuffer.allocate(1);
+        for (int i = 0; i < connections; i++) {
+            final Pipe pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+            pipe.source().register(selector, SelectionKey.OP_READ);
+            if (i < readyKeys) {
+                data.clear();
+                pipe.sink().write(data);
+            }
+            pipes[i] = pipe;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        selector.close();
+        for (Pipe pipe : pipes) {
+            if (pipe != null) {
+                pipe.source().close();
+                pipe.sink().close();
+            }
+        }
+    }
+
+    @Benchmark
+    public int selectAndIterate() throws IOException {
+        selector.selectNow();
+        final Set<SelectionKey> readyKeySet = selector.selectedKeys();
+        int ops = 0;
+
+        if (readyKeySet instanceof SelectedKeySet) {
+            final SelectedKeySet keys = (SelectedKeySet) readyKeySet;
+            final int size = keys.size();
+            for (int i = 0; i < size; i++) {
+                ops += keys.get(i).readyOps();
+            }
+        } else {
+            final Iterator<SelectionKey> it = readyKeySet.iterator();
+            while (it.hasNext()) {
+                ops += it.next().readyOps();
+            }
+        }
+
+        readyKeySet.clear();
+        return ops;
+    }
+}
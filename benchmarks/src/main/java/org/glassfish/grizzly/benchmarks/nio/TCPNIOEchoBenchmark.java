@@ -0,0 +1,189 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.benchmarks.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.IOStrategy;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.nio.transport.TCPNIOServerConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
+import org.glassfish.grizzly.strategies.WorkerThreadIOStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the round-trip latency of an echo exchange over loopback between
+ * a {@link TCPNIOTransport} client and server, which covers the selector
+ * loop, {@link IOStrategy} dispatch, the
+ * {@link org.glassfish.grizzly.filterchain.DefaultFilterChain} and the
+ * async write queue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class TCPNIOEchoBenchmark {
+
+    @Param({"same-thread", "worker-thread"})
+    public String ioStrategy;
+
+    @Param({"64", "4096"})
+    public int payloadSize;
+
+    private TCPNIOTransport server;
+    private TCPNIOTransport client;
+    private Connection clientConnection;
+    private Buffer payload;
+
+    private final BlockingQueue<Buffer> replies = new LinkedBlockingQueue<Buffer>();
+
+    @Setup
+    public void setup() throws Exception {
+        server = TCPNIOTransportBuilder.newInstance()
+                .ioStrategy(strategy(ioStrategy))
+                .build();
+        server.setFilterChain(FilterChainBuilder.newInstance()
+                .add(new TransportFilter())
+                .add(new EchoFilter())
+                .build());
+        final TCPNIOServerConnection serverConnection =
+                server.bind(new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+
+        client = TCPNIOTransportBuilder.newInstance()
+                .ioStrategy(SameThreadIOStrategy.getInstance())
+                .build();
+        client.setFilterChain(FilterChainBuilder.newInstance()
+                .add(new TransportFilter())
+                .add(new ReplyCollectorFilter())
+                .build());
+        client.start();
+
+        clientConnection = client.connect(
+                serverConnection.getLocalAddress()).get(10, TimeUnit.SECONDS);
+
+        final byte[] bytes = new byte[payloadSize];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+        }
+        payload = Buffers.wrap(client.getMemoryManager(), bytes);
+        payload.allowBufferDispose(false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (clientConnection != null) {
+            clientConnection.closeSilently();
+        }
+        client.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Benchmark
+    public int roundTrip() throws Exception {
+        payload.position(0);
+        clientConnection.write(payload);
+
+        int received = 0;
+        while (received < payloadSize) {
+            final Buffer reply = replies.poll(10, TimeUnit.SECONDS);
+            if (reply == null) {
+                throw new IllegalStateException("Echo timed out");
+            }
+            received += reply.remaining();
+            reply.tryDispose();
+        }
+
+        return received;
+    }
+
+    private static IOStrategy strategy(final String name) {
+        if ("same-thread".equals(name)) {
+            return SameThreadIOStrategy.getInstance();
+        } else if ("worker-thread".equals(name)) {
+            return WorkerThreadIOStrategy.getInstance();
+        }
+
+        throw new IllegalArgumentException("Unknown IOStrategy: " + name);
+    }
+
+    private static final class EchoFilter extends BaseFilter {
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            ctx.write(ctx.getMessage());
+            return ctx.getStopAction();
+        }
+    }
+
+    private final class ReplyCollectorFilter extends BaseFilter {
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            replies.add(ctx.<Buffer>getMessage());
+            return ctx.getStopAction();
+        }
+    }
+}
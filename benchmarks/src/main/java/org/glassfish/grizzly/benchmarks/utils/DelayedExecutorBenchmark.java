@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.benchmarks.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.utils.DelayedExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link DelayedExecutor} with <tt>timeouts</tt> pending timeouts, which are
+ * constantly re-armed, the way idle and keep-alive timeouts are re-armed
+ * for every request on a busy server.
+ *
+ * The executor is started with a 10ms check interval, so the cost of the
+ * timer thread (which used to scan all the registered elements every
+ * check interval) shows up in the scores as well, especially when the
+ * benchmark is run with as many threads as there are cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DelayedExecutorBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int timeouts;
+
+    private ExecutorService threadPool;
+    private DelayedExecutor delayedExecutor;
+    private DelayedExecutor.DelayQueue<Element> queue;
+    private Element[] elements;
+
+    @Setup
+    public void setup() {
+        threadPool = Executors.newSingleThreadExecutor();
+        delayedExecutor = new DelayedExecutor(threadPool, 10, TimeUnit.MILLISECONDS);
+        queue = delayedExecutor.createDelayQueue(new DelayedExecutor.Worker<Element>() {
+            @Override
+            public boolean doWork(final Element element) {
+                return true;
+            }
+        }, new ElementResolver());
+
+        elements = new Element[timeouts];
+        for (int i = 0; i < timeouts; i++) {
+            elements[i] = new Element();
+            queue.add(elements[i], nextDelay(), TimeUnit.MILLISECONDS);
+        }
+
+        delayedExecutor.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        delayedExecutor.destroy();
+        threadPool.shutdownNow();
+    }
+
+    @Benchmark
+    public void reschedule() {
+        queue.add(nextElement(), nextDelay(), TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    public void removeAndAdd() {
+        final Element element = nextElement();
+        queue.remove(element);
+        queue.add(element, nextDelay(), TimeUnit.MILLISECONDS);
+    }
+
+    private Element nextElement() {
+        return elements[ThreadLocalRandom.current().nextInt(timeouts)];
+    }
+
+    private static long nextDelay() {
+        // 30..60 seconds, so nothing expires during the run
+        return 30000 + ThreadLocalRandom.current().nextInt(30000);
+    }
+
+    private static final class Element {
+        volatile long timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+    }
+
+    private static final class ElementResolver
+            implements DelayedExecutor.Resolver<Element> {
+
+        @Override
+        public boolean removeTimeout(final Element element) {
+            element.timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+            return true;
+        }
+
+        @Override
+        public long getTimeoutMillis(final Element element) {
+            return element.timeoutMillis;
+        }
+
+        @Override
+        public void setTimeoutMillis(final Element element, final long timeoutMillis) {
+            element.timeoutMillis = timeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.benchmarks.websockets;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferManager;
+import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.websockets.Masker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares WebSocket payload masking byte by byte, the way {@link Masker}
+ * used to unmask frames, with the in-place, 8 bytes at a time
+ * {@link Masker#mask(Buffer, int, int)} on heap, direct and composite
+ * {@link Buffer}s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MaskerBenchmark {
+
+    private static final int MASK_SIZE = 4;
+
+    @Param({"heap", "direct", "composite"})
+    public String buffer;
+
+    @Param({"125", "4096", "65536"})
+    public int size;
+
+    private Buffer payload;
+    private Masker masker;
+    private byte[] mask;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+
+        if ("heap".equals(buffer)) {
+            payload = newBuffer(new HeapMemoryManager(), bytes, 0, size);
+        } else if ("direct".equals(buffer)) {
+            payload = newBuffer(new ByteBufferManager(true), bytes, 0, size);
+        } else if ("composite".equals(buffer)) {
+            // network reads rarely end on a mask boundary
+            final MemoryManager mm = new HeapMemoryManager();
+            final CompositeBuffer composite = CompositeBuffer.newBuffer(mm);
+            final int half = size / 2 + 1;
+            composite.append(newBuffer(mm, bytes, 0, half));
+            composite.append(newBuffer(mm, bytes, half, size - half));
+            composite.allowInternalBuffersDispose(false);
+            payload = composite;
+        } else {
+            throw new IllegalArgumentException("Unknown buffer: " + buffer);
+        }
+
+        mask = new byte[MASK_SIZE];
+        random.nextBytes(mask);
+        final Buffer maskBuffer = newBuffer(new HeapMemoryManager(), mask, 0, MASK_SIZE);
+        masker = new Masker(maskBuffer);
+        masker.readMask();
+    }
+
+    @Benchmark
+    public Buffer bytewise() {
+        final Buffer b = payload;
+        final byte[] m = mask;
+        final int limit = b.limit();
+        int index = 0;
+        for (int i = b.position(); i < limit; i++) {
+            b.put(i, (byte) (b.get(i) ^ m[index++ % MASK_SIZE]));
+        }
+        return b;
+    }
+
+    @Benchmark
+    public Buffer bulk() {
+        final Buffer b = payload;
+        masker.mask(b, b.position(), b.limit());
+        return b;
+    }
+
+    private static Buffer newBuffer(final MemoryManager mm, final byte[] bytes,
+            final int offset, final int length) {
+        final Buffer b = mm.allocate(length);
+        b.put(bytes, offset, length);
+        b.flip();
+        b.allowBufferDispose(false);
+        return b;
+    }
+}
@@ -501,6 +501,29 @@ public abstract class AbstractTransport implements Transport {
         }
     }
 
+    /**
+     * Notify registered {@link TransportProbe}s about the accept event.
+     *
+     * @param transport the <tt>Transport</tt> event occurred on.
+     * @param serverConnection the server <tt>Connection</tt>, which accepted the client connection.
+     * @param clientConnection the client <tt>Connection</tt>.
+     * @param selectorRunnerIndex the index of the selector thread, which accepted the connection.
+     *
+     * @since 3.0
+     */
+    protected static void notifyProbesAccept(final AbstractTransport transport,
+            final Connection serverConnection, final Connection clientConnection,
+            final int selectorRunnerIndex) {
+        final TransportProbe[] probes =
+                transport.transportMonitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (TransportProbe probe : probes) {
+                probe.onAcceptEvent(transport, serverConnection,
+                        clientConnection, selectorRunnerIndex);
+            }
+        }
+    }
+
     /**
      * Notify registered {@link TransportProbe}s about the before-start event.
      *
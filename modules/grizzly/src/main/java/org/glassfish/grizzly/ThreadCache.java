@@ -41,6 +41,7 @@
 package org.glassfish.grizzly;
 
 import org.glassfish.grizzly.threadpool.DefaultWorkerThread;
+import org.glassfish.grizzly.threadpool.Threads;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -87,6 +88,10 @@ public final class ThreadCache {
             final CachedTypeIndex<E> index, final E o) {
         if (currentThread instanceof DefaultWorkerThread) {
             return ((DefaultWorkerThread) currentThread).putToCache(index, o);
+        } else if (Threads.isVirtual(currentThread)) {
+            // virtual threads are not reused, so a per-thread cache would
+            // be allocated and thrown away for each task
+            return false;
         } else {
             ObjectCache genericCache = genericCacheAttr.get();
             if (genericCache == null) {
@@ -127,6 +132,8 @@ public final class ThreadCache {
         
         if (currentThread instanceof DefaultWorkerThread) {
             return ((DefaultWorkerThread) currentThread).getFromCache(index);
+        } else if (Threads.isVirtual(currentThread)) {
+            return null;
         } else {
             final ObjectCache genericCache = genericCacheAttr.get();
             if (genericCache != null) {
@@ -164,6 +171,8 @@ public final class ThreadCache {
             final CachedTypeIndex<E> index) {
         if (currentThread instanceof DefaultWorkerThread) {
             return ((DefaultWorkerThread) currentThread).takeFromCache(index);
+        } else if (Threads.isVirtual(currentThread)) {
+            return null;
         } else {
             final ObjectCache genericCache = genericCacheAttr.get();
             if (genericCache != null) {
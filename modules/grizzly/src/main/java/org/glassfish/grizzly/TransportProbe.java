@@ -129,6 +129,21 @@ public interface TransportProbe {
      */
     void onErrorEvent(Transport transport, Throwable error);
 
+    /**
+     * Method will be called, when the {@link Transport} accepts a new client
+     * {@link Connection}.
+     *
+     * @param transport {@link Transport}, the event belongs to.
+     * @param serverConnection server {@link Connection}, which accepted the client connection.
+     * @param clientConnection the accepted client {@link Connection}.
+     * @param selectorRunnerIndex the index of the selector thread the
+     *        <tt>serverConnection</tt> is registered on, or <tt>-1</tt> if unknown.
+     *
+     * @since 3.0
+     */
+    void onAcceptEvent(Transport transport, Connection serverConnection,
+            Connection clientConnection, int selectorRunnerIndex);
+
 
     // ---------------------------------------------------------- Nested Classes
 
@@ -205,6 +220,13 @@ public interface TransportProbe {
         @Override
         public void onErrorEvent(Transport transport, Throwable error) {}
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onAcceptEvent(Transport transport, Connection serverConnection,
+                Connection clientConnection, int selectorRunnerIndex) {}
+
     } // END Adapter
 
 }
@@ -0,0 +1,200 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.memory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+
+/**
+ * Detects buffers, which were garbage collected without being released
+ * back to their {@link MemoryManager}.
+ *
+ * Only a fraction of the allocations (the sampling rate) is tracked: the
+ * allocation stack trace is recorded and the buffer is watched using
+ * a {@link PhantomReference}. If the buffer gets collected before the tracker
+ * is closed - the leak is logged and reported to the {@link MemoryProbe}s.
+ *
+ * @since 3.0
+ */
+final class BufferLeakDetector {
+    private static final Logger LOGGER = Grizzly.logger(BufferLeakDetector.class);
+
+    private final float samplingRate;
+    private final DefaultMonitoringConfig<MemoryProbe> monitoringConfig;
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+    private final Set<Tracker> trackers =
+            ConcurrentHashMap.<Tracker>newKeySet();
+
+    BufferLeakDetector(final float samplingRate,
+            final DefaultMonitoringConfig<MemoryProbe> monitoringConfig) {
+        if (samplingRate < 0.0f || samplingRate > 1.0f) {
+            throw new IllegalArgumentException("samplingRate must be greater or equal to zero and less or equal to 1");
+        }
+
+        this.samplingRate = samplingRate;
+        this.monitoringConfig = monitoringConfig;
+    }
+
+    /**
+     * @param propertyName the system property name
+     * @return the sampling rate set by the system property, or <tt>0</tt>
+     *         (leak detection disabled), if the property is not set or
+     *         has invalid value.
+     */
+    static float getSamplingRate(final String propertyName) {
+        final String value = System.getProperty(propertyName);
+        if (value == null) {
+            return 0.0f;
+        }
+
+        try {
+            final float rate = Float.parseFloat(value);
+            if (rate >= 0.0f && rate <= 1.0f) {
+                return rate;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+
+        LOGGER.log(Level.WARNING, "Invalid leak detection sampling rate {0}={1}, leak detection is disabled",
+                new Object[] {propertyName, value});
+        return 0.0f;
+    }
+
+    /**
+     * @return a new {@link BufferLeakDetector} if the sampling rate is
+     *         greater than zero, or <tt>null</tt> otherwise.
+     */
+    static BufferLeakDetector create(final float samplingRate,
+            final DefaultMonitoringConfig<MemoryProbe> monitoringConfig) {
+        return samplingRate > 0.0f ?
+                new BufferLeakDetector(samplingRate, monitoringConfig) :
+                null;
+    }
+
+    float getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * @return the number of the buffers being tracked at the moment.
+     */
+    int getTrackedCount() {
+        return trackers.size();
+    }
+
+    /**
+     * Starts tracking the allocated buffer, if it's been sampled.
+     *
+     * @param buffer the allocated buffer
+     * @param size the buffer size
+     * @return the {@link Tracker}, which has to be closed, once the buffer
+     *         is released, or <tt>null</tt> if the buffer is not tracked.
+     */
+    Tracker track(final Object buffer, final int size) {
+        if (samplingRate == 0.0f) {
+            return null;
+        }
+
+        reportLeaks();
+
+        if (samplingRate < 1.0f
+                && ThreadLocalRandom.current().nextFloat() >= samplingRate) {
+            return null;
+        }
+
+        final Tracker tracker = new Tracker(buffer, size, queue, trackers);
+        trackers.add(tracker);
+        return tracker;
+    }
+
+    /**
+     * Reports the leaks detected since the last check.
+     */
+    void reportLeaks() {
+        Tracker tracker;
+        while ((tracker = (Tracker) queue.poll()) != null) {
+            if (!trackers.remove(tracker)) {
+                // has been closed concurrently
+                continue;
+            }
+
+            if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.log(Level.WARNING,
+                        "Buffer of size " + tracker.size
+                        + " was garbage collected without being released",
+                        tracker.allocationTrace);
+            }
+
+            ProbeNotifier.notifyBufferLeak(monitoringConfig, tracker.size,
+                    tracker.allocationTrace);
+        }
+    }
+
+    static final class Tracker extends PhantomReference<Object> {
+        private final int size;
+        private final Throwable allocationTrace;
+        private final Set<Tracker> trackers;
+
+        private Tracker(final Object buffer, final int size,
+                final ReferenceQueue<Object> queue,
+                final Set<Tracker> trackers) {
+            super(buffer, queue);
+            this.size = size;
+            this.trackers = trackers;
+            this.allocationTrace = new Throwable("Buffer allocation");
+        }
+
+        /**
+         * Stops tracking, the buffer has been released.
+         */
+        void close() {
+            trackers.remove(this);
+            clear();
+        }
+    }
+}
@@ -67,12 +67,62 @@ public class HeapMemoryManager extends AbstractThreadLocalMemoryManager<HeapBuff
             ThreadCache.obtainIndex(RecyclableByteBufferWrapper.class,
                     Integer.getInteger(HeapMemoryManager.class.getName() + ".rbbw-cache-size", 2));
 
+    /**
+     * The system property to set the default leak detection sampling rate.
+     *
+     * @since 3.0
+     */
+    public static final String LEAK_DETECTION_SAMPLING_RATE_PROP_NAME =
+            "org.glassfish.grizzly.memory.HeapMemoryManager.leak-detection-sampling-rate";
+
+    // the leak detector, null if leak detection is disabled
+    private volatile BufferLeakDetector leakDetector;
+
     public HeapMemoryManager() {
         super();
+        initLeakDetector();
     }
 
     public HeapMemoryManager(final int maxBufferSize) {
         super(maxBufferSize);
+        initLeakDetector();
+    }
+
+    /**
+     * @return the fraction of allocated buffers tracked by the leak detector,
+     *         <tt>0</tt> if leak detection is disabled.
+     *
+     * @since 3.0
+     */
+    public float getLeakDetectionSamplingRate() {
+        final BufferLeakDetector detector = leakDetector;
+        return detector != null ? detector.getSamplingRate() : 0.0f;
+    }
+
+    /**
+     * Sets the fraction of allocated buffers to be tracked by the leak
+     * detector. The allocation stack trace of every tracked buffer is recorded
+     * and if the buffer is garbage collected without being released
+     * (see {@link #release(HeapBuffer)} and {@link Buffer#tryDispose()}) - the
+     * leak is logged and reported to the {@link MemoryProbe}s.
+     * Heap buffers, which are not released, are reclaimed by the garbage
+     * collector, but their memory doesn't get back to the thread local pool,
+     * so the reported allocations point to the code, which makes the pool
+     * allocate new chunks of memory more often than necessary.
+     * The default value is taken from the
+     * {@value #LEAK_DETECTION_SAMPLING_RATE_PROP_NAME} system property.
+     *
+     * @param samplingRate the sampling rate in [0, 1] range,
+     *                     <tt>0</tt> disables leak detection
+     *
+     * @since 3.0
+     */
+    public void setLeakDetectionSamplingRate(final float samplingRate) {
+        if (samplingRate < 0.0f || samplingRate > 1.0f) {
+            throw new IllegalArgumentException("samplingRate must be greater or equal to zero and less or equal to 1");
+        }
+
+        leakDetector = BufferLeakDetector.create(samplingRate, monitoringConfig);
     }
 
     // ---------------------------------------------- Methods from MemoryManager
@@ -83,7 +133,7 @@ public class HeapMemoryManager extends AbstractThreadLocalMemoryManager<HeapBuff
      */
     @Override
     public HeapBuffer allocate(final int size) {
-        return allocateHeapBuffer(size);
+        return track(allocateHeapBuffer(size));
     }
     
     /**
@@ -91,7 +141,7 @@ public class HeapMemoryManager extends AbstractThreadLocalMemoryManager<HeapBuff
      */
     @Override
     public HeapBuffer allocateAtLeast(final int size) {
-        return allocateHeapBufferAtLeast(size);
+        return track(allocateHeapBufferAtLeast(size));
     }
 
     /**
@@ -99,7 +149,14 @@ public class HeapMemoryManager extends AbstractThreadLocalMemoryManager<HeapBuff
      */
     @Override
     public HeapBuffer reallocate(final HeapBuffer oldBuffer, final int newSize) {
-        return reallocateHeapBuffer(oldBuffer, newSize);
+        final HeapBuffer newBuffer = reallocateHeapBuffer(oldBuffer, newSize);
+        if (newBuffer != oldBuffer) {
+            // the old buffer is left for GC, it's not a leak
+            untrack(oldBuffer);
+            track(newBuffer);
+        }
+
+        return newBuffer;
     }
     
     /**
@@ -107,6 +164,7 @@ public class HeapMemoryManager extends AbstractThreadLocalMemoryManager<HeapBuff
      */
     @Override
     public void release(final HeapBuffer buffer) {
+        untrack(buffer);
         releaseHeapBuffer(buffer);
     }
     
@@ -276,6 +334,31 @@ public class HeapMemoryManager extends AbstractThreadLocalMemoryManager<HeapBuff
     // --------------------------------------------------------- Private Methods
 
 
+    private void initLeakDetector() {
+        leakDetector = BufferLeakDetector.create(
+                BufferLeakDetector.getSamplingRate(LEAK_DETECTION_SAMPLING_RATE_PROP_NAME),
+                monitoringConfig);
+    }
+
+    /**
+     * Starts tracking the allocated buffer, if leak detection is enabled.
+     */
+    private HeapBuffer track(final HeapBuffer buffer) {
+        final BufferLeakDetector detector = leakDetector;
+        if (detector != null && buffer instanceof TrimmableHeapBuffer) {
+            ((TrimmableHeapBuffer) buffer).tracker =
+                    detector.track(buffer, buffer.capacity());
+        }
+
+        return buffer;
+    }
+
+    private static void untrack(final HeapBuffer buffer) {
+        if (buffer instanceof TrimmableHeapBuffer) {
+            ((TrimmableHeapBuffer) buffer).closeTracker();
+        }
+    }
+
     private void reallocatePoolBuffer() {
         final byte[] heap = new byte[maxBufferSize];
         ProbeNotifier.notifyBufferAllocated(monitoringConfig, maxBufferSize);
@@ -505,6 +588,9 @@ public class HeapMemoryManager extends AbstractThreadLocalMemoryManager<HeapBuff
             implements TrimAware {
 
         private HeapMemoryManager mm;
+
+        // the leak detector tracker, null if the buffer is not tracked
+        private BufferLeakDetector.Tracker tracker;
         
         private TrimmableHeapBuffer(final HeapMemoryManager mm,
                                     byte[] heap,
@@ -576,6 +662,13 @@ public class HeapMemoryManager extends AbstractThreadLocalMemoryManager<HeapBuff
             return mm.createTrimAwareBuffer(heap, offs + offset, capacity);
         }
 
+        private void closeTracker() {
+            if (tracker != null) {
+                tracker.close();
+                tracker = null;
+            }
+        }
+
         void initialize(final HeapMemoryManager mm,
                         final byte[] heap,
                         final int offset,
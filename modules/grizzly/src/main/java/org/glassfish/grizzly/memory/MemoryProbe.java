@@ -80,6 +80,58 @@ public interface MemoryProbe {
      */
     public void onPoolRestoredToFullEvent();
 
+    /**
+     * Called by {@link MemoryManager}, when a memory arena reserves a new slab
+     * of memory to carve buffers from.
+     * Note: These events are currently only implemented for SlabMemoryManager
+     * probes.
+     *
+     * @param arenaIndex the index of the arena
+     * @param slabSize the slab size
+     *
+     * @since 3.0
+     */
+    public void onSlabAllocateEvent(int arenaIndex, int slabSize);
+
+    /**
+     * Called by {@link MemoryManager}, when a memory arena returns an empty
+     * slab of memory.
+     * Note: These events are currently only implemented for SlabMemoryManager
+     * probes.
+     *
+     * @param arenaIndex the index of the arena
+     * @param slabSize the slab size
+     *
+     * @since 3.0
+     */
+    public void onSlabReleaseEvent(int arenaIndex, int slabSize);
+
+    /**
+     * Called by {@link MemoryManager}, when a memory arena reached its memory
+     * limit and the allocation request is going to be served by a non-pooled
+     * buffer.
+     * Note: These events are currently only implemented for SlabMemoryManager
+     * probes.
+     *
+     * @param arenaIndex the index of the arena
+     *
+     * @since 3.0
+     */
+    public void onArenaExhaustedEvent(int arenaIndex);
+
+    /**
+     * Called by {@link MemoryManager}, when a tracked buffer has been
+     * garbage collected without being released back to the {@link MemoryManager}.
+     * Only a sample of the allocated buffers is tracked, if leak detection
+     * is enabled.
+     *
+     * @param size buffer size
+     * @param allocationTrace the stack trace of the buffer allocation
+     *
+     * @since 3.0
+     */
+    public void onBufferLeakEvent(int size, Throwable allocationTrace);
+
 
     // ---------------------------------------------------------- Nested Classes
 
@@ -124,5 +176,29 @@ public interface MemoryProbe {
          */
         public void onPoolRestoredToFullEvent() {}
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onSlabAllocateEvent(int arenaIndex, int slabSize) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onSlabReleaseEvent(int arenaIndex, int slabSize) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onArenaExhaustedEvent(int arenaIndex) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onBufferLeakEvent(int size, Throwable allocationTrace) {}
+
     } // END Adapter
 }
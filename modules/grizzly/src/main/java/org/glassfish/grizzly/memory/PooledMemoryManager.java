@@ -100,6 +100,15 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
     private static final long BACK_OFF_DELAY = Long.getLong(
             PooledMemoryManager.class + ".back-off-delay", 0L);
+
+    /**
+     * The system property to set the default leak detection sampling rate.
+     *
+     * @since 3.0
+     */
+    public static final String LEAK_DETECTION_SAMPLING_RATE_PROP_NAME =
+            "org.glassfish.grizzly.memory.PooledMemoryManager.leak-detection-sampling-rate";
+
     /**
      * Basic monitoring support.  Concrete implementations of this class need
      * only to implement the {@link #createJmxManagementObject()}  method
@@ -121,6 +130,9 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     // the max buffer size pooled by this memory manager
     private final int maxPooledBufferSize;
 
+    // the leak detector, null if leak detection is disabled
+    private volatile BufferLeakDetector leakDetector;
+
 
     // ------------------------------------------------------------ Constructors
 
@@ -219,6 +231,46 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                     monitoringConfig);
         }
         maxPooledBufferSize = pools[numberOfPools - 1].bufferSize;
+
+        leakDetector = BufferLeakDetector.create(
+                BufferLeakDetector.getSamplingRate(LEAK_DETECTION_SAMPLING_RATE_PROP_NAME),
+                monitoringConfig);
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @return the fraction of allocated buffers tracked by the leak detector,
+     *         <tt>0</tt> if leak detection is disabled.
+     *
+     * @since 3.0
+     */
+    public float getLeakDetectionSamplingRate() {
+        final BufferLeakDetector detector = leakDetector;
+        return detector != null ? detector.getSamplingRate() : 0.0f;
+    }
+
+    /**
+     * Sets the fraction of allocated buffers to be tracked by the leak
+     * detector. The allocation stack trace of every tracked buffer is recorded
+     * and if the buffer is garbage collected without being disposed - the
+     * leak is logged and reported to the {@link MemoryProbe}s.
+     * The default value is taken from the
+     * {@value #LEAK_DETECTION_SAMPLING_RATE_PROP_NAME} system property.
+     *
+     * @param samplingRate the sampling rate in [0, 1] range,
+     *                     <tt>0</tt> disables leak detection
+     *
+     * @since 3.0
+     */
+    public void setLeakDetectionSamplingRate(final float samplingRate) {
+        if (samplingRate < 0.0f || samplingRate > 1.0f) {
+            throw new IllegalArgumentException("samplingRate must be greater or equal to zero and less or equal to 1");
+        }
+
+        leakDetector = BufferLeakDetector.create(samplingRate, monitoringConfig);
     }
 
     
@@ -258,7 +310,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         }
         
         return size <= maxPooledBufferSize ?
-                getPoolFor(size).allocate() :
+                allocateFromPool(getPoolFor(size)) :
                 allocateToCompositeBuffer(newCompositeBuffer(), size);
     }
 
@@ -287,7 +339,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                 if (newPool != oldPoolBuffer.owner().owner) {
                     final int pos = Math.min(oldPoolBuffer.position(), newSize);
 
-                    final Buffer newPoolBuffer = newPool.allocate();
+                    final Buffer newPoolBuffer = allocateFromPool(newPool);
                     Buffers.setPositionLimit(oldPoolBuffer, 0, newSize);
                     newPoolBuffer.put(oldPoolBuffer);
                     Buffers.setPositionLimit(newPoolBuffer, pos, newSize);
@@ -306,7 +358,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
                     final Pool newPool = getPoolFor(newSize);
 
-                    final Buffer newPoolBuffer = newPool.allocate();
+                    final Buffer newPoolBuffer = allocateFromPool(newPool);
                     newPoolBuffer.put(oldBuffer);
                     Buffers.setPositionLimit(newPoolBuffer, pos, newSize);
                     
@@ -410,6 +462,18 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     // --------------------------------------------------------- Private Methods
 
 
+    private Buffer allocateFromPool(final Pool pool) {
+        final Buffer buffer = pool.allocate();
+
+        final BufferLeakDetector detector = leakDetector;
+        if (detector != null) {
+            ((PoolBuffer) buffer).tracker(
+                    detector.track(buffer, pool.bufferSize));
+        }
+
+        return buffer;
+    }
+
     private Pool getPoolFor(final int size) {
         for (int i = 0; i < pools.length; i++) {
             final Pool pool = pools[i];
@@ -431,7 +495,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             final Pool maxBufferSizePool = pools[pools.length - 1];
 
             do {
-                cb.append(maxBufferSizePool.allocate());
+                cb.append(allocateFromPool(maxBufferSizePool));
                 size -= maxPooledBufferSize;
             } while (size >= maxPooledBufferSize);
         }
@@ -439,7 +503,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         for (int i = 0; i < pools.length; i++) {
             final Pool pool = pools[i];
             if (pool.bufferSize >= size) {
-                final Buffer b = pool.allocate();
+                final Buffer b = allocateFromPool(pool);
                 cb.append(b.limit(size));
                 break;
             }
@@ -914,6 +978,8 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         PoolBuffer free(boolean free);
 
         PoolSlice owner();
+
+        void tracker(BufferLeakDetector.Tracker tracker);
     }
     
     private static final class PoolHeapBuffer extends HeapBuffer
@@ -935,6 +1001,9 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         // non-null in any 'child' buffers created from the original.
         protected final PoolHeapBuffer source;
 
+        // the leak detector tracker, null if the buffer is not tracked
+        private BufferLeakDetector.Tracker tracker;
+
         
         // ------------------------------------------------------------ Constructors
 
@@ -1008,6 +1077,11 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             this.free = free;
             return this;
         }
+
+        @Override
+        public void tracker(final BufferLeakDetector.Tracker tracker) {
+            this.tracker = tracker;
+        }
         
         // ------------------------------------------ Methods from HeapBuffer
 
@@ -1082,6 +1156,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
 
         private void returnToPool() {
+            closeTracker();
             // restore capacity
             cap = heap.length;
             // clear
@@ -1089,6 +1164,13 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             
             owner.offer(this);
         }
+
+        private void closeTracker() {
+            if (tracker != null) {
+                tracker.close();
+                tracker = null;
+            }
+        }
         
         // ----------------------------------------------------- Protected Methods
         
@@ -1156,6 +1238,9 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         // non-null in any 'child' buffers created from the original.
         protected final PoolByteBufferWrapper source;
 
+        // the leak detector tracker, null if the buffer is not tracked
+        private BufferLeakDetector.Tracker tracker;
+
         // Used for the special case of the split() method.  This maintains
         // the original wrapper from the pool which must ultimately be returned.
         private final ByteBuffer origVisible;
@@ -1234,6 +1319,11 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             this.free = free;
             return this;
         }
+
+        @Override
+        public void tracker(final BufferLeakDetector.Tracker tracker) {
+            this.tracker = tracker;
+        }
         
         // ------------------------------------------ Methods from ByteBufferWrapper
         
@@ -1301,9 +1391,17 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         
         private void returnToPool() {
             // should be called on "source" only
+            closeTracker();
             visible = origVisible;
             visible.clear();
             owner.offer(this);
         }
+
+        private void closeTracker() {
+            if (tracker != null) {
+                tracker.close();
+                tracker = null;
+            }
+        }
     } // END PoolBuffer    
 }
@@ -133,4 +133,75 @@ final class ProbeNotifier {
         }
     }
 
+    /**
+     * Notify registered {@link MemoryProbe}s about the "slab allocated" event.
+     *
+     * @param arenaIndex the index of the arena
+     * @param slabSize the slab size
+     */
+    static void notifySlabAllocated(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int arenaIndex, final int slabSize) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onSlabAllocateEvent(arenaIndex, slabSize);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link MemoryProbe}s about the "slab released" event.
+     *
+     * @param arenaIndex the index of the arena
+     * @param slabSize the slab size
+     */
+    static void notifySlabReleased(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int arenaIndex, final int slabSize) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onSlabReleaseEvent(arenaIndex, slabSize);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link MemoryProbe}s about the "arena exhausted" event.
+     *
+     * @param arenaIndex the index of the arena
+     */
+    static void notifyArenaExhausted(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int arenaIndex) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onArenaExhaustedEvent(arenaIndex);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link MemoryProbe}s about the "buffer leak" event.
+     *
+     * @param size buffer size
+     * @param allocationTrace the stack trace of the buffer allocation
+     */
+    static void notifyBufferLeak(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int size, final Throwable allocationTrace) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onBufferLeakEvent(size, allocationTrace);
+            }
+        }
+    }
+
 }
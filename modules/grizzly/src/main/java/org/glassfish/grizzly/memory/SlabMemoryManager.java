@@ -0,0 +1,1107 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringUtils;
+
+/**
+ * A {@link MemoryManager} implementation, which carves direct {@link Buffer}s
+ * out of large off-heap memory slabs.
+ *
+ * The allocation requests are rounded up to a size class. The size classes
+ * grow geometrically, every power-of-two range is split into 4 classes
+ * (256, 320, 384, 448, 512, 640, ...), which limits the internal
+ * fragmentation to 25% at most. The buffers are managed by arenas, each
+ * thread is bound to the arena with the fewest bound threads on its first
+ * allocation, so the threads (selector and worker threads in the first place)
+ * don't contend on the same arena as long as there are enough arenas.
+ * Each arena reserves slabs of memory on demand and keeps per size class
+ * free lists of the released buffers, so once the memory is carved there
+ * is neither direct memory allocation nor buffer wrapper object allocation
+ * anymore.
+ *
+ * The arenas count the buffers allocated out of every slab. Once all
+ * the buffers of a slab are released, the slab is empty and its free buffers
+ * are merged back into the whole slab, which is carved again for whatever
+ * size classes are requested next, so the memory isn't stuck in the free lists
+ * of the size classes, which are not used anymore. An arena keeps one empty
+ * slab, the other empty slabs are returned (their memory is freed, when
+ * the slab is garbage collected).
+ *
+ * When the memory limit is reached, an allocation request is served by
+ * a free buffer of another arena, or, as the last resort, by a direct buffer
+ * allocated outside of the slabs. The latter is reported by
+ * {@link MemoryProbe#onArenaExhaustedEvent(int)} and logged once.
+ *
+ * There are several tuning options for this {@link MemoryManager} implementation.
+ * <ul>
+ *     <li>The slab size, the amount of direct memory an arena reserves at once</li>
+ *     <li>The max buffer size, bigger allocation requests are served by a {@link CompositeBuffer} built out of max size buffers</li>
+ *     <li>The number of arenas</li>
+ *     <li>The max amount of memory all the arenas may reserve together</li>
+ *     <li>The leak detection sampling rate, the fraction of allocated buffers tracked by the leak detector</li>
+ * </ul>
+ *
+ * If no explicit configuration is provided, the following defaults will be used:
+ * <ul>
+ *     <li>Slab size: 2 MiB ({@link #DEFAULT_SLAB_SIZE})</li>
+ *     <li>Max buffer size: 256 KiB ({@link #DEFAULT_MAX_BUFFER_SIZE})</li>
+ *     <li>Number of arenas: Based on the return value of <code>Runtime.getRuntime().availableProcessors()</code></li>
+ *     <li>Max memory: 10% ({@link #DEFAULT_MEMORY_USAGE_PERCENTAGE}) of the max heap size, which is also the default direct memory limit</li>
+ *     <li>Leak detection sampling rate: the value of the {@value #LEAK_DETECTION_SAMPLING_RATE_PROP_NAME} system property, or 0 (disabled) if it's not set</li>
+ * </ul>
+ *
+ * The manager could be used as the {@link MemoryManager#DEFAULT_MEMORY_MANAGER}
+ * by setting the <tt>org.glassfish.grizzly.DEFAULT_MEMORY_MANAGER</tt>
+ * system property to <tt>org.glassfish.grizzly.memory.SlabMemoryManager</tt>,
+ * or by a custom {@link DefaultMemoryManagerFactory}.
+ *
+ * @since 3.0
+ */
+public class SlabMemoryManager implements MemoryManager<Buffer>, WrapperAware {
+
+    public static final int DEFAULT_SLAB_SIZE = 2 * 1024 * 1024;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 256 * 1024;
+    public static final float DEFAULT_MEMORY_USAGE_PERCENTAGE = 0.10f;
+
+    public static final String LEAK_DETECTION_SAMPLING_RATE_PROP_NAME =
+            "org.glassfish.grizzly.memory.SlabMemoryManager.leak-detection-sampling-rate";
+
+    private static final Logger LOGGER = Grizzly.logger(SlabMemoryManager.class);
+
+    // the smallest size class
+    static final int MIN_SIZE_CLASS = 256;
+
+    private static final int LOG2_MIN_SIZE_CLASS = 8;
+
+    // every power-of-two range is split into 2^LOG2_CLASSES_PER_RANGE classes
+    private static final int LOG2_CLASSES_PER_RANGE = 2;
+    private static final int CLASSES_PER_RANGE = 1 << LOG2_CLASSES_PER_RANGE;
+
+    /**
+     * Basic monitoring support.  Concrete implementations of this class need
+     * only to implement the {@link #createJmxManagementObject()}  method
+     * to plug into the Grizzly 2.0 JMX framework.
+     */
+    protected final DefaultMonitoringConfig<MemoryProbe> monitoringConfig =
+            new DefaultMonitoringConfig<MemoryProbe>(MemoryProbe.class) {
+
+                @Override
+                public Object createManagementObject() {
+                    return createJmxManagementObject();
+                }
+
+            };
+
+    private final int slabSize;
+    private final int maxBufferSize;
+    private final int maxSizeClass;
+    private final long maxMemory;
+    private final Arena[] arenas;
+    private final BufferLeakDetector leakDetector;
+
+    // the memory reserved by all the arenas
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    private final AtomicBoolean isExhaustedLogged = new AtomicBoolean();
+
+    private final ThreadLocal<Arena> threadArena = new ThreadLocal<Arena>() {
+        @Override
+        protected Arena initialValue() {
+            return bindArena();
+        }
+    };
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    /**
+     * Creates a new <code>SlabMemoryManager</code> using the following defaults:
+     * <ul>
+     *     <li>2 MiB slab size</li>
+     *     <li>256 KiB max buffer size</li>
+     *     <li>Number of arenas based on <code>Runtime.getRuntime().availableProcessors()</code></li>
+     *     <li>The arenas may reserve 10% of the max heap size</li>
+     *     <li>Leak detection sampling rate set by the {@value #LEAK_DETECTION_SAMPLING_RATE_PROP_NAME} system property</li>
+     * </ul>
+     */
+    public SlabMemoryManager() {
+        this(DEFAULT_SLAB_SIZE,
+                DEFAULT_MAX_BUFFER_SIZE,
+                Runtime.getRuntime().availableProcessors(),
+                (long) (Runtime.getRuntime().maxMemory() * DEFAULT_MEMORY_USAGE_PERCENTAGE),
+                BufferLeakDetector.getSamplingRate(LEAK_DETECTION_SAMPLING_RATE_PROP_NAME));
+    }
+
+    /**
+     * Creates a new <code>SlabMemoryManager</code> using the specified parameters for configuration.
+     *
+     * @param slabSize the amount of direct memory an arena reserves at once, must be a power of two
+     * @param maxBufferSize the max size of a single buffer carved out of a slab, must be a power of two
+     *                      not less than 256 and not greater than the <tt>slabSize</tt>
+     * @param numberOfArenas the number of arenas the allocation requests are striped across
+     * @param maxMemory the max amount of memory all the arenas may reserve together,
+     *                  each arena is able to reserve at least one slab though
+     * @param leakDetectionSamplingRate the fraction of allocated buffers tracked by the leak detector,
+     *                                  <tt>0</tt> disables leak detection
+     */
+    public SlabMemoryManager(final int slabSize,
+            final int maxBufferSize,
+            final int numberOfArenas,
+            final long maxMemory,
+            final float leakDetectionSamplingRate) {
+        if (maxBufferSize < MIN_SIZE_CLASS || !isPowerOfTwo(maxBufferSize)) {
+            throw new IllegalArgumentException("maxBufferSize must be a power of two and not less than " + MIN_SIZE_CLASS);
+        }
+        if (slabSize < maxBufferSize || !isPowerOfTwo(slabSize)) {
+            throw new IllegalArgumentException("slabSize must be a power of two and not less than maxBufferSize");
+        }
+        if (numberOfArenas <= 0) {
+            throw new IllegalArgumentException("numberOfArenas must be greater than zero");
+        }
+        if (maxMemory <= 0) {
+            throw new IllegalArgumentException("maxMemory must be greater than zero");
+        }
+        if (leakDetectionSamplingRate < 0.0f || leakDetectionSamplingRate > 1.0f) {
+            throw new IllegalArgumentException("leakDetectionSamplingRate must be greater or equal to zero and less or equal to 1");
+        }
+
+        this.slabSize = slabSize;
+        this.maxBufferSize = maxBufferSize;
+        this.maxSizeClass = sizeClassIndex(maxBufferSize);
+        this.maxMemory = maxMemory;
+
+        leakDetector = BufferLeakDetector.create(leakDetectionSamplingRate,
+                monitoringConfig);
+
+        final int[] sizeClasses = new int[maxSizeClass + 1];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = sizeClassSize(i);
+        }
+
+        arenas = new Arena[numberOfArenas];
+        for (int i = 0; i < numberOfArenas; i++) {
+            arenas[i] = new Arena(this, i, sizeClasses);
+        }
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @return the amount of direct memory an arena reserves at once.
+     */
+    public int getSlabSize() {
+        return slabSize;
+    }
+
+    /**
+     * @return the max size of a single buffer carved out of a slab.
+     */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * @return the max amount of memory all the arenas may reserve together.
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * @return the number of arenas.
+     */
+    public int getArenasCount() {
+        return arenas.length;
+    }
+
+    /**
+     * @return the fraction of allocated buffers tracked by the leak detector,
+     *         <tt>0</tt> if leak detection is disabled.
+     */
+    public float getLeakDetectionSamplingRate() {
+        return leakDetector != null ? leakDetector.getSamplingRate() : 0.0f;
+    }
+
+    /**
+     * @return the amount of direct memory reserved by all the arenas.
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * @return the amount of memory of all the arenas, which is currently
+     *         used by the allocated buffers.
+     */
+    public long getUsedBytes() {
+        long sum = 0;
+        for (Arena arena : arenas) {
+            sum += arena.usedBytes;
+        }
+
+        return sum;
+    }
+
+    /**
+     * @param arenaIndex the arena index
+     * @return the amount of direct memory reserved by the arena.
+     */
+    public long getArenaReservedBytes(final int arenaIndex) {
+        return arenas[arenaIndex].reservedBytes;
+    }
+
+    /**
+     * @param arenaIndex the arena index
+     * @return the amount of the arena memory, which is currently
+     *         used by the allocated buffers.
+     */
+    public long getArenaUsedBytes(final int arenaIndex) {
+        return arenas[arenaIndex].usedBytes;
+    }
+
+
+    // ---------------------------------------------- Methods from MemoryManager
+
+
+    /**
+     * For this implementation, this method simply calls through to
+     * {@link #allocateAtLeast(int)};
+     */
+    @Override
+    public Buffer allocate(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Requested allocation size must be greater than or equal to zero.");
+        }
+        return allocateAtLeast(size).limit(size);
+    }
+
+    /**
+     * Allocates a buffer of at least the size requested.
+     * <p/>
+     * Keep in mind that the capacity of the buffer may be greater than the
+     * allocation request (it's rounded up to the size class).  The limit
+     * however, will be set to the buffer capacity.
+     *
+     * @param size the min {@link Buffer} size to be allocated.
+     * @return a buffer of at least the specified <tt>size</tt>.
+     */
+    @Override
+    public Buffer allocateAtLeast(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Requested allocation size must be greater than or equal to zero.");
+        }
+
+        if (size == 0) {
+            return Buffers.EMPTY_BUFFER;
+        }
+
+        return size <= maxBufferSize ?
+                allocateChunk(size) :
+                allocateToCompositeBuffer(newCompositeBuffer(), size);
+    }
+
+    /**
+     * Reallocates an existing buffer to at least the specified size.
+     *
+     * @param oldBuffer old {@link Buffer} to be reallocated.
+     * @param newSize   new {@link Buffer} required size.
+     *
+     * @return potentially a new buffer of at least the specified size.
+     */
+    @Override
+    public Buffer reallocate(final Buffer oldBuffer, final int newSize) {
+        if (newSize == 0) {
+            oldBuffer.tryDispose();
+            return Buffers.EMPTY_BUFFER;
+        }
+
+        final int curBufSize = oldBuffer.capacity();
+
+        if (oldBuffer.isComposite()) {
+            final CompositeBuffer oldCompositeBuffer = (CompositeBuffer) oldBuffer;
+            if (curBufSize > newSize) {
+                final int oldPos = oldCompositeBuffer.position();
+                Buffers.setPositionLimit(oldBuffer, newSize, newSize);
+                oldCompositeBuffer.trim();
+                oldCompositeBuffer.position(Math.min(oldPos, newSize));
+
+                return oldCompositeBuffer;
+            } else {
+                return allocateToCompositeBuffer(oldCompositeBuffer,
+                        newSize - curBufSize);
+            }
+        }
+
+        if (curBufSize >= newSize) {
+            // the size class granularity is fine enough to keep the buffer
+            return oldBuffer.limit(newSize);
+        }
+
+        final int pos = oldBuffer.position();
+        Buffers.setPositionLimit(oldBuffer, 0, curBufSize);
+
+        if (newSize <= maxBufferSize) {
+            final Buffer newBuffer = allocateChunk(newSize);
+            newBuffer.put(oldBuffer);
+            Buffers.setPositionLimit(newBuffer, pos, newSize);
+
+            oldBuffer.tryDispose();
+
+            return newBuffer;
+        } else {
+            final CompositeBuffer cb = newCompositeBuffer();
+            cb.append(oldBuffer);
+            allocateToCompositeBuffer(cb, newSize - curBufSize);
+            Buffers.setPositionLimit(cb, pos, newSize);
+            return cb;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(final Buffer buffer) {
+        buffer.tryDispose();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean willAllocateDirect(final int size) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<MemoryProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+
+
+    // ----------------------------------------------- Methods from WrapperAware
+
+
+    @Override
+    public Buffer wrap(final byte[] data) {
+        return wrap(ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public Buffer wrap(byte[] data, int offset, int length) {
+        return wrap(ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public Buffer wrap(final String s) {
+        return wrap(s.getBytes(Charset.defaultCharset()));
+    }
+
+    @Override
+    public Buffer wrap(final String s, final Charset charset) {
+        return wrap(s.getBytes(charset));
+    }
+
+    @Override
+    public Buffer wrap(final ByteBuffer byteBuffer) {
+        return new ByteBufferWrapper(byteBuffer);
+    }
+
+
+    // ------------------------------------------------------- Protected Methods
+
+
+    protected Object createJmxManagementObject() {
+
+        return MonitoringUtils.loadJmxObject(
+                "org.glassfish.grizzly.memory.jmx.SlabMemoryManager", this,
+                SlabMemoryManager.class);
+    }
+
+
+    Arena[] getArenas() {
+        return Arrays.copyOf(arenas, arenas.length);
+    }
+
+    /**
+     * @return the index of the smallest size class, which is able to hold
+     *         the given number of bytes.
+     */
+    static int sizeClassIndex(final int size) {
+        if (size <= MIN_SIZE_CLASS) {
+            return 0;
+        }
+
+        final int n = size - 1;
+        final int log2 = 31 - Integer.numberOfLeadingZeros(n);
+        final int step = (n >>> (log2 - LOG2_CLASSES_PER_RANGE))
+                & (CLASSES_PER_RANGE - 1);
+
+        return ((log2 - LOG2_MIN_SIZE_CLASS) << LOG2_CLASSES_PER_RANGE)
+                + step + 1;
+    }
+
+    /**
+     * @return the size of the size class with the given index.
+     */
+    static int sizeClassSize(final int index) {
+        if (index == 0) {
+            return MIN_SIZE_CLASS;
+        }
+
+        final int log2 = LOG2_MIN_SIZE_CLASS + ((index - 1) >>> LOG2_CLASSES_PER_RANGE);
+        final int step = ((index - 1) & (CLASSES_PER_RANGE - 1)) + 1;
+
+        return (1 << log2) + (step << (log2 - LOG2_CLASSES_PER_RANGE));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private Buffer allocateChunk(final int size) {
+        final int sizeClass = sizeClassIndex(size);
+        final Arena arena = threadArena.get();
+
+        Buffer buffer = arena.allocate(sizeClass);
+        if (buffer == null) {
+            // the memory limit is reached, try the free buffers of the other arenas
+            for (Arena other : arenas) {
+                if (other != arena
+                        && (buffer = other.allocateFree(sizeClass)) != null) {
+                    return buffer;
+                }
+            }
+
+            buffer = allocateUnpooled(arena, size);
+        }
+
+        return buffer;
+    }
+
+    private Buffer allocateUnpooled(final Arena arena, final int size) {
+        ProbeNotifier.notifyArenaExhausted(monitoringConfig, arena.index);
+
+        if (isExhaustedLogged.compareAndSet(false, true)) {
+            LOGGER.log(Level.WARNING, "SlabMemoryManager reached its memory "
+                    + "limit of {0} bytes, the buffers will be allocated "
+                    + "outside of the slabs, until the memory is released",
+                    maxMemory);
+        }
+
+        final ByteBufferWrapper buffer =
+                new ByteBufferWrapper(ByteBuffer.allocateDirect(size));
+        ProbeNotifier.notifyBufferAllocated(monitoringConfig, size);
+        return buffer;
+    }
+
+    private CompositeBuffer allocateToCompositeBuffer(
+            final CompositeBuffer cb, int size) {
+
+        assert size >= 0;
+
+        while (size >= maxBufferSize) {
+            cb.append(allocateChunk(maxBufferSize));
+            size -= maxBufferSize;
+        }
+
+        if (size > 0) {
+            cb.append(allocateChunk(size).limit(size));
+        }
+
+        return cb;
+    }
+
+    private CompositeBuffer newCompositeBuffer() {
+        final CompositeBuffer cb = CompositeBuffer.newBuffer(this);
+        cb.allowInternalBuffersDispose(true);
+        cb.allowBufferDispose(true);
+        return cb;
+    }
+
+    /**
+     * Binds the current thread to the arena with the fewest bound threads.
+     */
+    private Arena bindArena() {
+        Arena arena = arenas[0];
+        for (int i = 1; i < arenas.length; i++) {
+            if (arenas[i].boundThreads.get() < arena.boundThreads.get()) {
+                arena = arenas[i];
+            }
+        }
+
+        arena.boundThreads.incrementAndGet();
+        return arena;
+    }
+
+    /**
+     * Reserves a new slab for the given arena, if the memory limit allows.
+     */
+    private boolean reserveSlab(final Arena arena) {
+        for (;;) {
+            final long reserved = reservedBytes.get();
+            if (arena.reservedBytes > 0 && reserved + slabSize > maxMemory) {
+                return false;
+            }
+
+            if (reservedBytes.compareAndSet(reserved, reserved + slabSize)) {
+                return true;
+            }
+        }
+    }
+
+    private void releaseSlabs(final int count) {
+        reservedBytes.addAndGet(-(long) count * slabSize);
+    }
+
+    private static boolean isPowerOfTwo(final int valueToCheck) {
+        return ((valueToCheck & (valueToCheck - 1)) == 0);
+    }
+
+    /**
+     * The arena carves the {@link SlabBuffer}s out of the slabs it reserves
+     * and keeps the released {@link SlabBuffer}s in per size class free lists.
+     */
+    static final class Arena {
+        // the number of empty slabs an arena keeps, before returning them
+        private static final int MAX_EMPTY_SLABS = 1;
+
+        private final SlabMemoryManager manager;
+        private final int index;
+        private final int slabSize;
+        private final int[] sizeClasses;
+        private final BufferLeakDetector leakDetector;
+        private final DefaultMonitoringConfig<MemoryProbe> monitoringConfig;
+
+        // the number of threads bound to this arena
+        final AtomicInteger boundThreads = new AtomicInteger();
+
+        // per size class stacks of free buffers
+        private final SlabBuffer[][] freeBuffers;
+        private final int[] freeCounts;
+
+        // the reserved slabs
+        private final List<Slab> slabs = new ArrayList<Slab>();
+        // the number of slabs (except the current one) with no allocated buffers
+        private int emptySlabs;
+
+        // the slab the new buffers are carved from
+        private Slab slab;
+
+        private volatile long reservedBytes;
+        private volatile long usedBytes;
+
+        Arena(final SlabMemoryManager manager, final int index,
+                final int[] sizeClasses) {
+            this.manager = manager;
+            this.index = index;
+            this.slabSize = manager.slabSize;
+            this.sizeClasses = sizeClasses;
+            this.leakDetector = manager.leakDetector;
+            this.monitoringConfig = manager.monitoringConfig;
+
+            freeBuffers = new SlabBuffer[sizeClasses.length][];
+            freeCounts = new int[sizeClasses.length];
+            for (int i = 0; i < sizeClasses.length; i++) {
+                freeBuffers[i] = new SlabBuffer[16];
+            }
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        long getReservedBytes() {
+            return reservedBytes;
+        }
+
+        long getUsedBytes() {
+            return usedBytes;
+        }
+
+        synchronized int getFreeBuffersCount(final int sizeClass) {
+            return freeCounts[sizeClass];
+        }
+
+        synchronized int getSlabsCount() {
+            return slabs.size();
+        }
+
+        /**
+         * @return the buffer of the given size class, or <tt>null</tt>,
+         *         if the memory limit is reached.
+         */
+        SlabBuffer allocate(final int sizeClass) {
+            return allocate(sizeClass, true);
+        }
+
+        /**
+         * @return the free buffer of the given size class, or <tt>null</tt>,
+         *         if there is no free buffer of the size class.
+         */
+        SlabBuffer allocateFree(final int sizeClass) {
+            return allocate(sizeClass, false);
+        }
+
+        private SlabBuffer allocate(final int sizeClass,
+                final boolean canCarve) {
+            final int size = sizeClasses[sizeClass];
+
+            SlabBuffer buffer;
+            boolean isNewBuffer = false;
+            boolean isNewSlab = false;
+
+            synchronized (this) {
+                buffer = pop(sizeClass);
+
+                if (buffer != null) {
+                    if (buffer.slab.allocated++ == 0 && buffer.slab != slab) {
+                        emptySlabs--;
+                    }
+                } else {
+                    if (!canCarve) {
+                        return null;
+                    }
+
+                    if (slab == null || slab.offset + size > slabSize) {
+                        retireSlab();
+
+                        // an empty slab is carved again as a whole
+                        slab = reuseEmptySlab();
+                        if (slab == null) {
+                            if (!manager.reserveSlab(this)) {
+                                return null;
+                            }
+
+                            slab = new Slab(ByteBuffer.allocateDirect(slabSize));
+                            slabs.add(slab);
+                            reservedBytes += slabSize;
+                            isNewSlab = true;
+                        }
+                    }
+
+                    buffer = carve(sizeClass);
+                    slab.allocated++;
+                    isNewBuffer = true;
+                }
+
+                usedBytes += size;
+            }
+
+            if (isNewSlab) {
+                ProbeNotifier.notifySlabAllocated(monitoringConfig, index, slabSize);
+            }
+
+            if (isNewBuffer) {
+                ProbeNotifier.notifyBufferAllocated(monitoringConfig, size);
+            } else {
+                ProbeNotifier.notifyBufferAllocatedFromPool(monitoringConfig, size);
+            }
+
+            if (leakDetector != null) {
+                buffer.tracker = leakDetector.track(buffer, size);
+            }
+
+            return buffer.prepare();
+        }
+
+        void release(final SlabBuffer buffer) {
+            final int size = sizeClasses[buffer.sizeClass];
+            int releasedSlabs = 0;
+
+            synchronized (this) {
+                push(buffer);
+                usedBytes -= size;
+
+                if (--buffer.slab.allocated == 0 && buffer.slab != slab
+                        && ++emptySlabs > MAX_EMPTY_SLABS) {
+                    releasedSlabs = releaseEmptySlabs(buffer.slab);
+                }
+            }
+
+            ProbeNotifier.notifyBufferReleasedToPool(monitoringConfig, size);
+
+            for (int i = 0; i < releasedSlabs; i++) {
+                ProbeNotifier.notifySlabReleased(monitoringConfig, index, slabSize);
+            }
+        }
+
+        /**
+         * Carves the rest of the current slab into the free buffers of
+         * the smaller size classes, so no memory is wasted.
+         */
+        private void retireSlab() {
+            if (slab == null) {
+                return;
+            }
+
+            for (int i = sizeClasses.length - 1; i >= 0; i--) {
+                while (slab.offset + sizeClasses[i] <= slabSize) {
+                    push(carve(i).free(true));
+                }
+            }
+
+            if (slab.allocated == 0) {
+                emptySlabs++;
+            }
+
+            slab = null;
+        }
+
+        /**
+         * @return an empty slab, with its free buffers removed from the free
+         *         lists, or <tt>null</tt>, if there is no empty slab.
+         */
+        private Slab reuseEmptySlab() {
+            if (emptySlabs == 0) {
+                return null;
+            }
+
+            for (Slab candidate : slabs) {
+                if (candidate.allocated == 0) {
+                    candidate.isRemoved = true;
+                    removeFreeBuffers();
+                    candidate.isRemoved = false;
+                    candidate.offset = 0;
+                    emptySlabs--;
+
+                    return candidate;
+                }
+            }
+
+            throw new IllegalStateException("No empty slab found");
+        }
+
+        /**
+         * Returns all the empty slabs except the given one.
+         *
+         * @return the number of returned slabs.
+         */
+        private int releaseEmptySlabs(final Slab kept) {
+            int count = 0;
+            for (Slab candidate : slabs) {
+                if (candidate.allocated == 0 && candidate != kept) {
+                    candidate.isRemoved = true;
+                    count++;
+                }
+            }
+
+            removeFreeBuffers();
+
+            for (int i = slabs.size() - 1; i >= 0; i--) {
+                if (slabs.get(i).isRemoved) {
+                    slabs.remove(i);
+                }
+            }
+
+            emptySlabs -= count;
+            reservedBytes -= (long) count * slabSize;
+            manager.releaseSlabs(count);
+
+            return count;
+        }
+
+        /**
+         * Removes the free buffers of the slabs marked as removed from
+         * the free lists.
+         */
+        private void removeFreeBuffers() {
+            for (int i = 0; i < freeBuffers.length; i++) {
+                final SlabBuffer[] stack = freeBuffers[i];
+                final int count = freeCounts[i];
+
+                int newCount = 0;
+                for (int j = 0; j < count; j++) {
+                    final SlabBuffer buffer = stack[j];
+                    if (!buffer.slab.isRemoved) {
+                        stack[newCount++] = buffer;
+                    }
+                }
+
+                Arrays.fill(stack, newCount, count, null);
+                freeCounts[i] = newCount;
+            }
+        }
+
+        private SlabBuffer carve(final int sizeClass) {
+            final int size = sizeClasses[sizeClass];
+
+            final ByteBuffer dup = slab.memory.duplicate();
+            dup.limit(slab.offset + size);
+            dup.position(slab.offset);
+            slab.offset += size;
+
+            return new SlabBuffer(dup.slice(), this, slab, sizeClass);
+        }
+
+        private SlabBuffer pop(final int sizeClass) {
+            final int count = freeCounts[sizeClass];
+            if (count == 0) {
+                return null;
+            }
+
+            final SlabBuffer[] stack = freeBuffers[sizeClass];
+            final SlabBuffer buffer = stack[count - 1];
+            stack[count - 1] = null;
+            freeCounts[sizeClass] = count - 1;
+
+            return buffer;
+        }
+
+        private void push(final SlabBuffer buffer) {
+            final int sizeClass = buffer.sizeClass;
+            final int count = freeCounts[sizeClass];
+
+            SlabBuffer[] stack = freeBuffers[sizeClass];
+            if (count == stack.length) {
+                stack = Arrays.copyOf(stack, count << 1);
+                freeBuffers[sizeClass] = stack;
+            }
+
+            stack[count] = buffer;
+            freeCounts[sizeClass] = count + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "Arena[" + index + "] {" +
+                    "reserved bytes=" + reservedBytes +
+                    ", used bytes=" + usedBytes +
+                    '}';
+        }
+    } // END Arena
+
+
+    /**
+     * A slab of direct memory, guarded by the owning {@link Arena}.
+     */
+    static final class Slab {
+        final ByteBuffer memory;
+
+        // the offset the next buffer is carved at
+        int offset;
+        // the number of allocated (not free) buffers carved out of the slab
+        int allocated;
+        // marks the slab, which free buffers are being removed
+        boolean isRemoved;
+
+        Slab(final ByteBuffer memory) {
+            this.memory = memory;
+        }
+    } // END Slab
+
+
+    static final class SlabBuffer extends ByteBufferWrapper {
+
+        // The arena to which this Buffer instance will be returned.
+        private final Arena owner;
+
+        // The slab this Buffer is carved out of
+        private final Slab slab;
+
+        // The size class of this Buffer
+        private final int sizeClass;
+
+        // When this Buffer instance resides in the arena, this flag will
+        // be true.
+        boolean free;
+
+        // represents the number of 'child' buffers that have been created using
+        // this as the foundation.  This source buffer can't be returned
+        // to the arena unless this value is zero.
+        private final AtomicInteger shareCount;
+
+        // represents the original buffer from the arena.  This value will be
+        // non-null in any 'child' buffers created from the original.
+        private final SlabBuffer source;
+
+        // Used for the special case of the split() method.  This maintains
+        // the original wrapper from the arena which must ultimately be returned.
+        private final ByteBuffer origVisible;
+
+        // the leak detector tracker, null if the buffer is not tracked
+        BufferLeakDetector.Tracker tracker;
+
+
+        // -------------------------------------------------------- Constructors
+
+
+        private SlabBuffer(final ByteBuffer underlyingByteBuffer,
+                final Arena owner, final Slab slab, final int sizeClass) {
+            this(underlyingByteBuffer, owner, slab, sizeClass, null, new AtomicInteger());
+        }
+
+        private SlabBuffer(final ByteBuffer underlyingByteBuffer,
+                final Arena owner,
+                final Slab slab,
+                final int sizeClass,
+                final SlabBuffer source,
+                final AtomicInteger shareCount) {
+            super(underlyingByteBuffer);
+
+            this.owner = owner;
+            this.slab = slab;
+            this.sizeClass = sizeClass;
+            this.shareCount = shareCount;
+            this.source = source != null ? source : this;
+
+            this.origVisible = this.source.visible;
+        }
+
+        SlabBuffer prepare() {
+            allowBufferDispose = true;
+            free = false;
+            return this;
+        }
+
+        SlabBuffer free(final boolean free) {
+            this.free = free;
+            return this;
+        }
+
+        Arena owner() {
+            return owner;
+        }
+
+        int sizeClass() {
+            return sizeClass;
+        }
+
+        // -------------------------------------- Methods from ByteBufferWrapper
+
+        @Override
+        public void dispose() {
+            if (free) {
+                return;
+            }
+            free = true;
+
+            dispose0();
+        }
+
+        private void dispose0() {
+            // check shared counter optimistically
+            boolean isNotShared = shareCount.get() == 0;
+            if (!isNotShared) {
+                // try pessimistic check using CAS loop
+                isNotShared = (shareCount.getAndDecrement() == 0);
+                if (isNotShared) {
+                    // if the former check is true - the shared counter is negative,
+                    // so we have to reset it
+                    shareCount.set(0);
+                }
+            }
+
+            if (isNotShared) {
+                // we can now safely return source back to the arena
+                source.returnToArena();
+            }
+        }
+
+        // --------------------------------------------------- Protected Methods
+
+
+        @Override
+        protected ByteBufferWrapper wrapByteBuffer(final ByteBuffer buffer) {
+            final SlabBuffer b =
+                    new SlabBuffer(buffer,
+                            null, // don't keep track of the owner for child buffers
+                            null,
+                            sizeClass,
+                            source, // pass the 'parent' buffer along
+                            shareCount); // pass the shareCount
+            b.allowBufferDispose(true);
+            shareCount.incrementAndGet();
+
+            return b;
+        }
+
+        /**
+         * Override the default implementation to check the <tt>free</tt> status
+         * of this buffer (i.e., once released, operations on the buffer will no
+         * longer succeed).
+         */
+        @Override
+        protected final void checkDispose() {
+            if (free) {
+                throw new IllegalStateException(
+                        "SlabBuffer has already been disposed",
+                        disposeStackTrace);
+            }
+        }
+
+        // ----------------------------------------------------- Private Methods
+
+        private void returnToArena() {
+            // should be called on "source" only
+            if (tracker != null) {
+                tracker.close();
+                tracker = null;
+            }
+
+            free = true;
+            visible = origVisible;
+            visible.clear();
+            owner.release(this);
+        }
+    } // END SlabBuffer
+}
@@ -196,6 +196,15 @@ public abstract class AbstractNIOAsyncQueueWriter
                     queueRecord.isUncountable(), bytesToReserve, pendingBytes);
         }
 
+        if (isCurrent && nioConnection.writeCorkOwner == Thread.currentThread()) {
+            // the connection is corked, keep the record in the queue until uncork()
+            queueRecord.setMessage(
+                    notifyThreadContextSwitch(nioConnection, lifeCycleHandler, message));
+            writeTaskQueue.setCurrentElement(queueRecord);
+            nioConnection.hasCorkedWrites = true;
+            return;
+        }
+        
         final Reentrant reentrants = Reentrant.getWriteReentrant();
         
         try {
@@ -278,6 +287,53 @@ public abstract class AbstractNIOAsyncQueueWriter
         }        
     }
     
+    /**
+     * Corks the {@link Connection} for the current thread: until
+     * {@link #uncork(Connection)} is called, the messages the thread writes
+     * to the {@link Connection} are queued instead of being written directly.
+     * The messages, queued by other threads in the meantime, stay queued too.
+     * {@link #uncork(Connection)} writes all the queued messages at once, so
+     * that they can be aggregated into a single (gathering) write.
+     * 
+     * The method has to be used only by the thread, which would write directly
+     * otherwise, like the thread processing the {@link Connection} input,
+     * and only for a short period of time.
+     * 
+     * @param connection the {@link Connection} to cork
+     * @return <tt>true</tt> if the {@link Connection} has been corked, or
+     *  <tt>false</tt> if it is already corked, in this case
+     *  {@link #uncork(Connection)} must not be called.
+     * 
+     * @since 3.0
+     */
+    public boolean cork(final Connection connection) {
+        return NIOConnection.WRITE_CORK_OWNER_UPDATER.compareAndSet(
+                (NIOConnection) connection, null, Thread.currentThread());
+    }
+    
+    /**
+     * Uncorks the {@link Connection}, corked by {@link #cork(Connection)},
+     * and writes the messages queued meanwhile.
+     * 
+     * @param connection the {@link Connection} to uncork
+     * 
+     * @since 3.0
+     */
+    public void uncork(final Connection connection) {
+        final NIOConnection nioConnection = (NIOConnection) connection;
+        if (nioConnection.writeCorkOwner != Thread.currentThread()) {
+            return;
+        }
+        
+        final boolean hasCorkedWrites = nioConnection.hasCorkedWrites;
+        nioConnection.hasCorkedWrites = false;
+        nioConnection.writeCorkOwner = null;
+        
+        if (hasCorkedWrites && onReady(nioConnection) != AsyncResult.COMPLETE) {
+            enqueOnReadyNotification(nioConnection);
+        }
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -52,6 +52,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Buffer;
@@ -117,6 +118,13 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
     
     protected final TaskQueue<AsyncWriteQueueRecord> asyncWriteQueue;
     
+    static final AtomicReferenceFieldUpdater<NIOConnection, Thread> WRITE_CORK_OWNER_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(NIOConnection.class, Thread.class, "writeCorkOwner");
+    // the thread, which corked the writes (see AbstractNIOAsyncQueueWriter.cork())
+    volatile Thread writeCorkOwner;
+    // true, if the corked writes were queued, accessed by the writeCorkOwner only
+    boolean hasCorkedWrites;
+    
     // Semaphor responsible for connect/close notification
     protected final AtomicReference<Object> connectCloseSemaphor =
             new AtomicReference<Object>();
@@ -390,6 +398,33 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
         return asyncWriteQueue;
     }
 
+    /**
+     * Corks the connection writes for the current thread, so the messages
+     * written until {@link #uncork()} is called are written at once,
+     * using a single gathering write where possible.
+     * 
+     * @return <tt>true</tt> if the connection has been corked, or <tt>false</tt>
+     *  if it is blocking or already corked, in this case {@link #uncork()}
+     *  must not be called.
+     * 
+     * @see AbstractNIOAsyncQueueWriter#cork(org.glassfish.grizzly.Connection)
+     * @since 3.0
+     */
+    public boolean cork() {
+        return !isBlocking && transport.getAsyncQueueWriter().cork(this);
+    }
+    
+    /**
+     * Uncorks the connection writes, corked by {@link #cork()}, and writes
+     * the messages queued meanwhile.
+     * 
+     * @see AbstractNIOAsyncQueueWriter#uncork(org.glassfish.grizzly.Connection)
+     * @since 3.0
+     */
+    public void uncork() {
+        transport.getAsyncQueueWriter().uncork(this);
+    }
+
     @Override
     public AttributeHolder getAttributes() {
         return attributes;
@@ -94,6 +94,7 @@ public abstract class NIOTransport extends AbstractTransport
     public static final int DEFAULT_SERVER_SOCKET_SO_TIMEOUT = 0;
 
     public static final boolean DEFAULT_REUSE_ADDRESS = true;
+    public static final boolean DEFAULT_REUSE_PORT = false;
     public static final int DEFAULT_CLIENT_SOCKET_SO_TIMEOUT = 0;
     public static final int DEFAULT_CONNECTION_TIMEOUT =
             SocketConnectorHandler.DEFAULT_CONNECTION_TIMEOUT;
@@ -113,6 +114,10 @@ public abstract class NIOTransport extends AbstractTransport
      * The socket reuseAddress
      */
     boolean reuseAddress = DEFAULT_REUSE_ADDRESS;
+    /**
+     * The server socket reusePort (multi-acceptor) mode
+     */
+    boolean reusePort = DEFAULT_REUSE_PORT;
     /**
      * The socket time out
      */
@@ -377,6 +382,37 @@ public abstract class NIOTransport extends AbstractTransport
         notifyProbesConfigChanged(this);
     }
 
+    /**
+     * @return <tt>true</tt>, if the transport binds one server socket per
+     *  {@link SelectorRunner} using <tt>SO_REUSEPORT</tt>, or <tt>false</tt>
+     *  otherwise.
+     *
+     * @since 3.0
+     */
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    /**
+     * Enables or disables the multi-acceptor mode. If enabled, each bind
+     * operation opens one server socket per {@link SelectorRunner} on the
+     * same address using <tt>SO_REUSEPORT</tt>, so the OS distributes
+     * incoming connections between the selector threads, and each selector
+     * thread accepts and serves its own connections.
+     * If the <tt>SO_REUSEPORT</tt> option is not supported by the JVM or
+     * platform, the transport falls back to a single acceptor.
+     *
+     * The value affects the server connections bound after the change.
+     *
+     * @param reusePort <tt>true</tt> to enable multi-acceptor mode.
+     *
+     * @since 3.0
+     */
+    public void setReusePort(final boolean reusePort) {
+        this.reusePort = reusePort;
+        notifyProbesConfigChanged(this);
+    }
+
     public int getClientSocketSoTimeout() {
         return clientSocketSoTimeout;
     }
@@ -85,6 +85,7 @@ public abstract class NIOTransportBuilder<T extends NIOTransportBuilder> {
     protected int clientSocketSoTimeout = NIOTransport.DEFAULT_CLIENT_SOCKET_SO_TIMEOUT;
     protected int connectionTimeout = NIOTransport.DEFAULT_CONNECTION_TIMEOUT;
     protected boolean reuseAddress = NIOTransport.DEFAULT_REUSE_ADDRESS;
+    protected boolean reusePort = NIOTransport.DEFAULT_REUSE_PORT;
     protected int maxPendingBytesPerConnection = AsyncQueueWriter.AUTO_SIZE;
     protected boolean optimizedForMultiplexing = NIOTransport.DEFAULT_OPTIMIZED_FOR_MULTIPLEXING;
 
@@ -307,6 +308,17 @@ public abstract class NIOTransportBuilder<T extends NIOTransportBuilder> {
         return getThis();
     }
 
+    /**
+     * @return this <code>TCPNIOTransportBuilder</code>
+     * @see NIOTransport#setReusePort(boolean)
+     *
+     * @since 3.0
+     */
+    public T reusePort(final boolean reusePort) {
+        this.reusePort = reusePort;
+        return getThis();
+    }
+
     /**
      * @return this <code>TCPNIOTransportBuilder</code>
      * @see org.glassfish.grizzly.asyncqueue.AsyncQueueWriter#setMaxPendingBytesPerConnection(int)
@@ -344,6 +356,7 @@ public abstract class NIOTransportBuilder<T extends NIOTransportBuilder> {
         transport.setReadBufferSize(readBufferSize);
         transport.setWriteBufferSize(writeBufferSize);
         transport.setReuseAddress(reuseAddress);
+        transport.setReusePort(reusePort);
         transport.setOptimizedForMultiplexing(optimizedForMultiplexing);
         transport.getAsyncQueueWriter()
                     .setMaxPendingBytesPerConnection(maxPendingBytesPerConnection);
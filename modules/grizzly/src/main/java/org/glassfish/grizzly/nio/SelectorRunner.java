@@ -79,6 +79,16 @@ public final class SelectorRunner implements Runnable {
     
     private final static String THREAD_MARKER = " SelectorRunner";
     
+    /**
+     * <tt>true</tt>, if {@link Selector}'s selected-key set has to be replaced
+     * with array based {@link SelectedKeySet}, which lets {@link SelectorRunner}
+     * iterate ready {@link SelectionKey}s without producing garbage.
+     * If the {@link Selector} internals are not accessible - the default
+     * selected-key set is used.
+     */
+    public static final boolean IS_OPTIMIZE_SELECTED_KEYS =
+            Boolean.getBoolean(SelectorRunner.class.getName() + ".optimize-selected-keys");
+    
     private final NIOTransport transport;
     private final AtomicReference<State> stateHolder;
     
@@ -98,6 +108,8 @@ public final class SelectorRunner implements Runnable {
     private int lastSelectedKeysCount;
     private Set<SelectionKey> readyKeySet;
     private Iterator<SelectionKey> iterator;
+    private SelectedKeySet readyKeyArray;
+    private int readyKeyIndex;
     private SelectionKey key = null;
     private int keyReadyOps;
 
@@ -107,7 +119,8 @@ public final class SelectorRunner implements Runnable {
     public static SelectorRunner create(final NIOTransport transport)
             throws IOException {
         return new SelectorRunner(transport,
-                Selectors.newSelector(transport.getSelectorProvider()));
+                Selectors.newSelector(transport.getSelectorProvider(),
+                IS_OPTIMIZE_SELECTED_KEYS));
     }
     
     volatile boolean hasPendingTasks;
@@ -347,13 +360,20 @@ public final class SelectorRunner implements Runnable {
             lastSelectedKeysCount = readyKeySet.size();
             
             if (lastSelectedKeysCount != 0) {
-                iterator = readyKeySet.iterator();
+                if (readyKeySet instanceof SelectedKeySet) {
+                    readyKeyArray = (SelectedKeySet) readyKeySet;
+                    readyKeyIndex = 0;
+                } else {
+                    iterator = readyKeySet.iterator();
+                }
+                
                 if (!iterateKeys()) return false;
                 readyKeySet.clear();
             }
 
             readyKeySet = null;
             iterator = null;
+            readyKeyArray = null;
             selectorHandler.postSelect(this);
         } catch (ClosedSelectorException e) {
             if (isRunning()) {
@@ -366,10 +386,12 @@ public final class SelectorRunner implements Runnable {
                     "Selector was unexpectedly closed", e,
                     Level.SEVERE, Level.FINE);
         } catch (Exception e) {
+            resetReadyKeyArray();
             dropConnectionDueToException(key,
                     "doSelect exception", e,
                     Level.SEVERE, Level.FINE);
         } catch (Throwable t) {
+            resetReadyKeyArray();
             LOGGER.log(Level.SEVERE,"doSelect exception", t);
             transport.notifyTransportError(t);
         }
@@ -377,7 +399,27 @@ public final class SelectorRunner implements Runnable {
         return true;
     }
 
+    /**
+     * {@link SelectedKeySet} doesn't support {@link Set#contains(Object)},
+     * so if the key iteration was interrupted unexpectedly - the unprocessed
+     * keys have to be dropped, otherwise they might be added twice during the
+     * next select. The {@link Selector} will report them again if they are
+     * still ready.
+     */
+    private void resetReadyKeyArray() {
+        if (readyKeyArray != null) {
+            readyKeyArray.clear();
+            readyKeyArray = null;
+            readyKeySet = null;
+            keyReadyOps = 0;
+        }
+    }
+
     private boolean iterateKeys() {
+        if (readyKeyArray != null) {
+            return iterateKeyArray();
+        }
+        
         final Iterator<SelectionKey> it = iterator;
 
         while (it.hasNext()) {
@@ -398,6 +440,27 @@ public final class SelectorRunner implements Runnable {
         return true;
     }
 
+    private boolean iterateKeyArray() {
+        final SelectedKeySet keys = readyKeyArray;
+        final int size = keys.size();
+
+        while (readyKeyIndex < size) {
+            try {
+                key = keys.get(readyKeyIndex++);
+                keyReadyOps = key.readyOps();
+                if (!iterateKeyEvents()) {
+                    return false;
+                }
+            } catch (IOException e) {
+                keyReadyOps = 0;
+                dropConnectionDueToException(key, "Unexpected IOException. Channel " + key.channel() + " will be closed.", e, Level.FINE, Level.FINE);
+            } catch (CancelledKeyException e) {
+                keyReadyOps = 0;
+                dropConnectionDueToException(key, "Unexpected CancelledKeyException. Channel " + key.channel() + " will be closed.", e, Level.FINE, Level.FINE);
+            }
+        }
+        return true;
+    }
 
     private boolean iterateKeyEvents()
             throws IOException {
@@ -513,7 +576,8 @@ public final class SelectorRunner implements Runnable {
 
     protected final void switchToNewSelector() throws IOException {
         final Selector oldSelector = selector;
-        final Selector newSelector = Selectors.newSelector(transport.getSelectorProvider());
+        final Selector newSelector = Selectors.newSelector(
+                transport.getSelectorProvider(), IS_OPTIMIZE_SELECTED_KEYS);
 
         final Set<SelectionKey> keys = oldSelector.keys();
         
@@ -41,14 +41,23 @@
 package org.glassfish.grizzly.nio;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.channels.Selector;
 import java.nio.channels.spi.SelectorProvider;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
 
 /**
  * Utility class for {@link Selector} related operations.
  *
  */
 public final class Selectors {
+    private static final Logger LOGGER = Grizzly.logger(Selectors.class);
+
+    private static final String SELECTOR_IMPL_CLASS_NAME = "sun.nio.ch.SelectorImpl";
 
     /**
      * Creates new {@link Selector} using passed {@link SelectorProvider}.
@@ -74,4 +83,86 @@ public final class Selectors {
             throw new IOException("Can not open Selector due to NPE");
         }
     }
+
+    /**
+     * Creates new {@link Selector} using passed {@link SelectorProvider}.
+     * If <tt>optimizeSelectedKeys</tt> is <tt>true</tt> - the method tries to
+     * replace the {@link Selector}'s selected-key set with
+     * {@link SelectedKeySet}. If the {@link Selector} implementation is not
+     * known or its internals are not accessible (security manager, JDK module
+     * restrictions) - the {@link Selector} is returned as it is.
+     *
+     * @param provider {@link SelectorProvider}
+     * @param optimizeSelectedKeys <tt>true</tt>, if the {@link Selector}'s
+     *        selected-key set has to be replaced with {@link SelectedKeySet}
+     * @return {@link Selector}
+     * @throws IOException 
+     */
+    public static Selector newSelector(final SelectorProvider provider,
+            final boolean optimizeSelectedKeys) throws IOException {
+        final Selector selector = newSelector(provider);
+        
+        if (optimizeSelectedKeys) {
+            optimizeSelectedKeys(selector);
+        }
+        
+        return selector;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the passed {@link Selector}'s selected-key set
+     * is {@link SelectedKeySet}, or <tt>false</tt> otherwise.
+     * 
+     * @param selector {@link Selector}
+     * @return <tt>true</tt> if the passed {@link Selector}'s selected-key set
+     * is {@link SelectedKeySet}, or <tt>false</tt> otherwise.
+     */
+    public static boolean isSelectedKeysOptimized(final Selector selector) {
+        try {
+            return selector.selectedKeys() instanceof SelectedKeySet;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    private static void optimizeSelectedKeys(final Selector selector) {
+        final Object result = AccessController.doPrivileged(
+                new PrivilegedAction<Object>() {
+            @Override
+            public Object run() {
+                try {
+                    final Class<?> selectorImplClass = Class.forName(
+                            SELECTOR_IMPL_CLASS_NAME, false,
+                            ClassLoader.getSystemClassLoader());
+                    if (!selectorImplClass.isInstance(selector)) {
+                        return null;
+                    }
+
+                    final Field selectedKeysField =
+                            selectorImplClass.getDeclaredField("selectedKeys");
+                    final Field publicSelectedKeysField =
+                            selectorImplClass.getDeclaredField("publicSelectedKeys");
+                    selectedKeysField.setAccessible(true);
+                    publicSelectedKeysField.setAccessible(true);
+
+                    final SelectedKeySet selectedKeySet = new SelectedKeySet();
+                    selectedKeysField.set(selector, selectedKeySet);
+                    publicSelectedKeysField.set(selector, selectedKeySet);
+                    
+                    return selectedKeySet;
+                } catch (Throwable t) {
+                    // ClassNotFoundException, NoSuchFieldException,
+                    // IllegalAccessException, SecurityException or
+                    // JDK 9+ InaccessibleObjectException
+                    return t;
+                }
+            }
+        });
+
+        if (result instanceof Throwable && LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Can not optimize selected-key set of "
+                    + selector + ", the default one will be used",
+                    (Throwable) result);
+        }
+    }
 }
@@ -44,6 +44,8 @@ import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -77,6 +79,26 @@ public class TCPNIOServerConnection extends TCPNIOConnection {
     private FutureImpl<Connection> acceptListener;
     private final RegisterAcceptedChannelCompletionHandler defaultCompletionHandler;
     private volatile int maxAcceptRetries = 5;
+
+    /**
+     * The index of the {@link org.glassfish.grizzly.nio.SelectorRunner}
+     * this <tt>SO_REUSEPORT</tt> acceptor is dedicated to, or <tt>-1</tt>
+     * if the connection is a regular acceptor, whose accepted connections
+     * are distributed by the transport's <tt>NIOChannelDistributor</tt>.
+     */
+    int acceptorIndex = -1;
+
+    /**
+     * The sibling <tt>SO_REUSEPORT</tt> acceptors bound to the same address,
+     * which are closed together with this connection.
+     */
+    volatile Collection<TCPNIOServerConnection> reusePortAcceptors;
+
+    /**
+     * The index of the {@link org.glassfish.grizzly.nio.SelectorRunner}
+     * this connection is registered on (reported to the transport probes).
+     */
+    private volatile int selectorRunnerIndex = -1;
     
 
     public TCPNIOServerConnection(TCPNIOTransport transport,
@@ -92,11 +114,19 @@ public class TCPNIOServerConnection extends TCPNIOConnection {
 
         final FutureImpl<RegisterChannelResult> future =
                 SafeFutureImpl.create();
-        
-        transport.getNIOChannelDistributor().registerServiceChannelAsync(
-                channel, SelectionKey.OP_ACCEPT, this,
+        final CompletionHandler<RegisterChannelResult> completionHandler =
                 new CompletionHandlerAdapter<RegisterChannelResult, RegisterChannelResult>(
-                future, registerCompletionHandler));
+                future, registerCompletionHandler);
+
+        final TCPNIOTransport tcpNIOTransport = (TCPNIOTransport) transport;
+        if (acceptorIndex >= 0) {
+            tcpNIOTransport.getSelectorHandler().registerChannelAsync(
+                    tcpNIOTransport.getAcceptorSelectorRunner(acceptorIndex),
+                    channel, SelectionKey.OP_ACCEPT, this, completionHandler);
+        } else {
+            transport.getNIOChannelDistributor().registerServiceChannelAsync(
+                    channel, SelectionKey.OP_ACCEPT, this, completionHandler);
+        }
         try {
             future.get(10, TimeUnit.SECONDS);
         } catch (ExecutionException e) {
@@ -105,6 +135,9 @@ public class TCPNIOServerConnection extends TCPNIOConnection {
             throw Exceptions.makeIOException(e);
         }
 
+        selectorRunnerIndex =
+                tcpNIOTransport.getSelectorRunnerIndex(getSelectorRunner());
+
         notifyReady();
         notifyProbesBind(this);
     }
@@ -131,6 +164,8 @@ public class TCPNIOServerConnection extends TCPNIOConnection {
         acceptedConnection = createClientConnection(acceptedChannel);
 
         notifyProbesAccept(this, acceptedConnection);
+        ((TCPNIOTransport) transport).fireAcceptEvent(this, acceptedConnection,
+                selectorRunnerIndex);
 
         registerAcceptedChannel(acceptedConnection,
                 defaultCompletionHandler, SelectionKey.OP_READ);
@@ -184,6 +219,14 @@ public class TCPNIOServerConnection extends TCPNIOConnection {
                     "Exception occurred, when unbind connection: " + this, e);
         }
 
+        // close the SO_REUSEPORT acceptors sharing the address
+        final Collection<TCPNIOServerConnection> acceptors = reusePortAcceptors;
+        if (acceptors != null) {
+            for (TCPNIOServerConnection acceptor : acceptors) {
+                acceptor.closeSilently();
+            }
+        }
+
         super.preClose();
     }
     
@@ -236,9 +279,30 @@ public class TCPNIOServerConnection extends TCPNIOConnection {
 
         final TCPNIOTransport tcpNIOTransport = (TCPNIOTransport) transport;
 
-        tcpNIOTransport.getNIOChannelDistributor().registerChannelAsync(
-                acceptedConnection.getChannel(), initialSelectionKeyInterest,
-                acceptedConnection, completionHandler);
+        if (acceptorIndex >= 0) {
+            // SO_REUSEPORT acceptor serves the accepted connections
+            // on its own selector thread
+            tcpNIOTransport.getSelectorHandler().registerChannelAsync(
+                    getSelectorRunner(), acceptedConnection.getChannel(),
+                    initialSelectionKeyInterest, acceptedConnection,
+                    completionHandler);
+        } else {
+            tcpNIOTransport.getNIOChannelDistributor().registerChannelAsync(
+                    acceptedConnection.getChannel(), initialSelectionKeyInterest,
+                    acceptedConnection, completionHandler);
+        }
+    }
+
+    /**
+     * Adds the sibling <tt>SO_REUSEPORT</tt> acceptor, which is bound to the
+     * same address as this connection.
+     */
+    void addReusePortAcceptor(final TCPNIOServerConnection acceptor) {
+        if (reusePortAcceptors == null) {
+            reusePortAcceptors = new ConcurrentLinkedQueue<>();
+        }
+
+        reusePortAcceptors.add(acceptor);
     }
     
     @Override
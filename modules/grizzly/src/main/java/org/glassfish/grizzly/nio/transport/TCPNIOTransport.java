@@ -46,6 +46,8 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.channels.Channel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
@@ -115,6 +117,13 @@ public class TCPNIOTransport extends NIOTransport {
     public static final int DEFAULT_SERVER_CONNECTION_BACKLOG = 4096;
 
     private static final String DEFAULT_TRANSPORT_NAME = "TCPNIOTransport";
+
+    /**
+     * <tt>StandardSocketOptions.SO_REUSEPORT</tt>, or <tt>null</tt> if the
+     * option is not available (it was introduced in JDK 9) or not supported
+     * by the platform.
+     */
+    private static final SocketOption<Boolean> SO_REUSEPORT = lookupReusePortOption();
     /**
      * The Server connections.
      */
@@ -243,22 +252,73 @@ public class TCPNIOTransport extends NIOTransport {
     public TCPNIOServerConnection bind(final SocketAddress socketAddress,
             final int backlog)
             throws IOException {
-        
+
+        final Lock lock = state.getStateLocker().writeLock();
+        lock.lock();
+        try {
+            if (!isReusePort()) {
+                return bind0(socketAddress, backlog, -1);
+            }
+
+            if (SO_REUSEPORT == null) {
+                LOGGER.log(Level.WARNING, "SO_REUSEPORT is not supported, "
+                        + "{0} will use a single acceptor", socketAddress);
+                return bind0(socketAddress, backlog, -1);
+            }
+
+            final TCPNIOServerConnection serverConnection =
+                    bind0(socketAddress, backlog, 0);
+            try {
+                // the sibling acceptors have to bind the actual port,
+                // if an ephemeral one was requested
+                final SocketAddress boundAddress =
+                        ((ServerSocketChannel) serverConnection.getChannel())
+                        .socket().getLocalSocketAddress();
+                final int acceptorsCount = getSelectorRunnersCount();
+                for (int i = 1; i < acceptorsCount; i++) {
+                    serverConnection.addReusePortAcceptor(
+                            bind0(boundAddress, backlog, i));
+                }
+            } catch (IOException e) {
+                unbind(serverConnection);
+                throw e;
+            }
+
+            return serverConnection;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Binds a single server socket. Must be called with the transport state
+     * write lock held.
+     *
+     * @param acceptorIndex the index of the {@link SelectorRunner} the
+     *          <tt>SO_REUSEPORT</tt> acceptor is dedicated to, or <tt>-1</tt>
+     *          if the server connection is a regular (shared) acceptor.
+     */
+    private TCPNIOServerConnection bind0(final SocketAddress socketAddress,
+            final int backlog, final int acceptorIndex) throws IOException {
+
         TCPNIOServerConnection serverConnection = null;
         final ServerSocketChannel serverSocketChannel =
                 selectorProvider.openServerSocketChannel();
 
-        final Lock lock = state.getStateLocker().writeLock();
-        lock.lock();
         try {
             getChannelConfigurator().preConfigure(this, serverSocketChannel);
-            
+
+            if (acceptorIndex >= 0) {
+                serverSocketChannel.setOption(SO_REUSEPORT, Boolean.TRUE);
+            }
+
             final ServerSocket serverSocket = serverSocketChannel.socket();
             serverSocket.bind(socketAddress, backlog);
             
             getChannelConfigurator().postConfigure(this, serverSocketChannel);
 
             serverConnection = obtainServerNIOConnection(serverSocketChannel);
+            serverConnection.acceptorIndex = acceptorIndex;
             serverConnections.add(serverConnection);
             serverConnection.resetProperties();
 
@@ -280,8 +340,6 @@ public class TCPNIOTransport extends NIOTransport {
             }
 
             throw Exceptions.makeIOException(e);
-        } finally {
-            lock.unlock();
         }
     }
 
@@ -527,6 +585,39 @@ public class TCPNIOTransport extends NIOTransport {
         return connection;
     }
 
+    /**
+     * @return the {@link SelectorRunner} the <tt>SO_REUSEPORT</tt> acceptor
+     *          with the given index is dedicated to.
+     */
+    SelectorRunner getAcceptorSelectorRunner(final int acceptorIndex) {
+        final SelectorRunner[] runners = getSelectorRunners();
+        return runners[acceptorIndex % runners.length];
+    }
+
+    /**
+     * @return the index of the passed {@link SelectorRunner} in the transport
+     *          selector runners array, or <tt>-1</tt> if it wasn't found.
+     */
+    int getSelectorRunnerIndex(final SelectorRunner selectorRunner) {
+        final SelectorRunner[] runners = getSelectorRunners();
+        if (runners != null) {
+            for (int i = 0; i < runners.length; i++) {
+                if (runners[i] == selectorRunner) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    void fireAcceptEvent(final TCPNIOServerConnection serverConnection,
+            final TCPNIOConnection clientConnection,
+            final int selectorRunnerIndex) {
+        notifyProbesAccept(this, serverConnection, clientConnection,
+                selectorRunnerIndex);
+    }
+
     void configureNIOConnection(final TCPNIOConnection connection) {
         connection.configureBlocking(isBlocking);
         connection.setFilterChain(filterChain);
@@ -800,6 +891,23 @@ public class TCPNIOTransport extends NIOTransport {
         }
     }
     
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> lookupReusePortOption() {
+        try {
+            final SocketOption<Boolean> option = (SocketOption<Boolean>)
+                    StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+
+            // the option might be declared, but not supported by the platform
+            try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+                return channel.supportedOptions().contains(option)
+                        ? option
+                        : null;
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private static class DefaultChannelConfigurator implements ChannelConfigurator {
         @Override
         public void preConfigure(NIOTransport transport,
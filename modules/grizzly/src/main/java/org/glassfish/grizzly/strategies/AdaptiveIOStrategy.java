@@ -0,0 +1,390 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.strategies;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EventLifeCycleListener;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.attributes.AttributeBuilder;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringUtils;
+
+/**
+ * {@link org.glassfish.grizzly.IOStrategy}, which learns how long it takes
+ * to process {@link IOEvent#READ} for each {@link Connection} and decides
+ * whether the {@link Connection} events should be processed in the selector
+ * thread or in a worker thread.
+ *
+ * The strategy measures the time spent in the
+ * {@link org.glassfish.grizzly.filterchain.FilterChain} for each READ event
+ * and keeps an exponentially weighted moving average (EWMA) of the
+ * measurements per {@link Connection}, as well as an aggregated EWMA for all
+ * the connections processed by the strategy instance (typically all the
+ * connections of one listener), which is used for the connections without
+ * history. If the estimated processing time doesn't exceed the
+ * same-thread threshold, the event is processed in the selector thread
+ * like {@link SameThreadIOStrategy} does, otherwise it is handed off to the
+ * worker thread pool like {@link WorkerThreadIOStrategy} does. Until the
+ * first READ is measured, the events are handed off to the worker thread
+ * pool, so an unknown workload doesn't block the selector thread.
+ *
+ * The events processed in worker threads are measured as well, so
+ * a {@link Connection}, whose requests became short, will be moved back to
+ * the selector thread.
+ *
+ * The strategy decisions might be monitored using
+ * {@link AdaptiveIOStrategyProbe}s.
+ *
+ * @since 3.0
+ */
+public final class AdaptiveIOStrategy extends AbstractIOStrategy
+        implements MonitoringAware<AdaptiveIOStrategyProbe> {
+
+    /**
+     * The default max. estimated READ processing time, which lets the
+     * strategy process a {@link Connection}'s events in the selector thread.
+     */
+    public static final long DEFAULT_SAME_THREAD_THRESHOLD_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * The default weight of the new measurement in the EWMA.
+     */
+    public static final double DEFAULT_SMOOTHING_FACTOR = 0.25;
+
+    private final static EnumSet<IOEvent> WORKER_THREAD_EVENT_SET =
+            EnumSet.<IOEvent>of(IOEvent.READ, IOEvent.WRITE, IOEvent.CLOSED);
+
+    private static final Logger logger = Grizzly.logger(AdaptiveIOStrategy.class);
+
+    private static final Attribute<ProcessingStats> PROCESSING_STATS_ATTR =
+            AttributeBuilder.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+                    AdaptiveIOStrategy.class.getName() + ".processing-stats");
+
+    private final long sameThreadThresholdNanos;
+    private final double smoothingFactor;
+
+    // the estimate before the first READ has been measured
+    private static final long NOT_MEASURED = -1;
+
+    /**
+     * The READ processing time EWMA for all the {@link Connection}s,
+     * {@link #NOT_MEASURED} until the first READ is measured, so the events
+     * are handed off to the worker threads until there is an estimate.
+     */
+    private volatile long averageNanos = NOT_MEASURED;
+
+    private final DefaultMonitoringConfig<AdaptiveIOStrategyProbe> monitoringConfig =
+            new DefaultMonitoringConfig<AdaptiveIOStrategyProbe>(AdaptiveIOStrategyProbe.class) {
+
+        @Override
+        public Object createManagementObject() {
+            return MonitoringUtils.loadJmxObject(
+                    "org.glassfish.grizzly.strategies.jmx.AdaptiveIOStrategy",
+                    AdaptiveIOStrategy.this, AdaptiveIOStrategy.class);
+        }
+
+    };
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    /**
+     * Constructs <tt>AdaptiveIOStrategy</tt> using the default same-thread
+     * threshold and smoothing factor.
+     */
+    public AdaptiveIOStrategy() {
+        this(DEFAULT_SAME_THREAD_THRESHOLD_NANOS, TimeUnit.NANOSECONDS,
+                DEFAULT_SMOOTHING_FACTOR);
+    }
+
+    /**
+     * Constructs <tt>AdaptiveIOStrategy</tt>.
+     *
+     * @param sameThreadThreshold the max. estimated READ processing time,
+     *        which lets the strategy process a {@link Connection}'s events
+     *        in the selector thread.
+     * @param timeUnit the <tt>sameThreadThreshold</tt> {@link TimeUnit}.
+     * @param smoothingFactor the weight of the new measurement in the EWMA,
+     *        must be in the (0, 1] range.
+     */
+    public AdaptiveIOStrategy(final long sameThreadThreshold,
+            final TimeUnit timeUnit, final double smoothingFactor) {
+        if (sameThreadThreshold < 0) {
+            throw new IllegalArgumentException("sameThreadThreshold can't be negative");
+        }
+        if (smoothingFactor <= 0 || smoothingFactor > 1) {
+            throw new IllegalArgumentException("smoothingFactor has to be in (0, 1] range");
+        }
+
+        this.sameThreadThresholdNanos = timeUnit.toNanos(sameThreadThreshold);
+        this.smoothingFactor = smoothingFactor;
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @param timeUnit the result {@link TimeUnit}.
+     * @return the max. estimated READ processing time, which lets the
+     *         strategy process a {@link Connection}'s events in the selector
+     *         thread.
+     */
+    public long getSameThreadThreshold(final TimeUnit timeUnit) {
+        return timeUnit.convert(sameThreadThresholdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the weight of the new measurement in the EWMA.
+     */
+    public double getSmoothingFactor() {
+        return smoothingFactor;
+    }
+
+    /**
+     * @param timeUnit the result {@link TimeUnit}.
+     * @return the READ processing time EWMA for all the {@link Connection}s
+     *         processed by this strategy.
+     */
+    public long getAverageProcessingTime(final TimeUnit timeUnit) {
+        return timeUnit.convert(Math.max(0, averageNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param connection {@link Connection}
+     * @param timeUnit the result {@link TimeUnit}.
+     * @return the estimated READ processing time for the {@link Connection}.
+     */
+    public long getEstimatedProcessingTime(final Connection connection,
+            final TimeUnit timeUnit) {
+        return timeUnit.convert(Math.max(0, estimate(connection)),
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<AdaptiveIOStrategyProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+
+
+    // ------------------------------------------------- Methods from IOStrategy
+
+
+    @Override
+    public Executor getThreadPoolFor(final Connection connection,
+            final IOEvent ioEvent) {
+        return WORKER_THREAD_EVENT_SET.contains(ioEvent)
+                && isWorkerThreadEstimate(estimate(connection)) ?
+                getWorkerThreadPool(connection) :
+                null;
+    }
+
+    @Override
+    public boolean executeIOEvent(final Connection connection,
+            final IOEvent ioEvent,
+            final EventLifeCycleListener lifeCycleListener) {
+        return executeIOEvent(connection, ioEvent, lifeCycleListener,
+                decide(connection, ioEvent));
+    }
+
+    @Override
+    public boolean executeIOEvent(final Connection connection,
+            final IOEvent ioEvent,
+            final DecisionListener listener) throws IOException {
+
+        final Executor executor = decide(connection, ioEvent);
+
+        EventLifeCycleListener lifeCycleListener = null;
+
+        if (listener != null) {
+            lifeCycleListener = executor != null ?
+                    listener.goAsync(connection, ioEvent) :
+                    listener.goSync(connection, ioEvent);
+        }
+
+        return executeIOEvent(connection, ioEvent, lifeCycleListener, executor);
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private Executor decide(final Connection connection, final IOEvent ioEvent) {
+        if (!WORKER_THREAD_EVENT_SET.contains(ioEvent)) {
+            return null;
+        }
+
+        final long estimatedNanos = estimate(connection);
+        final Executor executor = isWorkerThreadEstimate(estimatedNanos) ?
+                getWorkerThreadPool(connection) :
+                null;
+
+        final AdaptiveIOStrategyProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (AdaptiveIOStrategyProbe probe : probes) {
+                if (executor != null) {
+                    probe.onWorkerThreadDecisionEvent(this, connection,
+                            ioEvent, estimatedNanos);
+                } else {
+                    probe.onSameThreadDecisionEvent(this, connection,
+                            ioEvent, estimatedNanos);
+                }
+            }
+        }
+
+        return executor;
+    }
+
+    private boolean executeIOEvent(final Connection connection,
+            final IOEvent ioEvent,
+            final EventLifeCycleListener lifeCycleListener,
+            final Executor executor) {
+
+        if (executor != null) {
+            executor.execute(new WorkerThreadRunnable(connection, ioEvent,
+                    lifeCycleListener));
+        } else {
+            fireMeasuredEvent(connection, ioEvent, lifeCycleListener, true);
+        }
+
+        return true;
+    }
+
+    private void fireMeasuredEvent(final Connection connection,
+            final IOEvent ioEvent,
+            final EventLifeCycleListener lifeCycleListener,
+            final boolean isSameThread) {
+
+        if (ioEvent != IOEvent.READ) {
+            fireEvent(connection, ioEvent, lifeCycleListener, logger);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        fireEvent(connection, ioEvent, lifeCycleListener, logger);
+        final long processingNanos = System.nanoTime() - start;
+
+        update(connection, processingNanos);
+
+        final AdaptiveIOStrategyProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (AdaptiveIOStrategyProbe probe : probes) {
+                probe.onReadProcessedEvent(this, connection, processingNanos,
+                        isSameThread);
+            }
+        }
+    }
+
+    private boolean isWorkerThreadEstimate(final long estimatedNanos) {
+        return estimatedNanos == NOT_MEASURED
+                || estimatedNanos > sameThreadThresholdNanos;
+    }
+
+    /**
+     * @return the estimated READ processing time for the {@link Connection},
+     *         or the average for all the connections, if there is no history
+     *         for the {@link Connection} yet, or {@link #NOT_MEASURED}.
+     */
+    private long estimate(final Connection connection) {
+        final ProcessingStats stats = PROCESSING_STATS_ATTR.peek(connection);
+        return stats != null ? stats.averageNanos : averageNanos;
+    }
+
+    private void update(final Connection connection, final long processingNanos) {
+        ProcessingStats stats = PROCESSING_STATS_ATTR.peek(connection);
+        if (stats == null) {
+            stats = new ProcessingStats(averageNanos);
+            PROCESSING_STATS_ATTR.set(connection, stats);
+        }
+
+        // the updates are not atomic, it's ok to lose a measurement,
+        // if the connection events are processed concurrently
+        stats.averageNanos = ewma(stats.averageNanos, processingNanos);
+        averageNanos = ewma(averageNanos, processingNanos);
+    }
+
+    private long ewma(final long average, final long value) {
+        // the first measurement replaces the missing estimate
+        return average == NOT_MEASURED
+                ? value
+                : average + (long) (smoothingFactor * (value - average));
+    }
+
+    private final class WorkerThreadRunnable implements Runnable {
+        final Connection connection;
+        final IOEvent event;
+        final EventLifeCycleListener lifeCycleListener;
+
+        private WorkerThreadRunnable(final Connection connection,
+                final IOEvent event,
+                final EventLifeCycleListener lifeCycleListener) {
+            this.connection = connection;
+            this.event = event;
+            this.lifeCycleListener = lifeCycleListener;
+        }
+
+        @Override
+        public void run() {
+            fireMeasuredEvent(connection, event, lifeCycleListener, false);
+        }
+    }
+
+    private static final class ProcessingStats {
+        volatile long averageNanos;
+
+        private ProcessingStats(final long averageNanos) {
+            this.averageNanos = averageNanos;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.strategies;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.IOEvent;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by
+ * {@link AdaptiveIOStrategy}.
+ *
+ * @since 3.0
+ */
+public interface AdaptiveIOStrategyProbe {
+    /**
+     * <p>
+     * This event may be fired when the {@link AdaptiveIOStrategy} decides to
+     * process the {@link IOEvent} in the current (selector) thread.
+     * </p>
+     *
+     * @param strategy the {@link AdaptiveIOStrategy} being monitored
+     * @param connection the {@link Connection} the event belongs to
+     * @param ioEvent the {@link IOEvent} being processed
+     * @param estimatedNanos the estimated processing time (in nanoseconds)
+     *        the decision was based on
+     */
+    public void onSameThreadDecisionEvent(AdaptiveIOStrategy strategy,
+            Connection connection, IOEvent ioEvent, long estimatedNanos);
+
+    /**
+     * <p>
+     * This event may be fired when the {@link AdaptiveIOStrategy} decides to
+     * process the {@link IOEvent} in a worker thread.
+     * </p>
+     *
+     * @param strategy the {@link AdaptiveIOStrategy} being monitored
+     * @param connection the {@link Connection} the event belongs to
+     * @param ioEvent the {@link IOEvent} being processed
+     * @param estimatedNanos the estimated processing time (in nanoseconds)
+     *        the decision was based on
+     */
+    public void onWorkerThreadDecisionEvent(AdaptiveIOStrategy strategy,
+            Connection connection, IOEvent ioEvent, long estimatedNanos);
+
+    /**
+     * <p>
+     * This event may be fired when the {@link AdaptiveIOStrategy} measured
+     * the {@link IOEvent#READ} processing time.
+     * </p>
+     *
+     * @param strategy the {@link AdaptiveIOStrategy} being monitored
+     * @param connection the {@link Connection} the event belongs to
+     * @param processingNanos the measured processing time (in nanoseconds)
+     * @param isSameThread <tt>true</tt>, if the event was processed in the
+     *        selector thread, or <tt>false</tt> if it was processed in a
+     *        worker thread
+     */
+    public void onReadProcessedEvent(AdaptiveIOStrategy strategy,
+            Connection connection, long processingNanos, boolean isSameThread);
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * {@link AdaptiveIOStrategyProbe} adapter that provides no-op
+     * implementations for all interface methods allowing easy extension by
+     * the developer.
+     *
+     * @since 3.0
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public class Adapter implements AdaptiveIOStrategyProbe {
+
+
+        // -------------------------------- Methods from AdaptiveIOStrategyProbe
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onSameThreadDecisionEvent(AdaptiveIOStrategy strategy,
+                Connection connection, IOEvent ioEvent, long estimatedNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onWorkerThreadDecisionEvent(AdaptiveIOStrategy strategy,
+                Connection connection, IOEvent ioEvent, long estimatedNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onReadProcessedEvent(AdaptiveIOStrategy strategy,
+                Connection connection, long processingNanos,
+                boolean isSameThread) {}
+
+    } // END Adapter
+}
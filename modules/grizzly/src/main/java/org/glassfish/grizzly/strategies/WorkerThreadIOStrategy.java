@@ -55,7 +55,7 @@ import org.glassfish.grizzly.Processor;
  *
  *
  */
-public final class WorkerThreadIOStrategy extends AbstractIOStrategy {
+public class WorkerThreadIOStrategy extends AbstractIOStrategy {
 
     private final static EnumSet<IOEvent> WORKER_THREAD_EVENT_SET =
             EnumSet.<IOEvent>of(IOEvent.READ, IOEvent.WRITE, IOEvent.CLOSED);
@@ -68,7 +68,7 @@ public final class WorkerThreadIOStrategy extends AbstractIOStrategy {
     // ------------------------------------------------------------ Constructors
 
 
-    private WorkerThreadIOStrategy() { }
+    protected WorkerThreadIOStrategy() { }
 
 
     // ---------------------------------------------------------- Public Methods
@@ -203,6 +203,15 @@ public abstract class AbstractThreadPool extends AbstractExecutorService
      * @return the number of allocated threads in the thread pool
      */
     public final int getSize() {
+        return getWorkersCount();
+    }
+
+    /**
+     * @return the number of the started {@link Worker}s, which haven't
+     *          exited yet
+     * @since 3.0
+     */
+    protected int getWorkersCount() {
         synchronized (stateLock) {
             return workers.size();
         }
@@ -352,6 +361,7 @@ public abstract class AbstractThreadPool extends AbstractExecutorService
         if (delayedQueue != null) {
             worker.transactionExpirationTime =
                     System.currentTimeMillis() + transactionTimeoutMillis;
+            delayedQueue.update(worker);
         }
 
         final ClassLoader initial = config.getInitialClassLoader();
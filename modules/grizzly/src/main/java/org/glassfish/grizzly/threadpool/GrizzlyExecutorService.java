@@ -47,6 +47,9 @@ import java.util.Queue;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.monitoring.MonitoringAware;
 import org.glassfish.grizzly.monitoring.MonitoringConfig;
 
@@ -56,6 +59,7 @@ import org.glassfish.grizzly.monitoring.MonitoringConfig;
  */
 public class GrizzlyExecutorService extends AbstractExecutorService
         implements MonitoringAware<ThreadPoolProbe> {
+    private static final Logger LOGGER = Grizzly.logger(GrizzlyExecutorService.class);
 
     private final Object statelock = new Object();
     private volatile AbstractThreadPool pool;
@@ -93,6 +97,18 @@ public class GrizzlyExecutorService extends AbstractExecutorService
             cfg.setMemoryManager(MemoryManager.DEFAULT_MEMORY_MANAGER);
         }
         
+        if (cfg.isVirtual()) {
+            if (Threads.isVirtualThreadsSupported()) {
+                this.pool = new VirtualThreadPool(cfg);
+                this.config = cfg;
+                return;
+            }
+
+            LOGGER.log(Level.WARNING, "Virtual threads are not supported by "
+                    + "the runtime, {0} will use platform threads",
+                    cfg.getPoolName());
+        }
+
         final Queue<Runnable> queue = cfg.getQueue();
         if ((queue == null || queue instanceof BlockingQueue) &&
                 (cfg.getCorePoolSize() < 0 || cfg.getCorePoolSize() == cfg.getMaxPoolSize())) {
@@ -97,6 +97,7 @@ public final class ThreadPoolConfig {
     protected DelayedExecutor transactionMonitor;
     protected long transactionTimeoutMillis;
     protected ClassLoader initialClassLoader;
+    protected boolean isVirtual;
 
     /**
      * Thread pool probes
@@ -155,6 +156,7 @@ public final class ThreadPoolConfig {
         this.keepAliveTimeMillis   = cfg.keepAliveTimeMillis;
         this.mm              = cfg.mm;
         this.initialClassLoader = cfg.initialClassLoader;
+        this.isVirtual       = cfg.isVirtual;
         
         this.threadPoolMonitoringConfig =
                 new DefaultMonitoringConfig<ThreadPoolProbe>(ThreadPoolProbe.class);
@@ -420,6 +422,37 @@ public final class ThreadPoolConfig {
         return this;
     }
 
+    /**
+     * @return <tt>true</tt> if the thread pool runs each task on a new
+     *  virtual thread, or <tt>false</tt> otherwise.
+     *
+     * @since 3.0
+     */
+    public boolean isVirtual() {
+        return isVirtual;
+    }
+
+    /**
+     * Specifies whether the thread pool should run each task on a new virtual
+     * thread instead of a fixed set of platform threads.
+     * The virtual thread pool doesn't queue tasks, so the pool sizes, queue
+     * and keep-alive settings are ignored.
+     * If the runtime doesn't support virtual threads, the setting is ignored
+     * and a regular thread pool is created.
+     *
+     * @param isVirtual <tt>true</tt> to run tasks on virtual threads.
+     *
+     * @return the {@link ThreadPoolConfig}
+     *
+     * @see Threads#isVirtualThreadsSupported()
+     *
+     * @since 3.0
+     */
+    public ThreadPoolConfig setVirtual(final boolean isVirtual) {
+        this.isVirtual = isVirtual;
+        return this;
+    }
+
     @Override
     public String toString() {
         return ThreadPoolConfig.class.getSimpleName() + " :\r\n"
@@ -434,6 +467,7 @@ public final class ThreadPoolConfig {
                 + "  transactionTimeoutMillis: " + transactionTimeoutMillis + "\r\n"
                 + "  priority: " + priority + "\r\n"
                 + "  isDaemon: " + isDaemon + "\r\n"
-                + "  initialClassLoader: " + initialClassLoader;
+                + "  initialClassLoader: " + initialClassLoader + "\r\n"
+                + "  isVirtual: " + isVirtual;
     }
 }
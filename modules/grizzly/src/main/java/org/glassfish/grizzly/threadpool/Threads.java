@@ -40,14 +40,76 @@
 
 package org.glassfish.grizzly.threadpool;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+
 /**
  * Set of {@link Thread} utilities.
  * 
  *
  */
 public class Threads {
+    private static final Logger LOGGER = Grizzly.logger(Threads.class);
+
     private static final ThreadLocal<Boolean> SERVICE_THREAD =
             new ThreadLocal<Boolean>();
+
+    /**
+     * The <tt>java.lang.VirtualThread</tt> class, or <tt>null</tt> if the
+     * runtime doesn't support virtual threads.
+     */
+    private static final Class<?> VIRTUAL_THREAD_CLASS;
+
+    /**
+     * <tt>Thread.ofVirtual()</tt>
+     */
+    private static final Method OF_VIRTUAL_METHOD;
+    /**
+     * <tt>Thread.Builder.name(String, long)</tt>
+     */
+    private static final Method BUILDER_NAME_METHOD;
+    /**
+     * <tt>Thread.Builder.factory()</tt>
+     */
+    private static final Method BUILDER_FACTORY_METHOD;
+
+    static {
+        Class<?> virtualThreadClass = null;
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+
+        try {
+            // Virtual threads are available since JDK 21, so the API
+            // has to be accessed reflectively
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+
+            final Object builder = ofVirtual.invoke(null);
+            final Thread probe = ((ThreadFactory) builderFactory.invoke(builder))
+                    .newThread(new Runnable() {
+                        @Override
+                        public void run() {
+                        }
+                    });
+            virtualThreadClass = probe.getClass();
+        } catch (Throwable t) {
+            LOGGER.log(Level.FINE, "Virtual threads are not supported", t);
+            ofVirtual = null;
+            builderName = null;
+            builderFactory = null;
+        }
+
+        VIRTUAL_THREAD_CLASS = virtualThreadClass;
+        OF_VIRTUAL_METHOD = ofVirtual;
+        BUILDER_NAME_METHOD = builderName;
+        BUILDER_FACTORY_METHOD = builderFactory;
+    }
     
     public static boolean isService() {
         return Boolean.TRUE.equals(SERVICE_THREAD.get());
@@ -60,5 +122,52 @@ public class Threads {
             SERVICE_THREAD.remove();
         }
     }
-    
+
+    /**
+     * @return <tt>true</tt> if the runtime supports virtual threads,
+     *  or <tt>false</tt> otherwise.
+     *
+     * @since 3.0
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_THREAD_CLASS != null;
+    }
+
+    /**
+     * @param thread the {@link Thread} to check.
+     * @return <tt>true</tt> if the passed {@link Thread} is a virtual thread.
+     *
+     * @since 3.0
+     */
+    public static boolean isVirtual(final Thread thread) {
+        return VIRTUAL_THREAD_CLASS != null
+                && thread.getClass() == VIRTUAL_THREAD_CLASS;
+    }
+
+    /**
+     * Creates a {@link ThreadFactory}, which produces virtual threads named
+     * <tt>namePrefix</tt> followed by the thread number.
+     *
+     * @param namePrefix the thread name prefix.
+     * @return the virtual threads {@link ThreadFactory}.
+     * @throws UnsupportedOperationException if the runtime doesn't support
+     *      virtual threads.
+     *
+     * @since 3.0
+     */
+    public static ThreadFactory newVirtualThreadFactory(final String namePrefix) {
+        if (!isVirtualThreadsSupported()) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads are not supported");
+        }
+
+        try {
+            Object builder = OF_VIRTUAL_METHOD.invoke(null);
+            builder = BUILDER_NAME_METHOD.invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) BUILDER_FACTORY_METHOD.invoke(builder);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException(
+                    "Can't create virtual thread factory", e);
+        }
+    }
 }
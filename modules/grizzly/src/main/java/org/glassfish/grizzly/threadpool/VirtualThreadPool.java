@@ -0,0 +1,185 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.threadpool;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread pool, which runs each task on a new virtual thread.
+ * The pool doesn't queue tasks, so the number of concurrently executed
+ * tasks is not limited by the pool size.
+ *
+ * The pool is created by {@link GrizzlyExecutorService}, if
+ * {@link ThreadPoolConfig#isVirtual()} is set and the runtime supports
+ * virtual threads.
+ *
+ * @since 3.0
+ */
+public class VirtualThreadPool extends AbstractThreadPool {
+
+    private final ThreadFactory virtualThreadFactory;
+
+    // the workers, which have been accepted by execute() and haven't exited yet
+    private final Set<Worker> activeWorkers = ConcurrentHashMap.newKeySet();
+
+    public VirtualThreadPool(ThreadPoolConfig config) {
+        super(config);
+
+        if (config.getQueue() == null) {
+            // the queue is never used for tasks, but it's expected by
+            // shutdownNow() and GrizzlyExecutorService.reconfigure()
+            config.setQueue(new LinkedTransferQueue<Runnable>());
+        }
+
+        virtualThreadFactory = Threads.newVirtualThreadFactory(
+                config.getPoolName() + '-');
+
+        ProbeNotifier.notifyThreadPoolStarted(this);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (command == null) {
+            throw new NullPointerException("command is null");
+        }
+
+        final VirtualWorker worker = new VirtualWorker(command);
+        activeWorkers.add(worker);
+
+        // the flag is checked after the worker is registered, so either
+        // shutdown() is not done yet, or the worker is rejected here
+        if (!running) {
+            onWorkerRemoved(worker);
+            throw new RejectedExecutionException("ThreadPool is not running");
+        }
+
+        // keep the queued/dequeued probe events balanced,
+        // the Worker reports the task as dequeued before running it
+        onTaskQueued(command);
+        startWorker(worker);
+    }
+
+    /**
+     * Starts the virtual thread for the {@link Worker}, which has been
+     * registered by {@link #execute(Runnable)}. Doesn't require the stateLock.
+     * @param worker the {@link Worker} being started.
+     */
+    @Override
+    protected void startWorker(final Worker worker) {
+        final Thread thread = virtualThreadFactory.newThread(worker);
+        thread.setUncaughtExceptionHandler(this);
+
+        final ClassLoader initial = config.getInitialClassLoader();
+        if (initial != null) {
+            thread.setContextClassLoader(initial);
+        }
+
+        worker.t = thread;
+        thread.start();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        final List<Runnable> drained = super.shutdownNow();
+        for (Worker w : activeWorkers) {
+            final Thread thread = w.t;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        return drained;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return !running && activeWorkers.isEmpty();
+    }
+
+    @Override
+    protected int getWorkersCount() {
+        return activeWorkers.size();
+    }
+
+    @Override
+    protected void onWorkerExit(final Worker worker) {
+        if (delayedQueue != null) {
+            delayedQueue.remove(worker);
+        }
+
+        onWorkerRemoved(worker);
+        ProbeNotifier.notifyThreadReleased(this, worker.t);
+    }
+
+    private void onWorkerRemoved(final Worker worker) {
+        activeWorkers.remove(worker);
+        if (!running && activeWorkers.isEmpty()) {
+            synchronized (stateLock) {
+                // notify awaitTermination threads
+                stateLock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    protected void poisonAll() {
+        // each worker runs a single task, there is nothing to poison
+    }
+
+    private final class VirtualWorker extends Worker {
+        private Runnable task;
+
+        private VirtualWorker(final Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        protected Runnable getTask() {
+            final Runnable r = task;
+            task = null;
+            return r;
+        }
+    }
+}
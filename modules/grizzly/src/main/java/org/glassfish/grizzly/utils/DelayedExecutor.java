@@ -40,20 +40,47 @@
 
 package org.glassfish.grizzly.utils;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiFunction;
 
 /**
- * 
+ * Executes {@link Worker} tasks for the elements, registered on
+ * {@link DelayQueue}s, once the element's timeout, reported by the
+ * {@link Resolver}, expires.
  *
+ * Each {@link DelayQueue} keeps its elements in a hierarchical timing wheel
+ * with the tick equal to the executor's check interval, so registering,
+ * rescheduling and removing an element are O(1) operations and the timer
+ * thread only touches the elements, whose timeouts are (about to) expire.
+ *
+ * The wheel is owned by the timer thread: {@link DelayQueue#add(Object, long, TimeUnit)},
+ * {@link DelayQueue#update(Object)} and {@link DelayQueue#remove(Object)} only
+ * touch a concurrent map and a lock-free queue of the pending updates, which
+ * are applied to the wheel on the next tick.
+ *
+ * The {@link Resolver} remains the source of truth for the element's timeout:
+ * once the element's wheel slot fires the timeout is re-read, so a timeout
+ * extended in place (without calling {@link DelayQueue#add(Object, long, TimeUnit)})
+ * is rescheduled lazily. A timeout shortened or unset in place is picked up
+ * right away if it's reported via {@link DelayQueue#update(Object)}, otherwise
+ * by the revalidation, which re-reads the timeouts of all the registered
+ * elements once per wheel turn (64 ticks).
  */
 public class DelayedExecutor {
     public final static long UNSET_TIMEOUT = -1;
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int WHEEL_LEVELS = 6;
     
     private final ExecutorService threadPool;
 
@@ -67,6 +94,8 @@ public class DelayedExecutor {
     private volatile boolean isStarted;
 
     private final long checkIntervalMillis;
+    
+    private final long tickMillis;
 
     public DelayedExecutor(final ExecutorService threadPool) {
         this(threadPool, 1000, TimeUnit.MILLISECONDS);
@@ -80,8 +109,8 @@ public class DelayedExecutor {
         
         this.threadPool = threadPool;
         this.checkIntervalMillis = TimeUnit.MILLISECONDS.convert(checkInterval, timeunit);
+        this.tickMillis = Math.max(1, checkIntervalMillis);
     }
-
     public void start() {
         synchronized(sync) {
             if (!isStarted) {
@@ -122,48 +151,15 @@ public class DelayedExecutor {
         return queue;
     }
 
-    private static boolean wasModified(final long l1, final long l2) {
-        return l1 != l2;
-        }
-
     private class DelayedRunnable implements Runnable {
 
-        @SuppressWarnings("unchecked")
         @Override
         public void run() {
             while(isStarted) {
                 final long currentTimeMillis = System.currentTimeMillis();
                 
                 for (final DelayQueue delayQueue : queues) {
-                    if (delayQueue.queue.isEmpty()) continue;
-                    
-                    final Resolver resolver = delayQueue.resolver;
-
-                    for (Iterator it = delayQueue.queue.keySet().iterator(); it.hasNext(); ) {
-                        final Object element = it.next();
-                        final long timeoutMillis = resolver.getTimeoutMillis(element);
-                        
-                        if (timeoutMillis == UNSET_TIMEOUT) {
-                            it.remove();
-                            if (wasModified(timeoutMillis,
-                                    resolver.getTimeoutMillis(element))) {                                
-                                delayQueue.queue.put(element, delayQueue);
-                            }
-                        } else if (currentTimeMillis - timeoutMillis >= 0) {
-                            it.remove();
-                            if (wasModified(timeoutMillis,
-                                    resolver.getTimeoutMillis(element))) {
-                                delayQueue.queue.put(element, delayQueue);
-                            } else {
-                                try {
-                                    if (!delayQueue.worker.doWork(element)) {
-                                        delayQueue.queue.put(element, delayQueue);
-                                    }
-                                } catch (Exception ignored) {
-                                }
-                            }
-                        }
-                    }
+                    delayQueue.expire(currentTimeMillis);
                 }
 
                 synchronized(sync) {
@@ -179,32 +175,381 @@ public class DelayedExecutor {
     }
 
     public class DelayQueue<E> {
-        final ConcurrentMap<E, DelayQueue> queue = new ConcurrentHashMap<>();
-
         final Worker<E> worker;
         final Resolver<E> resolver;
 
+        // element -> its timeout node
+        private final ConcurrentMap<E, TimeoutNode<E>> timeouts =
+                new ConcurrentHashMap<>();
+        
+        // the nodes, which have been added, removed or updated since the
+        // last tick, applied to the wheel by the timer thread
+        private final Queue<TimeoutNode<E>> updates =
+                new ConcurrentLinkedQueue<>();
+        
+        private final BiFunction<E, TimeoutNode<E>, TimeoutNode<E>> register =
+                (elem, node) -> {
+                    if (node == null) {
+                        node = new TimeoutNode<>(elem);
+                    }
+                    
+                    offerUpdate(node);
+                    return node;
+                };
+        
+        // guards the wheel, which is only accessed by the timer thread
+        private final Object lock = new Object();
+        
+        // wheel[level][slot], each slot is a circular list with a sentinel node
+        private final TimeoutNode<E>[][] wheel;
+        // the elements with timeouts beyond the wheel horizon
+        private final TimeoutNode<E> parked = new TimeoutNode<>(null);
+        
+        // the last processed tick
+        private long tick;
+        // the tick of the last revalidation
+        private long revalidationTick;
+
+        @SuppressWarnings("unchecked")
         public DelayQueue(final Worker<E> worker, final Resolver<E> resolver) {
             this.worker = worker;
             this.resolver = resolver;
+            
+            wheel = new TimeoutNode[WHEEL_LEVELS][WHEEL_SIZE];
+            for (int i = 0; i < WHEEL_LEVELS; i++) {
+                for (int j = 0; j < WHEEL_SIZE; j++) {
+                    wheel[i][j] = new TimeoutNode<>(null);
+                }
+            }
+            
+            tick = System.currentTimeMillis() / tickMillis;
+            revalidationTick = tick;
         }
 
         public void add(final E elem, final long delay, final TimeUnit timeUnit) {
             if (delay >= 0) {
                 final long delayWithSysTime =
                         System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(delay, timeUnit);
-                resolver.setTimeoutMillis(elem, ((delayWithSysTime < 0) ? Long.MAX_VALUE : delayWithSysTime));
-                queue.put(elem, this);
+                final long timeoutMillis = (delayWithSysTime < 0) ? Long.MAX_VALUE : delayWithSysTime;
+                resolver.setTimeoutMillis(elem, timeoutMillis);
+                
+                timeouts.compute(elem, register);
             }
         }
 
+        /**
+         * Notifies the queue, that the element's timeout has been shortened
+         * in place via the element's state, which backs the {@link Resolver}.
+         * The element is rescheduled on the next tick, the call is a no-op
+         * if the element is not registered on the queue.
+         *
+         * @param elem the element, which timeout has been changed
+         * @since 3.0
+         */
+        public void update(final E elem) {
+            final TimeoutNode<E> node = timeouts.get(elem);
+            if (node != null) {
+                offerUpdate(node);
+            }
+        }
+        
         public void remove(final E elem) {
             resolver.removeTimeout(elem);
+            
+            final TimeoutNode<E> node = timeouts.remove(elem);
+            if (node != null) {
+                // let the timer thread unlink the node
+                offerUpdate(node);
+            }
         }
 
         public void destroy() {
             queues.remove(this);
         }
+
+        /**
+         * Returns the number of elements registered on the queue.
+         */
+        public int size() {
+            return timeouts.size();
+        }
+        
+        void expire(final long currentTimeMillis) {
+            synchronized (lock) {
+                applyUpdates();
+                
+                final long currentTick = currentTimeMillis / tickMillis;
+                
+                if (timeouts.isEmpty()) {
+                    tick = Math.max(tick, currentTick);
+                    revalidationTick = tick;
+                    return;
+                }
+                
+                if (currentTick - revalidationTick >= WHEEL_SIZE) {
+                    revalidationTick = currentTick;
+                    revalidate();
+                }
+                
+                final List<TimeoutNode<E>> expired = new ArrayList<>();
+                if (currentTick - tick > WHEEL_SIZE) {
+                    // the clock jumped or the timer thread was stalled
+                    jump(currentTick, expired);
+                } else {
+                    while (tick < currentTick) {
+                        tick++;
+                        cascade(expired);
+                        drainTo(wheel[0][(int) (tick & WHEEL_MASK)], expired);
+                    }
+                }
+                
+                for (int i = 0; i < expired.size(); i++) {
+                    process(expired.get(i), currentTimeMillis);
+                }
+            }
+        }
+        
+        private void offerUpdate(final TimeoutNode<E> node) {
+            if (node.markQueued()) {
+                updates.offer(node);
+            }
+        }
+        
+        /**
+         * (Re)links the added and updated nodes with their current timeouts
+         * and unlinks the removed ones.
+         */
+        private void applyUpdates() {
+            TimeoutNode<E> node;
+            while ((node = updates.poll()) != null) {
+                // the updates, which happen after the timeout is read,
+                // queue the node again
+                node.isQueued = 0;
+                
+                if (timeouts.get(node.element) != node) {
+                    node.unlink();
+                    continue;
+                }
+                
+                final long timeoutMillis = resolver.getTimeoutMillis(node.element);
+                if (timeoutMillis == UNSET_TIMEOUT) {
+                    node.unlink();
+                    unregister(node);
+                } else {
+                    schedule(node, timeoutMillis);
+                }
+            }
+        }
+        
+        /**
+         * Re-reads the timeouts of the scheduled elements and reschedules
+         * the ones, which have been shortened or unset in place without
+         * {@link #update(Object)} being called.
+         */
+        private void revalidate() {
+            for (TimeoutNode<E> node : timeouts.values()) {
+                if (!node.isLinked()) {
+                    // a queued update takes care of the node
+                    continue;
+                }
+                
+                final long timeoutMillis = resolver.getTimeoutMillis(node.element);
+                if (timeoutMillis == UNSET_TIMEOUT) {
+                    node.unlink();
+                    unregister(node);
+                } else if (timeoutMillis < node.timeoutMillis) {
+                    schedule(node, timeoutMillis);
+                }
+            }
+        }
+        
+        /**
+         * Advances the wheel straight to the <tt>currentTick</tt>: all the
+         * scheduled nodes are either expired or rescheduled relative to the
+         * new tick, so the cost depends on the number of nodes and not on
+         * the number of skipped ticks.
+         */
+        private void jump(final long currentTick,
+                final List<TimeoutNode<E>> expired) {
+            final List<TimeoutNode<E>> nodes = new ArrayList<>();
+            for (int level = 0; level < WHEEL_LEVELS; level++) {
+                for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                    drainTo(wheel[level][slot], nodes);
+                }
+            }
+            drainTo(parked, nodes);
+            
+            tick = currentTick;
+            for (int i = 0; i < nodes.size(); i++) {
+                final TimeoutNode<E> node = nodes.get(i);
+                if (node.timeoutMillis / tickMillis <= tick) {
+                    expired.add(node);
+                } else {
+                    schedule(node, node.timeoutMillis);
+                }
+            }
+        }
+        
+        private void process(final TimeoutNode<E> node,
+                final long currentTimeMillis) {
+            final E element = node.element;
+            if (timeouts.get(element) != node) {
+                // the element has been removed or re-registered with a new node
+                return;
+            }
+            
+            final long timeoutMillis = resolver.getTimeoutMillis(element);
+            
+            if (timeoutMillis != UNSET_TIMEOUT
+                    && currentTimeMillis - timeoutMillis >= 0) {
+                boolean isDone = true;
+                try {
+                    isDone = worker.doWork(element);
+                } catch (Exception ignored) {
+                }
+                
+                if (!isDone) {
+                    final long newTimeoutMillis = resolver.getTimeoutMillis(element);
+                    reschedule(node, newTimeoutMillis == UNSET_TIMEOUT
+                            ? UNSET_TIMEOUT
+                            : Math.max(newTimeoutMillis, currentTimeMillis));
+                    return;
+                }
+            }
+            
+            if (timeoutMillis == UNSET_TIMEOUT || currentTimeMillis - timeoutMillis >= 0) {
+                unregister(node);
+            } else {
+                // the timeout was extended in place
+                reschedule(node, timeoutMillis);
+            }
+        }
+        
+        private void reschedule(final TimeoutNode<E> node, final long timeoutMillis) {
+            if (!node.isLinked() && timeouts.get(node.element) == node) {
+                if (timeoutMillis == UNSET_TIMEOUT) {
+                    unregister(node);
+                } else {
+                    schedule(node, timeoutMillis);
+                }
+            }
+        }
+        
+        /**
+         * Removes the element's mapping unless the element has been added
+         * or updated meanwhile, in which case the queued update reschedules
+         * the node.
+         */
+        private void unregister(final TimeoutNode<E> node) {
+            timeouts.computeIfPresent(node.element,
+                    (elem, current) -> current == node && node.isQueued == 0
+                            ? null
+                            : current);
+        }
+        
+        /**
+         * Links the node to the wheel slot, corresponding to the timeout.
+         * Must be called with the lock held.
+         */
+        private void schedule(final TimeoutNode<E> node, final long timeoutMillis) {
+            node.unlink();
+            node.timeoutMillis = timeoutMillis;
+            
+            final long timeoutTick = Math.max(timeoutMillis / tickMillis, tick + 1);
+            final long ticks = timeoutTick - tick;
+            
+            for (int level = 0; level < WHEEL_LEVELS; level++) {
+                final int shift = WHEEL_BITS * level;
+                if (ticks < (1L << (shift + WHEEL_BITS))) {
+                    node.linkBefore(
+                            wheel[level][(int) ((timeoutTick >>> shift) & WHEEL_MASK)]);
+                    return;
+                }
+            }
+            
+            node.linkBefore(parked);
+        }
+        
+        /**
+         * Moves the nodes from the upper level slots, which start at the
+         * current tick, down the wheel. The upper levels go first, so their
+         * nodes are cascaded further down within the same tick if needed.
+         */
+        private void cascade(final List<TimeoutNode<E>> expired) {
+            int topLevel = 0;
+            while (topLevel + 1 < WHEEL_LEVELS
+                    && (tick & ((1L << (WHEEL_BITS * (topLevel + 1))) - 1)) == 0) {
+                topLevel++;
+            }
+            
+            for (int level = topLevel; level > 0; level--) {
+                final int shift = WHEEL_BITS * level;
+                final TimeoutNode<E> head = wheel[level][(int) ((tick >>> shift) & WHEEL_MASK)];
+                TimeoutNode<E> node = head.next;
+                while (node != head) {
+                    final TimeoutNode<E> next = node.next;
+                    if (node.timeoutMillis / tickMillis <= tick) {
+                        node.unlink();
+                        expired.add(node);
+                    } else {
+                        schedule(node, node.timeoutMillis);
+                    }
+                    node = next;
+                }
+            }
+        }
+        
+        private void drainTo(final TimeoutNode<E> head,
+                final List<TimeoutNode<E>> expired) {
+            TimeoutNode<E> node = head.next;
+            while (node != head) {
+                final TimeoutNode<E> next = node.next;
+                node.unlink();
+                expired.add(node);
+                node = next;
+            }
+        }
+    }
+
+    private static final class TimeoutNode<E> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<TimeoutNode> IS_QUEUED_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(TimeoutNode.class, "isQueued");
+        
+        private final E element;
+        // 1, if the node is waiting in the queue's updates
+        private volatile int isQueued;
+        
+        // the fields below are accessed by the timer thread only
+        private long timeoutMillis;
+        
+        private TimeoutNode<E> prev = this;
+        private TimeoutNode<E> next = this;
+
+        TimeoutNode(final E element) {
+            this.element = element;
+        }
+        
+        boolean markQueued() {
+            return isQueued == 0 && IS_QUEUED_UPDATER.compareAndSet(this, 0, 1);
+        }
+        
+        boolean isLinked() {
+            return next != this;
+        }
+        
+        void linkBefore(final TimeoutNode<E> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+        
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = this;
+        }
     }
 
     public interface Worker<E> {
@@ -41,6 +41,12 @@
 package org.glassfish.grizzly.utils;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -50,10 +56,14 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.Transport;
+import org.glassfish.grizzly.TransportProbe;
 import org.glassfish.grizzly.attributes.Attribute;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.nio.NIOConnection;
+import org.glassfish.grizzly.nio.SelectorRunner;
 
 /**
  * The Filter is responsible for tracking {@link Connection} activity and closing
@@ -62,6 +72,19 @@ import org.glassfish.grizzly.filterchain.NextAction;
  * is idle, when no event is being executed on it. But if some event processing
  * was suspended - this Filter still assumes {@link Connection} is active.
  * 
+ * In the lazy tracking mode (see {@link #setLazyTracking(boolean)}) the Filter
+ * doesn't touch the {@link DelayedExecutor} on the I/O path, it just stamps the
+ * {@link Connection}'s last activity time when an event starts and completes.
+ * The {@link Connection}s are grouped into stripes, one per
+ * {@link org.glassfish.grizzly.nio.SelectorRunner}, and each stripe is swept
+ * by the {@link DelayedExecutor} once its earliest idle timeout might have
+ * expired. In this mode a {@link Connection} is considered active while any
+ * of its events is being executed or suspended, the {@link TimeoutResolver} is
+ * consulted once, when the {@link Connection} is accepted or connected, and
+ * an idle {@link Connection} is closed within 1/8 of its idle timeout after
+ * the timeout expires. The stripes of a {@link Transport} are dropped once
+ * the {@link Transport} is stopped.
+ * 
  * @see ActivityCheckFilter
  * 
  *
@@ -73,6 +96,19 @@ public class IdleTimeoutFilter extends BaseFilter {
     public static final Long FOREVER_SPECIAL = FOREVER - 1;
     
     public static final String IDLE_ATTRIBUTE_NAME = "connection-idle-attribute";
+    
+    /**
+     * The system property to enable the lazy tracking mode for
+     * {@link IdleTimeoutFilter}s by default.
+     *
+     * @since 3.0
+     */
+    public static final String LAZY_TRACKING_PROP_NAME =
+            IdleTimeoutFilter.class.getName() + ".lazy-tracking";
+    
+    private static final boolean DEFAULT_LAZY_TRACKING =
+            Boolean.getBoolean(LAZY_TRACKING_PROP_NAME);
+    
     private static final Attribute<IdleRecord> IDLE_ATTR =
             Attribute.create(IDLE_ATTRIBUTE_NAME, () -> new IdleRecord());
     
@@ -82,6 +118,17 @@ public class IdleTimeoutFilter extends BaseFilter {
 
     private final FilterChainContext.CompletionListener contextCompletionListener =
             new ContextCompletionListener();
+    
+    private final FilterChainContext.CompletionListener lazyCompletionListener =
+            new LazyCompletionListener();
+    
+    private final DelayedExecutor.Worker<Connection> worker;
+    private final DelayedExecutor.DelayQueue<Stripe> stripeQueue;
+    private final ConcurrentMap<Object, Stripe> stripes =
+            new ConcurrentHashMap<>();
+    private final TransportProbe transportProbe = new StripesTransportProbe();
+    
+    private volatile boolean isLazyTracking = DEFAULT_LAZY_TRACKING;
 
 
     // ------------------------------------------------------------ Constructors
@@ -131,8 +178,11 @@ public class IdleTimeoutFilter extends BaseFilter {
         }
 
         this.timeoutResolver = timeoutResolver;
+        this.worker = worker;
         resolver = new Resolver();
         queue = executor.createDelayQueue(worker, resolver);
+        stripeQueue = executor.createDelayQueue(new StripeWorker(),
+                new StripeResolver());
 
     }
 
@@ -143,7 +193,11 @@ public class IdleTimeoutFilter extends BaseFilter {
 
     @Override
     public NextAction handleAccept(final FilterChainContext ctx) throws IOException {
-        queue.add(ctx.getConnection(), FOREVER, TimeUnit.MILLISECONDS);
+        if (isLazyTracking) {
+            register(ctx);
+        } else {
+            queue.add(ctx.getConnection(), FOREVER, TimeUnit.MILLISECONDS);
+        }
 
         queueAction(ctx);
         return ctx.getInvokeAction();
@@ -151,7 +205,11 @@ public class IdleTimeoutFilter extends BaseFilter {
 
     @Override
     public NextAction handleConnect(final FilterChainContext ctx) throws IOException {
-        queue.add(ctx.getConnection(), FOREVER, TimeUnit.MILLISECONDS);
+        if (isLazyTracking) {
+            register(ctx);
+        } else {
+            queue.add(ctx.getConnection(), FOREVER, TimeUnit.MILLISECONDS);
+        }
 
         queueAction(ctx);
         return ctx.getInvokeAction();
@@ -171,7 +229,14 @@ public class IdleTimeoutFilter extends BaseFilter {
 
     @Override
     public NextAction handleClose(final FilterChainContext ctx) throws IOException {
-        queue.remove(ctx.getConnection());
+        final Connection connection = ctx.getConnection();
+        final Stripe stripe = IDLE_ATTR.get(connection).stripe;
+        if (stripe != null) {
+            stripe.connections.remove(connection);
+        } else {
+            queue.remove(connection);
+        }
+        
         return ctx.getInvokeAction();
     }
 
@@ -184,6 +249,33 @@ public class IdleTimeoutFilter extends BaseFilter {
         return resolver;
     }
 
+    /**
+     * @return <tt>true</tt>, if the lazy idle tracking mode is enabled.
+     *
+     * @since 3.0
+     */
+    public boolean isLazyTracking() {
+        return isLazyTracking;
+    }
+
+    /**
+     * Enables or disables the lazy idle tracking mode, in which the Filter only
+     * stamps the {@link Connection}'s last activity time on the I/O path and
+     * the idle {@link Connection}s are found by per
+     * {@link org.glassfish.grizzly.nio.SelectorRunner} sweeps.
+     * The mode is applied to the {@link Connection}s accepted or connected after
+     * the change, so it's supposed to be set before the Filter is used.
+     * The default value is taken from the {@link #LAZY_TRACKING_PROP_NAME}
+     * system property.
+     *
+     * @param isLazyTracking <tt>true</tt> to enable the lazy tracking mode.
+     *
+     * @since 3.0
+     */
+    public void setLazyTracking(final boolean isLazyTracking) {
+        this.isLazyTracking = isLazyTracking;
+    }
+
     @SuppressWarnings({"UnusedDeclaration"})
     public static DelayedExecutor createDefaultIdleDelayedExecutor() {
 
@@ -227,8 +319,13 @@ public class IdleTimeoutFilter extends BaseFilter {
     public static void setCustomTimeout(final Connection connection,
                                         final long timeout,
                                         final TimeUnit timeunit) {
-        IDLE_ATTR.get(connection).setInitialTimeoutMillis(
-                convertToMillis(timeout, timeunit));
+        final IdleRecord idleRecord = IDLE_ATTR.get(connection);
+        idleRecord.setInitialTimeoutMillis(convertToMillis(timeout, timeunit));
+        
+        final Stripe stripe = idleRecord.stripe;
+        if (stripe != null) {
+            stripe.scheduleSweep(idleRecord.getTimeoutMillis());
+        }
     }
 
     // ------------------------------------------------------- Protected Methods
@@ -237,6 +334,12 @@ public class IdleTimeoutFilter extends BaseFilter {
     protected void queueAction(final FilterChainContext ctx) {
         final Connection connection = ctx.getConnection();
         final IdleRecord idleRecord = IDLE_ATTR.get(connection);
+        if (idleRecord.stripe != null) {
+            idleRecord.counter.incrementAndGet();
+            ctx.addCompletionListener(lazyCompletionListener);
+            return;
+        }
+        
         if (idleRecord.counter.getAndIncrement() == 0) {
             idleRecord.timeoutMillis.set(FOREVER);
         }
@@ -246,6 +349,44 @@ public class IdleTimeoutFilter extends BaseFilter {
 
     // ------------------------------------------------------- Private Methods
     
+    private void register(final FilterChainContext ctx) {
+        final Connection connection = ctx.getConnection();
+        final IdleRecord idleRecord = IDLE_ATTR.get(connection);
+        idleRecord.resolvedTimeoutMillis = timeoutResolver.getTimeout(ctx);
+        idleRecord.lastActivityNanos = System.nanoTime();
+        
+        final Stripe stripe = getStripe(connection);
+        idleRecord.stripe = stripe;
+        stripe.connections.add(connection);
+        stripe.scheduleSweep(idleRecord.getTimeoutMillis());
+    }
+    
+    private Stripe getStripe(final Connection connection) {
+        Object key = null;
+        if (connection instanceof NIOConnection) {
+            key = ((NIOConnection) connection).getSelectorRunner();
+        }
+        if (key == null) {
+            key = this;
+        }
+        
+        Stripe stripe = stripes.get(key);
+        if (stripe == null) {
+            final Stripe newStripe = new Stripe();
+            stripe = stripes.putIfAbsent(key, newStripe);
+            if (stripe == null) {
+                stripe = newStripe;
+                if (key instanceof SelectorRunner) {
+                    // drop the stripes once the transport is stopped
+                    ((SelectorRunner) key).getTransport().getMonitoringConfig()
+                            .addProbes(transportProbe);
+                }
+            }
+        }
+        
+        return stripe;
+    }
+    
     private static long convertToMillis(final long time, final TimeUnit timeUnit) {
         return time >= 0 ? TimeUnit.MILLISECONDS.convert(time, timeUnit) : FOREVER;
     }
@@ -293,12 +434,29 @@ public class IdleTimeoutFilter extends BaseFilter {
                                 System.currentTimeMillis() + timeout;
                 }
                 
-                idleRecord.timeoutMillis.compareAndSet(FOREVER_SPECIAL, timeoutToSet);
+                if (idleRecord.timeoutMillis.compareAndSet(FOREVER_SPECIAL, timeoutToSet)
+                        && timeoutToSet != FOREVER) {
+                    // the parked connection has to be rescheduled
+                    queue.update(connection);
+                }
             }
         }
     } // END ContextCompletionListener
 
 
+    private static final class LazyCompletionListener
+            implements FilterChainContext.CompletionListener {
+
+        @Override
+        public void onComplete(final FilterChainContext ctx) {
+            final IdleRecord idleRecord = IDLE_ATTR.get(ctx.getConnection());
+            // the activity time has to be set before the counter reaches 0
+            idleRecord.lastActivityNanos = System.nanoTime();
+            idleRecord.counter.decrementAndGet();
+        }
+    } // END LazyCompletionListener
+
+
     // ---------------------------------------------------------- Nested Classes
 
     private static final class IdleTimeoutResolver implements TimeoutResolver {
@@ -342,12 +500,150 @@ public class IdleTimeoutFilter extends BaseFilter {
 
     } // END Resolver
 
+    /**
+     * The {@link Connection}s of one {@link org.glassfish.grizzly.nio.SelectorRunner},
+     * tracked in the lazy mode.
+     */
+    private final class Stripe {
+        private final Set<Connection> connections =
+                Collections.newSetFromMap(new ConcurrentHashMap<Connection, Boolean>());
+        
+        // the time of the next sweep, FOREVER if there's nothing to sweep
+        private final AtomicLong sweepTimeMillis = new AtomicLong(FOREVER);
+        
+        /**
+         * Makes sure the stripe is swept no later than the given timeout expires.
+         */
+        private void scheduleSweep(final long timeoutMillis) {
+            if (timeoutMillis == FOREVER) {
+                return;
+            }
+            
+            final long sweepTime = System.currentTimeMillis() + timeoutMillis;
+            long current;
+            while (sweepTime < (current = sweepTimeMillis.get())) {
+                if (sweepTimeMillis.compareAndSet(current, sweepTime)) {
+                    stripeQueue.add(this, timeoutMillis, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+        }
+    } // END Stripe
+    
+    
+    private final class StripeWorker implements DelayedExecutor.Worker<Stripe> {
+
+        @Override
+        public boolean doWork(final Stripe stripe) {
+            final long sweepTimeMillis = stripe.sweepTimeMillis.get();
+            final long nowNanos = System.nanoTime();
+            long nextSweepNanos = Long.MAX_VALUE;
+            long minTimeoutMillis = Long.MAX_VALUE;
+            
+            for (Iterator<Connection> it = stripe.connections.iterator(); it.hasNext(); ) {
+                final Connection connection = it.next();
+                if (!connection.isOpen()) {
+                    it.remove();
+                    continue;
+                }
+                
+                final IdleRecord idleRecord = IDLE_ATTR.get(connection);
+                final long timeoutMillis = idleRecord.getTimeoutMillis();
+                if (timeoutMillis == FOREVER) {
+                    continue;
+                }
+                
+                final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                long remainingNanos = timeoutNanos;
+                
+                // the connection is idle only if none of its events is
+                // being executed or suspended
+                if (idleRecord.counter.get() == 0) {
+                    remainingNanos -= nowNanos - idleRecord.lastActivityNanos;
+                    if (remainingNanos <= 0) {
+                        boolean isDone = true;
+                        try {
+                            isDone = worker.doWork(connection);
+                        } catch (Exception ignored) {
+                        }
+                        
+                        if (isDone) {
+                            it.remove();
+                            continue;
+                        }
+                        
+                        idleRecord.lastActivityNanos = nowNanos;
+                        remainingNanos = timeoutNanos;
+                    }
+                }
+                
+                nextSweepNanos = Math.min(nextSweepNanos, remainingNanos);
+                minTimeoutMillis = Math.min(minTimeoutMillis, timeoutMillis);
+            }
+            
+            // if a connection asked for an earlier sweep meanwhile - CAS fails
+            // and the requested sweep time is kept
+            stripe.sweepTimeMillis.compareAndSet(sweepTimeMillis,
+                    nextSweepNanos == Long.MAX_VALUE
+                            ? FOREVER
+                            : System.currentTimeMillis() + Math.max(
+                                    TimeUnit.NANOSECONDS.toMillis(nextSweepNanos),
+                                    minTimeoutMillis / 8));
+            return false;
+        }
+    } // END StripeWorker
+    
+    
+    private static final class StripeResolver implements DelayedExecutor.Resolver<Stripe> {
+
+        @Override
+        public boolean removeTimeout(final Stripe stripe) {
+            stripe.sweepTimeMillis.set(DelayedExecutor.UNSET_TIMEOUT);
+            return true;
+        }
+
+        @Override
+        public long getTimeoutMillis(final Stripe stripe) {
+            return stripe.sweepTimeMillis.get();
+        }
+
+        @Override
+        public void setTimeoutMillis(final Stripe stripe, final long timeoutMillis) {
+            stripe.sweepTimeMillis.set(timeoutMillis);
+        }
+    } // END StripeResolver
+    
+    
+    private final class StripesTransportProbe extends TransportProbe.Adapter {
+
+        @Override
+        public void onStopEvent(final Transport transport) {
+            for (Iterator<Map.Entry<Object, Stripe>> it = stripes.entrySet().iterator();
+                    it.hasNext(); ) {
+                final Map.Entry<Object, Stripe> entry = it.next();
+                final Object key = entry.getKey();
+                if (key instanceof SelectorRunner
+                        && ((SelectorRunner) key).getTransport() == transport) {
+                    it.remove();
+                    stripeQueue.remove(entry.getValue());
+                }
+            }
+        }
+    } // END StripesTransportProbe
+    
+
     private static final class IdleRecord {
         private boolean isClosed;
         private volatile boolean isInitialSet;
         private long initialTimeoutMillis;
         private final AtomicLong timeoutMillis;
         private final AtomicInteger counter;
+        
+        // lazy tracking mode state, the counter above is the number of
+        // the events being executed or suspended
+        private volatile Stripe stripe;
+        private volatile long lastActivityNanos;
+        private long resolvedTimeoutMillis;
 
         private IdleRecord() {
             counter = new AtomicInteger();
@@ -358,6 +654,10 @@ public class IdleTimeoutFilter extends BaseFilter {
             return isInitialSet ? initialTimeoutMillis : defaultTimeoutMillis;
         }
         
+        private long getTimeoutMillis() {
+            return getInitialTimeoutMillis(resolvedTimeoutMillis);
+        }
+        
         private void setInitialTimeoutMillis(final long initialTimeoutMillis) {
             this.initialTimeoutMillis = initialTimeoutMillis;
             isInitialSet = true;
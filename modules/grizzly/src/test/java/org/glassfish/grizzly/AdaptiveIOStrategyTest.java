@@ -0,0 +1,216 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.strategies.AdaptiveIOStrategy;
+import org.glassfish.grizzly.strategies.AdaptiveIOStrategyProbe;
+import org.glassfish.grizzly.utils.Charsets;
+import org.glassfish.grizzly.utils.StringFilter;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link AdaptiveIOStrategy} decisions.
+ */
+public class AdaptiveIOStrategyTest {
+    private static final int PORT = 7790;
+
+    @Test
+    public void testSlowAndFastRequests() throws Exception {
+        final AdaptiveIOStrategy strategy = new AdaptiveIOStrategy(
+                5, TimeUnit.MILLISECONDS, 0.5);
+        final DecisionProbe probe = new DecisionProbe();
+        strategy.getMonitoringConfig().addProbes(probe);
+
+        final TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .ioStrategy(strategy)
+                .build();
+        transport.setFilterChain(FilterChainBuilder.newInstance()
+                .add(new TransportFilter())
+                .add(new StringFilter(Charsets.UTF8_CHARSET))
+                .add(new SleepingEchoFilter())
+                .build());
+
+        // the client transport uses the default IOStrategy, so only
+        // the server-side connection events are seen by the probe
+        final TCPNIOTransport clientTransport =
+                TCPNIOTransportBuilder.newInstance().build();
+
+        final BlockingQueue<String> responses = new LinkedBlockingQueue<String>();
+        Connection connection = null;
+
+        try {
+            transport.bind(PORT);
+            transport.start();
+            clientTransport.start();
+
+            connection = TCPNIOConnectorHandler.builder(clientTransport)
+                    .filterChain(FilterChainBuilder.newInstance()
+                            .add(new TransportFilter())
+                            .add(new StringFilter(Charsets.UTF8_CHARSET))
+                            .add(new BaseFilter() {
+                                @Override
+                                public NextAction handleRead(final FilterChainContext ctx)
+                                        throws IOException {
+                                    responses.add((String) ctx.getMessage());
+                                    return ctx.getStopAction();
+                                }
+                            })
+                            .build())
+                    .build()
+                    .connect(new InetSocketAddress("localhost", PORT))
+                    .get(10, TimeUnit.SECONDS);
+
+            // there is no estimate yet, so the first request is handed off
+            // to a worker thread
+            request(connection, responses, "fast");
+            assertEquals(1, probe.workerThreadReads.get());
+            assertEquals(0, probe.sameThreadReads.get());
+
+            // the slow requests have to be handed off to the worker threads
+            for (int i = 0; i < 5; i++) {
+                request(connection, responses, "slow");
+            }
+
+            assertTrue(probe.workerThreadReads.get() > 0);
+            assertTrue(probe.workerThreadProcessed.get() > 0);
+            assertFalse(probe.lastReadSameThread);
+
+            final int sameThreadReadsBefore = probe.sameThreadReads.get();
+
+            // the estimation goes down, so the connection returns
+            // back to the selector thread
+            for (int i = 0; i < 50; i++) {
+                request(connection, responses, "fast");
+            }
+
+            // most of the fast requests are processed in the selector thread,
+            // an occasional slow measurement (GC etc.) might move a few
+            // requests to the worker threads though
+            assertTrue(probe.sameThreadReads.get() - sameThreadReadsBefore > 25);
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            clientTransport.shutdownNow();
+            transport.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalSmoothingFactor() {
+        new AdaptiveIOStrategy(1, TimeUnit.MILLISECONDS, 0);
+    }
+
+    private static void request(final Connection connection,
+            final BlockingQueue<String> responses, final String request)
+            throws Exception {
+        connection.write(request);
+        assertEquals(request, responses.poll(10, TimeUnit.SECONDS));
+    }
+
+    private static final class SleepingEchoFilter extends BaseFilter {
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx) throws IOException {
+            final String msg = ctx.getMessage();
+            if ("slow".equals(msg)) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+            }
+
+            ctx.write(msg);
+            return ctx.getStopAction();
+        }
+    }
+
+    private static final class DecisionProbe extends AdaptiveIOStrategyProbe.Adapter {
+        final AtomicInteger sameThreadReads = new AtomicInteger();
+        final AtomicInteger workerThreadReads = new AtomicInteger();
+        final AtomicInteger workerThreadProcessed = new AtomicInteger();
+        volatile boolean lastReadSameThread;
+
+        @Override
+        public void onSameThreadDecisionEvent(final AdaptiveIOStrategy strategy,
+                final Connection connection, final IOEvent ioEvent,
+                final long estimatedNanos) {
+            if (ioEvent == IOEvent.READ) {
+                sameThreadReads.incrementAndGet();
+                lastReadSameThread = true;
+            }
+        }
+
+        @Override
+        public void onWorkerThreadDecisionEvent(final AdaptiveIOStrategy strategy,
+                final Connection connection, final IOEvent ioEvent,
+                final long estimatedNanos) {
+            if (ioEvent == IOEvent.READ) {
+                workerThreadReads.incrementAndGet();
+                lastReadSameThread = false;
+            }
+        }
+
+        @Override
+        public void onReadProcessedEvent(final AdaptiveIOStrategy strategy,
+                final Connection connection, final long processingNanos,
+                final boolean isSameThread) {
+            if (!isSameThread) {
+                workerThreadProcessed.incrementAndGet();
+            }
+        }
+    }
+}
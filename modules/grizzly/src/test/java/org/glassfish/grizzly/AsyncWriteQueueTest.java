@@ -557,6 +557,87 @@ public class AsyncWriteQueueTest {
         }
     }
     
+    @Test
+    public void testCorkedWrites() throws Exception {
+        Connection connection = null;
+
+        final StringBuffer serverRcvd = new StringBuffer();
+        final FutureImpl<String> serverFuture = SafeFutureImpl.create();
+        final int packetsCount = 10;
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.newInstance();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(new BaseFilter() {
+
+            @Override
+            public NextAction handleRead(FilterChainContext ctx)
+                    throws IOException {
+                final Buffer buffer = ctx.getMessage();
+                serverRcvd.append(buffer.toStringContent(Charsets.ASCII_CHARSET));
+                if (serverRcvd.length() == packetsCount + 1) {
+                    serverFuture.result(serverRcvd.toString());
+                }
+                return ctx.getStopAction();
+            }
+        });
+
+        final TCPNIOTransport transport = createTransport(isOptimizedForMultiplexing);
+        transport.setFilterChain(filterChainBuilder.build());
+
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            Future<Connection> future = transport.connect("localhost", PORT);
+            connection = future.get(10, TimeUnit.SECONDS);
+            assertTrue(connection != null);
+
+            final MemoryManager mm = transport.getMemoryManager();
+            final NIOConnection con = (NIOConnection) connection;
+            final AtomicInteger completedCounter = new AtomicInteger();
+            final EmptyCompletionHandler<WriteResult<WritableMessage, SocketAddress>> completionHandler =
+                    new EmptyCompletionHandler<WriteResult<WritableMessage, SocketAddress>>() {
+
+                        @Override
+                        public void completed(
+                                WriteResult<WritableMessage, SocketAddress> result) {
+                            completedCounter.incrementAndGet();
+                        }
+                    };
+
+            assertTrue(con.cork());
+            assertFalse(con.cork());
+
+            for (int i = 0; i < packetsCount; i++) {
+                con.write(Buffers.wrap(mm, "" + (char) ('A' + i)), completionHandler);
+            }
+
+            // the write from another thread is queued after the corked ones
+            final Thread writerThread = new Thread() {
+                @Override
+                public void run() {
+                    con.write(Buffers.wrap(mm, "Z"), completionHandler);
+                }
+            };
+            writerThread.start();
+            writerThread.join(10000);
+
+            assertEquals(0, completedCounter.get());
+            assertEquals(packetsCount + 1, con.getAsyncWriteQueueSize());
+
+            con.uncork();
+
+            assertEquals("ABCDEFGHIJZ", serverFuture.get(10, TimeUnit.SECONDS));
+            assertEquals(packetsCount + 1, completedCounter.get());
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
+    
     // ---------------------------------------------------------- Nested Classes
 
 
@@ -49,6 +49,7 @@ import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
 import org.glassfish.grizzly.utils.DelayedExecutor;
@@ -227,4 +228,207 @@ public class IdleConnectionFilterTest extends GrizzlyTestCase {
             transport.shutdownNow();
         }
     }
+
+    public void testLazyAcceptedConnectionIdleTimeout() throws Exception {
+        Connection connection = null;
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final DelayedExecutor timeoutExecutor = IdleTimeoutFilter.createDefaultIdleDelayedExecutor(100, TimeUnit.MILLISECONDS);
+        timeoutExecutor.start();
+        IdleTimeoutFilter idleTimeoutFilter =
+                new IdleTimeoutFilter(timeoutExecutor, 2, TimeUnit.SECONDS);
+        idleTimeoutFilter.setLazyTracking(true);
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.newInstance();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(idleTimeoutFilter);
+        filterChainBuilder.add(new BaseFilter() {
+                private volatile Connection acceptedConnection;
+                @Override
+                public NextAction handleAccept(FilterChainContext ctx)
+                        throws IOException {
+                    acceptedConnection = ctx.getConnection();
+                    return ctx.getInvokeAction();
+                }
+
+                @Override
+                public NextAction handleClose(FilterChainContext ctx)
+                        throws IOException {
+                    if (ctx.getConnection().equals(acceptedConnection)) {
+                        latch.countDown();
+                    }
+
+                    return ctx.getInvokeAction();
+                }
+
+            });
+
+        TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance().build();
+        transport.setFilterChain(filterChainBuilder.build());
+        
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            final long start = System.currentTimeMillis();
+            Future<Connection> future = transport.connect("localhost", PORT);
+            connection = future.get(10, TimeUnit.SECONDS);
+            assertTrue(connection != null);
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start >= 2000);
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+            timeoutExecutor.stop();
+            timeoutExecutor.destroy();
+            transport.shutdownNow();
+        }
+    }
+
+    public void testLazyActiveConnection() throws Exception {
+        Connection connection = null;
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final DelayedExecutor timeoutExecutor = IdleTimeoutFilter.createDefaultIdleDelayedExecutor(100, TimeUnit.MILLISECONDS);
+        timeoutExecutor.start();
+        IdleTimeoutFilter idleTimeoutFilter =
+                new IdleTimeoutFilter(timeoutExecutor, 1, TimeUnit.SECONDS);
+        idleTimeoutFilter.setLazyTracking(true);
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.newInstance();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(idleTimeoutFilter);
+        filterChainBuilder.add(new BaseFilter() {
+                private volatile Connection acceptedConnection;
+                @Override
+                public NextAction handleAccept(FilterChainContext ctx)
+                        throws IOException {
+                    acceptedConnection = ctx.getConnection();
+                    return ctx.getInvokeAction();
+                }
+
+                @Override
+                public NextAction handleClose(FilterChainContext ctx)
+                        throws IOException {
+                    if (ctx.getConnection().equals(acceptedConnection)) {
+                        latch.countDown();
+                    }
+
+                    return ctx.getInvokeAction();
+                }
+
+            });
+
+        TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance().build();
+        transport.setFilterChain(filterChainBuilder.build());
+        
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            Future<Connection> future = transport.connect("localhost", PORT);
+            connection = future.get(10, TimeUnit.SECONDS);
+            assertTrue(connection != null);
+
+            // keep the connection active for 3 idle timeouts
+            for (int i = 0; i < 10; i++) {
+                connection.write(Buffers.wrap(transport.getMemoryManager(), "ping"));
+                assertFalse(latch.await(300, TimeUnit.MILLISECONDS));
+            }
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+            timeoutExecutor.stop();
+            timeoutExecutor.destroy();
+            transport.shutdownNow();
+        }
+    }
+
+    public void testLazySuspendedConnection() throws Exception {
+        Connection connection = null;
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch suspendLatch = new CountDownLatch(1);
+        final FilterChainContext[] suspendedContext = new FilterChainContext[1];
+        final DelayedExecutor timeoutExecutor = IdleTimeoutFilter.createDefaultIdleDelayedExecutor(100, TimeUnit.MILLISECONDS);
+        timeoutExecutor.start();
+        IdleTimeoutFilter idleTimeoutFilter =
+                new IdleTimeoutFilter(timeoutExecutor, 1, TimeUnit.SECONDS);
+        idleTimeoutFilter.setLazyTracking(true);
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.newInstance();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(idleTimeoutFilter);
+        filterChainBuilder.add(new BaseFilter() {
+                private volatile Connection acceptedConnection;
+                @Override
+                public NextAction handleAccept(FilterChainContext ctx)
+                        throws IOException {
+                    acceptedConnection = ctx.getConnection();
+                    return ctx.getInvokeAction();
+                }
+
+                @Override
+                public NextAction handleRead(FilterChainContext ctx)
+                        throws IOException {
+                    if (ctx.getConnection().equals(acceptedConnection)) {
+                        suspendedContext[0] = ctx;
+                        ctx.suspend();
+                        suspendLatch.countDown();
+                        return ctx.getSuspendAction();
+                    }
+
+                    return ctx.getStopAction();
+                }
+
+                @Override
+                public NextAction handleClose(FilterChainContext ctx)
+                        throws IOException {
+                    if (ctx.getConnection().equals(acceptedConnection)) {
+                        latch.countDown();
+                    }
+
+                    return ctx.getInvokeAction();
+                }
+
+            });
+
+        TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance().build();
+        transport.setFilterChain(filterChainBuilder.build());
+        
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            Future<Connection> future = transport.connect("localhost", PORT);
+            connection = future.get(10, TimeUnit.SECONDS);
+            assertTrue(connection != null);
+
+            connection.write(Buffers.wrap(transport.getMemoryManager(), "ping"));
+            assertTrue(suspendLatch.await(10, TimeUnit.SECONDS));
+
+            // another event completes, while the read is suspended
+            final FilterChainContext ctx = suspendedContext[0];
+            ctx.getConnection().write(
+                    Buffers.wrap(transport.getMemoryManager(), "pong"));
+
+            // the connection with the suspended event is active
+            assertFalse(latch.await(3, TimeUnit.SECONDS));
+
+            ctx.resume(ctx.getStopAction());
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+            timeoutExecutor.stop();
+            timeoutExecutor.destroy();
+            transport.shutdownNow();
+        }
+    }
 }
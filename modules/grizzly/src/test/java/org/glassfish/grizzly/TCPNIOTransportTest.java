@@ -42,7 +42,9 @@ package org.glassfish.grizzly;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.net.BindException;
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.util.Arrays;
@@ -221,6 +223,97 @@ public class TCPNIOTransportTest {
         }
     }
 
+    @Test
+    public void testReusePortBind() throws Exception {
+        final int runnersCount = 4;
+        final int clientsCount = 32;
+        final AtomicInteger acceptsCount = new AtomicInteger();
+        final AtomicInteger unknownRunnerAccepts = new AtomicInteger();
+
+        TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .selectorRunnersCount(runnersCount)
+                .reusePort(true)
+                .build();
+        transport.getMonitoringConfig().addProbes(new TransportProbe.Adapter() {
+            @Override
+            public void onAcceptEvent(Transport transport,
+                    Connection serverConnection, Connection clientConnection,
+                    int selectorRunnerIndex) {
+                if (selectorRunnerIndex < 0 || selectorRunnerIndex >= runnersCount) {
+                    unknownRunnerAccepts.incrementAndGet();
+                }
+                acceptsCount.incrementAndGet();
+            }
+        });
+
+        try {
+            final TCPNIOServerConnection serverConnection = transport.bind(PORT);
+            transport.start();
+
+            for (int i = 0; i < clientsCount; i++) {
+                final Connection connection = transport.connect("localhost", PORT)
+                        .get(10, TimeUnit.SECONDS);
+                assertNotNull(connection);
+                connection.closeSilently();
+            }
+
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (acceptsCount.get() < clientsCount
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(clientsCount, acceptsCount.get());
+            assertEquals(0, unknownRunnerAccepts.get());
+
+            // unbinding the returned server connection has to close all
+            // the SO_REUSEPORT acceptors bound to the same port
+            transport.unbind(serverConnection);
+
+            final Future<Connection> future = transport.connect("localhost", PORT);
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Server connection should be closed!");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        } finally {
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReusePortClose() throws Exception {
+        TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .selectorRunnersCount(4)
+                .reusePort(true)
+                .build();
+
+        try {
+            final TCPNIOServerConnection serverConnection = transport.bind(PORT);
+            transport.start();
+
+            // closing the returned server connection has to close all
+            // the SO_REUSEPORT acceptors bound to the same port
+            serverConnection.close().get(10, TimeUnit.SECONDS);
+
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (true) {
+                try (ServerSocket socket = new ServerSocket()) {
+                    socket.bind(new InetSocketAddress(PORT));
+                    break;
+                } catch (BindException e) {
+                    if (System.currentTimeMillis() > deadline) {
+                        fail("The port is still bound: " + e);
+                    }
+                    Thread.sleep(10);
+                }
+            }
+        } finally {
+            transport.shutdownNow();
+        }
+    }
+
     @Test
     public void testClose() throws Exception {
         final BlockingQueue<Connection> acceptedQueue = new LinkedTransferQueue<>();
@@ -42,15 +42,21 @@ package org.glassfish.grizzly;
 
 import org.glassfish.grizzly.threadpool.AbstractThreadPool;
 import org.glassfish.grizzly.threadpool.FixedThreadPool;
+import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
 import org.glassfish.grizzly.threadpool.SyncThreadPool;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.grizzly.threadpool.Threads;
 import org.junit.Test;
 
 import java.lang.reflect.Field;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
 import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
@@ -120,5 +126,49 @@ public class ThreadPoolsTest {
         } finally {
             tcpTransport.shutdownNow();
         }
-    }    
+    }
+
+    @Test
+    public void testVirtualThreadPool() throws Exception {
+        final int tasksCount = 256;
+        final CountDownLatch startLatch = new CountDownLatch(tasksCount);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final AtomicInteger virtualThreadsCount = new AtomicInteger();
+
+        final ThreadPoolConfig config = ThreadPoolConfig.newConfig()
+                .setCorePoolSize(tasksCount)
+                .setMaxPoolSize(tasksCount)
+                .setVirtual(true);
+        final GrizzlyExecutorService pool =
+                GrizzlyExecutorService.createInstance(config);
+        try {
+            for (int i = 0; i < tasksCount; i++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (Threads.isVirtual(Thread.currentThread())) {
+                            virtualThreadsCount.incrementAndGet();
+                        }
+                        startLatch.countDown();
+                        try {
+                            // all the tasks have to run concurrently
+                            releaseLatch.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                });
+            }
+
+            assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+            releaseLatch.countDown();
+
+            assertEquals(Threads.isVirtualThreadsSupported() ? tasksCount : 0,
+                    virtualThreadsCount.get());
+        } finally {
+            releaseLatch.countDown();
+            pool.shutdown();
+        }
+
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
 }
@@ -826,6 +826,47 @@ public class PooledMemoryManagerTest {
         assertEquals(1, probe.poolRestoredToFull.get());
     }
 
+    @Test
+    public void testLeakDetection() throws Exception {
+        PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                                        1,
+                                        0,
+                                        1,
+                                        DEFAULT_HEAP_USAGE_PERCENTAGE,
+                                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                                        isDirect);
+        assertEquals(0.0f, mm.getLeakDetectionSamplingRate(), 0.0f);
+        mm.setLeakDetectionSamplingRate(1.0f);
+
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        // released buffer and its released slices are not leaks
+        final Buffer b = mm.allocate(4096);
+        final Buffer slice = b.slice();
+        b.tryDispose();
+        slice.tryDispose();
+
+        // the buffer is not released
+        mm.allocate(4096);
+
+        for (int i = 0; i < 100 && probe.bufferLeaked.get() == 0; i++) {
+            System.gc();
+            Thread.sleep(50);
+            // the leaks are checked on allocation
+            mm.allocate(4096).tryDispose();
+        }
+
+        assertEquals(1, probe.bufferLeaked.get());
+
+        try {
+            mm.setLeakDetectionSamplingRate(2.0f);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
     @Test
     public void stressTest() {
         final int poolsNum = 3;
@@ -923,6 +964,10 @@ public class PooledMemoryManagerTest {
         AtomicInteger bufferReleasedToPool = new AtomicInteger();
         AtomicInteger poolDepleted = new AtomicInteger();
         AtomicInteger poolRestoredToFull = new AtomicInteger();
+        AtomicInteger slabAllocated = new AtomicInteger();
+        AtomicInteger slabReleased = new AtomicInteger();
+        AtomicInteger arenaExhausted = new AtomicInteger();
+        AtomicInteger bufferLeaked = new AtomicInteger();
 
         @Override
         public void onBufferAllocateEvent(int size) {
@@ -948,5 +993,25 @@ public class PooledMemoryManagerTest {
         public void onPoolRestoredToFullEvent() {
             poolRestoredToFull.incrementAndGet();
         }
+
+        @Override
+        public void onSlabAllocateEvent(int arenaIndex, int slabSize) {
+            slabAllocated.incrementAndGet();
+        }
+
+        @Override
+        public void onSlabReleaseEvent(int arenaIndex, int slabSize) {
+            slabReleased.incrementAndGet();
+        }
+
+        @Override
+        public void onArenaExhaustedEvent(int arenaIndex) {
+            arenaExhausted.incrementAndGet();
+        }
+
+        @Override
+        public void onBufferLeakEvent(int size, Throwable allocationTrace) {
+            bufferLeaked.incrementAndGet();
+        }
     }
 }
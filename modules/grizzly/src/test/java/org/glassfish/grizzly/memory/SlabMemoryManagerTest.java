@@ -0,0 +1,359 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.memory;
+
+import org.glassfish.grizzly.Buffer;
+import org.junit.Test;
+
+import static org.glassfish.grizzly.memory.SlabMemoryManager.*;
+import static org.junit.Assert.*;
+
+public class SlabMemoryManagerTest {
+
+    private static final int SLAB_SIZE = 64 * 1024;
+    private static final int MAX_BUFFER_SIZE = 16 * 1024;
+
+    @Test
+    public void testSizeClasses() {
+        assertEquals(0, sizeClassIndex(1));
+        assertEquals(MIN_SIZE_CLASS, sizeClassSize(0));
+        assertEquals(320, sizeClassSize(1));
+        assertEquals(512, sizeClassSize(4));
+        assertEquals(640, sizeClassSize(5));
+
+        for (int size = 1; size <= DEFAULT_MAX_BUFFER_SIZE; size++) {
+            final int index = sizeClassIndex(size);
+            final int classSize = sizeClassSize(index);
+            assertTrue(size + " doesn't fit " + classSize, size <= classSize);
+            if (index > 0) {
+                assertTrue(size + " fits smaller class", size > sizeClassSize(index - 1));
+            }
+            if (size > MIN_SIZE_CLASS) {
+                assertTrue("fragmentation is too high for " + size,
+                        classSize - size < size / 4);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidConstructorArguments() {
+        try {
+            new SlabMemoryManager(SLAB_SIZE, 100, 1, SLAB_SIZE, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new SlabMemoryManager(MAX_BUFFER_SIZE / 2, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new SlabMemoryManager(SLAB_SIZE, MAX_BUFFER_SIZE, 0, SLAB_SIZE, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new SlabMemoryManager(SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 1.5f);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testSimpleAllocationAndDispose() {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 0);
+        final PooledMemoryManagerTest.TestProbe probe =
+                new PooledMemoryManagerTest.TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        Buffer b = mm.allocate(1000);
+        assertEquals(1000, b.remaining());
+        assertEquals(1024, b.capacity());
+        assertTrue(b.isDirect());
+        assertTrue(b.allowBufferDispose());
+        assertEquals(1, probe.slabAllocated.get());
+        assertEquals(1, probe.bufferAllocated.get());
+        assertEquals(SLAB_SIZE, mm.getReservedBytes());
+        assertEquals(1024, mm.getUsedBytes());
+
+        b.tryDispose();
+        assertEquals(1, probe.bufferReleasedToPool.get());
+        assertEquals(0, mm.getUsedBytes());
+
+        // the released buffer has to be reused
+        final Buffer b2 = mm.allocate(1000);
+        assertEquals(1, probe.bufferAllocated.get());
+        assertEquals(1, probe.bufferAllocatedFromPool.get());
+        assertEquals(1024, b2.capacity());
+
+        b2.tryDispose();
+        try {
+            b2.put((byte) 1);
+            fail("disposed buffer has to be unusable");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testSharedBufferDispose() {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 0);
+
+        final Buffer b = mm.allocate(4096);
+        final Buffer slice = b.slice(0, 1024);
+        final Buffer split = b.split(2048);
+
+        b.tryDispose();
+        slice.tryDispose();
+        assertEquals(4096, mm.getUsedBytes());
+
+        split.tryDispose();
+        assertEquals(0, mm.getUsedBytes());
+    }
+
+    @Test
+    public void testCompositeAllocation() {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 0);
+
+        final Buffer b = mm.allocate(MAX_BUFFER_SIZE * 2 + 100);
+        assertTrue(b.isComposite());
+        assertEquals(MAX_BUFFER_SIZE * 2 + 100, b.remaining());
+
+        b.tryDispose();
+        assertEquals(0, mm.getUsedBytes());
+    }
+
+    @Test
+    public void testReallocate() {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 0);
+
+        Buffer b = mm.allocate(300);
+        for (int i = 0; i < 300; i++) {
+            b.put((byte) i);
+        }
+
+        b = mm.reallocate(b, 5000);
+        assertEquals(300, b.position());
+        assertEquals(5000, b.limit());
+        assertEquals(sizeClassSize(sizeClassIndex(5000)), b.capacity());
+        assertEquals(sizeClassSize(sizeClassIndex(5000)), mm.getUsedBytes());
+
+        b = mm.reallocate(b, MAX_BUFFER_SIZE + 1);
+        assertTrue(b.isComposite());
+        assertEquals(300, b.position());
+
+        for (int i = 0; i < 300; i++) {
+            assertEquals((byte) i, b.get(i));
+        }
+
+        b.tryDispose();
+        assertEquals(0, mm.getUsedBytes());
+    }
+
+    @Test
+    public void testArenaExhausted() {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 0);
+        final PooledMemoryManagerTest.TestProbe probe =
+                new PooledMemoryManagerTest.TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final Buffer[] buffers = new Buffer[SLAB_SIZE / MAX_BUFFER_SIZE];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = mm.allocate(MAX_BUFFER_SIZE);
+        }
+        assertEquals(0, probe.arenaExhausted.get());
+
+        final Buffer extra = mm.allocate(MAX_BUFFER_SIZE);
+        assertEquals(1, probe.arenaExhausted.get());
+        assertEquals(1, probe.slabAllocated.get());
+        assertTrue(extra.isDirect());
+        assertEquals(SLAB_SIZE, mm.getReservedBytes());
+
+        extra.tryDispose();
+        for (Buffer buffer : buffers) {
+            buffer.tryDispose();
+        }
+
+        assertEquals(0, mm.getUsedBytes());
+    }
+
+    @Test
+    public void testSlabRemainderReused() {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE * 2, 0);
+
+        // leaves 8 KiB in the first slab
+        final int size = sizeClassSize(sizeClassIndex(MAX_BUFFER_SIZE) - 1);
+        final Buffer[] buffers = new Buffer[SLAB_SIZE / size];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = mm.allocate(size);
+        }
+        final Buffer b = mm.allocate(MAX_BUFFER_SIZE);
+        assertEquals(SLAB_SIZE * 2, mm.getReservedBytes());
+
+        // the remainder of the first slab is available as free buffers
+        final SlabMemoryManager.Arena arena = mm.getArenas()[0];
+        final int remainder = SLAB_SIZE - buffers.length * size;
+        assertEquals(1, arena.getFreeBuffersCount(sizeClassIndex(remainder)));
+        assertEquals(remainder, sizeClassSize(sizeClassIndex(remainder)));
+
+        b.tryDispose();
+        for (Buffer buffer : buffers) {
+            buffer.tryDispose();
+        }
+    }
+
+    @Test
+    public void testEmptySlabReused() {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 0);
+        final PooledMemoryManagerTest.TestProbe probe =
+                new PooledMemoryManagerTest.TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        // carve the whole slab into the smallest buffers
+        final Buffer[] buffers = new Buffer[SLAB_SIZE / MIN_SIZE_CLASS];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = mm.allocate(MIN_SIZE_CLASS);
+        }
+        for (Buffer buffer : buffers) {
+            buffer.tryDispose();
+        }
+
+        // the free buffers are merged back into the slab
+        final Buffer b = mm.allocate(MAX_BUFFER_SIZE);
+        assertEquals(0, probe.arenaExhausted.get());
+        assertEquals(1, probe.slabAllocated.get());
+        assertEquals(0, mm.getArenas()[0].getFreeBuffersCount(0));
+
+        b.tryDispose();
+        assertEquals(0, mm.getUsedBytes());
+    }
+
+    @Test
+    public void testEmptySlabsReleased() {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE * 4, 0);
+        final PooledMemoryManagerTest.TestProbe probe =
+                new PooledMemoryManagerTest.TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final Buffer[] buffers = new Buffer[3 * SLAB_SIZE / MAX_BUFFER_SIZE];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = mm.allocate(MAX_BUFFER_SIZE);
+        }
+        assertEquals(SLAB_SIZE * 3, mm.getReservedBytes());
+
+        for (Buffer buffer : buffers) {
+            buffer.tryDispose();
+        }
+
+        // one empty slab is kept, the current slab is in use
+        assertEquals(1, probe.slabReleased.get());
+        assertEquals(SLAB_SIZE * 2, mm.getReservedBytes());
+        assertEquals(2, mm.getArenas()[0].getSlabsCount());
+        assertEquals(0, mm.getUsedBytes());
+    }
+
+    @Test
+    public void testArenasSharedMemoryLimit() throws Exception {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 2, SLAB_SIZE * 2, 0);
+        final PooledMemoryManagerTest.TestProbe probe =
+                new PooledMemoryManagerTest.TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final Buffer[] buffers = new Buffer[SLAB_SIZE / MAX_BUFFER_SIZE];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = mm.allocate(MAX_BUFFER_SIZE);
+        }
+
+        // another thread is bound to another arena
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                mm.allocate(MAX_BUFFER_SIZE).tryDispose();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertEquals(SLAB_SIZE, mm.getArenaReservedBytes(0));
+        assertEquals(SLAB_SIZE, mm.getArenaReservedBytes(1));
+
+        // the memory limit is reached, the free buffer of the other arena is used
+        final Buffer b = mm.allocate(MAX_BUFFER_SIZE);
+        assertEquals(0, probe.arenaExhausted.get());
+        assertEquals(MAX_BUFFER_SIZE, mm.getArenaUsedBytes(1));
+
+        b.tryDispose();
+        for (Buffer buffer : buffers) {
+            buffer.tryDispose();
+        }
+        assertEquals(0, mm.getUsedBytes());
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        final SlabMemoryManager mm = new SlabMemoryManager(
+                SLAB_SIZE, MAX_BUFFER_SIZE, 1, SLAB_SIZE, 1.0f);
+        final PooledMemoryManagerTest.TestProbe probe =
+                new PooledMemoryManagerTest.TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        // released buffer is not a leak
+        mm.allocate(1000).tryDispose();
+
+        // the buffer is not released
+        mm.allocate(1000);
+
+        for (int i = 0; i < 100 && probe.bufferLeaked.get() == 0; i++) {
+            System.gc();
+            Thread.sleep(50);
+            // the leaks are checked on allocation
+            mm.allocate(1000).tryDispose();
+        }
+
+        assertEquals(1, probe.bufferLeaked.get());
+    }
+}
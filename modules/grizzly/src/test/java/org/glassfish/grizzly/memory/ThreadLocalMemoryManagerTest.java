@@ -389,6 +389,61 @@ public class ThreadLocalMemoryManagerTest extends AbstractThreadLocalMemoryManag
         }
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testHeapLeakDetection() throws Exception {
+        if (!(mm instanceof HeapMemoryManager)) {
+            return;
+        }
+
+        final HeapMemoryManager hmm = (HeapMemoryManager) mm;
+        hmm.setLeakDetectionSamplingRate(1.0f);
+        final PooledMemoryManagerTest.TestProbe probe =
+                new PooledMemoryManagerTest.TestProbe();
+        hmm.getMonitoringConfig().addProbes(probe);
+
+        Runnable r = new Runnable() {
+
+            @Override
+            public void run() {
+                // the buffer, which is not released
+                hmm.allocate(1024);
+
+                // released buffers are not leaks. They're allocated after the
+                // leaked one, so the recycled instance isn't reused
+                // for the leaked buffer and stays referenced by the local
+                final Buffer disposed = hmm.allocate(1024);
+                disposed.allowBufferDispose(true);
+                disposed.tryDispose();
+
+                final HeapBuffer released = hmm.allocate(1024);
+                hmm.release(released);
+
+                // the old buffer of the reallocation is not a leak either
+                final HeapBuffer reallocated =
+                        hmm.reallocate(hmm.allocate(1024), 2 * 1024 * 1024);
+                hmm.release(reallocated);
+
+                try {
+                    for (int i = 0; i < 100 && probe.bufferLeaked.get() == 0; i++) {
+                        System.gc();
+                        Thread.sleep(50);
+                        // the leaks are checked on allocation
+                        final Buffer b = hmm.allocate(1024);
+                        b.allowBufferDispose(true);
+                        b.tryDispose();
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+
+                assertEquals(1, probe.bufferLeaked.get());
+            }
+        };
+
+        testInWorkerThread(mm, r);
+    }
+
     private void testInWorkerThread(final MemoryManager mm,
                                     final Runnable task) throws Exception {
         final FutureImpl<Boolean> future = SafeFutureImpl.create();
@@ -439,5 +494,25 @@ public class ThreadLocalMemoryManagerTest extends AbstractThreadLocalMemoryManag
         public void onPoolRestoredToFullEvent() {
             LOGGER.log(Level.INFO, "onPoolRestoredToFullEvent");
         }
+
+        @Override
+        public void onSlabAllocateEvent(int arenaIndex, int slabSize) {
+            LOGGER.log(Level.INFO, "onSlabAllocateEvent: {0}", slabSize);
+        }
+
+        @Override
+        public void onSlabReleaseEvent(int arenaIndex, int slabSize) {
+            LOGGER.log(Level.INFO, "onSlabReleaseEvent: {0}", slabSize);
+        }
+
+        @Override
+        public void onArenaExhaustedEvent(int arenaIndex) {
+            LOGGER.log(Level.INFO, "onArenaExhaustedEvent: {0}", arenaIndex);
+        }
+
+        @Override
+        public void onBufferLeakEvent(int size, Throwable allocationTrace) {
+            LOGGER.log(Level.INFO, "onBufferLeakEvent: {0}", size);
+        }
     }
 }
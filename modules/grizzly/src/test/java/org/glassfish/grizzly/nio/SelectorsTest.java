@@ -0,0 +1,133 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link Selectors} and {@link SelectedKeySet}.
+ */
+public class SelectorsTest {
+
+    @Test
+    public void testSelectedKeySet() throws Exception {
+        final SelectedKeySet set = new SelectedKeySet();
+        assertTrue(set.isEmpty());
+
+        final Selector selector = Selectors.newSelector(SelectorProvider.provider());
+        try {
+            final int count = 3000; // more than the initial capacity
+            final Pipe[] pipes = new Pipe[count / 1000];
+            for (int i = 0; i < pipes.length; i++) {
+                pipes[i] = Pipe.open();
+                pipes[i].source().configureBlocking(false);
+            }
+
+            for (int i = 0; i < count; i++) {
+                final SelectionKey key = pipes[i % pipes.length].source().register(
+                        selector, SelectionKey.OP_READ);
+                assertTrue(set.add(key));
+            }
+            assertFalse(set.add(null));
+
+            assertEquals(count, set.size());
+            int n = 0;
+            for (SelectionKey key : set) {
+                assertSame(set.get(n++), key);
+            }
+            assertEquals(count, n);
+
+            set.clear();
+            assertEquals(0, set.size());
+            assertFalse(set.iterator().hasNext());
+
+            for (Pipe pipe : pipes) {
+                pipe.source().close();
+                pipe.sink().close();
+            }
+        } finally {
+            selector.close();
+        }
+    }
+
+    @Test
+    public void testOptimizedSelector() throws Exception {
+        // the optimization might be unavailable (JDK 9+ without
+        // --add-opens, security manager), but the Selector has to work anyway
+        final Selector selector = Selectors.newSelector(
+                SelectorProvider.provider(), true);
+        final Pipe pipe = Pipe.open();
+        try {
+            pipe.source().configureBlocking(false);
+            final SelectionKey key = pipe.source().register(
+                    selector, SelectionKey.OP_READ);
+
+            assertEquals(0, selector.selectNow());
+            assertTrue(selector.selectedKeys().isEmpty());
+
+            pipe.sink().write(ByteBuffer.wrap(new byte[] {1}));
+            assertEquals(1, selector.select(5000));
+
+            final Set<SelectionKey> selectedKeys = selector.selectedKeys();
+            assertEquals(Selectors.isSelectedKeysOptimized(selector),
+                    selectedKeys instanceof SelectedKeySet);
+            assertEquals(1, selectedKeys.size());
+            assertSame(key, selectedKeys.iterator().next());
+            assertTrue(key.isReadable());
+            selectedKeys.clear();
+
+            // level-triggered, so the same key is selected again
+            assertEquals(1, selector.selectNow());
+            assertEquals(1, selector.selectedKeys().size());
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+            selector.close();
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.utils;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DelayedExecutor} tests.
+ */
+public class DelayedExecutorTest {
+    private ExecutorService threadPool;
+    private DelayedExecutor delayedExecutor;
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newCachedThreadPool();
+        delayedExecutor = new DelayedExecutor(threadPool, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        delayedExecutor.destroy();
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Element element = new Element();
+        final DelayedExecutor.DelayQueue<Element> queue =
+                delayedExecutor.createDelayQueue(countDownWorker(latch), new ElementResolver());
+        delayedExecutor.start();
+
+        final long start = System.currentTimeMillis();
+        queue.add(element, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals(1, element.fired.get());
+        waitForSize(queue, 0);
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Element element = new Element();
+        final DelayedExecutor.DelayQueue<Element> queue =
+                delayedExecutor.createDelayQueue(countDownWorker(latch), new ElementResolver());
+        delayedExecutor.start();
+
+        queue.add(element, 100, TimeUnit.MILLISECONDS);
+        queue.remove(element);
+        assertEquals(0, queue.size());
+
+        assertFalse(latch.await(300, TimeUnit.MILLISECONDS));
+        assertEquals(0, element.fired.get());
+    }
+
+    @Test
+    public void testInPlaceExtension() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Element element = new Element();
+        final DelayedExecutor.DelayQueue<Element> queue =
+                delayedExecutor.createDelayQueue(countDownWorker(latch), new ElementResolver());
+        delayedExecutor.start();
+
+        final long start = System.currentTimeMillis();
+        queue.add(element, 50, TimeUnit.MILLISECONDS);
+        element.timeoutMillis = start + 400;
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 400);
+    }
+
+    @Test
+    public void testParkedInPlaceShortening() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Element element = new Element();
+        final DelayedExecutor.DelayQueue<Element> queue =
+                delayedExecutor.createDelayQueue(countDownWorker(latch), new ElementResolver());
+        delayedExecutor.start();
+
+        queue.add(element, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+
+        element.timeoutMillis = System.currentTimeMillis() + 50;
+        queue.update(element);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReRegister() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final Element element = new Element();
+        final DelayedExecutor.DelayQueue<Element> queue =
+                delayedExecutor.createDelayQueue(new DelayedExecutor.Worker<Element>() {
+            @Override
+            public boolean doWork(final Element element) {
+                latch.countDown();
+                return latch.getCount() == 0;
+            }
+        }, new ElementResolver());
+        delayedExecutor.start();
+
+        queue.add(element, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        waitForSize(queue, 0);
+    }
+
+    @Test
+    public void testWheelLevels() {
+        final Map<Element, Long> firedAt = new ConcurrentHashMap<>();
+        final long[] now = new long[1];
+        final DelayedExecutor executor = new DelayedExecutor(threadPool, 1, TimeUnit.MILLISECONDS);
+        final DelayedExecutor.DelayQueue<Element> queue =
+                executor.createDelayQueue(new DelayedExecutor.Worker<Element>() {
+            @Override
+            public boolean doWork(final Element element) {
+                assertNull(firedAt.put(element, now[0]));
+                return true;
+            }
+        }, new ElementResolver());
+
+        final long step = 7;
+        now[0] = System.currentTimeMillis();
+
+        final Random random = new Random(5);
+        final Element[] elements = new Element[2000];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new Element();
+            // spread the timeouts over the first four wheel levels
+            queue.add(elements[i], random.nextInt(1 << (6 * (1 + i % 4))),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        while (queue.size() > 0) {
+            now[0] += step;
+            queue.expire(now[0]);
+        }
+
+        for (Element element : elements) {
+            final long fired = firedAt.get(element);
+            assertTrue(fired >= element.timeoutMillis);
+            assertTrue(fired < element.timeoutMillis + step);
+        }
+    }
+
+    @Test
+    public void testInPlaceShorteningWithoutUpdate() {
+        final long[] now = {System.currentTimeMillis()};
+        final long[] firedAt = {-1};
+        final DelayedExecutor executor = new DelayedExecutor(threadPool, 1, TimeUnit.MILLISECONDS);
+        final DelayedExecutor.DelayQueue<Element> queue =
+                executor.createDelayQueue(new DelayedExecutor.Worker<Element>() {
+            @Override
+            public boolean doWork(final Element element) {
+                firedAt[0] = now[0];
+                return true;
+            }
+        }, new ElementResolver());
+
+        final Element element = new Element();
+        queue.add(element, 100000, TimeUnit.MILLISECONDS);
+        queue.expire(now[0]);
+
+        // shortened in place, the queue isn't notified
+        element.timeoutMillis = now[0] + 100;
+
+        final long step = 7;
+        for (int i = 0; i < 100 && queue.size() > 0; i++) {
+            now[0] += step;
+            queue.expire(now[0]);
+        }
+
+        // picked up by the revalidation, once per wheel turn
+        assertEquals(0, queue.size());
+        assertTrue(firedAt[0] >= element.timeoutMillis);
+        assertTrue(firedAt[0] < element.timeoutMillis + 64 + 2 * step);
+    }
+
+    @Test
+    public void testInPlaceReset() {
+        final long[] now = {System.currentTimeMillis()};
+        final AtomicInteger fired = new AtomicInteger();
+        final DelayedExecutor executor = new DelayedExecutor(threadPool, 1, TimeUnit.MILLISECONDS);
+        final DelayedExecutor.DelayQueue<Element> queue =
+                executor.createDelayQueue(new DelayedExecutor.Worker<Element>() {
+            @Override
+            public boolean doWork(final Element element) {
+                fired.incrementAndGet();
+                return true;
+            }
+        }, new ElementResolver());
+
+        final Element scheduled = new Element();
+        final Element parked = new Element();
+        queue.add(scheduled, 100000, TimeUnit.MILLISECONDS);
+        queue.add(parked, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        queue.expire(now[0]);
+        assertEquals(2, queue.size());
+
+        // reset in place, the queue isn't notified
+        scheduled.timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+        parked.timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+
+        for (int i = 0; i < 100 && queue.size() > 0; i++) {
+            now[0] += 7;
+            queue.expire(now[0]);
+        }
+
+        assertEquals(0, queue.size());
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    public void testClockJump() {
+        final Map<Element, Long> firedAt = new ConcurrentHashMap<>();
+        final long[] now = {System.currentTimeMillis()};
+        final DelayedExecutor executor = new DelayedExecutor(threadPool, 1, TimeUnit.MILLISECONDS);
+        final DelayedExecutor.DelayQueue<Element> queue =
+                executor.createDelayQueue(new DelayedExecutor.Worker<Element>() {
+            @Override
+            public boolean doWork(final Element element) {
+                assertNull(firedAt.put(element, now[0]));
+                return true;
+            }
+        }, new ElementResolver());
+
+        final Random random = new Random(7);
+        final Element[] elements = new Element[1000];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new Element();
+            // up to ~4 minutes, spread over the first three wheel levels
+            queue.add(elements[i], random.nextInt(1 << (6 * (1 + i % 3))),
+                    TimeUnit.MILLISECONDS);
+        }
+        final Element late = new Element();
+        queue.add(late, TimeUnit.HOURS.toMillis(2), TimeUnit.MILLISECONDS);
+
+        // a one hour jump is handled at once, not tick by tick
+        now[0] += TimeUnit.HOURS.toMillis(1);
+        queue.expire(now[0]);
+
+        assertEquals(1, queue.size());
+        for (Element element : elements) {
+            assertEquals(now[0], (long) firedAt.get(element));
+        }
+
+        now[0] = late.timeoutMillis - 1;
+        queue.expire(now[0]);
+        assertEquals(1, queue.size());
+
+        now[0] += 2;
+        queue.expire(now[0]);
+        assertEquals(0, queue.size());
+        assertEquals(now[0], (long) firedAt.get(late));
+    }
+
+    private static DelayedExecutor.Worker<Element> countDownWorker(
+            final CountDownLatch latch) {
+        return new DelayedExecutor.Worker<Element>() {
+            @Override
+            public boolean doWork(final Element element) {
+                element.fired.incrementAndGet();
+                latch.countDown();
+                return true;
+            }
+        };
+    }
+
+    private static void waitForSize(final DelayedExecutor.DelayQueue<?> queue,
+            final int size) throws InterruptedException {
+        for (int i = 0; i < 500 && queue.size() != size; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, queue.size());
+    }
+
+    private static final class Element {
+        volatile long timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+        final AtomicInteger fired = new AtomicInteger();
+    }
+
+    private static final class ElementResolver
+            implements DelayedExecutor.Resolver<Element> {
+
+        @Override
+        public boolean removeTimeout(final Element element) {
+            element.timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+            return true;
+        }
+
+        @Override
+        public long getTimeoutMillis(final Element element) {
+            return element.timeoutMillis;
+        }
+
+        @Override
+        public void setTimeoutMillis(final Element element, final long timeoutMillis) {
+            element.timeoutMillis = timeoutMillis;
+        }
+    }
+}
@@ -42,6 +42,7 @@ package org.glassfish.grizzly.http.server;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -59,8 +60,11 @@ import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.server.filecache.FileCache;
 import org.glassfish.grizzly.http.server.filecache.FileCache.CacheType;
 import org.glassfish.grizzly.http.server.filecache.FileCacheEntry;
+import org.glassfish.grizzly.http.server.util.ByteRanges;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.MemoryManager;
 
 import java.io.IOException;
 import org.glassfish.grizzly.OutputSink;
@@ -115,14 +119,33 @@ public class FileCacheFilter extends BaseFilter {
                         cacheEntry.canServeCompressed(request);
                 
                 // The client doesn't have this resource cached, so
-                // we have to send entire payload
+                // we have to send entire payload or the requested ranges
                 prepareResponseWithPayload(cacheEntry, response,
                         isServeCompressed);
+                
+                final ByteRanges ranges = ByteRanges.parse(request,
+                        cacheEntry.Etag, cacheEntry.lastModified,
+                        cacheEntry.getFileSize(isServeCompressed));
+                if (ranges != null) {
+                    ranges.prepareResponse(response);
+                    
+                    if (!ranges.isSatisfiable()) {
+                        ctx.write(HttpContent.builder(response)
+                                .content(Buffers.EMPTY_BUFFER)
+                                .last(true)
+                                .build());
+
+                        return flush(ctx);
+                    }
+                }
 
                 if (cacheEntry.type != CacheType.FILE) {
                     // the payload is available in a ByteBuffer
-                    final Buffer buffer = Buffers.wrap(ctx.getMemoryManager(),
-                            cacheEntry.getByteBuffer(isServeCompressed).duplicate());
+                    final ByteBuffer bb =
+                            cacheEntry.getByteBuffer(isServeCompressed);
+                    final Buffer buffer = ranges == null
+                            ? Buffers.wrap(ctx.getMemoryManager(), bb.duplicate())
+                            : slice(ctx.getMemoryManager(), bb, ranges);
 
                     ctx.write(HttpContent.builder(response)
                             .content(buffer)
@@ -134,9 +157,9 @@ public class FileCacheFilter extends BaseFilter {
                 
                 return fileCache.isFileSendEnabled() && !request.isSecure()
                         ? sendFileZeroCopy(ctx, response, cacheEntry,
-                            isServeCompressed)
+                            isServeCompressed, ranges)
                         : sendFileUsingBuffers(ctx, response, cacheEntry,
-                            isServeCompressed);
+                            isServeCompressed, ranges);
             }
         }
 
@@ -158,6 +181,10 @@ public class FileCacheFilter extends BaseFilter {
         if (entry.server != null) {
             response.addHeader(Header.Server, entry.server);
         }
+
+        if (entry.isVaryAcceptEncoding()) {
+            response.addHeader(Header.Vary, "Accept-Encoding");
+        }
     }
     
     
@@ -169,21 +196,55 @@ public class FileCacheFilter extends BaseFilter {
             throws IOException {
         response.addHeader(Header.ETag, entry.Etag);
         response.addHeader(Header.LastModified, entry.lastModifiedHeader);
+        response.addHeader(Header.AcceptRanges, "bytes");
 
         response.setContentLengthLong(entry.getFileSize(isServeCompressed));
         
         if (isServeCompressed) {
             response.addHeader(Header.ContentEncoding, "gzip");
+        } else if (entry.getContentEncoding() != null) {
+            response.addHeader(Header.ContentEncoding, entry.getContentEncoding());
         }
     }
 
+    /**
+     * Returns the requested ranges of the cached {@link ByteBuffer} as a
+     * {@link Buffer} sharing the cached content.
+     */
+    private static Buffer slice(final MemoryManager mm, final ByteBuffer bb,
+            final ByteRanges ranges) {
+        if (!ranges.isMultipart()) {
+            return Buffers.wrap(mm,
+                    slice(bb, ranges.getFirst(0), ranges.getLength(0)));
+        }
+        
+        final CompositeBuffer buffer = CompositeBuffer.newBuffer(mm);
+        for (int i = 0; i < ranges.size(); i++) {
+            buffer.append(Buffers.wrap(mm, ranges.getPartHeader(i)));
+            buffer.append(Buffers.wrap(mm,
+                    slice(bb, ranges.getFirst(i), ranges.getLength(i))));
+        }
+        buffer.append(Buffers.wrap(mm, ranges.getCloseDelimiter()));
+        
+        return buffer;
+    }
+    
+    private static ByteBuffer slice(final ByteBuffer bb, final long first,
+            final long length) {
+        final ByteBuffer duplicate = bb.duplicate();
+        duplicate.limit((int) (first + length));
+        duplicate.position((int) first);
+        
+        return duplicate.slice();
+    }
+    
     private NextAction sendFileUsingBuffers(final FilterChainContext ctx,
             final HttpResponsePacket response, final FileCacheEntry cacheEntry,
-            final boolean isServeCompressed) {
+            final boolean isServeCompressed, final ByteRanges ranges) {
         try {
             final FileSendEntry sendEntry = FileSendEntry.create(ctx, response,
                     cacheEntry.getFile(isServeCompressed),
-                    cacheEntry.getFileSize(isServeCompressed));
+                    cacheEntry.getFileSize(isServeCompressed), ranges);
             
             ctx.suspend();
             sendEntry.send();
@@ -197,23 +258,51 @@ public class FileCacheFilter extends BaseFilter {
     
     private NextAction sendFileZeroCopy(final FilterChainContext ctx,
             final HttpResponsePacket response, final FileCacheEntry cacheEntry,
-            final boolean isServeCompressed) {
+            final boolean isServeCompressed, final ByteRanges ranges) {
         
         // flush response
         ctx.write(response);
 
-        // send-file
-        final FileTransfer f = new FileTransfer(
-                cacheEntry.getFile(isServeCompressed),
-                0, cacheEntry.getFileSize(isServeCompressed));
-        ctx.write(f, new EmptyCompletionHandler<WriteResult>() {
+        final EmptyCompletionHandler<WriteResult> completionHandler =
+                new EmptyCompletionHandler<WriteResult>() {
             @Override
             public void failed(Throwable throwable) {
                 LOGGER.log(Level.FINE, "Error reported during file-send entry: " +
                         cacheEntry, throwable);
             }
-        });
-
+        };
+        
+        final File file = cacheEntry.getFile(isServeCompressed);
+        
+        if (ranges == null) {
+            // send-file
+            ctx.write(new FileTransfer(file, 0,
+                    cacheEntry.getFileSize(isServeCompressed)),
+                    completionHandler);
+        } else {
+            // send-file every range, multipart/byteranges part headers
+            // are sent in between
+            final MemoryManager mm = ctx.getMemoryManager();
+            for (int i = 0; i < ranges.size(); i++) {
+                final byte[] partHeader = ranges.getPartHeader(i);
+                if (partHeader != null) {
+                    ctx.write(HttpContent.builder(response)
+                            .content(Buffers.wrap(mm, partHeader))
+                            .build());
+                }
+                
+                ctx.write(new FileTransfer(file, ranges.getFirst(i),
+                        ranges.getLength(i)), completionHandler);
+            }
+            
+            final byte[] closeDelimiter = ranges.getCloseDelimiter();
+            if (closeDelimiter != null) {
+                ctx.write(HttpContent.builder(response)
+                        .content(Buffers.wrap(mm, closeDelimiter))
+                        .last(true)
+                        .build());
+            }
+        }
         
         return flush(ctx);
     }
@@ -258,29 +347,45 @@ public class FileCacheFilter extends BaseFilter {
         private final FileInputStream fis;
         private final HttpResponsePacket response;
         private final OutputSink output;
+        // the byte ranges to be sent, or null if the entire file is sent
+        private final ByteRanges ranges;
         
+        private int rangeIdx;
+        private boolean isRangeStart = true;
+        // the remaining size of the current range
         private long remaining;
 
         public static FileSendEntry create(final FilterChainContext ctx,
                 final HttpResponsePacket response,
-                final File file, final long size) throws IOException {
+                final File file, final long size,
+                final ByteRanges ranges) throws IOException {
             
             final FileInputStream fis = new FileInputStream(file);
             final FileChannel fc = fis.getChannel();
             
-            return new FileSendEntry(ctx, response, fis, fc, size);
+            if (ranges != null) {
+                try {
+                    fc.position(ranges.getFirst(0));
+                } catch (IOException e) {
+                    fis.close();
+                    throw e;
+                }
+            }
+            
+            return new FileSendEntry(ctx, response, fis, fc, size, ranges);
         }
         
         public FileSendEntry(final FilterChainContext ctx,
                 final HttpResponsePacket response,
                 final FileInputStream fis, final FileChannel fc,
-                final long size) {
+                final long size, final ByteRanges ranges) {
 
             this.ctx = ctx;
             this.response = response;
             this.fis = fis;
             this.fc = fc;
-            this.remaining = size;
+            this.ranges = ranges;
+            this.remaining = ranges != null ? ranges.getLength(0) : size;
             
             final HttpContext httpContext = response.getProcessingState().getHttpContext();
             assert httpContext != null;
@@ -299,20 +404,47 @@ public class FileCacheFilter extends BaseFilter {
             final int chunkSize = 8192;
 
             try {
+                final MemoryManager mm = ctx.getMemoryManager();
+                
                 boolean isLast;
                 do {
-                    final Buffer buffer = ctx.getMemoryManager().allocate(chunkSize);
+                    if (isRangeStart) {
+                        isRangeStart = false;
+                        // multipart/byteranges part header
+                        final byte[] partHeader = ranges != null
+                                ? ranges.getPartHeader(rangeIdx)
+                                : null;
+                        if (partHeader != null) {
+                            ctx.write(HttpContent.builder(response)
+                                    .content(Buffers.wrap(mm, partHeader))
+                                    .build());
+                        }
+                    }
+                    
+                    final Buffer buffer = mm.allocate(
+                            (int) Math.min(chunkSize, remaining));
                     buffer.allowBufferDispose(true);
                     
                     final long readNow = Buffers.readFromFileChannel(fc, buffer);
-                    isLast = readNow <= 0 || (remaining -= readNow) <= 0;
+                    isLast = readNow <= 0 ||
+                            ((remaining -= readNow) <= 0 && !nextRange());
+                    
+                    final byte[] closeDelimiter = isLast && ranges != null
+                            ? ranges.getCloseDelimiter()
+                            : null;
 
                     buffer.trim();
                     ctx.write(HttpContent.builder(response)
                             .content(buffer)
-                            .last(isLast)
+                            .last(isLast && closeDelimiter == null)
                             .build());
                     
+                    if (closeDelimiter != null) {
+                        ctx.write(HttpContent.builder(response)
+                                .content(Buffers.wrap(mm, closeDelimiter))
+                                .last(true)
+                                .build());
+                    }
                 } while (!isLast && output.canWrite());
                 
                 if (isLast) {
@@ -325,6 +457,22 @@ public class FileCacheFilter extends BaseFilter {
             }
         }
 
+        /**
+         * Switch to the next byte range.
+         * 
+         * @return <tt>false</tt> if there are no more ranges to be sent
+         */
+        private boolean nextRange() throws IOException {
+            if (ranges == null || ++rangeIdx >= ranges.size()) {
+                return false;
+            }
+            
+            fc.position(ranges.getFirst(rangeIdx));
+            remaining = ranges.getLength(rangeIdx);
+            isRangeStart = true;
+            return true;
+        }
+        
         private void done() {
             close();
             ctx.resume(ctx.getStopAction());
@@ -56,6 +56,7 @@ import org.glassfish.grizzly.http.server.jmxbase.Monitorable;
 import org.glassfish.grizzly.http.server.util.DispatcherHelper;
 import org.glassfish.grizzly.http.server.util.Mapper;
 import org.glassfish.grizzly.http.server.util.MappingData;
+import org.glassfish.grizzly.http.server.util.RouteTree;
 import org.glassfish.grizzly.http.util.DataChunk;
 import org.glassfish.grizzly.http.util.HttpStatus;
 import org.glassfish.grizzly.http.util.RequestURIRef;
@@ -74,6 +75,18 @@ public class HttpHandlerChain extends HttpHandler implements JmxEventListener {
 
     private static final Logger LOGGER = Grizzly.logger(HttpHandlerChain.class);
 
+    private static final String COMPILED_ROUTES_PROP =
+            HttpHandlerChain.class.getName() + ".compiled-routes";
+    
+    /**
+     * <tt>true</tt> (default) if the requests have to be mapped using the
+     * {@link RouteTree} compiled from the {@link Mapper}, so the request URI
+     * doesn't have to be decoded, if it doesn't contain escaped characters.
+     */
+    private static final boolean COMPILED_ROUTES =
+            System.getProperty(COMPILED_ROUTES_PROP) == null ||
+            Boolean.getBoolean(COMPILED_ROUTES_PROP);
+
     private static final Map<HttpHandlerRegistration, PathUpdater> ROOT_URLS;
     
     static {
@@ -116,6 +129,18 @@ public class HttpHandlerChain extends HttpHandler implements JmxEventListener {
      */
     private final Mapper mapper;
     
+    /**
+     * The {@link RouteTree} compiled from the current {@link Mapper} mappings,
+     * or <tt>null</tt> if the mappings can't be compiled.
+     */
+    private volatile RouteTree routeTree;
+    
+    /**
+     * <tt>false</tt> if the {@link Mapper} mappings have been changed after the
+     * {@link #routeTree} was compiled.
+     */
+    private volatile boolean isRouteTreeValid;
+    
     /**
      * DispatchHelper, which maps path or name to the Mapper entry
      */
@@ -197,15 +222,20 @@ public class HttpHandlerChain extends HttpHandler implements JmxEventListener {
             
             final RequestURIRef uriRef = request.getRequest().getRequestURIRef();
             uriRef.setDefaultURIEncoding(getRequestURIEncoding());
-            final DataChunk decodedURI = uriRef.getDecodedRequestURIBC(
-                    isAllowEncodedSlash(), isAllowEncodedBackSlash());
             
             final MappingData mappingData = request.obtainMappingData();
 
-            mapper.mapUriWithSemicolon(request.getRequest(),
-                                       decodedURI,
-                                       mappingData,
-                                       0);
+            final RouteTree routeTreeLocal = getRouteTree();
+            if (routeTreeLocal == null
+                    || !routeTreeLocal.map(uriRef.getRequestURIBC(), mappingData)) {
+                final DataChunk decodedURI = uriRef.getDecodedRequestURIBC(
+                        isAllowEncodedSlash(), isAllowEncodedBackSlash());
+                
+                mapper.mapUriWithSemicolon(request.getRequest(),
+                                           decodedURI,
+                                           mappingData,
+                                           0);
+            }
 
 
             HttpHandler httpHandler;
@@ -323,6 +353,8 @@ public class HttpHandlerChain extends HttpHandler implements JmxEventListener {
                     mapper.addWrapper(LOCAL_HOST, ctx, wrapper, httpHandler);
                 }
                 
+                isRouteTreeValid = false;
+                
                 // Check if the only one HttpHandler is registered
                 // and if it's a root HttpHandler - apply optimization
                 if (handlersCount == 1 && mappings.length == 1 &&
@@ -370,6 +402,8 @@ public class HttpHandlerChain extends HttpHandler implements JmxEventListener {
                     }
                 }
                 
+                isRouteTreeValid = false;
+                
                 deregisterJmxForHandler(httpHandler);
                 httpHandler.destroy();
 
@@ -475,6 +509,35 @@ public class HttpHandlerChain extends HttpHandler implements JmxEventListener {
         }
     }
     
+    /**
+     * Returns the {@link RouteTree} for the current {@link Mapper} mappings.
+     * The {@link RouteTree} is compiled lazily on the first request after
+     * the mappings were changed, so registering many {@link HttpHandler}s
+     * doesn't recompile the routes for every registration.
+     */
+    private RouteTree getRouteTree() {
+        if (!COMPILED_ROUTES) {
+            return null;
+        }
+        
+        if (isRouteTreeValid) {
+            return routeTree;
+        }
+        
+        mapperUpdateLock.readLock().lock();
+        
+        try {
+            if (!isRouteTreeValid) {
+                routeTree = mapper.compileRoutes();
+                isRouteTreeValid = true;
+            }
+            
+            return routeTree;
+        } finally {
+            mapperUpdateLock.readLock().unlock();
+        }
+    }
+    
     private static final class RootHttpHandler {
         private final HttpHandler httpHandler;
         private final PathUpdater pathUpdater;
@@ -435,6 +435,10 @@ public class HttpServer {
 
             tearDownHttpHandler();
 
+            for (final NetworkListener listener : listeners.values()) {
+                listener.getFileCache().destroy();
+            }
+
             final String[] names = listeners.keySet().toArray(new String[listeners.size()]);
             for (final String name : names) {
                 removeListener(name);
@@ -662,6 +666,8 @@ public class HttpServer {
                     serverConfig.isAllowPayloadForUndefinedHttpMethods());
             httpServerCodecFilter.setMaxPayloadRemainderToSkip(
                     serverConfig.getMaxPayloadRemainderToSkip());
+            httpServerCodecFilter.setHeaderValueCacheSize(
+                    listener.getHeaderValueCacheSize());
             
             httpServerCodecFilter.getMonitoringConfig().addProbes(
                     serverConfig.getMonitoringConfig().getHttpConfig().getProbes());
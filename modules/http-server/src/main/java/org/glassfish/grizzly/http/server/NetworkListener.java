@@ -74,6 +74,7 @@ import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.HttpCodecFilter;
 import org.glassfish.grizzly.http.KeepAliveConfig;
 import org.glassfish.grizzly.http.server.filecache.FileCache;
+import org.glassfish.grizzly.http.util.HeaderValueCache;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.memory.MemoryManager;
@@ -242,6 +243,7 @@ public class NetworkListener {
     private final BackendConfig backendConfig = new BackendConfig();
     private int maxRequestHeaders = MimeHeaders.MAX_NUM_HEADERS_DEFAULT;
     private int maxResponseHeaders = MimeHeaders.MAX_NUM_HEADERS_DEFAULT;
+    private int headerValueCacheSize = HeaderValueCache.DEFAULT_SIZE;
 
     // ------------------------------------------------------------ Constructors
 
@@ -586,6 +588,27 @@ public class NetworkListener {
         this.maxResponseHeaders = maxResponseHeaders;
     }
 
+    /**
+     * Returns the number of entries in this listener's cache of frequently
+     * repeated request header values.
+     *
+     * @since 3.0
+     */
+    public int getHeaderValueCacheSize() {
+        return headerValueCacheSize;
+    }
+
+    /**
+     * Sets the number of entries in this listener's cache of frequently
+     * repeated request header values (like <tt>Accept-Encoding</tt> or
+     * <tt>User-Agent</tt>). Zero disables the cache.
+     *
+     * @since 3.0
+     */
+    public void setHeaderValueCacheSize(int headerValueCacheSize) {
+        this.headerValueCacheSize = headerValueCacheSize;
+    }
+
     /**
      * @return the {@link SSLEngine} configuration for this listener.
      */
@@ -258,7 +258,9 @@ public class StaticHttpHandler extends StaticHttpHandlerBase {
         pickupContentType(response, resource.getPath());
         
         addToFileCache(request, response, resource);
-        sendFile(response, resource, null);
+        if (!sendPrecompressedFile(response, resource)) {
+            sendFile(response, resource, null);
+        }
 
         return true;
     }
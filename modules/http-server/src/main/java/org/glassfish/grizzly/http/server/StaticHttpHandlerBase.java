@@ -54,6 +54,8 @@ import org.glassfish.grizzly.WriteHandler;
 import org.glassfish.grizzly.WriteResult;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.http.server.filecache.FileCache;
+import org.glassfish.grizzly.http.server.util.ByteRanges;
+import org.glassfish.grizzly.http.server.util.PrecompressedFiles;
 import org.glassfish.grizzly.http.io.NIOOutputStream;
 import org.glassfish.grizzly.http.io.OutputBuffer;
 import org.glassfish.grizzly.http.util.MimeType;
@@ -75,6 +77,8 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
     private static final Logger LOGGER = Grizzly.logger(StaticHttpHandlerBase.class);
 
     private volatile boolean isFileCacheEnabled = true;
+
+    private volatile boolean isPrecompressedFilesEnabled;
     
     /**
      * Returns <tt>true</tt> if this <tt>StaticHttpHandler</tt> has been
@@ -112,6 +116,40 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
     public void setFileCacheEnabled(boolean isFileCacheEnabled) {
         this.isFileCacheEnabled = isFileCacheEnabled;
     }
+
+    /**
+     * Returns <tt>true</tt> if this <tt>StaticHttpHandler</tt> serves the
+     * precompressed sidecar files of the static resources, or <tt>false</tt>
+     * otherwise.
+     *
+     * @return <tt>true</tt> if the precompressed files are served.
+     *
+     * @since 3.0
+     */
+    public boolean isPrecompressedFilesEnabled() {
+        return isPrecompressedFilesEnabled;
+    }
+
+    /**
+     * Set <tt>true</tt> to configure this <tt>StaticHttpHandler</tt> to serve
+     * the precompressed sidecar files of the static resources:
+     * <tt>foo.js.br</tt>, <tt>foo.js.zst</tt> and <tt>foo.js.gz</tt> are sent
+     * as the <tt>br</tt>, <tt>zstd</tt> and <tt>gzip</tt> encoded
+     * <tt>foo.js</tt>, if the request <tt>Accept-Encoding</tt> header prefers
+     * them. A sidecar file older than the resource is ignored.
+     *
+     * Please note, the {@link FileCache} serves the precompressed files of the
+     * cached resources only if {@link FileCache#setPrecompressedFilesEnabled(boolean)}
+     * is enabled too.
+     *
+     * @param isPrecompressedFilesEnabled <tt>true</tt> to serve the
+     * precompressed files, or <tt>false</tt> otherwise.
+     *
+     * @since 3.0
+     */
+    public void setPrecompressedFilesEnabled(boolean isPrecompressedFilesEnabled) {
+        this.isPrecompressedFilesEnabled = isPrecompressedFilesEnabled;
+    }
     
     /**
      * <p>
@@ -137,6 +175,13 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
      * It's possible to pass {@link CompletionHandler} to track send file progress.
      * </p>
      * 
+     * <p>
+     * If the request has a <tt>Range</tt> header (and its <tt>If-Range</tt>
+     * condition, if any, is satisfied) only the requested byte ranges are
+     * sent in a <tt>206 Partial Content</tt> response, a single range is
+     * sent using zero-copy file transfer, if it's enabled.
+     * </p>
+     * 
      * @param response
      * @param file
      * @param completionHandler
@@ -153,22 +198,81 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
         final long length = file.length();
         response.setContentLengthLong(length);
         response.addDateHeader(Header.Date, System.currentTimeMillis());
-        if (!response.isSendFileEnabled() || response.getRequest().isSecure()) {
-            sendUsingBuffers(response, file, completionHandler);
+        response.setHeader(Header.AcceptRanges, "bytes");
+        
+        final ByteRanges ranges = ByteRanges.parse(
+                response.getRequest().getRequest(), getETag(response, file),
+                file.lastModified(), length);
+        if (ranges != null) {
+            ranges.prepareResponse(response.getResponse());
+            
+            if (!ranges.isSatisfiable()) {
+                if (completionHandler != null) {
+                    completionHandler.completed(file);
+                }
+                
+                return;
+            }
+        }
+        
+        if (!response.isSendFileEnabled() || response.getRequest().isSecure()
+                || (ranges != null && ranges.isMultipart())) {
+            sendUsingBuffers(response, file, ranges, completionHandler);
         } else {
-            sendZeroCopy(response, file, completionHandler);
+            sendZeroCopy(response, file, ranges, completionHandler);
         }
     }
 
+    /**
+     * Sends the precompressed variant of the file, preferred by the request
+     * <tt>Accept-Encoding</tt> header, if precompressed files are enabled.
+     * The content type of the file must be set prior to invoking this method.
+     *
+     * @param response
+     * @param file
+     * @return <tt>true</tt> if the variant is being sent, or <tt>false</tt>
+     * if the file has to be sent as is.
+     *
+     * @since 3.0
+     */
+    protected boolean sendPrecompressedFile(final Response response,
+            final File file) {
+        if (!isPrecompressedFilesEnabled) {
+            return false;
+        }
+
+        final File[] variants = PrecompressedFiles.find(file);
+        if (variants == null) {
+            return false;
+        }
+
+        response.addHeader(Header.Vary, "Accept-Encoding");
+
+        final int variant = PrecompressedFiles.negotiate(
+                response.getRequest().getRequest(), variants);
+        if (variant == -1) {
+            return false;
+        }
+
+        response.setHeader(Header.ETag,
+                PrecompressedFiles.getETag(getETag(response, file), variant));
+        response.setHeader(Header.ContentEncoding,
+                PrecompressedFiles.getEncoding(variant));
+        sendFile(response, variants[variant], null);
+
+        return true;
+    }
+
     private static void sendUsingBuffers(final Response response,
-            final File file, final CompletionHandler<File> completionHandler) {
+            final File file, final ByteRanges ranges,
+            final CompletionHandler<File> completionHandler) {
         final int chunkSize = 8192;
         
         final NIOOutputStream outputStream = response.getOutputStream();
         
         final NonBlockingDownloadHandler nonBlockingDownloadHandler =
                 new NonBlockingDownloadHandler(response, outputStream,
-                    file, completionHandler, chunkSize);
+                    file, ranges, completionHandler, chunkSize);
 
         if (!response.isSuspended()) {
             response.suspend();
@@ -178,10 +282,13 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
     }
     
     private static void sendZeroCopy(final Response response, final File file,
+            final ByteRanges ranges,
             final CompletionHandler<File> completionHandler) {
         
         final OutputBuffer outputBuffer = response.getOutputBuffer();
         outputBuffer.sendfile(file,
+                ranges != null ? ranges.getFirst(0) : 0,
+                ranges != null ? ranges.getLength(0) : file.length(),
                 Futures.<File, WriteResult>toAdaptedCompletionHandler(
                 null, completionHandler, new GenericAdapter<WriteResult, File>() {
 
@@ -310,19 +417,29 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
 
     protected static void addCachingHeaders(final Response response,
                                           final File file) {
-        final StringBuilder sb = new StringBuilder();
-
         final long fileLength = file.length();
         final long lastModified = file.lastModified();
         if ((fileLength >= 0) || (lastModified >= 0)) {
-            sb.append('"').append(fileLength).append('-').
-                    append(lastModified).append('"');
-            response.setHeader(Header.ETag, sb.toString());
+            response.setHeader(Header.ETag, eTag(fileLength, lastModified));
         }
         response.addDateHeader(Header.LastModified, lastModified);
 
     }
     
+    /**
+     * Returns the response's entity tag, or the one
+     * {@link #addCachingHeaders(Response, File)} would set for the file.
+     */
+    private static String getETag(final Response response, final File file) {
+        final String eTag = response.getResponse().getHeader(Header.ETag);
+        return eTag != null ? eTag : eTag(file.length(), file.lastModified());
+    }
+    
+    private static String eTag(final long fileLength, final long lastModified) {
+        return new StringBuilder().append('"').append(fileLength).append('-')
+                .append(lastModified).append('"').toString();
+    }
+    
     private static class NonBlockingDownloadHandler implements WriteHandler {
         // keep the remaining size
         private final File file;
@@ -332,23 +449,36 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
         private final FileChannel fileChannel;
         private final MemoryManager mm;
         private final int chunkSize;
+        // the byte ranges to be sent, or null if the entire file is sent
+        private final ByteRanges ranges;
+        
+        private int rangeIdx;
+        private boolean isRangeStart = true;
         
+        // the remaining size of the current range
         private volatile long size;
         
         NonBlockingDownloadHandler(final Response response,
                 final NIOOutputStream outputStream, final File file,
+                final ByteRanges ranges,
                 final CompletionHandler<File> completionHandler,
                 final int chunkSize) {
             
             try {
                 fileChannel = new FileInputStream(file).getChannel();
+                if (ranges != null) {
+                    fileChannel.position(ranges.getFirst(0));
+                }
             } catch (FileNotFoundException e) {
                 throw new IllegalStateException("File should have existed", e);
+            } catch (IOException e) {
+                throw new IllegalStateException("Can not position the file", e);
             }
 
             this.file = file;
+            this.ranges = ranges;
             this.completionHandler = completionHandler;
-            size = file.length();
+            size = ranges != null ? ranges.getLength(0) : file.length();
             
             this.response = response;
             this.outputStream = outputStream;
@@ -379,8 +509,19 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
          * Send next CHUNK_SIZE of file
          */
         private boolean sendChunk() throws IOException {
+            if (isRangeStart) {
+                isRangeStart = false;
+                // multipart/byteranges part header
+                final byte[] partHeader = ranges != null
+                        ? ranges.getPartHeader(rangeIdx)
+                        : null;
+                if (partHeader != null) {
+                    outputStream.write(Buffers.wrap(mm, partHeader));
+                }
+            }
+            
             // allocate Buffer
-            final Buffer buffer = mm.allocate(chunkSize);
+            final Buffer buffer = mm.allocate((int) Math.min(chunkSize, size));
             // mark it available for disposal after content is written
             buffer.allowBufferDispose(true);
 
@@ -402,12 +543,34 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
 
             // check the remaining size here to avoid extra onWritePossible() invocation
             if (size <= 0) {
-                complete();
-                return false;
+                return nextRange();
             }
 
             return true;
         }
+        
+        /**
+         * Switch to the next byte range, or complete the download if there
+         * are no more ranges.
+         */
+        private boolean nextRange() throws IOException {
+            if (ranges != null && ++rangeIdx < ranges.size()) {
+                fileChannel.position(ranges.getFirst(rangeIdx));
+                size = ranges.getLength(rangeIdx);
+                isRangeStart = true;
+                return true;
+            }
+            
+            final byte[] closeDelimiter = ranges != null
+                    ? ranges.getCloseDelimiter()
+                    : null;
+            if (closeDelimiter != null) {
+                outputStream.write(Buffers.wrap(mm, closeDelimiter));
+            }
+            
+            complete();
+            return false;
+        }
 
         /**
          * Complete the download
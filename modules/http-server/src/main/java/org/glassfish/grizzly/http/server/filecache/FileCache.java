@@ -43,11 +43,14 @@ package org.glassfish.grizzly.http.server.filecache;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.server.util.PrecompressedFiles;
 import org.glassfish.grizzly.http.server.util.SimpleDateFormats;
 import org.glassfish.grizzly.http.util.FastHttpDateFormat;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
 import org.glassfish.grizzly.http.util.MimeHeaders;
+import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.grizzly.utils.DelayedExecutor;
 
 import java.io.File;
@@ -59,12 +62,17 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
@@ -80,7 +88,10 @@ import org.glassfish.grizzly.monitoring.MonitoringUtils;
 /**
  * This class implements a file caching mechanism used to cache static resources.
  *
- *
+ * Once the cache reaches {@link #getMaxCacheEntries()},
+ * {@link #getMaxSmallFileCacheSize()} or {@link #getMaxLargeFileCacheSize()},
+ * the entries are evicted by a size-aware W-TinyLFU policy: a new resource
+ * replaces cached ones only if it is requested more frequently.
  *
  */
 public class FileCache implements MonitoringAware<FileCacheProbe> {
@@ -102,6 +113,12 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
     }
 
     private static final Logger LOGGER = Grizzly.logger(FileCache.class);
+
+    private static final String FILE_WATCH_PROP =
+            FileCache.class.getName() + ".file-watch";
+
+    private static final String PRECOMPRESSED_FILES_PROP =
+            FileCache.class.getName() + ".precompressed-files";
     
     /**
      * Cache size.
@@ -115,6 +132,18 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
     
     private final FileCacheEntry NULL_CACHE_ENTRY = new FileCacheEntry(this);
 
+    /**
+     * The admission and eviction policy, guarded by the evictionLock.
+     */
+    private final WindowTinyLfuPolicy evictionPolicy = new WindowTinyLfuPolicy(this);
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * The hits waiting to be applied to the evictionPolicy.
+     */
+    private final HitBuffer hitBuffer = new HitBuffer();
+
     /**
      * Specifies the maximum time in seconds a resource may be cached.
      */
@@ -162,6 +191,19 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
     
     private DelayedExecutor.DelayQueue<FileCacheEntry> delayQueue;
 
+    /**
+     * Are the cached files watched for changes.
+     */
+    private boolean fileWatchEnabled = Boolean.getBoolean(FILE_WATCH_PROP);
+
+    private volatile FileCacheWatcher watcher;
+
+    /**
+     * Are the precompressed sidecar files of the cached files served.
+     */
+    private boolean precompressedFilesEnabled =
+            Boolean.getBoolean(PRECOMPRESSED_FILES_PROP);
+
     /**
      * Folder to store compressed cached files
      */
@@ -171,6 +213,23 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
      * has to be compressed or not
      */
     private final CompressionConfig compressionConfig = new CompressionConfig();
+
+    /**
+     * The thread pool configuration of the background compression of the
+     * cached files.
+     */
+    private volatile ThreadPoolConfig compressionThreadPoolConfig =
+            ThreadPoolConfig.newConfig()
+                    .setPoolName("Grizzly-FileCache-Compression")
+                    .setCorePoolSize(1)
+                    .setMaxPoolSize(1)
+                    .setQueueLimit(64)
+                    .setDaemon(true);
+
+    /**
+     * The executor compressing the cached files, created on demand.
+     */
+    private ExecutorService compressionExecutor;
     
     /**
      * <tt>true</tt>, if zero-copy file-send feature could be used, or
@@ -197,6 +256,44 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
     public void initialize(final DelayedExecutor delayedExecutor) {
         delayQueue = delayedExecutor.createDelayQueue(new EntryWorker(),
                 new EntryResolver());
+
+        if (fileWatchEnabled && watcher == null) {
+            try {
+                final FileCacheWatcher fileWatcher = new FileCacheWatcher(this);
+                fileWatcher.start();
+                watcher = fileWatcher;
+            } catch (IOException | UnsupportedOperationException e) {
+                LOGGER.log(Level.WARNING,
+                        "Can not watch the cached files for changes, the entries will be refreshed only when they expire", e);
+            }
+        }
+    }
+
+    /**
+     * Releases the resources used by the {@link FileCache}, like the watch
+     * service of the cached files and the compression threads. The watched
+     * entries are removed from the
+     * cache, because they wouldn't be refreshed any longer.
+     * The cache may be initialized again.
+     *
+     * @since 3.0
+     */
+    public void destroy() {
+        synchronized (this) {
+            if (compressionExecutor != null) {
+                compressionExecutor.shutdownNow();
+                compressionExecutor = null;
+            }
+        }
+
+        final FileCacheWatcher fileWatcher = watcher;
+        if (fileWatcher != null) {
+            watcher = null;
+            final List<FileCacheEntry> entries = fileWatcher.stop();
+            for (int i = 0; i < entries.size(); i++) {
+                remove(entries.get(i));
+            }
+        }
     }
 
     /**
@@ -240,14 +337,7 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
             return CacheResult.FAILED_ENTRY_EXISTS;
         }
 
-        final int size = cacheSize.incrementAndGet();
-        // cache is full.
-        if (size > getMaxCacheEntries()) {
-            cacheSize.decrementAndGet();
-            fileCacheMap.remove(key);
-            key.recycle();
-            return CacheResult.FAILED_CACHE_FULL;
-        }
+        cacheSize.incrementAndGet();
 
         final HttpResponsePacket response = request.getResponse();
         final MimeHeaders headers = response.getHeaders();
@@ -275,18 +365,125 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         entry.Etag = headers.getHeader(Header.ETag);
         entry.server = headers.getHeader(Header.Server);
 
-        fileCacheMap.put(key, entry);
+        if (cacheFile != null && isPrecompressedFilesEnabled()) {
+            final File[] variants = PrecompressedFiles.find(cacheFile);
+            if (variants != null) {
+                final FileCacheKey[] variantKeys = new FileCacheKey[variants.length];
+                for (int i = 0; i < variants.length; i++) {
+                    if (variants[i] != null) {
+                        variantKeys[i] = new FileCacheKey(host, requestURI,
+                                PrecompressedFiles.getEncoding(i));
+                    }
+                }
+                entry.variantFiles = variants;
+                entry.variantKeys = variantKeys;
+            }
+        }
+
+        if (!addEntry(entry)) {
+            cacheSize.decrementAndGet();
+            fileCacheMap.remove(key);
+            notifyProbesEntryRejected(this, entry);
+            key.recycle();
+            return CacheResult.FAILED_CACHE_FULL;
+        }
+
+        return ((entry.type == CacheType.TIMESTAMP)
+                    ? CacheResult.OK_CACHED_TIMESTAMP
+                    : CacheResult.OK_CACHED);
+    }
+
+    /**
+     * Adds the new entry, which key is mapped to the {@link #NULL_CACHE_ENTRY}
+     * placeholder, to the cache.
+     *
+     * @return <tt>false</tt> if the entry was rejected.
+     */
+    private boolean addEntry(final FileCacheEntry entry) {
+        if (!admit(entry)) {
+            return false;
+        }
         
         notifyProbesEntryAdded(this, entry);
+
+        final FileCacheWatcher fileWatcher = watcher;
+        if (fileWatcher != null && entry.plainFile != null) {
+            watch(fileWatcher, entry);
+        }
         
         final int secondsMaxAgeLocal = getSecondsMaxAge();
         if (secondsMaxAgeLocal > 0) {
             delayQueue.add(entry, secondsMaxAgeLocal, TimeUnit.SECONDS);
         }
 
-        return ((entry.type == CacheType.TIMESTAMP)
-                    ? CacheResult.OK_CACHED_TIMESTAMP
-                    : CacheResult.OK_CACHED);
+        return true;
+    }
+
+    /**
+     * Returns the cached precompressed variant of the entry, caching it, if
+     * it's not cached yet.
+     *
+     * @return the variant entry, or <tt>null</tt> if the variant can't be
+     *         served from the cache.
+     */
+    private FileCacheEntry getVariant(final FileCacheEntry entry,
+            final int variant) {
+        final FileCacheKey key = entry.variantKeys[variant];
+        evictionPolicy.recordAccess(key.hashCode());
+
+        final FileCacheEntry variantEntry = fileCacheMap.get(key);
+        if (variantEntry != null) {
+            return variantEntry != NULL_CACHE_ENTRY ? variantEntry : null;
+        }
+
+        if (fileCacheMap.putIfAbsent(key, NULL_CACHE_ENTRY) != null) {
+            return null;
+        }
+
+        cacheSize.incrementAndGet();
+
+        final File file = entry.variantFiles[variant];
+        final FileCacheEntry newEntry = createEntry(file);
+        newEntry.contentEncoding = PrecompressedFiles.getEncoding(variant);
+        newEntry.key = key;
+        newEntry.requestURI = entry.requestURI;
+        // validated against the sidecar file, served with the resource headers
+        newEntry.lastModified = file.lastModified();
+        newEntry.contentType = entry.contentType;
+        newEntry.xPoweredBy = entry.xPoweredBy;
+        newEntry.date = entry.date;
+        newEntry.lastModifiedHeader = entry.lastModifiedHeader;
+        newEntry.host = entry.host;
+        newEntry.Etag = PrecompressedFiles.getETag(entry.Etag, variant);
+        newEntry.server = entry.server;
+
+        if (!addEntry(newEntry)) {
+            cacheSize.decrementAndGet();
+            fileCacheMap.remove(key);
+            notifyProbesEntryRejected(this, newEntry);
+            return null;
+        }
+
+        return newEntry;
+    }
+
+    /**
+     * Removes the cached precompressed variants of the entry.
+     */
+    private void removeVariants(final FileCacheEntry entry) {
+        final FileCacheKey[] variantKeys = entry.variantKeys;
+        if (variantKeys == null) {
+            return;
+        }
+
+        for (int i = 0; i < variantKeys.length; i++) {
+            if (variantKeys[i] != null) {
+                final FileCacheEntry variantEntry = fileCacheMap.get(variantKeys[i]);
+                if (variantEntry != null && variantEntry != NULL_CACHE_ENTRY) {
+                    remove(variantEntry);
+                }
+            }
+        }
     }
 
     /**
@@ -295,13 +492,25 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
      * correspondent {@link HttpResponsePacket} status code and reason phrase.
      */
     public FileCacheEntry get(final HttpRequestPacket request) {
-        // It should be faster than calculating the key hash code
-        if (cacheSize.get() == 0) return null;
-
         final LazyFileCacheKey key = LazyFileCacheKey.create(request);
-        final FileCacheEntry entry = fileCacheMap.get(key);
+        // misses count too, so a resource requested often enough gets admitted
+        evictionPolicy.recordAccess(key.hashCode());
+        // It should be faster than looking the key up
+        FileCacheEntry entry = cacheSize.get() != 0
+                ? fileCacheMap.get(key)
+                : null;
         key.recycle();
         try {
+            if (entry != null && entry != NULL_CACHE_ENTRY
+                    && entry.variantFiles != null) {
+                final int variant = PrecompressedFiles.negotiate(request,
+                        entry.variantFiles);
+                if (variant != -1) {
+                    // null lets the static handler serve the variant
+                    entry = getVariant(entry, variant);
+                }
+            }
+
             if (entry != null && entry != NULL_CACHE_ENTRY) {
                 // determine if we need to send the cache entry bytes
                 // to the user-agent
@@ -315,6 +524,16 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
                 request.getResponse().setStatus(httpStatus != null?
                         httpStatus :
                         HttpStatus.OK_200);
+
+                // the hits are applied to the policy in batches, so the
+                // eviction lock is only tried once the hit buffer fills up
+                if (hitBuffer.record(entry) && evictionLock.tryLock()) {
+                    try {
+                        hitBuffer.drainTo(evictionPolicy);
+                    } finally {
+                        evictionLock.unlock();
+                    }
+                }
                 
                 notifyProbesEntryHit(this, entry);
                 return entry;
@@ -333,17 +552,157 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
     }
 
     protected void remove(final FileCacheEntry entry) {
-        if (fileCacheMap.remove(entry.key) != null) {
-            cacheSize.decrementAndGet();
+        final boolean isRemoved;
+        evictionLock.lock();
+        try {
+            isRemoved = evictionPolicy.remove(entry) && entry.published;
+        } finally {
+            evictionLock.unlock();
+        }
+
+        if (isRemoved) {
+            if (fileCacheMap.remove(entry.key, entry)) {
+                cacheSize.decrementAndGet();
+            }
+            unwatch(entry);
+
+            notifyProbesEntryRemoved(this, entry);
+            removeVariants(entry);
         }
+    }
+
+    /**
+     * Watches the file of a new entry for changes.
+     */
+    private void watch(final FileCacheWatcher fileWatcher,
+            final FileCacheEntry entry) {
+        if (fileWatcher.watch(entry)) {
+            if (fileCacheMap.get(entry.key) != entry) {
+                // evicted meanwhile
+                fileWatcher.unwatch(entry);
+            } else if (FileCacheWatcher.isModified(entry)) {
+                // modified before the watch was registered
+                remove(entry);
+            }
+        }
+    }
+
+    private void unwatch(final FileCacheEntry entry) {
+        final FileCacheWatcher fileWatcher = watcher;
+        if (fileWatcher != null && entry.plainFile != null) {
+            fileWatcher.unwatch(entry);
+        }
+    }
+
+    /**
+     * Adds the new entry to the eviction policy, maps its file to a
+     * {@link ByteBuffer} if it was admitted and publishes it in the cache map.
+     *
+     * @return <tt>false</tt> if the entry was rejected by the policy.
+     */
+    private boolean admit(final FileCacheEntry entry) {
+        final List<FileCacheEntry> evicted = new ArrayList<>(2);
+        final List<FileCacheEntry> rejected = new ArrayList<>(2);
+
+        final boolean isInMemory = entry.type == CacheType.HEAP
+                || entry.type == CacheType.MAPPED;
+        boolean isAdmitted;
+        evictionLock.lock();
+        try {
+            hitBuffer.drainTo(evictionPolicy);
+            evictionPolicy.add(entry, isInMemory ? entry.plainFileSize : 0,
+                    evicted, rejected);
+            isAdmitted = evictionPolicy.isResident(entry);
+        } finally {
+            evictionLock.unlock();
+        }
+        onEvicted(evicted, rejected);
 
-        if (entry.type == FileCache.CacheType.MAPPED) {
-            subMappedMemorySize(entry.bb.remaining());
-        } else if (entry.type == FileCache.CacheType.HEAP) {
-            subHeapSize(entry.bb.remaining());
+        if (!isAdmitted) {
+            return false;
+        }
+
+        // the file is mapped only once the policy made room for it
+        if (isInMemory && !tryMapFileToBuffer(entry)) {
+            evicted.clear();
+            rejected.clear();
+            evictionLock.lock();
+            try {
+                evictionPolicy.update(entry, CacheType.FILE, 0, evicted, rejected);
+            } finally {
+                evictionLock.unlock();
+            }
+            onEvicted(evicted, rejected);
+        }
+
+        evictionLock.lock();
+        try {
+            isAdmitted = evictionPolicy.isResident(entry);
+            if (isAdmitted) {
+                // published under the lock, so a concurrent eviction either
+                // sees the entry in the map, or leaves it to this method
+                fileCacheMap.put(entry.key, entry);
+                entry.published = true;
+            }
+        } finally {
+            evictionLock.unlock();
         }
 
+        return isAdmitted;
+    }
+
+    /**
+     * Changes the weight of a resident entry, evicting the entries exceeding
+     * the cache limits.
+     */
+    private void updateWeight(final FileCacheEntry entry, final long weight) {
+        final List<FileCacheEntry> evicted = new ArrayList<>(2);
+        final List<FileCacheEntry> rejected = new ArrayList<>(2);
+
+        evictionLock.lock();
+        try {
+            evictionPolicy.update(entry, entry.type, weight, evicted, rejected);
+        } finally {
+            evictionLock.unlock();
+        }
+        onEvicted(evicted, rejected);
+    }
+
+    /**
+     * Removes the published entries evicted or rejected by the policy from
+     * the cache. The entries not published yet are left to {@link #admit(FileCacheEntry)}.
+     */
+    private void onEvicted(final List<FileCacheEntry> evicted,
+            final List<FileCacheEntry> rejected) {
+        for (int i = 0; i < evicted.size(); i++) {
+            final FileCacheEntry entry = evicted.get(i);
+            if (entry.published) {
+                discard(entry);
+                notifyProbesEntryEvicted(this, entry);
+            }
+        }
+
+        for (int i = 0; i < rejected.size(); i++) {
+            final FileCacheEntry entry = rejected.get(i);
+            if (entry.published) {
+                discard(entry);
+                notifyProbesEntryRejected(this, entry);
+            }
+        }
+    }
+
+    private void discard(final FileCacheEntry entry) {
+        if (delayQueue != null) {
+            delayQueue.remove(entry);
+        }
+
+        if (fileCacheMap.remove(entry.key, entry)) {
+            cacheSize.decrementAndGet();
+        }
+        unwatch(entry);
+
         notifyProbesEntryRemoved(this, entry);
+        removeVariants(entry);
     }
 
     protected Object createJmxManagementObject() {
@@ -356,63 +715,57 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
      * Creates {@link FileCacheEntry}.
      */
     private FileCacheEntry createEntry(final File file) {
-        FileCacheEntry entry = tryMapFileToBuffer(file);
-        if (entry == null) {
-            entry = new FileCacheEntry(this);
-            entry.type = CacheType.FILE;
-        }
+        final FileCacheEntry entry = new FileCacheEntry(this);
         
         entry.plainFile = file;
         entry.plainFileSize = file.length();
+        entry.type = selectCacheType(entry.plainFileSize);
 
         return entry;
     }
-    
+
     /**
-     * Map the file to a {@link ByteBuffer}
-     * @return the preinitialized {@link FileCacheEntry}
+     * Returns the cache type of a file with the given size: the file is
+     * cached in memory only if it fits in the heap or memory mapped cache.
      */
-    private FileCacheEntry tryMapFileToBuffer(final File file) {
-        
-        final long size = file.length();
+    private CacheType selectCacheType(final long size) {
         if (size > getMaxEntrySize()) {
-            return null;
+            return CacheType.FILE;
+        }
+
+        if (size > getMinEntrySize()) {
+            return size <= getMaxLargeFileCacheSize()
+                    ? CacheType.MAPPED
+                    : CacheType.FILE;
         }
+
+        return size <= getMaxSmallFileCacheSize()
+                ? CacheType.HEAP
+                : CacheType.FILE;
+    }
+    
+    /**
+     * Map the entry file to a {@link ByteBuffer}
+     * @return <tt>true</tt> if the file was mapped
+     */
+    private boolean tryMapFileToBuffer(final FileCacheEntry entry) {
         
-        final CacheType type;
+        final long size = entry.plainFileSize;
         final ByteBuffer bb;
         FileChannel fileChannel = null;
         FileInputStream stream = null;
         try {
-            if (size > getMinEntrySize()) {
-                if (addMappedMemorySize(size) > getMaxLargeFileCacheSize()) {
-                    // Cache full
-                    subMappedMemorySize(size);
-                    return null;
-                }
-                
-                type = CacheType.MAPPED;
-            } else {
-                if (addHeapSize(size) > getMaxSmallFileCacheSize()) {
-                    // Cache full
-                    subHeapSize(size);
-                    return null;
-                }
-
-                type = CacheType.HEAP;
-            }
-
-            stream = new FileInputStream(file);
+            stream = new FileInputStream(entry.plainFile);
             fileChannel = stream.getChannel();
 
             bb = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
 
-            if (type == CacheType.HEAP) {
+            if (entry.type == CacheType.HEAP) {
                 ((MappedByteBuffer) bb).load();
             }    
         } catch (Exception e) {
             notifyProbesError(this, e);
-            return null;
+            return false;
         } finally {
             if (stream != null) {
                 try {
@@ -430,12 +783,9 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
             }
         }
 
-        final FileCacheEntry entry = new FileCacheEntry(this);
-        entry.type = type;
-        entry.plainFileSize = size;
         entry.bb = bb;
 
-        return entry;
+        return true;
     }
 
     /**
@@ -589,6 +939,71 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         this.enabled = enabled;
     }
 
+    /**
+     * @return <code>true</code> if the cached files are watched for changes.
+     *
+     * @since 3.0
+     */
+    public boolean isFileWatchEnabled() {
+        return fileWatchEnabled;
+    }
+
+    /**
+     * Enables/disables watching the cached files for changes. If enabled,
+     * the entries of created, modified and deleted files are removed from the
+     * cache as soon as the file system reports the change, so the cached
+     * resources aren't served stale until they expire and the
+     * {@link #getSecondsMaxAge() max age} may be disabled. The files are
+     * watched using a {@link java.nio.file.WatchService} registered on the
+     * directories of the cached files. If the watch service loses some events,
+     * the entries of the directory are validated against the file last
+     * modified time and length.
+     *
+     * By default, the file watch is disabled, unless the
+     * <tt>org.glassfish.grizzly.http.server.filecache.FileCache.file-watch</tt>
+     * system property is <tt>true</tt>. The setting takes effect when the
+     * {@link FileCache} is initialized.
+     *
+     * @param fileWatchEnabled <code>true</code> to watch the cached files.
+     *
+     * @since 3.0
+     */
+    public void setFileWatchEnabled(boolean fileWatchEnabled) {
+        this.fileWatchEnabled = fileWatchEnabled;
+    }
+
+    /**
+     * @return <code>true</code> if the precompressed sidecar files of the
+     *  cached files are served.
+     *
+     * @since 3.0
+     */
+    public boolean isPrecompressedFilesEnabled() {
+        return precompressedFilesEnabled;
+    }
+
+    /**
+     * Enables/disables serving the precompressed sidecar files of the cached
+     * files: <tt>foo.js.br</tt>, <tt>foo.js.zst</tt> and <tt>foo.js.gz</tt>
+     * are served as the <tt>br</tt>, <tt>zstd</tt> and <tt>gzip</tt> encoded
+     * <tt>foo.js</tt>, if the request <tt>Accept-Encoding</tt> header prefers
+     * them. Each variant is cached as its own {@link FileCacheEntry}, with
+     * its own entity tag. A sidecar file older than the resource file is
+     * ignored.
+     *
+     * By default, the precompressed files aren't served, unless the
+     * <tt>org.glassfish.grizzly.http.server.filecache.FileCache.precompressed-files</tt>
+     * system property is <tt>true</tt>.
+     *
+     * @param precompressedFilesEnabled <code>true</code> to serve the
+     *  precompressed files.
+     *
+     * @since 3.0
+     */
+    public void setPrecompressedFilesEnabled(boolean precompressedFilesEnabled) {
+        this.precompressedFilesEnabled = precompressedFilesEnabled;
+    }
+
     /**
      * Returns the <tt>FileCache</tt> compression configuration settings.
      */
@@ -596,6 +1011,38 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         return compressionConfig;
     }
 
+    /**
+     * Returns the thread pool configuration of the background compression of
+     * the cached files.
+     *
+     * @since 3.0
+     */
+    public ThreadPoolConfig getCompressionThreadPoolConfig() {
+        return compressionThreadPoolConfig;
+    }
+
+    /**
+     * Sets the thread pool configuration of the background compression of the
+     * cached files. The cached files are compressed by a single daemon thread
+     * by default, with up to 64 files waiting to be compressed. If the queue
+     * is full, the file is compressed on a later request.
+     *
+     * The configuration is applied when the first file is compressed after
+     * the cache is created or {@link #destroy() destroyed}.
+     *
+     * @param compressionThreadPoolConfig the {@link ThreadPoolConfig}.
+     *
+     * @since 3.0
+     */
+    public void setCompressionThreadPoolConfig(
+            final ThreadPoolConfig compressionThreadPoolConfig) {
+        if (compressionThreadPoolConfig == null) {
+            throw new IllegalArgumentException("compressionThreadPoolConfig can't be null");
+        }
+
+        this.compressionThreadPoolConfig = compressionThreadPoolConfig;
+    }
+
     /**
      * Returns the folder to be used to store temporary compressed files.
      */
@@ -654,6 +1101,69 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         this.fileSendEnabled = fileSendEnabled;
     }
     
+    /**
+     * Compresses the given cache entry in the background, the entry is
+     * served uncompressed until the compressed representation is available.
+     */
+    void compressInBackground(final FileCacheEntry entry) {
+        try {
+            getCompressionExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    // skip the entries removed while waiting in the queue
+                    if (fileCacheMap.get(entry.key) != entry) {
+                        return;
+                    }
+
+                    compressFile(entry);
+                    if (entry.compressedFile == null) {
+                        return;
+                    }
+
+                    if (fileCacheMap.get(entry.key) != entry) {
+                        // removed while being compressed
+                        discardCompressed(entry);
+                        return;
+                    }
+
+                    notifyProbesEntryCompressed(FileCache.this, entry);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the compression queue is full, let a later request retry
+            entry.resetCompression();
+        }
+    }
+
+    /**
+     * Drops the compressed representation of an entry, which has been removed
+     * from the cache while being compressed, and deletes its file.
+     */
+    private void discardCompressed(final FileCacheEntry entry) {
+        final File compressedFile = entry.compressedFile;
+        entry.compressedFile = null;
+        entry.compressedBb = null;
+        entry.compressedFileSize = -1;
+
+        if (entry.type == CacheType.HEAP || entry.type == CacheType.MAPPED) {
+            // a no-op unless the entry is still charged to the policy
+            updateWeight(entry, entry.plainFileSize);
+        }
+
+        if (!compressedFile.delete()) {
+            compressedFile.deleteOnExit();
+        }
+    }
+
+    private synchronized ExecutorService getCompressionExecutor() {
+        if (compressionExecutor == null) {
+            compressionExecutor = GrizzlyExecutorService.createInstance(
+                    compressionThreadPoolConfig);
+        }
+
+        return compressionExecutor;
+    }
+
     /**
      * Creates a temporary compressed representation of the given cache entry.
      */
@@ -718,6 +1228,9 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
                     } finally {
                         cFis.close();
                     }
+
+                    // the compressed variant is cached in memory too
+                    updateWeight(entry, entry.plainFileSize + size);
                     
                     break;
                 }
@@ -997,6 +1510,57 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         }
     }
 
+    /**
+     * Notify registered {@link FileCacheProbe}s about the "entry evicted" event.
+     *
+     * @param fileCache the <tt>FileCache</tt> event occurred on.
+     * @param entry entry been evicted
+     */
+    protected static void notifyProbesEntryEvicted(final FileCache fileCache,
+            final FileCacheEntry entry) {
+        final FileCacheProbe[] probes =
+                fileCache.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (FileCacheProbe probe : probes) {
+                probe.onEntryEvictedEvent(fileCache, entry);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link FileCacheProbe}s about the "entry rejected" event.
+     *
+     * @param fileCache the <tt>FileCache</tt> event occurred on.
+     * @param entry entry been rejected
+     */
+    protected static void notifyProbesEntryRejected(final FileCache fileCache,
+            final FileCacheEntry entry) {
+        final FileCacheProbe[] probes =
+                fileCache.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (FileCacheProbe probe : probes) {
+                probe.onEntryRejectedEvent(fileCache, entry);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link FileCacheProbe}s about the "entry compressed" event.
+     *
+     * @param fileCache the <tt>FileCache</tt> event occurred on.
+     * @param entry entry been compressed.
+     */
+    protected static void notifyProbesEntryCompressed(final FileCache fileCache,
+            final FileCacheEntry entry) {
+        final FileCacheProbe[] probes =
+                fileCache.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (FileCacheProbe probe : probes) {
+                probe.onEntryCompressedEvent(fileCache, entry);
+            }
+        }
+    }
+
     /**
      * Notify registered {@link FileCacheProbe}s about the "entry hit event.
      *
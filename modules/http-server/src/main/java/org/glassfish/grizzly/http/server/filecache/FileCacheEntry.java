@@ -42,6 +42,7 @@ package org.glassfish.grizzly.http.server.filecache;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.glassfish.grizzly.http.CompressionConfig;
 import java.util.logging.Level;
@@ -75,6 +76,12 @@ public final class FileCacheEntry implements Runnable {
     volatile File compressedFile;
     ByteBuffer compressedBb;
     long compressedFileSize = -1;
+
+    // the content coding of a precompressed variant entry, or null
+    String contentEncoding;
+    // the precompressed sidecar files and their cache keys, or null if none
+    File[] variantFiles;
+    FileCacheKey[] variantKeys;
     
     public String xPoweredBy;
     public FileCache.CacheType type;
@@ -85,6 +92,16 @@ public final class FileCacheEntry implements Runnable {
 
     public volatile long timeoutMillis;
 
+    // WindowTinyLfuPolicy state, guarded by the FileCache eviction lock
+    FileCacheEntry prevInQueue;
+    FileCacheEntry nextInQueue;
+    int queue;
+    long weight;
+    boolean published;
+
+    // the file watched by the FileCacheWatcher, guarded by the watcher
+    Path watchedFile;
+
     private final FileCache fileCache;
 
     public FileCacheEntry(FileCache fileCache) {
@@ -118,14 +135,45 @@ public final class FileCacheEntry implements Runnable {
         }
         
         if (isCompressed.compareAndSet(false, true)) {
-            fileCache.compressFile(this);
+            fileCache.compressInBackground(this);
         }
         
-        // compressedFile could be still "null" if the file compression was
-        // initiated by other request and it is still not completed
+        // compressedFile is "null" until the background compression
+        // is completed, meanwhile the entry is served uncompressed
         return compressedFile != null;
     }
+
+    /**
+     * Lets a later request initiate the compression again, if the compression
+     * couldn't be started.
+     */
+    void resetCompression() {
+        isCompressed.set(false);
+    }
     
+    /**
+     * Returns the content coding of the precompressed file this entry
+     * caches, or <tt>null</tt> if the entry caches the identity
+     * representation of a resource.
+     *
+     * @since 3.0
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the representation served for this entry's
+     * resource depends on the request <tt>Accept-Encoding</tt> header, so the
+     * responses have to carry <tt>Vary: Accept-Encoding</tt>.
+     *
+     * @since 3.0
+     */
+    public boolean isVaryAcceptEncoding() {
+        return contentEncoding != null || variantFiles != null
+                || canBeCompressed;
+    }
+
     /**
      * Returns the entry file size.
      * @param isCompressed if <tt>true</tt> the compressed file size will be
@@ -175,6 +223,7 @@ public final class FileCacheEntry implements Runnable {
         sb.append(", plainFileSize=").append(plainFileSize);
         sb.append(", canBeCompressed=").append(canBeCompressed);
         sb.append(", compressedFileSize=").append(compressedFileSize);
+        sb.append(", contentEncoding=").append(contentEncoding);
         sb.append(", timeoutMillis=").append(timeoutMillis);
         sb.append(", fileCache=").append(fileCache);
         sb.append(", server=").append(server);
@@ -55,6 +55,11 @@ public class FileCacheKey implements Cacheable {
 
     protected String host;
     protected String uri;
+    /**
+     * The content coding of a precompressed variant, or <tt>null</tt> for the
+     * identity representation.
+     */
+    protected String encoding;
 
 
     // ------------------------------------------------------------ Constructors
@@ -67,6 +72,16 @@ public class FileCacheKey implements Cacheable {
         this.uri = uri;
     }
 
+    /**
+     * @since 3.0
+     */
+    protected FileCacheKey(final String host, final String uri,
+            final String encoding) {
+        this.host = host;
+        this.uri = uri;
+        this.encoding = encoding;
+    }
+
 
     // -------------------------------------------------- Methods from Cacheable
 
@@ -74,6 +89,7 @@ public class FileCacheKey implements Cacheable {
     public void recycle() {
         host = null;
         uri = null;
+        encoding = null;
         ThreadCache.putToCache(CACHE_IDX, this);
     }
 
@@ -112,6 +128,11 @@ public class FileCacheKey implements Cacheable {
         if ((this.uri == null) ? (otherUri != null) : !this.uri.equals(otherUri)) {
             return false;
         }
+
+        final String otherEncoding = other.encoding;
+        if ((this.encoding == null) ? (otherEncoding != null) : !this.encoding.equals(otherEncoding)) {
+            return false;
+        }
         
         return true;
     }
@@ -121,6 +142,10 @@ public class FileCacheKey implements Cacheable {
         int hash = 3;
         hash = 23 * hash + (this.host != null ? this.host.hashCode() : 0);
         hash = 23 * hash + (this.uri != null ? this.uri.hashCode() : 0);
+        // the identity representation hash has to match LazyFileCacheKey's one
+        if (this.encoding != null) {
+            hash = 23 * hash + this.encoding.hashCode();
+        }
         return hash;
     }
 
@@ -136,4 +161,11 @@ public class FileCacheKey implements Cacheable {
         return uri;
     }
 
+    /**
+     * @since 3.0
+     */
+    protected String getEncoding() {
+        return encoding;
+    }
+
 }
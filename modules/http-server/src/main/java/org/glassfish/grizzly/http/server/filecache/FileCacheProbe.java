@@ -89,6 +89,43 @@ public interface FileCacheProbe {
      */
     public void onErrorEvent(FileCache fileCache, Throwable error);
 
+    /**
+     * Method will be called, when file cache entry gets evicted to make room
+     * for more frequently used entries.
+     * {@link #onEntryRemovedEvent(FileCache, FileCacheEntry)} is called as well.
+     *
+     * @param fileCache {@link FileCache}, the event belongs to.
+     * @param entry {@link FileCacheEntry} been evicted.
+     *
+     * @since 3.0
+     */
+    public void onEntryEvictedEvent(FileCache fileCache, FileCacheEntry entry);
+
+    /**
+     * Method will be called, when the {@link FileCache} admission policy
+     * rejects an entry, because it is not used more frequently than the
+     * entries it would evict. If the rejected entry was already added,
+     * {@link #onEntryRemovedEvent(FileCache, FileCacheEntry)} is called as well.
+     *
+     * @param fileCache {@link FileCache}, the event belongs to.
+     * @param entry {@link FileCacheEntry} been rejected.
+     *
+     * @since 3.0
+     */
+    public void onEntryRejectedEvent(FileCache fileCache, FileCacheEntry entry);
+
+    /**
+     * Method will be called, when the compressed representation of a
+     * {@link FileCacheEntry}, created in the background, becomes available.
+     * Until then the entry is served uncompressed.
+     *
+     * @param fileCache {@link FileCache}, the event belongs to.
+     * @param entry {@link FileCacheEntry} been compressed.
+     *
+     * @since 3.0
+     */
+    public void onEntryCompressedEvent(FileCache fileCache, FileCacheEntry entry);
+
 
     // ---------------------------------------------------------- Nested Classes
 
@@ -134,5 +171,23 @@ public interface FileCacheProbe {
         @Override
         public void onErrorEvent(FileCache fileCache, Throwable error) {}
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onEntryEvictedEvent(FileCache fileCache, FileCacheEntry entry) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onEntryRejectedEvent(FileCache fileCache, FileCacheEntry entry) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onEntryCompressedEvent(FileCache fileCache, FileCacheEntry entry) {}
+
     } // END Adapter
 }
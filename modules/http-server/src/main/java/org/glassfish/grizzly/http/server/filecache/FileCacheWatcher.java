@@ -0,0 +1,300 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server.filecache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Removes the {@link FileCache} entries whose files are created, modified or
+ * deleted, using a {@link WatchService} registered on the directories of the
+ * cached files. The next request for such a resource misses the cache, so
+ * the resource is served, and cached again, by its
+ * {@link org.glassfish.grizzly.http.server.StaticHttpHandler}.
+ *
+ * If the watch service overflows and loses some events of a directory, the
+ * entries of that directory are validated against their file last modified
+ * time and length instead. The entries whose directory can't be watched are
+ * only refreshed, as before, when they expire.
+ *
+ * @since 3.0
+ */
+final class FileCacheWatcher implements Runnable {
+    private static final Logger LOGGER = Grizzly.logger(FileCacheWatcher.class);
+
+    private final FileCache fileCache;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    // guarded by this
+    private final Map<Path, WatchedDirectory> directories =
+            new HashMap<Path, WatchedDirectory>();
+
+    FileCacheWatcher(final FileCache fileCache) throws IOException {
+        this.fileCache = fileCache;
+        watchService = FileSystems.getDefault().newWatchService();
+
+        thread = new Thread(this, "Grizzly-FileCache-Watcher");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops watching the files.
+     *
+     * @return the entries, which were watched.
+     */
+    List<FileCacheEntry> stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Can not close the file watch service", e);
+        }
+
+        final List<FileCacheEntry> entries = new ArrayList<FileCacheEntry>();
+        synchronized (this) {
+            for (WatchedDirectory directory : directories.values()) {
+                directory.collect(null, entries);
+            }
+            directories.clear();
+        }
+
+        return entries;
+    }
+
+    /**
+     * Starts watching the entry file for changes.
+     *
+     * @return <tt>false</tt> if the file directory can't be watched.
+     */
+    boolean watch(final FileCacheEntry entry) {
+        final Path file = entry.plainFile.getAbsoluteFile().toPath();
+        final Path dir = file.getParent();
+        if (dir == null) {
+            return false;
+        }
+
+        synchronized (this) {
+            WatchedDirectory directory = directories.get(dir);
+            if (directory == null) {
+                final WatchKey key;
+                try {
+                    key = dir.register(watchService,
+                            ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Can not watch directory " + dir, e);
+                    return false;
+                } catch (ClosedWatchServiceException e) {
+                    return false;
+                }
+
+                directory = new WatchedDirectory(key);
+                directories.put(dir, directory);
+            }
+
+            directory.add(file.getFileName(), entry);
+            entry.watchedFile = file;
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops watching the entry file, the directory watch is cancelled
+     * together with its last entry.
+     */
+    synchronized void unwatch(final FileCacheEntry entry) {
+        final Path file = entry.watchedFile;
+        if (file == null) {
+            return;
+        }
+        entry.watchedFile = null;
+
+        final Path dir = file.getParent();
+        final WatchedDirectory directory = directories.get(dir);
+        if (directory != null && directory.remove(file.getFileName(), entry)) {
+            directory.key.cancel();
+            directories.remove(dir);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            final Path dir = (Path) key.watchable();
+            final List<FileCacheEntry> changed = new ArrayList<FileCacheEntry>();
+            List<FileCacheEntry> overflown = null;
+
+            synchronized (this) {
+                final WatchedDirectory directory = directories.get(dir);
+                final boolean isWatched = directory != null && directory.key == key;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (!isWatched) {
+                        continue;
+                    }
+
+                    if (event.kind() == OVERFLOW) {
+                        if (overflown == null) {
+                            overflown = new ArrayList<FileCacheEntry>();
+                            directory.collect(null, overflown);
+                        }
+                    } else {
+                        directory.collect((Path) event.context(), changed);
+                    }
+                }
+
+                // the directory was deleted or can't be watched any longer
+                if (!key.reset() && isWatched) {
+                    directory.collect(null, changed);
+                    directories.remove(dir);
+                }
+            }
+
+            if (overflown != null) {
+                LOGGER.log(Level.FINE,
+                        "File watch events of {0} were lost, validating the cached files", dir);
+                for (int i = 0; i < overflown.size(); i++) {
+                    final FileCacheEntry entry = overflown.get(i);
+                    if (isModified(entry)) {
+                        changed.add(entry);
+                    }
+                }
+            }
+
+            for (int i = 0; i < changed.size(); i++) {
+                fileCache.remove(changed.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the entry file was modified, or deleted, after
+     * the entry was cached.
+     */
+    static boolean isModified(final FileCacheEntry entry) {
+        final File file = entry.plainFile;
+        return file.lastModified() != entry.lastModified
+                || file.length() != entry.plainFileSize;
+    }
+
+    /**
+     * The cached entries of a watched directory, by file name.
+     */
+    private static final class WatchedDirectory {
+        private final WatchKey key;
+        private final Map<Path, List<FileCacheEntry>> entries =
+                new HashMap<Path, List<FileCacheEntry>>();
+
+        WatchedDirectory(final WatchKey key) {
+            this.key = key;
+        }
+
+        void add(final Path fileName, final FileCacheEntry entry) {
+            List<FileCacheEntry> fileEntries = entries.get(fileName);
+            if (fileEntries == null) {
+                // a file is usually cached under a single host and URI
+                fileEntries = new ArrayList<FileCacheEntry>(1);
+                entries.put(fileName, fileEntries);
+            }
+            fileEntries.add(entry);
+        }
+
+        /**
+         * @return <tt>true</tt> if the directory has no more entries.
+         */
+        boolean remove(final Path fileName, final FileCacheEntry entry) {
+            final List<FileCacheEntry> fileEntries = entries.get(fileName);
+            if (fileEntries != null && fileEntries.remove(entry)
+                    && fileEntries.isEmpty()) {
+                entries.remove(fileName);
+            }
+
+            return entries.isEmpty();
+        }
+
+        /**
+         * Adds the entries of the given file, or of all the files if
+         * <tt>fileName</tt> is <tt>null</tt>, to the list.
+         */
+        void collect(final Path fileName, final List<FileCacheEntry> to) {
+            if (fileName == null) {
+                for (List<FileCacheEntry> fileEntries : entries.values()) {
+                    to.addAll(fileEntries);
+                }
+            } else {
+                final List<FileCacheEntry> fileEntries = entries.get(fileName);
+                if (fileEntries != null) {
+                    to.addAll(fileEntries);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server.filecache;
+
+/**
+ * Count-min sketch of the {@link FileCache} key access frequencies, the
+ * TinyLFU admission filter.
+ *
+ * Each key hash is mapped to four 4-bit counters, so the estimated frequency
+ * saturates at 15. Once the number of recorded accesses reaches ten times the
+ * cache capacity, all the counters are halved, so the frequencies age and the
+ * sketch keeps following the recent popularity of the keys.
+ *
+ * The counters are updated without any synchronization: concurrent increments
+ * may get lost, which only makes the estimate a little less precise.
+ *
+ * @since 3.0
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private volatile long[] table = new long[0];
+    private int sampleSize;
+    private int size;
+
+    /**
+     * Resizes the sketch, if needed, so it can track the given number of
+     * cached entries. The recorded frequencies are lost on resize.
+     */
+    void ensureCapacity(final int maximumSize) {
+        final int maximum = Math.min(Math.max(maximumSize, 1), 1 << 30);
+        if (table.length >= maximum) {
+            return;
+        }
+
+        final int length = Math.max(Integer.highestOneBit(maximum - 1) << 1, 8);
+        sampleSize = 10 * Math.min(maximum, Integer.MAX_VALUE / 10);
+        size = 0;
+        table = new long[length];
+    }
+
+    /**
+     * Returns the estimated number of accesses of the key with the given hash
+     * code, from <tt>0</tt> to <tt>15</tt>.
+     */
+    int frequency(final int hashCode) {
+        final long[] t = table;
+        if (t.length == 0) {
+            return 0;
+        }
+
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            final int index = indexOf(hash, i, t.length - 1);
+            final int count = (int) ((t[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Records an access of the key with the given hash code.
+     */
+    void increment(final int hashCode) {
+        final long[] t = table;
+        if (t.length == 0) {
+            return;
+        }
+
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(t, indexOf(hash, i, t.length - 1), start + i);
+        }
+
+        if (added && ++size >= sampleSize) {
+            reset(t);
+        }
+    }
+
+    private static boolean incrementAt(final long[] t, final int i,
+            final int counter) {
+        final int offset = counter << 2;
+        final long mask = 0xfL << offset;
+        if ((t[i] & mask) != mask) {
+            t[i] += 1L << offset;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void reset(final long[] t) {
+        int odd = 0;
+        for (int i = 0; i < t.length; i++) {
+            odd += Long.bitCount(t[i] & ONE_MASK);
+            t[i] = (t[i] >>> 1) & RESET_MASK;
+        }
+
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private static int indexOf(final int hash, final int i, final int mask) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return ((int) h) & mask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http.server.filecache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lossy buffer of the {@link FileCache} hits, waiting to be applied to the
+ * {@link WindowTinyLfuPolicy}.
+ *
+ * The hits are recorded without taking the eviction lock, into one of a few
+ * small ring buffers picked by the recording thread. Once a ring buffer is
+ * half full the {@link FileCache} drains all of them into the policy with
+ * the lock held, so the lock is tried once per several hits. A hit recorded
+ * into a full ring buffer is dropped, which only costs the entry its
+ * recency update.
+ *
+ * @since 3.0
+ */
+final class HitBuffer {
+    private static final int STRIPES = Math.max(Integer.highestOneBit(
+            Math.min(Runtime.getRuntime().availableProcessors(), 16) - 1) << 1, 1);
+    private static final int STRIPE_SIZE = 16;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+    private static final int DRAIN_THRESHOLD = STRIPE_SIZE / 2;
+
+    private final Stripe[] stripes;
+
+    HitBuffer() {
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Records the hit of the entry.
+     *
+     * @return <tt>true</tt> if the buffer has to be drained.
+     */
+    boolean record(final FileCacheEntry entry) {
+        final long id = Thread.currentThread().getId();
+        final int index = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+        return stripes[index].offer(entry);
+    }
+
+    /**
+     * Applies the recorded hits to the policy. Has to be called holding the
+     * {@link FileCache} eviction lock.
+     */
+    void drainTo(final WindowTinyLfuPolicy policy) {
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(policy);
+        }
+    }
+
+    private static final class Stripe {
+        private final AtomicReferenceArray<FileCacheEntry> entries =
+                new AtomicReferenceArray<>(STRIPE_SIZE);
+        private final AtomicLong writeCount = new AtomicLong();
+        // written by the draining thread only
+        private volatile long readCount;
+
+        boolean offer(final FileCacheEntry entry) {
+            final long tail = writeCount.get();
+            final long size = tail - readCount;
+            if (size >= STRIPE_SIZE) {
+                return true;
+            }
+
+            // a lost race drops the hit, rather than spin
+            if (writeCount.compareAndSet(tail, tail + 1)) {
+                entries.lazySet((int) (tail & STRIPE_MASK), entry);
+                return size + 1 >= DRAIN_THRESHOLD;
+            }
+
+            return false;
+        }
+
+        void drainTo(final WindowTinyLfuPolicy policy) {
+            long head = readCount;
+            final long tail = writeCount.get();
+            for (; head < tail; head++) {
+                final int index = (int) (head & STRIPE_MASK);
+                final FileCacheEntry entry = entries.get(index);
+                if (entry == null) {
+                    // the writer hasn't stored the entry yet
+                    break;
+                }
+
+                entries.lazySet(index, null);
+                policy.onHit(entry);
+            }
+
+            readCount = head;
+        }
+    }
+}
@@ -127,6 +127,10 @@ public class LazyFileCacheKey extends FileCacheKey {
             return false;
         }        
         final FileCacheKey other = (FileCacheKey) obj;
+        // the request always looks up the identity representation
+        if (other.encoding != null) {
+            return false;
+        }
         
         final String otherHost = other.host;
         final DataChunk hostDC = getHostLazy();
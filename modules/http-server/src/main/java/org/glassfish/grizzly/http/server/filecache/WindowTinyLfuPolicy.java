@@ -0,0 +1,409 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server.filecache;
+
+import java.util.List;
+
+/**
+ * Size-aware W-TinyLFU eviction policy of the {@link FileCache}.
+ *
+ * New entries are added to a small LRU admission window, which keeps about
+ * 1% of the cache entries and of the heap and memory mapped cache sizes.
+ * The entries leaving the window become candidates for the main space, a
+ * segmented LRU made of a probation and a protected (80% of the main entries)
+ * queue. When the cache exceeds {@link FileCache#getMaxCacheEntries()},
+ * {@link FileCache#getMaxSmallFileCacheSize()} or
+ * {@link FileCache#getMaxLargeFileCacheSize()}, a candidate is admitted only if
+ * its {@link FrequencySketch} estimated access frequency is higher than the
+ * frequency of the least recently used main entry it would evict from the
+ * exceeded space. A large candidate has to beat every victim it pushes out,
+ * so the cache favours the entries that give the most hits per cached byte.
+ *
+ * An entry weighs its cached plain and compressed {@link java.nio.ByteBuffer}
+ * bytes, charged to the heap cache size for {@link FileCache.CacheType#HEAP}
+ * entries and to the memory mapped cache size for
+ * {@link FileCache.CacheType#MAPPED} entries.
+ *
+ * The policy is not thread safe: except for {@link #recordAccess(int)}, all the
+ * methods have to be called holding the {@link FileCache} eviction lock.
+ *
+ * @since 3.0
+ */
+final class WindowTinyLfuPolicy {
+    static final int NONE = 0;
+    static final int WINDOW = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    private final FileCache fileCache;
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+
+    private int size;
+    private int windowSize;
+    private long windowHeapSize;
+    private long windowMappedSize;
+    private int protectedSize;
+
+    WindowTinyLfuPolicy(final FileCache fileCache) {
+        this.fileCache = fileCache;
+    }
+
+    /**
+     * Records an access of the key with the given hash code. Unlike the other
+     * methods, it may be called without holding the eviction lock.
+     */
+    void recordAccess(final int hashCode) {
+        sketch.increment(hashCode);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the entry has been added and hasn't been
+     * removed or evicted since.
+     */
+    boolean isResident(final FileCacheEntry entry) {
+        return entry.queue != NONE;
+    }
+
+    /**
+     * Adds a new entry to the admission window, charging the given weight to
+     * the entry type's cache size, and evicts the entries exceeding the cache
+     * limits.
+     *
+     * @param evicted the entries evicted to make room are added to this list.
+     * @param rejected the candidate entries, which were denied admission to
+     *        the main space, are added to this list.
+     */
+    void add(final FileCacheEntry entry, final long weight,
+            final List<FileCacheEntry> evicted,
+            final List<FileCacheEntry> rejected) {
+        sketch.ensureCapacity(fileCache.getMaxCacheEntries());
+
+        entry.weight = weight;
+        charge(entry);
+        link(entry, WINDOW);
+        size++;
+
+        evict(evicted, rejected);
+    }
+
+    /**
+     * Changes the type and the weight of a resident entry and evicts the
+     * entries exceeding the cache limits, which may include the entry itself.
+     */
+    void update(final FileCacheEntry entry, final FileCache.CacheType type,
+            final long weight, final List<FileCacheEntry> evicted,
+            final List<FileCacheEntry> rejected) {
+        final int queue = entry.queue;
+        if (queue == NONE) {
+            entry.type = type;
+            return;
+        }
+
+        unlink(entry);
+        uncharge(entry);
+        entry.type = type;
+        entry.weight = weight;
+        charge(entry);
+        link(entry, queue);
+
+        evict(evicted, rejected);
+    }
+
+    /**
+     * Removes the entry from the policy.
+     *
+     * @return <tt>true</tt> if the entry was resident.
+     */
+    boolean remove(final FileCacheEntry entry) {
+        if (entry.queue == NONE) {
+            return false;
+        }
+
+        unlink(entry);
+        uncharge(entry);
+        size--;
+
+        return true;
+    }
+
+    /**
+     * Updates the recency of a cache hit, promoting a probation entry to
+     * the protected queue.
+     */
+    void onHit(final FileCacheEntry entry) {
+        switch (entry.queue) {
+            case WINDOW:
+            case PROTECTED: {
+                final int queue = entry.queue;
+                unlink(entry);
+                link(entry, queue);
+                break;
+            }
+            case PROBATION: {
+                unlink(entry);
+                link(entry, PROTECTED);
+
+                final int maxEntries = Math.max(fileCache.getMaxCacheEntries(), 0);
+                final long maxProtectedSize =
+                        (maxEntries - windowMaxSize(maxEntries)) * 4L / 5;
+                while (protectedSize > maxProtectedSize) {
+                    final FileCacheEntry demoted = protectedQueue.head;
+                    unlink(demoted);
+                    link(demoted, PROBATION);
+                }
+                break;
+            }
+            default:
+        }
+    }
+
+    /**
+     * Returns the number of resident entries.
+     */
+    int size() {
+        return size;
+    }
+
+    // --------------------------------------------------------- Private Methods
+
+    private void evict(final List<FileCacheEntry> evicted,
+            final List<FileCacheEntry> rejected) {
+        final int maxEntries = Math.max(fileCache.getMaxCacheEntries(), 0);
+        final long maxHeapSize = fileCache.getMaxSmallFileCacheSize();
+        final long maxMappedSize = fileCache.getMaxLargeFileCacheSize();
+
+        // the entries overflowing the window become the main space candidates,
+        // they are appended to the probation queue starting at "candidates"
+        final int windowMaxSize = windowMaxSize(maxEntries);
+        FileCacheEntry candidates = null;
+        while (windowSize > windowMaxSize
+                || windowHeapSize > maxHeapSize / 100
+                || windowMappedSize > maxMappedSize / 100) {
+            final FileCacheEntry candidate = window.head;
+            unlink(candidate);
+            link(candidate, PROBATION);
+            if (candidates == null) {
+                candidates = candidate;
+            }
+        }
+
+        while (true) {
+            final FileCache.CacheType pool;
+            if (size > maxEntries) {
+                pool = null;
+            } else if (fileCache.getHeapCacheSize() > maxHeapSize) {
+                pool = FileCache.CacheType.HEAP;
+            } else if (fileCache.getMappedCacheSize() > maxMappedSize) {
+                pool = FileCache.CacheType.MAPPED;
+            } else {
+                return;
+            }
+
+            final FileCacheEntry candidate = first(candidates, null, pool);
+            FileCacheEntry victim = first(probation.head, candidates, pool);
+            if (victim == null) {
+                victim = first(protectedQueue.head, null, pool);
+            }
+
+            final FileCacheEntry entry;
+            final boolean isRejected;
+            if (candidate == null) {
+                entry = victim != null ? victim : first(window.head, null, pool);
+                if (entry == null) {
+                    return;
+                }
+                isRejected = false;
+            } else if (victim == null) {
+                entry = candidate;
+                isRejected = true;
+            } else {
+                isRejected = frequency(candidate) <= frequency(victim);
+                entry = isRejected ? candidate : victim;
+            }
+
+            if (entry == candidates) {
+                candidates = candidates.nextInQueue;
+            }
+
+            remove(entry);
+            // a new entry, which is not published yet, is reported as rejected
+            if (isRejected || !entry.published) {
+                rejected.add(entry);
+            } else {
+                evicted.add(entry);
+            }
+        }
+    }
+
+    private int frequency(final FileCacheEntry entry) {
+        return sketch.frequency(entry.key.hashCode());
+    }
+
+    /**
+     * Returns the first entry in the queue, from <tt>from</tt> (inclusive) to
+     * <tt>to</tt> (exclusive), which is charged to the given cache size,
+     * or any entry if the pool is <tt>null</tt>.
+     */
+    private static FileCacheEntry first(final FileCacheEntry from,
+            final FileCacheEntry to, final FileCache.CacheType pool) {
+        for (FileCacheEntry entry = from; entry != null && entry != to;
+                entry = entry.nextInQueue) {
+            if (pool == null || (entry.type == pool && entry.weight > 0)) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private static int windowMaxSize(final int maxEntries) {
+        return Math.max(maxEntries / 100, 1);
+    }
+
+    private void charge(final FileCacheEntry entry) {
+        if (entry.type == FileCache.CacheType.HEAP) {
+            fileCache.addHeapSize(entry.weight);
+        } else if (entry.type == FileCache.CacheType.MAPPED) {
+            fileCache.addMappedMemorySize(entry.weight);
+        }
+    }
+
+    private void uncharge(final FileCacheEntry entry) {
+        if (entry.type == FileCache.CacheType.HEAP) {
+            fileCache.subHeapSize(entry.weight);
+        } else if (entry.type == FileCache.CacheType.MAPPED) {
+            fileCache.subMappedMemorySize(entry.weight);
+        }
+    }
+
+    private void link(final FileCacheEntry entry, final int queue) {
+        entry.queue = queue;
+        switch (queue) {
+            case WINDOW: {
+                window.addLast(entry);
+                windowSize++;
+                if (entry.type == FileCache.CacheType.HEAP) {
+                    windowHeapSize += entry.weight;
+                } else if (entry.type == FileCache.CacheType.MAPPED) {
+                    windowMappedSize += entry.weight;
+                }
+                break;
+            }
+            case PROBATION: {
+                probation.addLast(entry);
+                break;
+            }
+            case PROTECTED: {
+                protectedQueue.addLast(entry);
+                protectedSize++;
+                break;
+            }
+            default: throw new IllegalStateException("Unknown queue: " + queue);
+        }
+    }
+
+    private void unlink(final FileCacheEntry entry) {
+        switch (entry.queue) {
+            case WINDOW: {
+                window.remove(entry);
+                windowSize--;
+                if (entry.type == FileCache.CacheType.HEAP) {
+                    windowHeapSize -= entry.weight;
+                } else if (entry.type == FileCache.CacheType.MAPPED) {
+                    windowMappedSize -= entry.weight;
+                }
+                break;
+            }
+            case PROBATION: {
+                probation.remove(entry);
+                break;
+            }
+            case PROTECTED: {
+                protectedQueue.remove(entry);
+                protectedSize--;
+                break;
+            }
+            default: throw new IllegalStateException("Unknown queue: " + entry.queue);
+        }
+        entry.queue = NONE;
+    }
+
+    /**
+     * Doubly-linked LRU queue of {@link FileCacheEntry}s, the head being the
+     * least recently used entry.
+     */
+    private static final class AccessQueue {
+        private FileCacheEntry head;
+        private FileCacheEntry tail;
+
+        void addLast(final FileCacheEntry entry) {
+            entry.prevInQueue = tail;
+            entry.nextInQueue = null;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.nextInQueue = entry;
+            }
+            tail = entry;
+        }
+
+        void remove(final FileCacheEntry entry) {
+            final FileCacheEntry prev = entry.prevInQueue;
+            final FileCacheEntry next = entry.nextInQueue;
+            if (prev == null) {
+                head = next;
+            } else {
+                prev.nextInQueue = next;
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                next.prevInQueue = prev;
+            }
+            entry.prevInQueue = null;
+            entry.nextInQueue = null;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.util.FastHttpDateFormat;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.HttpStatus;
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * The byte ranges requested by the <tt>Range</tt> header of a GET request
+ * (RFC 7233), resolved against the length of the selected representation.
+ * 
+ * The ranges are sorted and the overlapping or adjacent ranges are
+ * coalesced, so a representation is never sent more than once in a response.
+ * 
+ * The instance is created per request, {@link #prepareResponse(HttpResponsePacket)}
+ * sets the response status and headers and, for a
+ * <tt>multipart/byteranges</tt> response, prepares the part headers, which
+ * have to be sent before every range.
+ * 
+ * @since 3.0
+ */
+public final class ByteRanges {
+    private static final String MAX_RANGES_PROP =
+            ByteRanges.class.getName() + ".max-ranges";
+    
+    /**
+     * The max number of ranges served in a response, if a request asks for
+     * more ranges - the entire representation is sent.
+     */
+    private static final int MAX_RANGES =
+            Integer.getInteger(MAX_RANGES_PROP, 16);
+    
+    private static final String BYTES_UNIT = "bytes";
+    
+    private static final String BOUNDARY =
+            "GRIZZLY_" + Long.toHexString(new Random().nextLong());
+    
+    private static final String MULTIPART_CONTENT_TYPE =
+            "multipart/byteranges; boundary=" + BOUNDARY;
+    
+    private static final byte[] CLOSE_DELIMITER =
+            ("\r\n--" + BOUNDARY + "--\r\n").getBytes(Charsets.ASCII_CHARSET);
+    
+    private final long completeLength;
+    private final long[] firsts;
+    private final long[] lasts;
+    
+    private byte[][] partHeaders;
+    
+    private ByteRanges(final long completeLength, final long[] firsts,
+            final long[] lasts) {
+        this.completeLength = completeLength;
+        this.firsts = firsts;
+        this.lasts = lasts;
+    }
+
+    /**
+     * Returns the {@link ByteRanges} requested by the {@link HttpRequestPacket}.
+     * 
+     * @param request the {@link HttpRequestPacket}
+     * @param eTag the representation's entity tag, or <tt>null</tt> if unknown
+     * @param lastModified the representation's last modification time in
+     *  milliseconds, or <tt>-1</tt> if unknown
+     * @param completeLength the representation's length
+     * 
+     * @return the {@link ByteRanges}, or <tt>null</tt> if the entire
+     *  representation has to be sent: the request is not a GET, or it has no,
+     *  an invalid or too large <tt>Range</tt> header, or its <tt>If-Range</tt>
+     *  condition is not satisfied
+     */
+    public static ByteRanges parse(final HttpRequestPacket request,
+            final String eTag, final long lastModified,
+            final long completeLength) {
+        if (!Method.GET.equals(request.getMethod())) {
+            return null;
+        }
+        
+        final String range = request.getHeader(Header.Range);
+        if (range == null) {
+            return null;
+        }
+        
+        final String ifRange = request.getHeader(Header.IfRange);
+        if (ifRange != null && !isIfRangeSatisfied(ifRange, eTag, lastModified)) {
+            return null;
+        }
+        
+        return parse(range, completeLength);
+    }
+    
+    /**
+     * Parses the <tt>Range</tt> header value.
+     * 
+     * @param range the <tt>Range</tt> header value
+     * @param completeLength the representation's length
+     * 
+     * @return the {@link ByteRanges}, or <tt>null</tt> if the value is
+     *  invalid, or has more than the max number of ranges
+     */
+    public static ByteRanges parse(final String range,
+            final long completeLength) {
+        final int eq = range.indexOf('=');
+        if (eq == -1
+                || !BYTES_UNIT.equalsIgnoreCase(range.substring(0, eq).trim())) {
+            return null;
+        }
+        
+        long[] firsts = new long[1];
+        long[] lasts = new long[1];
+        int count = 0;
+        int specs = 0;
+        
+        int start = eq + 1;
+        final int length = range.length();
+        while (start <= length) {
+            int end = range.indexOf(',', start);
+            if (end == -1) {
+                end = length;
+            }
+            
+            final String spec = range.substring(start, end).trim();
+            start = end + 1;
+            
+            if (spec.isEmpty()) {
+                // empty list elements are allowed
+                continue;
+            }
+            
+            if (++specs > MAX_RANGES) {
+                return null;
+            }
+            
+            final int dash = spec.indexOf('-');
+            if (dash == -1) {
+                return null;
+            }
+            
+            long first;
+            long last;
+            if (dash == 0) {
+                // suffix-byte-range-spec
+                final long suffix = parseLong(spec, 1, spec.length());
+                if (suffix < 0) {
+                    return null;
+                }
+                
+                if (suffix == 0 || completeLength == 0) {
+                    continue;
+                }
+                
+                first = Math.max(0, completeLength - suffix);
+                last = completeLength - 1;
+            } else {
+                first = parseLong(spec, 0, dash);
+                if (first < 0) {
+                    return null;
+                }
+                
+                if (dash == spec.length() - 1) {
+                    last = completeLength - 1;
+                } else {
+                    last = parseLong(spec, dash + 1, spec.length());
+                    if (last < first) {
+                        return null;
+                    }
+                    
+                    last = Math.min(last, completeLength - 1);
+                }
+                
+                if (first >= completeLength) {
+                    // not satisfiable
+                    continue;
+                }
+            }
+            
+            if (count == firsts.length) {
+                firsts = Arrays.copyOf(firsts, count * 2);
+                lasts = Arrays.copyOf(lasts, count * 2);
+            }
+            
+            firsts[count] = first;
+            lasts[count] = last;
+            count++;
+        }
+        
+        if (specs == 0) {
+            return null;
+        }
+        
+        return new ByteRanges(completeLength, firsts, lasts).coalesce(count);
+    }
+    
+    /**
+     * @return <tt>true</tt> if at least one of the ranges overlaps
+     *  the representation, or <tt>false</tt> if the response has to be
+     *  <tt>416 Range Not Satisfiable</tt>
+     */
+    public boolean isSatisfiable() {
+        return firsts.length > 0;
+    }
+    
+    /**
+     * @return <tt>true</tt> if the response has to be
+     *  <tt>multipart/byteranges</tt>
+     */
+    public boolean isMultipart() {
+        return firsts.length > 1;
+    }
+    
+    /**
+     * @return the number of the ranges to be sent
+     */
+    public int size() {
+        return firsts.length;
+    }
+    
+    /**
+     * @return the representation's length
+     */
+    public long getCompleteLength() {
+        return completeLength;
+    }
+
+    /**
+     * @return the offset of the range's first byte
+     */
+    public long getFirst(final int i) {
+        return firsts[i];
+    }
+    
+    /**
+     * @return the offset of the range's last byte
+     */
+    public long getLast(final int i) {
+        return lasts[i];
+    }
+    
+    /**
+     * @return the number of the range's bytes
+     */
+    public long getLength(final int i) {
+        return lasts[i] - firsts[i] + 1;
+    }
+    
+    /**
+     * @return the <tt>Content-Range</tt> header value of the range
+     */
+    public String getContentRange(final int i) {
+        return BYTES_UNIT + ' ' + firsts[i] + '-' + lasts[i] + '/'
+                + completeLength;
+    }
+    
+    /**
+     * Returns the part header, which has to be sent before the range's bytes
+     * in a <tt>multipart/byteranges</tt> response. The part headers are
+     * available after {@link #prepareResponse(HttpResponsePacket)} is called.
+     * 
+     * @return the part header, or <tt>null</tt> if the response is not
+     *  <tt>multipart/byteranges</tt>
+     */
+    public byte[] getPartHeader(final int i) {
+        return partHeaders != null ? partHeaders[i] : null;
+    }
+    
+    /**
+     * @return the multipart close delimiter, which has to be sent after the
+     *  last range in a <tt>multipart/byteranges</tt> response,
+     *  or <tt>null</tt> if the response is not <tt>multipart/byteranges</tt>
+     */
+    public byte[] getCloseDelimiter() {
+        return isMultipart() ? CLOSE_DELIMITER : null;
+    }
+    
+    /**
+     * Sets the status, <tt>Content-Range</tt>, <tt>Content-Type</tt> and
+     * <tt>Content-Length</tt> of the response. The response content type,
+     * if set, has to be the representation's one, it's used in the part
+     * headers of a <tt>multipart/byteranges</tt> response.
+     * 
+     * @param response the {@link HttpResponsePacket}
+     */
+    public void prepareResponse(final HttpResponsePacket response) {
+        if (!isSatisfiable()) {
+            response.setStatus(HttpStatus.REQUEST_RANGE_NOT_SATISFIABLE_416);
+            response.setHeader(Header.ContentRange,
+                    BYTES_UNIT + " */" + completeLength);
+            response.setContentLengthLong(0);
+            return;
+        }
+        
+        response.setStatus(HttpStatus.PARTIAL_CONTENT_206);
+        
+        if (!isMultipart()) {
+            response.setHeader(Header.ContentRange, getContentRange(0));
+            response.setContentLengthLong(getLength(0));
+            return;
+        }
+        
+        final String contentType = response.getContentType();
+        final int size = size();
+        partHeaders = new byte[size][];
+        
+        long contentLength = CLOSE_DELIMITER.length;
+        final StringBuilder sb = new StringBuilder(128);
+        for (int i = 0; i < size; i++) {
+            sb.setLength(0);
+            sb.append("\r\n--").append(BOUNDARY).append("\r\n");
+            if (contentType != null) {
+                sb.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            sb.append("Content-Range: ").append(getContentRange(i))
+                    .append("\r\n\r\n");
+            
+            partHeaders[i] = sb.toString().getBytes(Charsets.ASCII_CHARSET);
+            contentLength += partHeaders[i].length + getLength(i);
+        }
+        
+        response.setContentType(MULTIPART_CONTENT_TYPE);
+        response.setContentLengthLong(contentLength);
+    }
+    
+    /**
+     * Checks the <tt>If-Range</tt> condition, only a strong entity tag or
+     * the exact last modification date match.
+     */
+    static boolean isIfRangeSatisfied(final String ifRange, final String eTag,
+            final long lastModified) {
+        final String value = ifRange.trim();
+        if (value.startsWith("W/")) {
+            return false;
+        }
+        
+        if (value.startsWith("\"")) {
+            return eTag != null && !eTag.startsWith("W/") && value.equals(eTag);
+        }
+        
+        if (lastModified < 0) {
+            return false;
+        }
+        
+        final long date = FastHttpDateFormat.parseDate(value, null);
+        return date != -1 && date / 1000 == lastModified / 1000;
+    }
+    
+    private ByteRanges coalesce(final int count) {
+        if (count == 0) {
+            return new ByteRanges(completeLength, new long[0], new long[0]);
+        }
+        
+        if (count == 1) {
+            return new ByteRanges(completeLength,
+                    new long[] {firsts[0]}, new long[] {lasts[0]});
+        }
+        
+        boolean isSorted = true;
+        for (int i = 1; i < count && isSorted; i++) {
+            isSorted = firsts[i] > lasts[i - 1] + 1;
+        }
+        
+        if (isSorted) {
+            return new ByteRanges(completeLength, Arrays.copyOf(firsts, count),
+                    Arrays.copyOf(lasts, count));
+        }
+        
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                final long f1 = firsts[o1];
+                final long f2 = firsts[o2];
+                return f1 < f2 ? -1 : (f1 == f2 ? 0 : 1);
+            }
+        });
+        
+        final long[] newFirsts = new long[count];
+        final long[] newLasts = new long[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            final int idx = order[i];
+            if (n > 0 && firsts[idx] <= newLasts[n - 1] + 1) {
+                newLasts[n - 1] = Math.max(newLasts[n - 1], lasts[idx]);
+            } else {
+                newFirsts[n] = firsts[idx];
+                newLasts[n] = lasts[idx];
+                n++;
+            }
+        }
+        
+        return new ByteRanges(completeLength, Arrays.copyOf(newFirsts, n),
+                Arrays.copyOf(newLasts, n));
+    }
+    
+    /**
+     * Parses a non-negative decimal number.
+     * 
+     * @return the number, or <tt>-1</tt> if the string is not a valid number
+     */
+    private static long parseLong(final String s, final int start,
+            final int end) {
+        if (start == end || end - start > 18) {
+            return -1;
+        }
+        
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            
+            result = result * 10 + (c - '0');
+        }
+        
+        return result;
+    }
+}
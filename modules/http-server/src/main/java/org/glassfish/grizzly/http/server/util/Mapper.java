@@ -809,6 +809,22 @@ public class Mapper {
     // END GlassFish 1024
 
 
+    /**
+     * Compiles the current default host mappings into a {@link RouteTree},
+     * which maps the undecoded request URIs without decoding them first.
+     * The returned {@link RouteTree} is an immutable snapshot, so it has to be
+     * compiled again after the mappings are changed.
+     *
+     * @return the {@link RouteTree}, or <tt>null</tt> if the mappings can't
+     *  be compiled (virtual hosts or default contexts are configured)
+     *
+     * @since 3.0
+     */
+    public synchronized RouteTree compileRoutes() {
+        return RouteTree.compile(this);
+    }
+
+
     /**
      * Maps the decodedURI to the corresponding HttpHandler, considering that URI
      * may have a semicolon with extra data followed, which shouldn't be a part
@@ -0,0 +1,299 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server.util;
+
+import java.io.File;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.util.Header;
+
+/**
+ * Precompressed sidecar files of static resources, produced at build time
+ * next to the resource: <tt>foo.js.br</tt>, <tt>foo.js.zst</tt> and
+ * <tt>foo.js.gz</tt> are the <tt>br</tt>, <tt>zstd</tt> and <tt>gzip</tt>
+ * encoded representations of <tt>foo.js</tt>.
+ * 
+ * The variants of a resource are represented as a {@link File} array indexed
+ * by the variant number, see {@link #getEncoding(int)}, a missing variant
+ * being <tt>null</tt>.
+ * 
+ * @since 3.0
+ */
+public final class PrecompressedFiles {
+    /**
+     * The content codings, in the order of preference, if a client accepts
+     * several of them with the same quality.
+     */
+    private static final String[] ENCODINGS = {"br", "zstd", "gzip"};
+    private static final String[] EXTENSIONS = {".br", ".zst", ".gz"};
+    
+    private static final int MAX_QUALITY = 1000;
+    
+    private PrecompressedFiles() {
+    }
+    
+    /**
+     * Returns the number of the supported variants.
+     */
+    public static int size() {
+        return ENCODINGS.length;
+    }
+    
+    /**
+     * Returns the content coding of the variant.
+     */
+    public static String getEncoding(final int variant) {
+        return ENCODINGS[variant];
+    }
+    
+    /**
+     * Looks up the precompressed variants of the file. A sidecar file
+     * older than the file itself is considered stale and ignored.
+     * 
+     * @return the variants, or <tt>null</tt> if the file has none.
+     */
+    public static File[] find(final File file) {
+        final long lastModified = file.lastModified();
+        final String path = file.getPath();
+        
+        File[] variants = null;
+        for (int i = 0; i < EXTENSIONS.length; i++) {
+            final File variant = new File(path + EXTENSIONS[i]);
+            final long variantLastModified = variant.lastModified();
+            if (variantLastModified != 0 && variantLastModified >= lastModified
+                    && variant.isFile()) {
+                if (variants == null) {
+                    variants = new File[ENCODINGS.length];
+                }
+                variants[i] = variant;
+            }
+        }
+        
+        return variants;
+    }
+    
+    /**
+     * Selects the variant to be sent in response to the request, based on the
+     * <tt>Accept-Encoding</tt> qualities.
+     * 
+     * @return the variant number, or <tt>-1</tt> if the identity
+     *         representation has to be sent.
+     */
+    public static int negotiate(final HttpRequestPacket request,
+            final File[] variants) {
+        return negotiate(request.getHeader(Header.AcceptEncoding), variants);
+    }
+    
+    /**
+     * Selects the variant to be sent, based on the <tt>Accept-Encoding</tt>
+     * header value qualities (RFC 7231). Among the equally acceptable
+     * variants the one with the best compression is selected, the identity
+     * representation is selected, if it's more acceptable than any of the
+     * available variants.
+     * 
+     * @return the variant number, or <tt>-1</tt> if the identity
+     *         representation has to be sent.
+     */
+    public static int negotiate(final String acceptEncoding,
+            final File[] variants) {
+        if (acceptEncoding == null || variants == null) {
+            return -1;
+        }
+        
+        final int[] qualities = {-1, -1, -1};
+        int wildcard = -1;
+        int identity = -1;
+        
+        final int length = acceptEncoding.length();
+        int i = 0;
+        while (i < length) {
+            int end = acceptEncoding.indexOf(',', i);
+            if (end == -1) {
+                end = length;
+            }
+            
+            int nameStart = skipSpaces(acceptEncoding, i, end);
+            int nameEnd = nameStart;
+            while (nameEnd < end && acceptEncoding.charAt(nameEnd) != ';'
+                    && acceptEncoding.charAt(nameEnd) != ' '
+                    && acceptEncoding.charAt(nameEnd) != '\t') {
+                nameEnd++;
+            }
+            
+            if (nameEnd > nameStart) {
+                final int quality = parseQuality(acceptEncoding, nameEnd, end);
+                final int nameLength = nameEnd - nameStart;
+                if (matches(acceptEncoding, nameStart, nameLength, "*")) {
+                    wildcard = quality;
+                } else if (matches(acceptEncoding, nameStart, nameLength, "identity")) {
+                    identity = quality;
+                } else if (matches(acceptEncoding, nameStart, nameLength, "x-gzip")) {
+                    qualities[2] = quality;
+                } else {
+                    for (int j = 0; j < ENCODINGS.length; j++) {
+                        if (matches(acceptEncoding, nameStart, nameLength, ENCODINGS[j])) {
+                            qualities[j] = quality;
+                            break;
+                        }
+                    }
+                }
+            }
+            
+            i = end + 1;
+        }
+        
+        int selected = -1;
+        int selectedQuality = 0;
+        for (int j = 0; j < variants.length; j++) {
+            if (variants[j] == null) {
+                continue;
+            }
+            
+            final int quality = qualities[j] != -1 ? qualities[j] : wildcard;
+            if (quality > selectedQuality) {
+                selected = j;
+                selectedQuality = quality;
+            }
+        }
+        
+        // identity is acceptable, unless explicitly refused
+        final int identityQuality = identity != -1
+                ? identity
+                : wildcard == 0 ? 0 : MAX_QUALITY;
+        
+        return selectedQuality >= identityQuality ? selected : -1;
+    }
+    
+    /**
+     * Returns the entity tag of the variant, derived from the entity tag of
+     * the identity representation, so the variants can be validated
+     * independently.
+     */
+    public static String getETag(final String eTag, final int variant) {
+        if (eTag == null) {
+            return null;
+        }
+        
+        final String encoding = ENCODINGS[variant];
+        if (eTag.endsWith("\"")) {
+            return new StringBuilder(eTag.length() + encoding.length() + 1)
+                    .append(eTag, 0, eTag.length() - 1)
+                    .append('-').append(encoding).append('"').toString();
+        }
+        
+        return eTag + '-' + encoding;
+    }
+    
+    /**
+     * Parses the <tt>q</tt> parameter in thousandths, the parameters start
+     * at <tt>from</tt>.
+     */
+    private static int parseQuality(final String s, final int from,
+            final int to) {
+        int i = s.indexOf(';', from);
+        while (i != -1 && i < to) {
+            final int paramStart = skipSpaces(s, i + 1, to);
+            if (paramStart + 1 < to
+                    && (s.charAt(paramStart) == 'q' || s.charAt(paramStart) == 'Q')
+                    && s.charAt(paramStart + 1) == '=') {
+                return parseQValue(s, paramStart + 2, to);
+            }
+            
+            i = s.indexOf(';', i + 1);
+        }
+        
+        return MAX_QUALITY;
+    }
+    
+    /**
+     * Parses the <tt>qvalue</tt>: "0" [ "." 0*3DIGIT ] / "1" [ "." 0*3("0") ],
+     * an invalid value is not acceptable.
+     */
+    private static int parseQValue(final String s, final int from,
+            final int to) {
+        int end = from;
+        while (end < to && s.charAt(end) != ';' && s.charAt(end) != ' '
+                && s.charAt(end) != '\t') {
+            end++;
+        }
+        
+        if (end == from) {
+            return 0;
+        }
+        
+        final char first = s.charAt(from);
+        if (first != '0' && first != '1') {
+            return 0;
+        }
+        
+        int value = (first - '0') * MAX_QUALITY;
+        if (end > from + 1) {
+            if (s.charAt(from + 1) != '.' || end - from - 2 > 3) {
+                return 0;
+            }
+            
+            int scale = 100;
+            for (int i = from + 2; i < end; i++) {
+                final char c = s.charAt(i);
+                if (c < '0' || c > '9') {
+                    return 0;
+                }
+                value += (c - '0') * scale;
+                scale /= 10;
+            }
+        }
+        
+        return value <= MAX_QUALITY ? value : 0;
+    }
+    
+    private static boolean matches(final String s, final int offset,
+            final int length, final String token) {
+        return length == token.length()
+                && s.regionMatches(true, offset, token, 0, length);
+    }
+    
+    private static int skipSpaces(final String s, int from, final int to) {
+        while (from < to && (s.charAt(from) == ' ' || s.charAt(from) == '\t')) {
+            from++;
+        }
+        
+        return from;
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.util.BufferChunk;
+import org.glassfish.grizzly.http.util.ByteChunk;
+import org.glassfish.grizzly.http.util.DataChunk;
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * Immutable snapshot of the {@link Mapper} mappings of the default host,
+ * compiled into byte-level radix trees: one for the context paths and, per
+ * context, one for the exact, the prefix (<tt>/path/*</tt>) and the extension
+ * (<tt>*.ext</tt>) mappings.
+ * 
+ * The tree is matched directly against the request URI bytes, as long as the
+ * URI doesn't need to be decoded or normalized (no <tt>%</tt> escapes,
+ * <tt>;</tt> parameters, empty, <tt>.</tt> or <tt>..</tt> segments, or
+ * non-ASCII characters), so the request URI doesn't have to be decoded and
+ * converted to chars before mapping. The requests, which need to be decoded,
+ * and the requests, whose mapping depends on the welcome resources, directory
+ * redirects or the context's own {@link Object}, are not mapped by the tree,
+ * so the caller falls back to the {@link Mapper}.
+ * 
+ * Use {@link Mapper#compileRoutes()} to create a tree, a new tree has to be
+ * compiled every time the {@link Mapper} mappings are changed.
+ * 
+ * @since 3.0
+ */
+public final class RouteTree {
+    private final Object host;
+    private final Node contexts;
+    private final int size;
+    
+    private RouteTree(final Object host, final Node contexts, final int size) {
+        this.host = host;
+        this.contexts = contexts;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of compiled context and wrapper mappings
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Maps the request URI, filling the {@link MappingData} the same way
+     * the {@link Mapper} does.
+     * 
+     * @param uri the (undecoded) request URI
+     * @param mappingData the {@link MappingData} to fill
+     * 
+     * @return <tt>true</tt> if the URI was mapped, or <tt>false</tt> if the
+     *  URI has to be mapped by the {@link Mapper}, in which case the
+     *  {@link MappingData} is not changed
+     */
+    public boolean map(final DataChunk uri, final MappingData mappingData) {
+        final byte[] b;
+        final int start;
+        final int end;
+        switch (uri.getType()) {
+            case Bytes: {
+                final ByteChunk bc = uri.getByteChunk();
+                b = bc.getBuffer();
+                start = bc.getStart();
+                end = bc.getEnd();
+                break;
+            }
+            case Buffer: {
+                final BufferChunk bc = uri.getBufferChunk();
+                final Buffer buffer = bc.getBuffer();
+                if (!buffer.hasArray()) {
+                    return false;
+                }
+                b = buffer.array();
+                start = buffer.arrayOffset() + bc.getStart();
+                end = buffer.arrayOffset() + bc.getEnd();
+                break;
+            }
+            default:
+                return false;
+        }
+        
+        if (!isPlainPath(b, start, end)) {
+            return false;
+        }
+        
+        final CompiledContext ctx =
+                (CompiledContext) longestPrefix(contexts, b, start, end);
+        if (ctx == null || !ctx.compiled) {
+            return false;
+        }
+        
+        final int pathStart = start + ctx.length;
+        if (pathStart == end) {
+            // the Mapper redirects to the context root
+            return false;
+        }
+        
+        // Rule 0 -- Empty path match
+        if (ctx.emptyPathWrapper != null && end - pathStart == 1) {
+            final CompiledWrapper w = ctx.emptyPathWrapper;
+            setContext(mappingData, ctx);
+            mappingData.wrapper = w.object;
+            mappingData.mappingType = MappingData.CONTEXT_ROOT;
+            mappingData.requestPath.setString("");
+            mappingData.wrapperPath.setString("");
+            mappingData.pathInfo.setString("/");
+            mappingData.descriptorPath = "/";
+            mappingData.matchedPath = "/";
+            return true;
+        }
+        
+        // Rule 1 -- Exact Match
+        CompiledWrapper w = (CompiledWrapper) exact(ctx.exactWrappers,
+                b, pathStart, end);
+        if (w != null) {
+            setContext(mappingData, ctx);
+            setWrapper(mappingData, w, "/".equals(w.name)
+                    ? MappingData.DEFAULT
+                    : MappingData.EXACT);
+            mappingData.requestPath.setString(w.name);
+            mappingData.wrapperPath.setString(w.name);
+            mappingData.matchedPath = w.name;
+            return true;
+        }
+        
+        // Rule 2 -- Prefix Match
+        w = (CompiledWrapper) longestPrefix(ctx.wildcardWrappers,
+                b, pathStart, end);
+        if (w != null) {
+            setContext(mappingData, ctx);
+            setWrapper(mappingData, w, MappingData.PATH);
+            mappingData.wrapperPath.setString(w.name);
+            if (end - pathStart > w.length) {
+                mappingData.pathInfo.setBytes(b, pathStart + w.length, end);
+            }
+            mappingData.requestPath.setBytes(b, pathStart, end);
+            mappingData.matchedPath = toString(b, pathStart, end);
+            return true;
+        }
+        
+        // Rule 4 -- Welcome resources are matched by the Mapper
+        if (b[end - 1] == '/' && ctx.hasWelcomeResources) {
+            return false;
+        }
+        
+        // Rule 3 -- Extension Match
+        w = null;
+        for (int i = end - 1; i >= pathStart; i--) {
+            final byte c = b[i];
+            if (c == '/') {
+                break;
+            } else if (c == '.') {
+                w = (CompiledWrapper) exact(ctx.extensionWrappers, b, i + 1, end);
+                break;
+            }
+        }
+        
+        if (w != null) {
+            setContext(mappingData, ctx);
+            setWrapper(mappingData, w, MappingData.EXTENSION);
+        } else if (ctx.defaultWrapper != null) {
+            // Rule 7 -- Default servlet
+            setContext(mappingData, ctx);
+            setWrapper(mappingData, ctx.defaultWrapper, MappingData.DEFAULT);
+            mappingData.descriptorPath = "/";
+        } else {
+            // the context itself is the mapping result
+            return false;
+        }
+        
+        mappingData.wrapperPath.setBytes(b, pathStart, end);
+        mappingData.requestPath.setBytes(b, pathStart, end);
+        mappingData.matchedPath = toString(b, pathStart, end);
+        return true;
+    }
+    
+    private void setContext(final MappingData mappingData,
+            final CompiledContext ctx) {
+        mappingData.host = host;
+        mappingData.context = ctx.object;
+        mappingData.contextPath.setString(ctx.name);
+    }
+
+    private static void setWrapper(final MappingData mappingData,
+            final CompiledWrapper w, final byte mappingType) {
+        mappingData.wrapper = w.object;
+        mappingData.servletName = w.servletName;
+        mappingData.descriptorPath = w.path;
+        mappingData.mappingType = mappingType;
+    }
+    
+    /**
+     * @return <tt>true</tt>, if the path is an absolute, ASCII path, which
+     *  doesn't need to be decoded or normalized
+     */
+    static boolean isPlainPath(final byte[] b, final int start, final int end) {
+        if (start == end || b[start] != '/') {
+            return false;
+        }
+        
+        for (int i = start; i < end; i++) {
+            final byte c = b[i];
+            if (c <= ' ' || c >= 0x7F || c == '%' || c == ';' || c == '\\') {
+                return false;
+            }
+            
+            if (c == '/' && i + 1 < end) {
+                final byte c1 = b[i + 1];
+                if (c1 == '/') {
+                    return false;
+                }
+                
+                if (c1 == '.') {
+                    // "/." or "/.."
+                    if (i + 2 == end || b[i + 2] == '/'
+                            || (b[i + 2] == '.'
+                            && (i + 3 == end || b[i + 3] == '/'))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        
+        return true;
+    }
+
+    private static String toString(final byte[] b, final int start,
+            final int end) {
+        return new String(b, start, end - start, Charsets.ASCII_CHARSET);
+    }
+    
+    // --------------------------------------------------------- Radix tree
+    
+    /**
+     * Returns the value of the key, which matches the whole given range.
+     */
+    private static Object exact(final Node root, final byte[] b,
+            int pos, final int end) {
+        Node node = root;
+        while (pos < end) {
+            node = node.child(b[pos]);
+            if (node == null || !node.matchesLabel(b, pos, end)) {
+                return null;
+            }
+            
+            pos += node.label.length;
+        }
+        
+        return node.value;
+    }
+
+    /**
+     * Returns the value of the longest key, which is a prefix of the given
+     * range followed by '/' or the range end.
+     */
+    private static Object longestPrefix(final Node root, final byte[] b,
+            int pos, final int end) {
+        Object result = root.value != null && (pos == end || b[pos] == '/')
+                ? root.value
+                : null;
+        
+        Node node = root;
+        while (pos < end) {
+            node = node.child(b[pos]);
+            if (node == null || !node.matchesLabel(b, pos, end)) {
+                break;
+            }
+            
+            pos += node.label.length;
+            if (node.value != null && (pos == end || b[pos] == '/')) {
+                result = node.value;
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Immutable radix tree node.
+     */
+    private static final class Node {
+        private static final byte[] EMPTY = new byte[0];
+        
+        /**
+         * The bytes of the edge leading to this node.
+         */
+        private final byte[] label;
+        private final Object value;
+        /**
+         * The first label bytes of the children, sorted.
+         */
+        private final byte[] childKeys;
+        private final Node[] children;
+
+        private Node(final byte[] label, final Object value,
+                final byte[] childKeys, final Node[] children) {
+            this.label = label;
+            this.value = value;
+            this.childKeys = childKeys;
+            this.children = children;
+        }
+        
+        private Node child(final byte b) {
+            final int idx = Arrays.binarySearch(childKeys, b);
+            return idx >= 0 ? children[idx] : null;
+        }
+        
+        private boolean matchesLabel(final byte[] b, final int pos,
+                final int end) {
+            final byte[] l = label;
+            if (end - pos < l.length) {
+                return false;
+            }
+            
+            // the first byte has been matched by child(byte)
+            for (int i = 1; i < l.length; i++) {
+                if (b[pos + i] != l[i]) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+    }
+
+    /**
+     * Mutable byte-per-level trie used to build the radix tree.
+     */
+    private static final class TrieNode {
+        private Object value;
+        private final TreeMap<Byte, TrieNode> children =
+                new TreeMap<Byte, TrieNode>();
+
+        private void put(final byte[] key, final Object value) {
+            TrieNode node = this;
+            for (byte b : key) {
+                TrieNode child = node.children.get(b);
+                if (child == null) {
+                    child = new TrieNode();
+                    node.children.put(b, child);
+                }
+                node = child;
+            }
+            
+            node.value = value;
+        }
+        
+        private Node compile(final byte[] label) {
+            TrieNode node = this;
+            byte[] l = label;
+            // the root node has no label, other nodes absorb the chain of
+            // their single-child descendants without values
+            if (label.length > 0) {
+                while (node.value == null && node.children.size() == 1) {
+                    final Map.Entry<Byte, TrieNode> e =
+                            node.children.firstEntry();
+                    l = Arrays.copyOf(l, l.length + 1);
+                    l[l.length - 1] = e.getKey();
+                    node = e.getValue();
+                }
+            }
+            
+            final byte[] keys = new byte[node.children.size()];
+            final Node[] nodes = new Node[keys.length];
+            int i = 0;
+            for (Map.Entry<Byte, TrieNode> e : node.children.entrySet()) {
+                keys[i] = e.getKey();
+                nodes[i] = e.getValue().compile(new byte[] {e.getKey()});
+                i++;
+            }
+            
+            return new Node(l, node.value, keys, nodes);
+        }
+    }
+    
+    private static Node compile(final List<? extends Named> elements) {
+        final TrieNode root = new TrieNode();
+        for (Named element : elements) {
+            root.put(element.key(), element);
+        }
+        
+        return root.compile(Node.EMPTY);
+    }
+    
+    // --------------------------------------------------------- Compilation
+    
+    /**
+     * Compiles the default host mappings of the {@link Mapper}.
+     * 
+     * @return the {@link RouteTree}, or <tt>null</tt> if the {@link Mapper}
+     *  configuration isn't supported (virtual hosts or default contexts)
+     */
+    static RouteTree compile(final Mapper mapper) {
+        final Mapper.Host[] hosts = mapper.hosts;
+        if (hosts.length != 1 || mapper.defaultHostName == null
+                || !mapper.defaultHostName.equalsIgnoreCase(hosts[0].name)) {
+            return null;
+        }
+        
+        final Mapper.Host host = hosts[0];
+        if (host.defaultContexts != null && host.defaultContexts[0] != null) {
+            return null;
+        }
+        
+        final List<CompiledContext> contexts = new ArrayList<CompiledContext>();
+        int size = 0;
+        for (Mapper.Context context : host.contextList.contexts) {
+            final CompiledContext ctx = new CompiledContext(context);
+            contexts.add(ctx);
+            size += ctx.size + 1;
+        }
+        
+        return new RouteTree(host.object, compile(contexts), size);
+    }
+    
+    private static abstract class Named {
+        final String name;
+        final int length;
+        
+        Named(final String name) {
+            this.name = name;
+            length = key().length;
+        }
+
+        byte[] key() {
+            return name.getBytes(Charsets.UTF8_CHARSET);
+        }
+    }
+
+    private static final class CompiledContext extends Named {
+        private final Object object;
+        /**
+         * <tt>false</tt>, if the context uses the features only the
+         * {@link Mapper} supports (resources or JSP wildcard mappings).
+         */
+        private final boolean compiled;
+        private final boolean hasWelcomeResources;
+        private final CompiledWrapper defaultWrapper;
+        private final CompiledWrapper emptyPathWrapper;
+        private final Node exactWrappers;
+        private final Node wildcardWrappers;
+        private final Node extensionWrappers;
+        private final int size;
+
+        private CompiledContext(final Mapper.Context context) {
+            super(context.name);
+            object = context.object;
+            hasWelcomeResources = context.welcomeResources != null
+                    && context.welcomeResources.length > 0;
+            defaultWrapper = wrapper(context.defaultWrapper);
+            emptyPathWrapper = wrapper(context.emptyPathWrapper);
+            
+            boolean jspWildCard = false;
+            for (Mapper.Wrapper wrapper : context.wildcardWrappers) {
+                jspWildCard |= wrapper.jspWildCard;
+            }
+            compiled = context.resources == null && !jspWildCard;
+            
+            exactWrappers = RouteTree.compile(wrappers(context.exactWrappers));
+            wildcardWrappers = RouteTree.compile(wrappers(context.wildcardWrappers));
+            extensionWrappers = RouteTree.compile(wrappers(context.extensionWrappers));
+            size = context.exactWrappers.length
+                    + context.wildcardWrappers.length
+                    + context.extensionWrappers.length
+                    + (context.defaultWrapper != null ? 1 : 0)
+                    + (context.emptyPathWrapper != null ? 1 : 0);
+        }
+        
+        private static List<CompiledWrapper> wrappers(
+                final Mapper.Wrapper[] wrappers) {
+            final List<CompiledWrapper> result =
+                    new ArrayList<CompiledWrapper>(wrappers.length);
+            for (Mapper.Wrapper wrapper : wrappers) {
+                result.add(new CompiledWrapper(wrapper));
+            }
+            
+            return result;
+        }
+
+        private static CompiledWrapper wrapper(final Mapper.Wrapper wrapper) {
+            return wrapper != null ? new CompiledWrapper(wrapper) : null;
+        }
+    }
+    
+    private static final class CompiledWrapper extends Named {
+        private final Object object;
+        private final String path;
+        private final String servletName;
+
+        private CompiledWrapper(final Mapper.Wrapper wrapper) {
+            super(wrapper.name);
+            object = wrapper.object;
+            path = wrapper.path;
+            servletName = wrapper.servletName;
+        }
+    }
+}
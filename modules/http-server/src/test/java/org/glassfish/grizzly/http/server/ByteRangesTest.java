@@ -0,0 +1,177 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.http.server.util.ByteRanges;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link ByteRanges} tests.
+ */
+public class ByteRangesTest {
+    
+    @Test
+    public void testSingleRange() {
+        assertRanges(ByteRanges.parse("bytes=0-499", 10000), 0, 499);
+        assertRanges(ByteRanges.parse("bytes=500-999", 10000), 500, 999);
+        assertRanges(ByteRanges.parse("bytes=-500", 10000), 9500, 9999);
+        assertRanges(ByteRanges.parse("bytes=9500-", 10000), 9500, 9999);
+        assertRanges(ByteRanges.parse("Bytes = 0-0", 10000), 0, 0);
+        // the last position is truncated
+        assertRanges(ByteRanges.parse("bytes=9000-20000", 10000), 9000, 9999);
+        // the suffix is larger than the representation
+        assertRanges(ByteRanges.parse("bytes=-20000", 10000), 0, 9999);
+        
+        final ByteRanges ranges = ByteRanges.parse("bytes=500-999", 10000);
+        assertFalse(ranges.isMultipart());
+        assertEquals(500, ranges.getLength(0));
+        assertEquals("bytes 500-999/10000", ranges.getContentRange(0));
+        assertNull(ranges.getCloseDelimiter());
+    }
+    
+    @Test
+    public void testMultipleRanges() {
+        final ByteRanges ranges = ByteRanges.parse(
+                "bytes=0-99, 200-299,,-100", 10000);
+        assertRanges(ranges, 0, 99, 200, 299, 9900, 9999);
+        assertTrue(ranges.isMultipart());
+        assertNotNull(ranges.getCloseDelimiter());
+        
+        // the overlapping and adjacent ranges are coalesced and sorted
+        assertRanges(ByteRanges.parse("bytes=500-600,601-999", 10000), 500, 999);
+        assertRanges(ByteRanges.parse("bytes=-100,0-10,5-20,50-60", 10000),
+                0, 20, 50, 60, 9900, 9999);
+        
+        // the unsatisfiable ranges are skipped
+        assertRanges(ByteRanges.parse("bytes=0-9,20000-", 10000), 0, 9);
+    }
+    
+    @Test
+    public void testNotSatisfiable() {
+        ByteRanges ranges = ByteRanges.parse("bytes=10000-", 10000);
+        assertNotNull(ranges);
+        assertFalse(ranges.isSatisfiable());
+        
+        ranges = ByteRanges.parse("bytes=-0", 10000);
+        assertNotNull(ranges);
+        assertFalse(ranges.isSatisfiable());
+        
+        ranges = ByteRanges.parse("bytes=0-10", 0);
+        assertNotNull(ranges);
+        assertFalse(ranges.isSatisfiable());
+    }
+    
+    @Test
+    public void testInvalid() {
+        assertNull(ByteRanges.parse("bytes=", 10000));
+        assertNull(ByteRanges.parse("bytes=abc", 10000));
+        assertNull(ByteRanges.parse("bytes=10-5", 10000));
+        assertNull(ByteRanges.parse("bytes=0-5,x", 10000));
+        assertNull(ByteRanges.parse("bytes=1-2-3", 10000));
+        assertNull(ByteRanges.parse("items=0-5", 10000));
+        assertNull(ByteRanges.parse("0-5", 10000));
+        
+        // too many ranges
+        final StringBuilder sb = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= 16; i++) {
+            sb.append(',').append(i * 10).append('-').append(i * 10);
+        }
+        assertNull(ByteRanges.parse(sb.toString(), 10000));
+    }
+    
+    @Test
+    public void testIfRange() {
+        final String eTag = "\"100-1000\"";
+        final long lastModified = 1000000000000L;
+        final String date = "Sun, 09 Sep 2001 01:46:40 GMT";
+        
+        assertNotNull(ByteRanges.parse(request("bytes=0-1", null),
+                eTag, lastModified, 100));
+        assertNotNull(ByteRanges.parse(request("bytes=0-1", eTag),
+                eTag, lastModified, 100));
+        assertNull(ByteRanges.parse(request("bytes=0-1", "\"other\""),
+                eTag, lastModified, 100));
+        // weak entity tags never match
+        assertNull(ByteRanges.parse(request("bytes=0-1", "W/" + eTag),
+                "W/" + eTag, lastModified, 100));
+        assertNotNull(ByteRanges.parse(request("bytes=0-1", date),
+                eTag, lastModified, 100));
+        assertNull(ByteRanges.parse(request("bytes=0-1", date),
+                eTag, lastModified + 1000, 100));
+        
+        // only GET requests have ranges
+        final HttpRequestPacket head = request("bytes=0-1", null);
+        head.setMethod(Method.HEAD);
+        assertNull(ByteRanges.parse(head, eTag, lastModified, 100));
+        
+        assertNull(ByteRanges.parse(request(null, null), eTag, lastModified, 100));
+    }
+    
+    private static HttpRequestPacket request(final String range,
+            final String ifRange) {
+        final HttpRequestPacket.Builder builder = HttpRequestPacket.builder()
+                .method(Method.GET)
+                .uri("/file")
+                .protocol(Protocol.HTTP_1_1);
+        if (range != null) {
+            builder.header("Range", range);
+        }
+        if (ifRange != null) {
+            builder.header("If-Range", ifRange);
+        }
+        
+        return builder.build();
+    }
+    
+    private static void assertRanges(final ByteRanges ranges,
+            final long... expected) {
+        assertNotNull(ranges);
+        assertEquals(expected.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            assertEquals(expected[i * 2], ranges.getFirst(i));
+            assertEquals(expected[i * 2 + 1], ranges.getLast(i));
+        }
+    }
+}
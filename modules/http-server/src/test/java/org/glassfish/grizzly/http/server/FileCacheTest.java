@@ -57,6 +57,7 @@ import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.http.ContentEncoding;
 import org.glassfish.grizzly.http.GZipContentEncoding;
 import org.glassfish.grizzly.http.HttpClientFilter;
 import org.glassfish.grizzly.http.HttpContent;
@@ -69,6 +70,8 @@ import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
 import org.glassfish.grizzly.ssl.SSLFilter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -87,6 +90,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 import org.glassfish.grizzly.http.CompressionConfig.CompressionMode;
 
 import org.glassfish.grizzly.http.server.filecache.FileCacheProbe;
@@ -1119,6 +1123,336 @@ public class FileCacheTest {
     }
 
 
+    @Test
+    public void testRanges() throws Exception {
+        final File file = createTempFile();
+        final String requestPath = "/" + file.getName();
+        startHttpServer(new StaticHttpHandler(file.getParent()) {
+        });
+
+        InputStream fis = new FileInputStream(file);
+        byte[] data = new byte[(int) file.length()];
+        fis.read(data);
+        fis.close();
+
+        final String pattern = new String(data);
+        final int length = pattern.length();
+        final ReusableFuture<HttpContent> responseFuture =
+                new ReusableFuture<HttpContent>();
+        final Connection c = getConnection("localhost", PORT, responseFuture);
+
+        // the first response is sent by the StaticHttpHandler,
+        // the second one is sent from the file cache
+        for (int i = 0; i < 2; i++) {
+            final HttpContent response = requestRange(c, responseFuture,
+                    requestPath, "bytes=10-19", null);
+            final HttpResponsePacket header =
+                    (HttpResponsePacket) response.getHttpHeader();
+            assertEquals(206, header.getStatus());
+            assertEquals("bytes", header.getHeader("Accept-Ranges"));
+            assertEquals("bytes 10-19/" + length,
+                    header.getHeader("Content-Range"));
+            assertEquals(pattern.substring(10, 20),
+                    response.getContent().toStringContent());
+        }
+        
+        // multiple ranges are served as sorted multipart/byteranges
+        HttpContent response = requestRange(c, responseFuture, requestPath,
+                "bytes=-5,0-4", null);
+        HttpResponsePacket header = (HttpResponsePacket) response.getHttpHeader();
+        assertEquals(206, header.getStatus());
+        final String contentType = header.getHeader("Content-Type");
+        final String prefix = "multipart/byteranges; boundary=";
+        assertTrue(contentType, contentType.startsWith(prefix));
+        final String boundary = contentType.substring(prefix.length());
+        final String expected =
+                "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\n"
+                + "Content-Range: bytes 0-4/" + length + "\r\n\r\n"
+                + pattern.substring(0, 5)
+                + "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\n"
+                + "Content-Range: bytes " + (length - 5) + "-" + (length - 1)
+                + "/" + length + "\r\n\r\n"
+                + pattern.substring(length - 5)
+                + "\r\n--" + boundary + "--\r\n";
+        assertEquals(expected, response.getContent().toStringContent());
+        assertEquals(expected.length(), header.getContentLength());
+        
+        // If-Range doesn't match - the entire file is sent
+        response = requestRange(c, responseFuture, requestPath,
+                "bytes=0-4", "\"other\"");
+        header = (HttpResponsePacket) response.getHttpHeader();
+        assertEquals(200, header.getStatus());
+        assertEquals(pattern, response.getContent().toStringContent());
+        
+        // If-Range matches
+        response = requestRange(c, responseFuture, requestPath,
+                "bytes=0-4", header.getHeader("ETag"));
+        header = (HttpResponsePacket) response.getHttpHeader();
+        assertEquals(206, header.getStatus());
+        assertEquals(pattern.substring(0, 5),
+                response.getContent().toStringContent());
+        
+        // not satisfiable
+        response = requestRange(c, responseFuture, requestPath,
+                "bytes=" + length + "-", null);
+        header = (HttpResponsePacket) response.getHttpHeader();
+        assertEquals(416, header.getStatus());
+        assertEquals("bytes */" + length, header.getHeader("Content-Range"));
+        assertFalse(response.getContent().hasRemaining());
+    }
+    
+    @Test
+    public void testFrequentlyUsedEntriesStayCached() throws Exception {
+        final File hotFile = createTempFile();
+        final File[] coldFiles = new File[30];
+        for (int i = 0; i < coldFiles.length; i++) {
+            coldFiles[i] = createTempFile();
+        }
+
+        final StatsCacheProbe cacheProbe = new StatsCacheProbe();
+        httpServer.getServerConfiguration().getMonitoringConfig().getFileCacheConfig().addProbes(cacheProbe);
+        httpServer.getListener("grizzly").getFileCache().setMaxCacheEntries(10);
+        startHttpServer(new StaticHttpHandler(hotFile.getParent()) {
+        });
+
+        final ReusableFuture<HttpContent> responseFuture =
+                new ReusableFuture<HttpContent>();
+        final Connection c = getConnection("localhost", PORT, responseFuture);
+
+        // fill the cache with files requested only once
+        for (int i = 0; i < 10; i++) {
+            requestFile(c, responseFuture, "/" + coldFiles[i].getName());
+        }
+        assertEquals(cacheProbe.toString(), 10, cacheProbe.getEntryAddedCounter());
+
+        // a file requested repeatedly still gets cached
+        int hits = cacheProbe.getEntryHitCounter();
+        for (int i = 0; i < 5; i++) {
+            requestFile(c, responseFuture, "/" + hotFile.getName());
+        }
+        assertEquals(cacheProbe.toString(), hits + 4, cacheProbe.getEntryHitCounter());
+
+        // and it isn't evicted by a scan of files requested only once
+        for (int i = 10; i < coldFiles.length; i++) {
+            requestFile(c, responseFuture, "/" + coldFiles[i].getName());
+        }
+        hits = cacheProbe.getEntryHitCounter();
+        requestFile(c, responseFuture, "/" + hotFile.getName());
+        assertEquals(cacheProbe.toString(), hits + 1, cacheProbe.getEntryHitCounter());
+
+        assertTrue(cacheProbe.toString(), cacheProbe.getEntryEvictedCounter() > 0);
+        assertTrue(cacheProbe.toString(), cacheProbe.getEntryRejectedCounter() > 0);
+        assertEquals(cacheProbe.toString(), 10, cacheProbe.getEntryAddedCounter()
+                - cacheProbe.getEntryRemovedCounter());
+    }
+
+    @Test
+    public void testFileWatchInvalidation() throws Exception {
+        final File file = createTempFile();
+        final String requestPath = "/" + file.getName();
+
+        final StatsCacheProbe cacheProbe = new StatsCacheProbe();
+        httpServer.getServerConfiguration().getMonitoringConfig().getFileCacheConfig().addProbes(cacheProbe);
+        httpServer.getListener("grizzly").getFileCache().setFileWatchEnabled(true);
+        startHttpServer(new StaticHttpHandler(file.getParent()) {
+        });
+
+        final ReusableFuture<HttpContent> responseFuture =
+                new ReusableFuture<HttpContent>();
+        final Connection c = getConnection("localhost", PORT, responseFuture);
+
+        requestFile(c, responseFuture, requestPath);
+        final int hits = cacheProbe.getEntryHitCounter();
+        requestFile(c, responseFuture, requestPath);
+        assertEquals(cacheProbe.toString(), hits + 1, cacheProbe.getEntryHitCounter());
+
+        final String newContent = "modified content";
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(newContent.getBytes());
+        } finally {
+            out.close();
+        }
+
+        // the modified file is removed from the cache and served again
+        String content = null;
+        for (int i = 0; i < 100 && !newContent.equals(content); i++) {
+            Thread.sleep(100);
+            content = requestFile(c, responseFuture, requestPath)
+                    .getContent().toStringContent();
+        }
+        assertEquals(cacheProbe.toString(), newContent, content);
+        assertTrue(cacheProbe.toString(), cacheProbe.getEntryRemovedCounter() > 0);
+    }
+
+    @Test
+    public void testPrecompressedFiles() throws Exception {
+        final File file = createTempFile();
+        final String requestPath = "/" + file.getName();
+        final File brFile = new File(file.getPath() + ".br");
+        brFile.deleteOnExit();
+        final String brContent = "br encoded content";
+        final FileOutputStream out = new FileOutputStream(brFile);
+        try {
+            out.write(brContent.getBytes());
+        } finally {
+            out.close();
+        }
+        brFile.setLastModified(file.lastModified());
+
+        final StatsCacheProbe cacheProbe = new StatsCacheProbe();
+        httpServer.getServerConfiguration().getMonitoringConfig().getFileCacheConfig().addProbes(cacheProbe);
+        httpServer.getListener("grizzly").getFileCache().setPrecompressedFilesEnabled(true);
+        final StaticHttpHandler httpHandler = new StaticHttpHandler(file.getParent());
+        httpHandler.setPrecompressedFilesEnabled(true);
+        startHttpServer(httpHandler);
+
+        final ReusableFuture<HttpContent> responseFuture =
+                new ReusableFuture<HttpContent>();
+        final Connection c = getConnection("localhost", PORT, responseFuture);
+
+        // the first response is sent by the StaticHttpHandler,
+        // the second one is sent from the file cache
+        final String eTag = "\"" + file.length() + "-" + file.lastModified() + "\"";
+        for (int i = 0; i < 2; i++) {
+            final HttpContent response = requestFile(c, responseFuture,
+                    requestPath, "gzip;q=0.8, br");
+            final HttpResponsePacket header =
+                    (HttpResponsePacket) response.getHttpHeader();
+            assertEquals("br", header.getHeader("Content-Encoding"));
+            assertEquals("Accept-Encoding", header.getHeader("Vary"));
+            assertEquals(eTag.substring(0, eTag.length() - 1) + "-br\"",
+                    header.getHeader("ETag"));
+            assertEquals(brContent, response.getContent().toStringContent());
+        }
+        assertEquals(cacheProbe.toString(), 1, cacheProbe.getEntryHitCounter());
+
+        // the identity representation is preferred
+        final HttpContent response = requestFile(c, responseFuture,
+                requestPath, "br;q=0.5, identity");
+        final HttpResponsePacket header =
+                (HttpResponsePacket) response.getHttpHeader();
+        assertNull(header.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", header.getHeader("Vary"));
+        assertEquals(eTag, header.getHeader("ETag"));
+        assertEquals(file.length(), response.getContent().remaining());
+        assertEquals(cacheProbe.toString(), 2, cacheProbe.getEntryHitCounter());
+    }
+
+    @Test
+    public void testBackgroundCompression() throws Exception {
+        final File file = createTempFile();
+        final String requestPath = "/" + file.getName();
+
+        final StatsCacheProbe cacheProbe = new StatsCacheProbe();
+        httpServer.getServerConfiguration().getMonitoringConfig().getFileCacheConfig().addProbes(cacheProbe);
+        httpServer.getListener("grizzly").getFileCache().getCompressionConfig().setCompressionMode(CompressionMode.FORCE);
+        startHttpServer(new StaticHttpHandler(file.getParent()) {
+        });
+
+        InputStream fis = new FileInputStream(file);
+        byte[] data = new byte[(int) file.length()];
+        fis.read(data);
+        fis.close();
+
+        final String pattern = new String(data);
+        final ReusableFuture<HttpContent> responseFuture =
+                new ReusableFuture<HttpContent>();
+        // the client doesn't decode gzip, so the served encoding is visible
+        final Connection c = getConnection("localhost", PORT, responseFuture,
+                false);
+
+        // the entry is served uncompressed, until it's compressed
+        // in the background
+        for (int i = 0; i < 100 && cacheProbe.getEntryCompressedCounter() == 0; i++) {
+            assertEquals(pattern, decodeContent(requestFile(c, responseFuture,
+                    requestPath, "gzip")));
+            Thread.sleep(10);
+        }
+        assertEquals(cacheProbe.toString(), 1, cacheProbe.getEntryCompressedCounter());
+
+        for (int i = 0; i < 2; i++) {
+            final HttpContent response = requestFile(c, responseFuture,
+                    requestPath, "gzip");
+            assertEquals("gzip",
+                    response.getHttpHeader().getHeader("Content-Encoding"));
+            assertEquals(pattern, decodeContent(response));
+        }
+        assertEquals(cacheProbe.toString(), 1, cacheProbe.getEntryCompressedCounter());
+    }
+
+    /**
+     * @return the response content, un-gzipped if the response is gzipped.
+     */
+    private static String decodeContent(final HttpContent response)
+            throws IOException {
+        final Buffer content = response.getContent();
+        final byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        if (!"gzip".equals(response.getHttpHeader().getHeader("Content-Encoding"))) {
+            return new String(bytes);
+        }
+
+        final GZIPInputStream in =
+                new GZIPInputStream(new ByteArrayInputStream(bytes));
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[1024];
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                out.write(buf, 0, len);
+            }
+            return new String(out.toByteArray());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static HttpContent requestFile(final Connection c,
+            final ReusableFuture<HttpContent> responseFuture,
+            final String requestPath) throws Exception {
+        return requestFile(c, responseFuture, requestPath, null);
+    }
+
+    private static HttpContent requestFile(final Connection c,
+            final ReusableFuture<HttpContent> responseFuture,
+            final String requestPath, final String acceptEncoding)
+            throws Exception {
+        final HttpRequestPacket.Builder builder = HttpRequestPacket.builder()
+                .method("GET")
+                .uri(requestPath)
+                .protocol("HTTP/1.1")
+                .header("Host", "localhost");
+        if (acceptEncoding != null) {
+            builder.header("Accept-Encoding", acceptEncoding);
+        }
+
+        responseFuture.reset();
+        c.write(builder.build());
+        final HttpContent response = responseFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(200, ((HttpResponsePacket) response.getHttpHeader()).getStatus());
+        return response;
+    }
+    
+    private static HttpContent requestRange(final Connection c,
+            final ReusableFuture<HttpContent> responseFuture,
+            final String requestPath, final String range,
+            final String ifRange) throws Exception {
+        final HttpRequestPacket.Builder builder = HttpRequestPacket.builder()
+                .method("GET")
+                .uri(requestPath)
+                .protocol("HTTP/1.1")
+                .header("Host", "localhost")
+                .header("Range", range);
+        if (ifRange != null) {
+            builder.header("If-Range", ifRange);
+        }
+        
+        responseFuture.reset();
+        c.write(builder.build());
+        return responseFuture.get(10, TimeUnit.SECONDS);
+    }
+
     private void configureHttpServer() throws Exception {
         httpServer = new HttpServer();
         final NetworkListener listener =
@@ -1142,6 +1476,14 @@ public class FileCacheTest {
                                      int port,
                                      FutureImpl<HttpContent> future)
     throws Exception {
+        return getConnection(host, port, future, true);
+    }
+
+    private Connection getConnection(String host,
+                                     int port,
+                                     FutureImpl<HttpContent> future,
+                                     boolean decodeGZip)
+    throws Exception {
 
         final FilterChainBuilder builder = FilterChainBuilder.newInstance();
         builder.add(new TransportFilter());
@@ -1166,7 +1508,14 @@ public class FileCacheTest {
                 });
 
         final HttpClientFilter httpClientFilter = new HttpClientFilter();
-        httpClientFilter.addContentEncoding(gzipClientContentEncoding);
+        if (decodeGZip) {
+            httpClientFilter.addContentEncoding(gzipClientContentEncoding);
+        } else {
+            // drop the default gzip decoding to see the bytes as served
+            for (ContentEncoding encoding : httpClientFilter.getContentEncodings()) {
+                httpClientFilter.removeContentEncoding(encoding);
+            }
+        }
 
         builder.add(httpClientFilter);
         builder.add(new HttpMessageFilter(future));
@@ -1318,6 +1667,9 @@ public class FileCacheTest {
         final AtomicInteger entryHitCounter = new AtomicInteger();
         final AtomicInteger entryMissedCounter = new AtomicInteger();
         final AtomicInteger entryErrorCounter = new AtomicInteger();
+        final AtomicInteger entryEvictedCounter = new AtomicInteger();
+        final AtomicInteger entryRejectedCounter = new AtomicInteger();
+        final AtomicInteger entryCompressedCounter = new AtomicInteger();
 
         @Override
         public void onEntryAddedEvent(FileCache fileCache, FileCacheEntry entry) {
@@ -1344,6 +1696,21 @@ public class FileCacheTest {
             entryErrorCounter.incrementAndGet();
         }
 
+        @Override
+        public void onEntryEvictedEvent(FileCache fileCache, FileCacheEntry entry) {
+            entryEvictedCounter.incrementAndGet();
+        }
+
+        @Override
+        public void onEntryRejectedEvent(FileCache fileCache, FileCacheEntry entry) {
+            entryRejectedCounter.incrementAndGet();
+        }
+
+        @Override
+        public void onEntryCompressedEvent(FileCache fileCache, FileCacheEntry entry) {
+            entryCompressedCounter.incrementAndGet();
+        }
+
         public int getEntryAddedCounter() {
             return entryAddedCounter.get();
         }
@@ -1360,6 +1727,16 @@ public class FileCacheTest {
         public int getEntryErrorCounter() {
             return entryErrorCounter.get();
         }
+        public int getEntryEvictedCounter() {
+            return entryEvictedCounter.get();
+        }
+        public int getEntryRejectedCounter() {
+            return entryRejectedCounter.get();
+        }
+
+        public int getEntryCompressedCounter() {
+            return entryCompressedCounter.get();
+        }
 
         @Override
         public String toString() {
@@ -1369,6 +1746,9 @@ public class FileCacheTest {
             .append(", hit=").append(getEntryHitCounter())
             .append(", missed=").append(getEntryMissedCounter())
             .append(", error=").append(getEntryErrorCounter())
+            .append(", evicted=").append(getEntryEvictedCounter())
+            .append(", rejected=").append(getEntryRejectedCounter())
+            .append(", compressed=").append(getEntryCompressedCounter())
             .append("]");
 
             return sb.toString();
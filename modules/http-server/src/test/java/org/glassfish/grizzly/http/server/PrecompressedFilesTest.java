@@ -0,0 +1,93 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http.server;
+
+import java.io.File;
+import org.glassfish.grizzly.http.server.util.PrecompressedFiles;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link PrecompressedFiles} tests.
+ */
+public class PrecompressedFilesTest {
+    private static final int BR = 0;
+    private static final int ZSTD = 1;
+    private static final int GZIP = 2;
+    
+    private static final File[] ALL = {
+        new File("a.js.br"), new File("a.js.zst"), new File("a.js.gz")};
+    private static final File[] GZIP_ONLY = {null, null, new File("a.js.gz")};
+    
+    @Test
+    public void testNegotiate() {
+        assertEquals(-1, PrecompressedFiles.negotiate((String) null, ALL));
+        assertEquals(-1, PrecompressedFiles.negotiate("gzip", null));
+        assertEquals(-1, PrecompressedFiles.negotiate("deflate", ALL));
+        // equally acceptable - the best compression wins
+        assertEquals(BR, PrecompressedFiles.negotiate("gzip, deflate, br, zstd", ALL));
+        assertEquals(ZSTD, PrecompressedFiles.negotiate("gzip, zstd", ALL));
+        assertEquals(GZIP, PrecompressedFiles.negotiate("gzip, br", GZIP_ONLY));
+        assertEquals(GZIP, PrecompressedFiles.negotiate("x-gzip", ALL));
+        assertEquals(BR, PrecompressedFiles.negotiate("*", ALL));
+    }
+    
+    @Test
+    public void testNegotiateQuality() {
+        assertEquals(GZIP, PrecompressedFiles.negotiate("br;q=0.5, gzip", ALL));
+        assertEquals(ZSTD, PrecompressedFiles.negotiate("br ; q=0.5,zstd;Q=0.501, identity;q=0.1", ALL));
+        assertEquals(ZSTD, PrecompressedFiles.negotiate("br;q=0, *;q=0.1, identity;q=0", ALL));
+        assertEquals(-1, PrecompressedFiles.negotiate("gzip;q=0", ALL));
+        assertEquals(-1, PrecompressedFiles.negotiate("br;q=0.5, identity", ALL));
+        assertEquals(BR, PrecompressedFiles.negotiate("br, identity;q=0.5", ALL));
+        assertEquals(BR, PrecompressedFiles.negotiate("br;q=0.5, *;q=0", ALL));
+        // invalid qualities aren't acceptable
+        assertEquals(-1, PrecompressedFiles.negotiate("br;q=2", ALL));
+        assertEquals(-1, PrecompressedFiles.negotiate("br;q=0.1234", ALL));
+        assertEquals(-1, PrecompressedFiles.negotiate("br;q=x", ALL));
+    }
+    
+    @Test
+    public void testETag() {
+        assertEquals("\"10-20-br\"", PrecompressedFiles.getETag("\"10-20\"", BR));
+        assertEquals("W/\"x-gzip\"", PrecompressedFiles.getETag("W/\"x\"", GZIP));
+        assertNull(PrecompressedFiles.getETag(null, ZSTD));
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.glassfish.grizzly.http.server.util.Mapper;
+import org.glassfish.grizzly.http.server.util.MappingData;
+import org.glassfish.grizzly.http.server.util.RouteTree;
+import org.glassfish.grizzly.http.util.DataChunk;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link RouteTree} tests, which check the {@link RouteTree} mapping
+ * results are the same as the {@link Mapper} ones.
+ */
+public class RouteTreeTest {
+    private static final String HOST = "localhost";
+    private static final String[] NO_WELCOME = new String[0];
+    
+    @Test
+    public void testSameAsMapper() throws Exception {
+        final Mapper mapper = new Mapper();
+        mapper.setDefaultHostName(HOST);
+        mapper.addHost(HOST, new String[0], "host");
+        
+        mapper.addContext(HOST, "", "root", NO_WELCOME, null);
+        mapper.addWrapper(HOST, "", "", "root-empty");
+        mapper.addWrapper(HOST, "", "/status", "root-exact");
+        mapper.addWrapper(HOST, "", "/static/*", "root-static");
+        mapper.addWrapper(HOST, "", "*.jsp", "root-jsp");
+        mapper.addWrapper(HOST, "", "/", "root-default");
+        
+        mapper.addContext(HOST, "/app", "app", NO_WELCOME, null);
+        mapper.addWrapper(HOST, "/app", "/users", "app-users");
+        mapper.addWrapper(HOST, "/app", "/users/*", "app-users-prefix");
+        mapper.addWrapper(HOST, "/app", "/api/*", "app-api");
+        mapper.addWrapper(HOST, "/app", "/api/v2/*", "app-api-v2");
+        mapper.addWrapper(HOST, "/app", "*.do", "app-do");
+        
+        mapper.addContext(HOST, "/app/admin", "admin", NO_WELCOME, null);
+        mapper.addWrapper(HOST, "/app/admin", "/*", "admin-all");
+        
+        final RouteTree routeTree = mapper.compileRoutes();
+        assertNotNull(routeTree);
+        
+        final String[] mapped = {
+            "/", "/status", "/status/1", "/statusx", "/static", "/static/",
+            "/static/css/a.css", "/index.jsp", "/a/b/index.jsp", "/a.jsp/b",
+            "/app/users", "/app/users/", "/app/users/42",
+            "/app/api", "/app/api/orders/1", "/app/api/v2", "/app/api/v2/x",
+            "/app/api/v22", "/app/form.do", "/app/x/form.do",
+            "/app/admin/", "/app/admin/a/b",
+            "/apps/users", "/unknown/path"
+        };
+        
+        for (String uri : mapped) {
+            assertSameMapping(mapper, routeTree, uri, true);
+        }
+        
+        // the context itself, a redirect or a URI, which has to be decoded
+        final String[] notMapped = {
+            "/app/", "/app/form.dox", "/app/administrator", "/app", "/app/admin", "/app/%75sers", "/app/users;jsessionid=1",
+            "/app/./users", "/app/x/../users", "/app//users", "", "*",
+            "/app/\u00e9"
+        };
+        
+        for (String uri : notMapped) {
+            assertSameMapping(mapper, routeTree, uri, false);
+        }
+    }
+    
+    @Test
+    public void testContextWithoutDefaultWrapper() throws Exception {
+        final Mapper mapper = new Mapper();
+        mapper.setDefaultHostName(HOST);
+        mapper.addContext(HOST, "/app", "app",
+                new String[] {"index.html"}, null);
+        mapper.addWrapper(HOST, "/app", "/users/*", "app-users");
+        mapper.addWrapper(HOST, "/app", "*.html", "app-html");
+        
+        final RouteTree routeTree = mapper.compileRoutes();
+        assertNotNull(routeTree);
+        
+        assertSameMapping(mapper, routeTree, "/app/users/1", true);
+        assertSameMapping(mapper, routeTree, "/app/a.html", true);
+        // the welcome resources and the context itself are mapped by Mapper
+        assertSameMapping(mapper, routeTree, "/app/", false);
+        assertSameMapping(mapper, routeTree, "/app/other", false);
+        assertSameMapping(mapper, routeTree, "/other", false);
+    }
+    
+    @Test
+    public void testVirtualHostsNotCompiled() throws Exception {
+        final Mapper mapper = new Mapper();
+        mapper.setDefaultHostName(HOST);
+        mapper.addHost(HOST, new String[0], "host");
+        mapper.addHost("host1", new String[0], "host1");
+        
+        assertNull(mapper.compileRoutes());
+    }
+    
+    @Test
+    public void testManyRoutes() throws Exception {
+        final Random random = new Random(20261018);
+        final Mapper mapper = new Mapper();
+        mapper.setDefaultHostName(HOST);
+        
+        final List<String> uris = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            final String ctx = "/ctx" + i;
+            mapper.addContext(HOST, ctx, ctx, null, null);
+            if (i % 2 == 0) {
+                mapper.addWrapper(HOST, ctx, "/", ctx + "-default");
+            }
+            
+            for (int j = 0; j < 40; j++) {
+                final String path = "/r" + random.nextInt(100) + "/s" + j;
+                mapper.addWrapper(HOST, ctx, path, ctx + path);
+                mapper.addWrapper(HOST, ctx, path + "/*", ctx + path + "/*");
+                uris.add(ctx + path);
+                uris.add(ctx + path + "/x" + j);
+                uris.add(ctx + path + "x");
+                uris.add(ctx + path.substring(0, path.lastIndexOf('/')));
+            }
+        }
+        
+        final RouteTree routeTree = mapper.compileRoutes();
+        assertNotNull(routeTree);
+        
+        for (String uri : uris) {
+            assertSameMapping(mapper, routeTree, uri, null);
+        }
+    }
+    
+    private static void assertSameMapping(final Mapper mapper,
+            final RouteTree routeTree, final String uri,
+            final Boolean expectMapped) throws Exception {
+        final MappingData expected = new MappingData();
+        final DataChunk host = DataChunk.newInstance();
+        host.setString(HOST);
+        final DataChunk decodedURI = DataChunk.newInstance();
+        decodedURI.setString(uri);
+        mapper.map(host, decodedURI, expected);
+        
+        final MappingData actual = new MappingData();
+        final DataChunk rawURI = DataChunk.newInstance();
+        final byte[] bytes = uri.getBytes("UTF-8");
+        rawURI.setBytes(bytes, 0, bytes.length);
+        final boolean isMapped = routeTree.map(rawURI, actual);
+        
+        if (expectMapped != null) {
+            assertEquals(uri, expectMapped, isMapped);
+        }
+        
+        if (!isMapped) {
+            assertNull(uri, actual.context);
+            assertNull(uri, actual.wrapper);
+            return;
+        }
+        
+        assertEquals(uri, expected.host, actual.host);
+        assertEquals(uri, expected.context, actual.context);
+        assertEquals(uri, expected.wrapper, actual.wrapper);
+        assertEquals(uri, expected.contextPath.toString(),
+                actual.contextPath.toString());
+        assertEquals(uri, expected.wrapperPath.toString(),
+                actual.wrapperPath.toString());
+        assertEquals(uri, expected.pathInfo.toString(),
+                actual.pathInfo.toString());
+        assertEquals(uri, expected.requestPath.toString(),
+                actual.requestPath.toString());
+        assertTrue(uri, expected.redirectPath.isNull());
+        assertEquals(uri, expected.mappingType, actual.mappingType);
+        assertEquals(uri, expected.servletName, actual.servletName);
+        assertEquals(uri, expected.descriptorPath, actual.descriptorPath);
+        assertEquals(uri, expected.matchedPath, actual.matchedPath);
+    }
+}
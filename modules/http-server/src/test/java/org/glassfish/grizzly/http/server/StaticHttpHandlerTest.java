@@ -40,6 +40,7 @@
 
 package org.glassfish.grizzly.http.server;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -265,6 +266,82 @@ public class StaticHttpHandlerTest {
         }        
     }
     
+    @Test
+    public void testSingleRange() throws Exception {
+        doTestRanges("bytes=1000-", new long[][] {{1000, 2 * 1024 * 1024 - 1}});
+    }
+    
+    @Test
+    public void testMultipleRanges() throws Exception {
+        final int fileSize = 2 * 1024 * 1024;
+        // the overlapping ranges are coalesced, the ranges are sorted
+        doTestRanges("bytes=1048576-1114111, 0-99, 50-199, -10",
+                new long[][] {{0, 199}, {1048576, 1114111},
+                    {fileSize - 10, fileSize - 1}});
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void doTestRanges(final String range, final long[][] expectedRanges)
+            throws Exception {
+        final int fileSize = 2 * 1024 * 1024;
+        final File control = generateTempFile(fileSize);
+        final byte[] controlBytes = Files.readAllBytes(control.toPath());
+        
+        final FutureImpl<File> result = Futures.<File>createSafeFuture();
+        final String[] contentType = new String[1];
+        
+        TCPNIOTransport client = createClient(result, new StaticHttpHandlerTest.ResponseValidator() {
+            @Override
+            public void validate(HttpResponsePacket response) {
+                assertEquals(206, response.getStatus());
+                if (expectedRanges.length == 1) {
+                    assertEquals("bytes " + expectedRanges[0][0] + "-"
+                            + expectedRanges[0][1] + "/" + fileSize,
+                            response.getHeader(Header.ContentRange));
+                }
+                contentType[0] = response.getHeader(Header.ContentType);
+            }
+        }, isSslEnabled);
+        try {
+            client.start();
+            Connection c = client.connect("localhost", PORT).get(10, TimeUnit.SECONDS);
+            
+            HttpRequestPacket request =
+                    HttpRequestPacket.builder().uri("/" + control.getName())
+                        .method(Method.GET)
+                        .protocol(Protocol.HTTP_1_1)
+                        .header("Host", "localhost:" + PORT)
+                        .header("Range", range).build();
+            c.write(request);
+            final File fResult = result.get(60, TimeUnit.SECONDS);
+            
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            if (expectedRanges.length == 1) {
+                expected.write(controlBytes, (int) expectedRanges[0][0],
+                        (int) (expectedRanges[0][1] - expectedRanges[0][0] + 1));
+            } else {
+                final String prefix = "multipart/byteranges; boundary=";
+                assertTrue(contentType[0], contentType[0].startsWith(prefix));
+                final String boundary = contentType[0].substring(prefix.length());
+                for (long[] r : expectedRanges) {
+                    expected.write(("\r\n--" + boundary + "\r\n"
+                            + "Content-Type: text/plain\r\n"
+                            + "Content-Range: bytes " + r[0] + "-" + r[1]
+                            + "/" + fileSize + "\r\n\r\n").getBytes("ASCII"));
+                    expected.write(controlBytes, (int) r[0],
+                            (int) (r[1] - r[0] + 1));
+                }
+                expected.write(("\r\n--" + boundary + "--\r\n").getBytes("ASCII"));
+            }
+            
+            assertArrayEquals(expected.toByteArray(),
+                    Files.readAllBytes(fResult.toPath()));
+            c.close();
+        } finally {
+            client.shutdownNow();
+        }
+    }
+    
     /**
      * Make sure we receive 301 redirect, when trying to access directory
      * without trailing slash.
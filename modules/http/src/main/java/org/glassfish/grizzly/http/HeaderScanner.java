@@ -0,0 +1,244 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.HttpCodecFilter.HeaderParsingState;
+
+/**
+ * Bulk HTTP header scanner, which checks 8 bytes at a time using
+ * SIMD-within-a-register (SWAR) arithmetic on <tt>long</tt> words.
+ * <p>
+ * The scanner only skips the "plain" part of the header name or value and
+ * stops at the first 8 byte word, which contains a byte requiring special
+ * treatment (colon, CR, LF, control or non-ASCII characters) or when less
+ * than 8 bytes are available. The {@link HttpCodecFilter} byte by byte
+ * state machine continues from the returned offset, so the parsing result
+ * is exactly the same as without the scanner.
+ */
+final class HeaderScanner {
+
+    /**
+     * Bulk scanning may be disabled using the
+     * <tt>org.glassfish.grizzly.http.HttpCodecFilter.bulkHeaderScan</tt>
+     * system property.
+     */
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(
+            HttpCodecFilter.class.getName() + ".bulkHeaderScan", "true"));
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final long COLONS = ONES * ':';
+    private static final long CRS = ONES * '\r';
+    private static final long LFS = ONES * '\n';
+    private static final long SPACES = ONES * ' ';
+
+    private HeaderScanner() {
+    }
+
+    /**
+     * Skips the header name bytes, which precede the word with the colon,
+     * converting them to lower case.
+     *
+     * @param view little-endian {@link ByteBuffer} view of the input array
+     * @param offset the absolute offset to start from
+     * @param limit the absolute offset to stop at
+     * @return the absolute offset the byte by byte parsing has to continue from
+     */
+    static int skipHeaderName(final ByteBuffer view, int offset,
+            final int limit) {
+        while (limit - offset >= 8) {
+            final long word = view.getLong(offset);
+            if ((matches(word, COLONS) | notVisible(word)) != 0) {
+                break;
+            }
+
+            final long lowerCaseWord = toLowerCase(word);
+            if (lowerCaseWord != word) {
+                view.putLong(offset, lowerCaseWord);
+            }
+
+            offset += 8;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Skips the header name bytes, which precede the word with the colon,
+     * optionally converting them to lower case.
+     *
+     * @param input the non-composite {@link Buffer}
+     * @param offset the offset to start from
+     * @param limit the offset to stop at
+     * @param toLowerCase <tt>true</tt> to convert the name to lower case
+     * @return the offset the byte by byte parsing has to continue from
+     */
+    static int skipHeaderName(final Buffer input, int offset,
+            final int limit, final boolean toLowerCase) {
+        while (limit - offset >= 8) {
+            final long word = input.getLong(offset);
+            if ((matches(word, COLONS) | notVisible(word)) != 0) {
+                break;
+            }
+
+            if (toLowerCase) {
+                final long lowerCaseWord = toLowerCase(word);
+                if (lowerCaseWord != word) {
+                    input.putLong(offset, lowerCaseWord);
+                }
+            }
+
+            offset += 8;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Skips the header value bytes, which precede the word with CR or LF,
+     * advancing the {@link HeaderParsingState#checkpoint} and
+     * {@link HeaderParsingState#checkpoint2} the same way the byte by byte
+     * parser does for a value, which doesn't have to be shifted.
+     *
+     * @param view little-endian {@link ByteBuffer} view of the input array
+     * @param parsingState the {@link HeaderParsingState}
+     * @param offset the absolute offset to start from
+     * @param limit the absolute offset to stop at
+     * @return the absolute offset the byte by byte parsing has to continue from
+     */
+    static int skipHeaderValue(final ByteBuffer view,
+            final HeaderParsingState parsingState, int offset,
+            final int limit) {
+        while (limit - offset >= 8) {
+            final long word = view.getLong(offset);
+            if (skipValueWord(parsingState, word, true)) {
+                break;
+            }
+
+            offset += 8;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Skips the header value bytes, which precede the word with CR or LF,
+     * advancing the {@link HeaderParsingState#checkpoint} and
+     * {@link HeaderParsingState#checkpoint2} the same way the byte by byte
+     * parser does for a value, which doesn't have to be shifted.
+     *
+     * @param input the non-composite {@link Buffer}
+     * @param parsingState the {@link HeaderParsingState}
+     * @param offset the offset to start from
+     * @param limit the offset to stop at
+     * @return the offset the byte by byte parsing has to continue from
+     */
+    static int skipHeaderValue(final Buffer input,
+            final HeaderParsingState parsingState, int offset,
+            final int limit) {
+        final boolean isLittleEndian = input.order() == ByteOrder.LITTLE_ENDIAN;
+        while (limit - offset >= 8) {
+            final long word = input.getLong(offset);
+            if (skipValueWord(parsingState, word, isLittleEndian)) {
+                break;
+            }
+
+            offset += 8;
+        }
+
+        return offset;
+    }
+
+    /**
+     * @return <tt>true</tt> if the word has CR or LF and has to be parsed
+     *         byte by byte, or <tt>false</tt> if the word has been skipped
+     */
+    private static boolean skipValueWord(final HeaderParsingState parsingState,
+            final long word, final boolean isLittleEndian) {
+        if ((matches(word, CRS) | matches(word, LFS)) != 0) {
+            return true;
+        }
+
+        final long nonSpaces = ~matches(word, SPACES) & HIGH_BITS;
+        if (nonSpaces != 0) {
+            final int lastNonSpaceIdx = isLittleEndian
+                    ? (63 - Long.numberOfLeadingZeros(nonSpaces)) >>> 3
+                    : 7 - (Long.numberOfTrailingZeros(nonSpaces) >>> 3);
+            parsingState.checkpoint2 = parsingState.checkpoint + lastNonSpaceIdx + 1;
+        }
+
+        parsingState.checkpoint += 8;
+        return false;
+    }
+
+    /**
+     * @return the word with the high bit set in every byte, which is equal to
+     *         the corresponding byte of the pattern, and all the other bits clear
+     */
+    static long matches(final long word, final long pattern) {
+        final long x = word ^ pattern;
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+    /**
+     * @return the word with the high bit set in every byte, which is not a
+     *         visible US-ASCII character (0x21 - 0x7E), and all the other bits clear
+     */
+    static long notVisible(final long word) {
+        final long low = word & LOW_BITS;
+        return (word | ~(low + 0x5F5F5F5F5F5F5F5FL) | (low + ONES)) & HIGH_BITS;
+    }
+
+    /**
+     * Converts the 'A'-'Z' bytes of the word, which has only US-ASCII bytes,
+     * to lower case.
+     */
+    static long toLowerCase(final long word) {
+        final long upperCase = (word + 0x3F3F3F3F3F3F3F3FL)
+                & ~(word + 0x2525252525252525L) & HIGH_BITS;
+        return word | (upperCase >>> 2);
+    }
+}
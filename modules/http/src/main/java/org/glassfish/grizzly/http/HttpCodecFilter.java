@@ -41,6 +41,8 @@
 package org.glassfish.grizzly.http;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
@@ -56,7 +58,9 @@ import org.glassfish.grizzly.http.util.ByteChunk;
 import org.glassfish.grizzly.http.util.CacheableDataChunk;
 import org.glassfish.grizzly.http.util.Constants;
 import org.glassfish.grizzly.http.util.DataChunk;
+import org.glassfish.grizzly.http.util.FastHttpDateFormat;
 import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.HeaderValueCache;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.CompositeBuffer;
@@ -172,6 +176,15 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
     protected boolean preserveHeaderCase =
             Boolean.parseBoolean(System.getProperty("org.glassfish.grizzly.http.PRESERVE_HEADER_CASE", "false"));
 
+    /**
+     * The cache of frequently repeated header values, or <tt>null</tt>
+     * if disabled.
+     */
+    private volatile HeaderValueCache headerValueCache =
+            HeaderValueCache.DEFAULT_SIZE > 0
+            ? new HeaderValueCache(HeaderValueCache.DEFAULT_SIZE)
+            : null;
+
     /**
      * Method is responsible for parsing initial line of HTTP message (different
      * for {@link HttpRequestPacket} and {@link HttpResponsePacket}).
@@ -421,6 +434,33 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         this.preserveHeaderCase = preserveHeaderCase;
     }
 
+    /**
+     * @return the number of entries in the cache of frequently repeated header
+     * values (like <tt>Accept-Encoding</tt> or <tt>User-Agent</tt>), or
+     * <tt>0</tt> if the cache is disabled.
+     * 
+     * @since 3.0
+     */
+    public int getHeaderValueCacheSize() {
+        final HeaderValueCache cache = headerValueCache;
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * Sets the number of entries in the cache of frequently repeated header
+     * values (like <tt>Accept-Encoding</tt> or <tt>User-Agent</tt>). The
+     * parsed values found in the cache share the same {@link String} instance.
+     * <tt>0</tt> disables the cache.
+     * 
+     * @param headerValueCacheSize the number of cache entries
+     * @since 3.0
+     */
+    public void setHeaderValueCacheSize(final int headerValueCacheSize) {
+        headerValueCache = headerValueCacheSize > 0
+                ? new HeaderValueCache(headerValueCacheSize)
+                : null;
+    }
+
     /**
      * <p>
      * Gets registered {@link TransferEncoding}s.
@@ -888,15 +928,20 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         final int start = arrayOffs + parsingState.start;
         int offset = arrayOffs + parsingState.offset;
 
+        if (HeaderScanner.ENABLED) {
+            offset = HeaderScanner.skipHeaderName(
+                    parsingState.getArrayView(input), offset, limit);
+        }
+
         while(offset < limit) {
             byte b = input[offset];
             if (b == Constants.COLON) {
 
-                parsingState.headerValueStorage =
-                        mimeHeaders.addValue(input, start, offset - start);
+                final Header knownHeader = Header.find(input, start, offset);
+                parsingState.headerValueStorage = mimeHeaders.addValue(
+                        input, start, offset - start, knownHeader);
                 parsingState.offset = offset + 1 - arrayOffs;
-                finalizeKnownHeaderNames(httpHeader, parsingState, input,
-                        start, offset);
+                finalizeKnownHeaderNames(httpHeader, parsingState, knownHeader);
 
                 return true;
             } else if ((b >= Constants.A) && (b <= Constants.Z)) {
@@ -922,6 +967,11 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
 
         final boolean hasShift = (offset != (arrayOffs + parsingState.checkpoint));
         
+        if (!hasShift && HeaderScanner.ENABLED) {
+            offset = HeaderScanner.skipHeaderValue(
+                    parsingState.getArrayView(input), parsingState, offset, limit);
+        }
+
         while (offset < limit) {
             final byte b = input[offset];
             if (b == Constants.CR) {
@@ -941,6 +991,7 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
                         parsingState.headerValueStorage.setBytes(input,
                                 arrayOffs + parsingState.start,
                                 arrayOffs + parsingState.checkpoint2);
+                        internKnownHeaderValue(parsingState);
                         return 0;
                     }
                 }
@@ -969,29 +1020,39 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
     }
     
     private static void finalizeKnownHeaderNames(final HttpHeader httpHeader,
-            final HeaderParsingState parsingState, final byte[] input,
-            final int start, final int end) {
+            final HeaderParsingState parsingState, final Header knownHeader) {
+        
+        parsingState.knownHeader = knownHeader;
+        if (knownHeader == null) {
+            return;
+        }
         
-        final int size = end - start;
-        if (size == Header.ContentLength.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.ContentLength.getLowerCaseBytes())) {
+        switch (knownHeader) {
+            case ContentLength:
                 parsingState.isContentLengthHeader = true;
-            }
-        } else if (size == Header.TransferEncoding.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.TransferEncoding.getLowerCaseBytes())) {
+                break;
+            case TransferEncoding:
                 parsingState.isTransferEncodingHeader = true;
-            }
-        } else if (size == Header.Upgrade.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Upgrade.getLowerCaseBytes())) {
+                break;
+            case Upgrade:
                 parsingState.isUpgradeHeader = true;
-            }
-        } else if (size == Header.Expect.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Expect.getLowerCaseBytes())) {
+                break;
+            case Expect:
                 ((HttpRequestPacket) httpHeader).requiresAcknowledgement(true);
+                break;
+        }
+    }
+
+    private static void internKnownHeaderValue(
+            final HeaderParsingState parsingState) {
+        final Header knownHeader = parsingState.knownHeader;
+        if (knownHeader != null) {
+            parsingState.knownHeader = null;
+            final HeaderValueCache cache = parsingState.codecFilter != null
+                    ? parsingState.codecFilter.headerValueCache
+                    : null;
+            if (cache != null) {
+                cache.intern(knownHeader, parsingState.headerValueStorage);
             }
         }
     }
@@ -1165,15 +1226,20 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         final int start = parsingState.start;
         int offset = parsingState.offset;
 
+        if (HeaderScanner.ENABLED && !input.isComposite()) {
+            offset = HeaderScanner.skipHeaderName(input, offset, limit,
+                    !preserveHeaderCase);
+        }
+
         while(offset < limit) {
             byte b = input.get(offset);
             if (b == Constants.COLON) {
 
-                parsingState.headerValueStorage =
-                        mimeHeaders.addValue(input, start, offset - start);
+                final Header knownHeader = Header.find(input, start, offset);
+                parsingState.headerValueStorage = mimeHeaders.addValue(
+                        input, start, offset - start, knownHeader);
                 parsingState.offset = offset + 1;
-                finalizeKnownHeaderNames(httpHeader, parsingState, input,
-                        start, offset);
+                finalizeKnownHeaderNames(httpHeader, parsingState, knownHeader);
 
                 return true;
             } else if ((b >= Constants.A) && (b <= Constants.Z)) {
@@ -1199,6 +1265,11 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
 
         final boolean hasShift = (offset != parsingState.checkpoint);
         
+        if (!hasShift && HeaderScanner.ENABLED && !input.isComposite()) {
+            offset = HeaderScanner.skipHeaderValue(input, parsingState,
+                    offset, limit);
+        }
+
         while(offset < limit) {
             final byte b = input.get(offset);
             if (b == Constants.CR) {
@@ -1216,6 +1287,7 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
                                 parsingState.start, parsingState.checkpoint2);
                         parsingState.headerValueStorage.setBuffer(input,
                                 parsingState.start, parsingState.checkpoint2);
+                        internKnownHeaderValue(parsingState);
                         return 0;
                     }
                 }
@@ -1243,34 +1315,6 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         return -1;
     }
 
-    private static void finalizeKnownHeaderNames(final HttpHeader httpHeader,
-            final HeaderParsingState parsingState, final Buffer input,
-            final int start, final int end) {
-        
-        final int size = end - start;
-        if (size == Header.ContentLength.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.ContentLength.getLowerCaseBytes())) {
-                parsingState.isContentLengthHeader = true;
-            }
-        } else if (size == Header.TransferEncoding.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.TransferEncoding.getLowerCaseBytes())) {
-                parsingState.isTransferEncodingHeader = true;
-            }
-        } else if (size == Header.Upgrade.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Upgrade.getLowerCaseBytes())) {
-                parsingState.isUpgradeHeader = true;
-            }
-        } else if (size == Header.Expect.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Expect.getLowerCaseBytes())) {
-                ((HttpRequestPacket) httpHeader).requiresAcknowledgement(true);
-            }
-        }
-    }
-
     private static void finalizeKnownHeaderValues(final HttpHeader httpHeader,
             final HeaderParsingState parsingState, final Buffer input,
             final int start, final int end) {
@@ -1600,6 +1644,10 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
             final MimeHeaders mimeHeaders = httpHeader.getHeaders();
             final byte[] tempEncodingBuffer = httpHeader.getTempHeaderEncodingBuffer();
             encodedBuffer = encodeMimeHeaders(memoryManager, encodedBuffer, mimeHeaders, tempEncodingBuffer);
+            if (!httpHeader.isRequest()) {
+                encodedBuffer = encodePreEncodedHeaders(memoryManager,
+                        encodedBuffer, (HttpResponsePacket) httpHeader);
+            }
             onHttpHeadersEncoded(httpHeader, ctx);
             encodedBuffer = put(memoryManager, encodedBuffer, CRLF_BYTES);
             encodedBuffer.trim();
@@ -1699,6 +1747,22 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         return buffer;
     }
     
+    private static Buffer encodePreEncodedHeaders(final MemoryManager memoryManager,
+            Buffer buffer, final HttpResponsePacket response) {
+        final PreEncodedHeaders preEncodedHeaders = response.getPreEncodedHeaders();
+        if (preEncodedHeaders != null) {
+            buffer = put(memoryManager, buffer,
+                    preEncodedHeaders.getEncodedBytes());
+        }
+
+        if (response.encodeCachedDate) {
+            buffer = put(memoryManager, buffer,
+                    FastHttpDateFormat.getCurrentDateHeaderBytes());
+        }
+
+        return buffer;
+    }
+
     protected static Buffer encodeMimeHeaders(final MemoryManager memoryManager,
                                               Buffer buffer,
                                               final MimeHeaders mimeHeaders,
@@ -2036,6 +2100,17 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         public boolean contentLengthsDiffer;
         public boolean isTransferEncodingHeader;
         public boolean isUpgradeHeader;
+        
+        /**
+         * The known {@link Header} of the header being parsed, or <tt>null</tt>.
+         */
+        public Header knownHeader;
+
+        /**
+         * Little-endian view of the last parsed input array, used for bulk
+         * header scanning.
+         */
+        private ByteBuffer arrayView;
 
         public void initialize(final HttpCodecFilter codecFilter,
                                final int initialOffset,
@@ -2060,11 +2135,22 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
             checkpoint = -1;
             checkpoint2 = -1;
             headerValueStorage = null;
+            knownHeader = null;
             parsingNumericValue = 0;
             contentLengthHeadersCount = 0;
             contentLengthsDiffer = false;
         }
 
+        ByteBuffer getArrayView(final byte[] array) {
+            ByteBuffer view = arrayView;
+            if (view == null || view.array() != array) {
+                view = ByteBuffer.wrap(array).order(ByteOrder.LITTLE_ENDIAN);
+                arrayView = view;
+            }
+
+            return view;
+        }
+
         public final void checkOverflow(final int pos,
                 final String errorDescriptionIfOverflow) {
             if (pos < packetLimit) {
@@ -102,6 +102,18 @@ public abstract class HttpResponsePacket extends HttpHeader {
      * Do we need to encode HTML sensitive characters in custom reason phrase.
      */
     private boolean isHtmlEncodingCustomReasonPhrase = true;
+
+    /**
+     * Pre-encoded headers block, which will be spliced into the response headers.
+     */
+    private PreEncodedHeaders preEncodedHeaders;
+
+    /**
+     * <tt>true</tt>, if the cached <tt>Date</tt> header line has to be added
+     * by the encoder. Such a <tt>Date</tt> header is not kept in
+     * {@link #getHeaders()}, so it's not visible via {@link #containsHeader(Header)}.
+     */
+    boolean encodeCachedDate;
     
     /**
      * Returns {@link HttpResponsePacket} builder.
@@ -297,6 +309,31 @@ public abstract class HttpResponsePacket extends HttpHeader {
     }
 
 
+    /**
+     * @return the {@link PreEncodedHeaders} block attached to this response,
+     *         or <tt>null</tt> if there is none.
+     * @since 3.0
+     */
+    public PreEncodedHeaders getPreEncodedHeaders() {
+        return preEncodedHeaders;
+    }
+
+    /**
+     * Attaches the immutable {@link PreEncodedHeaders} block to this response.
+     * The HTTP/1.x encoder copies the block into the serialized response
+     * headers as is, after the headers kept in {@link #getHeaders()}.
+     * The headers from the block are not visible via {@link #getHeader(String)}
+     * and it's up to the caller not to set the same headers twice.
+     *
+     * @param preEncodedHeaders the {@link PreEncodedHeaders} block, or
+     *        <tt>null</tt> to detach the current one
+     * @since 3.0
+     */
+    public void setPreEncodedHeaders(final PreEncodedHeaders preEncodedHeaders) {
+        this.preEncodedHeaders = preEncodedHeaders;
+    }
+
+
     // --------------------
 
 
@@ -309,6 +346,8 @@ public abstract class HttpResponsePacket extends HttpHeader {
         acknowledgment = false;
         allowCustomReasonPhrase = true;
         isHtmlEncodingCustomReasonPhrase = true;
+        preEncodedHeaders = null;
+        encodeCachedDate = false;
         reasonPhraseC.recycle();
         locale = null;
         contentLanguage = null;
@@ -47,7 +47,6 @@ import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.http.util.Constants;
 import org.glassfish.grizzly.http.util.DataChunk;
-import org.glassfish.grizzly.http.util.FastHttpDateFormat;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
 import org.glassfish.grizzly.http.util.MimeHeaders;
@@ -913,7 +912,11 @@ public class HttpServerFilter extends HttpCodecFilter {
             
             // Optimize content-type serialization depending on its state
             final ContentType contentType = response.getContentTypeHolder();
-            if (contentType.isMimeTypeSet()) {
+            final PreEncodedHeaders preEncodedHeaders = response.getPreEncodedHeaders();
+            if (preEncodedHeaders != null
+                    && preEncodedHeaders.contains(Header.ContentType)) {
+                // Content-Type is a part of the pre-encoded headers block
+            } else if (contentType.isMimeTypeSet()) {
                 final DataChunk contentTypeValue = headers.setValue(Header.ContentType);
                 if (contentTypeValue.isNull()) {
                     contentType.serializeToDataChunk(contentTypeValue);
@@ -934,8 +937,8 @@ public class HttpServerFilter extends HttpCodecFilter {
         }
 
         if (!response.containsHeader(Header.Date)) {
-            response.getHeaders().addValue(Header.Date)
-                    .setBytes(FastHttpDateFormat.getCurrentDateBytes());
+            // the encoder will copy the cached "Date: ...\r\n" line
+            response.encodeCachedDate = true;
         }
 
         final ProcessingState state = response.getProcessingState();
@@ -0,0 +1,240 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * Immutable block of HTTP response headers, which is serialized once, when
+ * the block is built, and then spliced as is into every HTTP/1.x response
+ * it's attached to (see {@link HttpResponsePacket#setPreEncodedHeaders(PreEncodedHeaders)}).
+ * <p>
+ * The block is meant for headers, which never change for an endpoint
+ * (<tt>Server</tt>, <tt>Content-Type</tt>, <tt>Cache-Control</tt>, CORS headers etc),
+ * so the header encoder doesn't have to serialize them byte by byte for each
+ * response. One <tt>PreEncodedHeaders</tt> instance may be shared by any number
+ * of responses and threads.
+ * <p>
+ * Headers, which are managed by the HTTP codec itself (<tt>Content-Length</tt>,
+ * <tt>Transfer-Encoding</tt>, <tt>Content-Encoding</tt>, <tt>Connection</tt>,
+ * <tt>Keep-Alive</tt>, <tt>Upgrade</tt> and <tt>Date</tt>) can't be pre-encoded.
+ *
+ * @since 3.0
+ */
+public final class PreEncodedHeaders {
+
+    private static final Header[] RESERVED_HEADERS = {
+        Header.ContentLength, Header.TransferEncoding, Header.ContentEncoding,
+        Header.Connection, Header.KeepAlive, Header.Upgrade, Header.Date
+    };
+
+    private final String[] names;
+    private final String[] values;
+    private final byte[] encoded;
+
+    private PreEncodedHeaders(final List<String> names,
+            final List<String> values) {
+        this.names = names.toArray(new String[names.size()]);
+        this.values = values.toArray(new String[values.size()]);
+
+        final StringBuilder sb = new StringBuilder(64 * this.names.length);
+        for (int i = 0; i < this.names.length; i++) {
+            sb.append(this.names[i]).append(": ")
+                    .append(this.values[i]).append("\r\n");
+        }
+
+        encoded = sb.toString().getBytes(Charsets.ASCII_CHARSET);
+    }
+
+    /**
+     * @return {@link Builder} to construct the <tt>PreEncodedHeaders</tt>.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the number of headers in the block.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param idx the header index
+     * @return the name of the header at the given index.
+     */
+    public String getName(final int idx) {
+        return names[idx];
+    }
+
+    /**
+     * @param idx the header index
+     * @return the value of the header at the given index.
+     */
+    public String getValue(final int idx) {
+        return values[idx];
+    }
+
+    /**
+     * @param name the header name
+     * @return <tt>true</tt> if the block contains the header with the given
+     *         name (case-insensitive), or <tt>false</tt> otherwise.
+     */
+    public boolean contains(final String name) {
+        for (String n : names) {
+            if (n.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param header the {@link Header}
+     * @return <tt>true</tt> if the block contains the header, or
+     *         <tt>false</tt> otherwise.
+     */
+    public boolean contains(final Header header) {
+        return contains(header.toString());
+    }
+
+    /**
+     * @return the length of the serialized block in bytes.
+     */
+    public int getEncodedLength() {
+        return encoded.length;
+    }
+
+    /**
+     * @return the serialized block, each header is terminated by CRLF.
+     *         The array is shared and must not be modified.
+     */
+    byte[] getEncodedBytes() {
+        return encoded;
+    }
+
+    @Override
+    public String toString() {
+        return new String(encoded, Charsets.ASCII_CHARSET);
+    }
+
+    /**
+     * <tt>PreEncodedHeaders</tt> builder.
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a header to the block.
+         *
+         * @param header the {@link Header}
+         * @param value the header value
+         * @return this <tt>Builder</tt>
+         * @throws IllegalArgumentException if the header is managed by the
+         *         HTTP codec or the value contains control characters
+         */
+        public Builder header(final Header header, final String value) {
+            return header(header.toString(), value);
+        }
+
+        /**
+         * Adds a header to the block.
+         *
+         * @param name the header name
+         * @param value the header value
+         * @return this <tt>Builder</tt>
+         * @throws IllegalArgumentException if the header is managed by the
+         *         HTTP codec, the name is not a valid token or the value
+         *         contains control or non-ASCII characters
+         */
+        public Builder header(final String name, final String value) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("Header name can't be empty");
+            }
+            if (value == null) {
+                throw new IllegalArgumentException("Header value can't be null");
+            }
+
+            for (Header reserved : RESERVED_HEADERS) {
+                if (reserved.toString().equalsIgnoreCase(name)) {
+                    throw new IllegalArgumentException(
+                            "Header " + name + " can't be pre-encoded");
+                }
+            }
+
+            for (int i = 0; i < name.length(); i++) {
+                final char c = name.charAt(i);
+                if (c <= ' ' || c >= 127 || c == ':') {
+                    throw new IllegalArgumentException(
+                            "Illegal header name: " + name);
+                }
+            }
+
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if ((c < ' ' && c != '\t') || c >= 127) {
+                    throw new IllegalArgumentException(
+                            "Illegal value of the header " + name);
+                }
+            }
+
+            names.add(name);
+            values.add(value);
+            return this;
+        }
+
+        /**
+         * @return the immutable {@link PreEncodedHeaders}.
+         */
+        public PreEncodedHeaders build() {
+            return new PreEncodedHeaders(names, values);
+        }
+    }
+}
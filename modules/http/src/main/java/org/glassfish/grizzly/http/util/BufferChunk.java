@@ -489,7 +489,12 @@ public class BufferChunk implements Chunk {
 
     @Override
     public String toString() {
-        return toString(null);
+        if (cachedString != null
+                && DEFAULT_CHARSET.equals(cachedStringCharset)) {
+            return cachedString;
+        }
+        
+        return StringCache.toString(this);
     }
 
     public String toString(Charset charset) {
@@ -516,6 +521,15 @@ public class BufferChunk implements Chunk {
         cachedString = null;
         cachedStringCharset = null;
     }
+
+    /**
+     * Primes the string cache with the already decoded content.
+     */
+    void setCachedString(final String cachedString,
+            final Charset cachedStringCharset) {
+        this.cachedString = cachedString;
+        this.cachedStringCharset = cachedStringCharset;
+    }
     
     protected final void reset() {
         buffer = null;        
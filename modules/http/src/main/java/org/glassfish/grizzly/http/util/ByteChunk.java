@@ -197,6 +197,15 @@ public final class ByteChunk implements Chunk, Cloneable, Serializable {
         cachedString = null;
         cachedStringCharset = null;
     }
+
+    /**
+     * Primes the string cache with the already decoded content.
+     */
+    void setCachedString(final String cachedString,
+            final Charset cachedStringCharset) {
+        this.cachedString = cachedString;
+        this.cachedStringCharset = cachedStringCharset;
+    }
     
     // -------------------- Setup --------------------
 
@@ -624,8 +633,7 @@ public final class ByteChunk implements Chunk, Cloneable, Serializable {
         } else if (cachedString != null) {
             return cachedString;
         }
-//        return StringCache.toString(this);
-        cachedString = toStringInternal();
+        cachedString = StringCache.toString(this);
         return cachedString;
     }
 
@@ -0,0 +1,425 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.util;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * Bounded, lock-free cache of the {@link String}s decoded from
+ * {@link ByteChunk}, {@link BufferChunk} and {@link CharChunk} content.
+ * 
+ * The cache is a hash table split into small buckets of {@value #WAYS}
+ * entries, each slot is updated using CAS. Every entry keeps an approximate
+ * (racy, saturating) access frequency: a lookup miss replaces the least
+ * frequently used entry of the bucket only if its frequency has decayed to
+ * zero, otherwise the frequency is decremented. This way a frequently used
+ * string can't be evicted by a burst of strings seen just once, while a string,
+ * which became hot, gets into the cache after a few misses.
+ * 
+ * The byte content is cached per {@link Charset}, so the same bytes decoded
+ * using different charsets are cached separately.
+ * 
+ * @since 3.0
+ */
+public final class ConcurrentStringCache {
+    /**
+     * The number of entries per bucket.
+     */
+    public static final int WAYS = 4;
+    
+    private static final int MAX_FREQUENCY = 15;
+    
+    private final AtomicReferenceArray<Entry> table;
+    private final int bucketMask;
+    private final int maxStringLength;
+    
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Creates a cache of the given maximum number of entries (rounded up to
+     * a power of two, and to at least one bucket).
+     * 
+     * @param maxEntries the maximum number of cached strings
+     * @param maxStringLength the maximum length of a cached string
+     */
+    public ConcurrentStringCache(final int maxEntries, final int maxStringLength) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries has to be positive");
+        }
+        
+        final int buckets = Math.max(1, (maxEntries + WAYS - 1) / WAYS);
+        final int capacity = buckets == 1 ? 1 : Integer.highestOneBit(buckets - 1) << 1;
+        
+        table = new AtomicReferenceArray<Entry>(capacity * WAYS);
+        bucketMask = capacity - 1;
+        this.maxStringLength = maxStringLength;
+    }
+
+    /**
+     * @return the maximum number of cached strings
+     */
+    public int getMaxEntries() {
+        return table.length();
+    }
+
+    /**
+     * @return the maximum length of a cached string
+     */
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+    
+    /**
+     * @return the number of currently cached strings
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < table.length(); i++) {
+            if (table.get(i) != null) {
+                size++;
+            }
+        }
+        
+        return size;
+    }
+    
+    /**
+     * @return the number of lookups, which returned a cached string
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of lookups, which had to decode the string
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the number of cached strings, which were replaced by more
+     * frequently used ones
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+    
+    /**
+     * Removes all the cached strings and resets the statistics.
+     */
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, null);
+        }
+        
+        hitCount.reset();
+        missCount.reset();
+        evictionCount.reset();
+    }
+    
+    /**
+     * Returns the {@link String} representation of the {@link ByteChunk}
+     * content decoded using the chunk's charset. The chunk's string
+     * cache is primed with the returned value.
+     */
+    public String toString(final ByteChunk bc) {
+        final byte[] bytes = bc.getBuffer();
+        final int start = bc.getStart();
+        final int end = bc.getEnd();
+        final int length = end - start;
+        if (length == 0 || length > maxStringLength) {
+            return bc.toStringInternal();
+        }
+
+        final Charset charset = bc.getCharset();
+        int hash = charset.hashCode();
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        
+        final int bucket = bucket(hash);
+        for (int i = bucket; i < bucket + WAYS; i++) {
+            final Entry entry = table.get(i);
+            if (entry != null && entry.hash == hash
+                    && entry.matches(bytes, start, end, charset)) {
+                hit(entry);
+                bc.setCachedString(entry.value, charset);
+                return entry.value;
+            }
+        }
+        
+        missCount.increment();
+        final String value = bc.toStringInternal();
+        final int slot = admit(bucket);
+        if (slot != -1) {
+            final byte[] copy = new byte[length];
+            System.arraycopy(bytes, start, copy, 0, length);
+            install(slot, new Entry(hash, copy, charset, value));
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Returns the {@link String} representation of the {@link BufferChunk}
+     * content decoded using the default HTTP charset. The chunk's string
+     * cache is primed with the returned value.
+     */
+    public String toString(final BufferChunk bc) {
+        final Buffer buffer = bc.getBuffer();
+        final int start = bc.getStart();
+        final int end = bc.getEnd();
+        final int length = end - start;
+        if (length == 0 || length > maxStringLength) {
+            return bc.toString(null);
+        }
+
+        final Charset charset = Constants.DEFAULT_HTTP_CHARSET;
+        int hash = charset.hashCode();
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        
+        final int bucket = bucket(hash);
+        for (int i = bucket; i < bucket + WAYS; i++) {
+            final Entry entry = table.get(i);
+            if (entry != null && entry.hash == hash
+                    && entry.matches(buffer, start, end, charset)) {
+                hit(entry);
+                bc.setCachedString(entry.value, charset);
+                return entry.value;
+            }
+        }
+        
+        missCount.increment();
+        final String value = bc.toString(null);
+        final int slot = admit(bucket);
+        if (slot != -1) {
+            final byte[] copy = new byte[length];
+            for (int i = 0; i < length; i++) {
+                copy[i] = buffer.get(start + i);
+            }
+            install(slot, new Entry(hash, copy, charset, value));
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Returns the {@link String} representation of the {@link CharChunk}
+     * content.
+     */
+    public String toString(final CharChunk cc) {
+        final char[] chars = cc.getBuffer();
+        final int start = cc.getStart();
+        final int end = cc.getEnd();
+        final int length = end - start;
+        if (length == 0 || length > maxStringLength) {
+            return cc.toStringInternal();
+        }
+
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        
+        final int bucket = bucket(hash);
+        for (int i = bucket; i < bucket + WAYS; i++) {
+            final Entry entry = table.get(i);
+            if (entry != null && entry.hash == hash
+                    && entry.matches(chars, start, end)) {
+                hit(entry);
+                return entry.value;
+            }
+        }
+        
+        missCount.increment();
+        final String value = cc.toStringInternal();
+        final int slot = admit(bucket);
+        if (slot != -1) {
+            final char[] copy = new char[length];
+            System.arraycopy(chars, start, copy, 0, length);
+            install(slot, new Entry(hash, copy, null, value));
+        }
+        
+        return value;
+    }
+
+    private int bucket(final int hash) {
+        return ((hash ^ (hash >>> 16)) & bucketMask) * WAYS;
+    }
+    
+    private void hit(final Entry entry) {
+        hitCount.increment();
+        // the frequency is approximate, lost updates are fine
+        if (entry.frequency < MAX_FREQUENCY) {
+            entry.frequency++;
+        }
+    }
+    
+    /**
+     * Picks the bucket slot for a new entry: a free slot or the least
+     * frequently used entry, if its frequency has decayed, otherwise decays
+     * the least frequently used entry. The entry is built only if a slot has
+     * been picked, so the strings seen once don't allocate the cache entries.
+     * 
+     * @return the slot index, or <tt>-1</tt>, if the string is not admitted
+     */
+    private int admit(final int bucket) {
+        int victimIdx = -1;
+        Entry victim = null;
+        for (int i = bucket; i < bucket + WAYS; i++) {
+            final Entry entry = table.get(i);
+            if (entry == null) {
+                return i;
+            } else if (victim == null || entry.frequency < victim.frequency) {
+                victim = entry;
+                victimIdx = i;
+            }
+        }
+        
+        if (victim.frequency > 0) {
+            victim.frequency--;
+            return -1;
+        }
+        
+        return victimIdx;
+    }
+    
+    /**
+     * Stores the entry to the slot picked by {@link #admit(int)}, unless
+     * the slot has been updated meanwhile by a concurrent lookup.
+     */
+    private void install(final int slot, final Entry newEntry) {
+        final Entry current = table.get(slot);
+        if (current == null) {
+            table.compareAndSet(slot, null, newEntry);
+        } else if (current.frequency == 0
+                && table.compareAndSet(slot, current, newEntry)) {
+            evictionCount.increment();
+        }
+    }
+    
+    /**
+     * Cache entry. Everything but the frequency is immutable.
+     */
+    private static final class Entry {
+        private final int hash;
+        private final Object content;
+        private final Charset charset;
+        private final String value;
+        
+        private int frequency;
+
+        private Entry(final int hash, final Object content,
+                final Charset charset, final String value) {
+            this.hash = hash;
+            this.content = content;
+            this.charset = charset;
+            this.value = value;
+        }
+        
+        private boolean matches(final byte[] b, final int start, final int end,
+                final Charset charset) {
+            if (!(content instanceof byte[]) || !charset.equals(this.charset)) {
+                return false;
+            }
+            
+            final byte[] bytes = (byte[]) content;
+            if (bytes.length != end - start) {
+                return false;
+            }
+            
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != b[start + i]) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+        
+        private boolean matches(final Buffer b, final int start, final int end,
+                final Charset charset) {
+            if (!(content instanceof byte[]) || !charset.equals(this.charset)) {
+                return false;
+            }
+            
+            final byte[] bytes = (byte[]) content;
+            if (bytes.length != end - start) {
+                return false;
+            }
+            
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != b.get(start + i)) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+        
+        private boolean matches(final char[] c, final int start, final int end) {
+            if (!(content instanceof char[])) {
+                return false;
+            }
+            
+            final char[] chars = (char[]) content;
+            if (chars.length != end - start) {
+                return false;
+            }
+            
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] != c[start + i]) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+    }
+}
@@ -39,9 +39,9 @@
  */
 package org.glassfish.grizzly.http.util;
 
+import java.util.Arrays;
 import java.util.Locale;
-import java.util.Map;
-import java.util.TreeMap;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.utils.Charsets;
 
 /**
@@ -103,16 +103,47 @@ public enum Header {
     WWWAuthenticate("WWW-Authenticate"),
     XPoweredBy("X-Powered-By"),
     KeepAlive("Keep-Alive"),
-    HTTP2Settings("HTTP2-Settings");
+    HTTP2Settings("HTTP2-Settings"),
+    AcceptLanguage("Accept-Language"),
+    Origin("Origin"),
+    XForwardedFor("X-Forwarded-For"),
+    XForwardedProto("X-Forwarded-Proto");
 
 
     // ----------------------------------------------------------------- Statics
 
-    private static final Map<String,Header> VALUES = new TreeMap<String,Header>(String.CASE_INSENSITIVE_ORDER);
+    /**
+     * The perfect hash table of the known headers, the hash is calculated
+     * from the name length, the first, middle and last lower-case name
+     * characters and the seed, which is picked to have no collisions.
+     */
+    private static final int HASH_TABLE_SIZE = 256;
+    private static final Header[] HASH_TABLE = new Header[HASH_TABLE_SIZE];
+    private static final int HASH_SEED;
     static {
-        for (final Header h : Header.values()) {
-            VALUES.put(h.toString(), h);
+        int seed = 1;
+        nextSeed:
+        for (;; seed++) {
+            if (seed > 0xFFFF) {
+                throw new IllegalStateException("Can't build the header hash table");
+            }
+
+            Arrays.fill(HASH_TABLE, null);
+            for (final Header h : Header.values()) {
+                final byte[] name = h.headerNameLowerCaseBytes;
+                final int idx = hash(seed, name.length, name[0],
+                        name[name.length >> 1], name[name.length - 1]);
+                if (HASH_TABLE[idx] != null) {
+                    continue nextSeed;
+                }
+
+                HASH_TABLE[idx] = h;
+            }
+
+            break;
         }
+
+        HASH_SEED = seed;
     }
 
     // --------------------------------------------------------- Per Enum Fields
@@ -229,14 +260,90 @@ public enum Header {
         if (name == null || name.isEmpty()) {
             return null;
         }
-        return VALUES.get(name);
 
+        final int length = name.length();
+        final Header h = HASH_TABLE[hash(HASH_SEED, length,
+                Ascii.toLower(name.charAt(0)),
+                Ascii.toLower(name.charAt(length >> 1)),
+                Ascii.toLower(name.charAt(length - 1)))];
+        return h != null && h.headerName.equalsIgnoreCase(name) ? h : null;
+
+    }
+
+    /**
+     * <p>
+     * Attempts to find a HTTP header by its name represented by the byte
+     * array region. The search is case insensitive and doesn't allocate.
+     * </p>
+     *
+     * @param bytes the byte array
+     * @param start the name start offset (inclusive)
+     * @param end the name end offset (exclusive)
+     *
+     * @return the <code>Header</code> with the specified name, or
+     *  <code>null</code> if there is no such <code>Header</code>.
+     *
+     * @since 3.0
+     */
+    public static Header find(final byte[] bytes, final int start,
+            final int end) {
+        final int length = end - start;
+        if (length <= 0) {
+            return null;
+        }
+
+        final Header h = HASH_TABLE[hash(HASH_SEED, length,
+                Ascii.toLower(bytes[start]),
+                Ascii.toLower(bytes[start + (length >> 1)]),
+                Ascii.toLower(bytes[end - 1]))];
+        return h != null && ByteChunk.equalsIgnoreCaseLowerCase(
+                bytes, start, end, h.headerNameLowerCaseBytes) ? h : null;
+    }
+
+    /**
+     * <p>
+     * Attempts to find a HTTP header by its name represented by the
+     * {@link Buffer} region. The search is case insensitive and doesn't allocate.
+     * </p>
+     *
+     * @param buffer the {@link Buffer}
+     * @param start the name start offset (inclusive)
+     * @param end the name end offset (exclusive)
+     *
+     * @return the <code>Header</code> with the specified name, or
+     *  <code>null</code> if there is no such <code>Header</code>.
+     *
+     * @since 3.0
+     */
+    public static Header find(final Buffer buffer, final int start,
+            final int end) {
+        final int length = end - start;
+        if (length <= 0) {
+            return null;
+        }
+
+        final Header h = HASH_TABLE[hash(HASH_SEED, length,
+                Ascii.toLower(buffer.get(start)),
+                Ascii.toLower(buffer.get(start + (length >> 1))),
+                Ascii.toLower(buffer.get(end - 1)))];
+        return h != null && BufferChunk.equalsIgnoreCaseLowerCase(
+                buffer, start, end, h.headerNameLowerCaseBytes) ? h : null;
     }
 
 
     // --------------------------------------------------------- Private Methods
 
 
+    private static int hash(final int seed, final int length,
+            final int first, final int middle, final int last) {
+        int h = length * seed;
+        h = (h ^ (first & 0xFF)) * seed;
+        h = (h ^ (middle & 0xFF)) * seed;
+        h = h ^ (last & 0xFF);
+        return (h ^ (h >>> 8)) & (HASH_TABLE_SIZE - 1);
+    }
+
+
     private boolean equalsIgnoreCase(final byte[] b) {
 
         final int len = headerNameBytes.length;
@@ -0,0 +1,313 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.util;
+
+import java.nio.charset.Charset;
+import java.util.EnumSet;
+import java.util.Set;
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * Cache of frequently repeated HTTP header values, like <tt>Accept-Encoding</tt>
+ * or <tt>User-Agent</tt>, which are sent with (almost) every request of a
+ * client.
+ * 
+ * The cache is a direct-mapped table of immutable entries, which is read and
+ * updated without locking: racing updates just replace each other's entries.
+ * A value is cached on the second sighting, so one-off values don't evict
+ * the repeated ones.
+ * When a parsed value is found in the cache, its {@link DataChunk} is primed
+ * with the cached {@link String}, so the value is not decoded again.
+ * 
+ * @since 3.0
+ */
+public final class HeaderValueCache {
+    /**
+     * The default number of cache entries, which may be changed using the
+     * <tt>org.glassfish.grizzly.http.util.HeaderValueCache.size</tt>
+     * system property.
+     */
+    public static final int DEFAULT_SIZE = Integer.getInteger(
+            HeaderValueCache.class.getName() + ".size", 256);
+    
+    /**
+     * The max length of a value to be cached.
+     */
+    public static final int MAX_VALUE_LENGTH = 256;
+    
+    private static final Charset CHARSET = Constants.DEFAULT_HTTP_CHARSET;
+    
+    private static final boolean[] CACHEABLE =
+            new boolean[Header.values().length];
+    
+    static {
+        final Set<Header> cacheable = EnumSet.of(
+                Header.Accept,
+                Header.AcceptCharset,
+                Header.AcceptEncoding,
+                Header.AcceptLanguage,
+                Header.CacheControl,
+                Header.Connection,
+                Header.ContentType,
+                Header.Host,
+                Header.Origin,
+                Header.Pragma,
+                Header.UserAgent);
+        
+        for (Header header : cacheable) {
+            CACHEABLE[header.ordinal()] = true;
+        }
+    }
+    
+    private final Entry[] entries;
+    // the hash of the last value, which missed the slot
+    private final int[] candidates;
+    private final int mask;
+
+    /**
+     * Creates a cache with the given number of entries, rounded up to the
+     * power of two.
+     * 
+     * @param size the number of cache entries
+     */
+    public HeaderValueCache(final int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size has to be positive");
+        }
+        
+        final int capacity = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        entries = new Entry[capacity];
+        candidates = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return the number of cache entries
+     */
+    public int size() {
+        return entries.length;
+    }
+    
+    /**
+     * @return <tt>true</tt> if the values of the {@link Header} are worth
+     * caching, or <tt>false</tt> otherwise
+     */
+    public static boolean isCacheable(final Header header) {
+        return CACHEABLE[header.ordinal()];
+    }
+    
+    /**
+     * Looks the header value up in the cache and primes the {@link DataChunk}
+     * with the cached {@link String}. If the value is not cached yet - it's
+     * added to the cache, once it's been seen twice in a row.
+     * 
+     * @param header the known {@link Header}
+     * @param value the parsed header value
+     */
+    public void intern(final Header header, final DataChunk value) {
+        if (!isCacheable(header)) {
+            return;
+        }
+        
+        switch (value.getType()) {
+            case Bytes: {
+                final ByteChunk bc = value.getByteChunk();
+                final String s = intern(header, bc.getBuffer(),
+                        bc.getStart(), bc.getEnd());
+                if (s != null) {
+                    bc.setCachedString(s, CHARSET);
+                }
+                
+                break;
+            }
+            case Buffer: {
+                final BufferChunk bc = value.getBufferChunk();
+                final String s = intern(header, bc.getBuffer(),
+                        bc.getStart(), bc.getEnd());
+                if (s != null) {
+                    bc.setCachedString(s, CHARSET);
+                }
+                
+                break;
+            }
+        }
+    }
+
+    private String intern(final Header header, final byte[] bytes,
+            final int start, final int end) {
+        final int length = end - start;
+        if (length == 0 || length > MAX_VALUE_LENGTH) {
+            return null;
+        }
+        
+        int hash = header.ordinal();
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        
+        final int idx = index(hash);
+        final Entry entry = entries[idx];
+        if (entry != null && entry.hash == hash
+                && entry.matches(header, bytes, start, end)) {
+            return entry.value;
+        }
+        
+        if (!admit(idx, hash)) {
+            return null;
+        }
+        
+        final byte[] copy = new byte[length];
+        System.arraycopy(bytes, start, copy, 0, length);
+        
+        final Entry newEntry = new Entry(header, hash, copy,
+                new String(copy, CHARSET));
+        entries[idx] = newEntry;
+        
+        return newEntry.value;
+    }
+    
+    private String intern(final Header header, final Buffer buffer,
+            final int start, final int end) {
+        final int length = end - start;
+        if (length == 0 || length > MAX_VALUE_LENGTH) {
+            return null;
+        }
+        
+        int hash = header.ordinal();
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        
+        final int idx = index(hash);
+        final Entry entry = entries[idx];
+        if (entry != null && entry.hash == hash
+                && entry.matches(header, buffer, start, end)) {
+            return entry.value;
+        }
+        
+        if (!admit(idx, hash)) {
+            return null;
+        }
+        
+        final byte[] copy = new byte[length];
+        for (int i = 0; i < length; i++) {
+            copy[i] = buffer.get(start + i);
+        }
+        
+        final Entry newEntry = new Entry(header, hash, copy,
+                new String(copy, CHARSET));
+        entries[idx] = newEntry;
+        
+        return newEntry.value;
+    }
+    
+    /**
+     * The slot is chosen by the hash of the header and the value content,
+     * so the different values of the same header don't evict each other.
+     */
+    private int index(final int hash) {
+        final int h = hash * 0x9E3779B1;
+        return (h ^ (h >>> 16)) & mask;
+    }
+    
+    /**
+     * A value is cached on its second sighting in a row for the slot, so
+     * the values seen just once neither allocate an entry nor evict
+     * the cached one.
+     */
+    private boolean admit(final int idx, final int hash) {
+        if (candidates[idx] == hash) {
+            return true;
+        }
+        
+        candidates[idx] = hash;
+        return false;
+    }
+    
+    /**
+     * Immutable cache entry, so it can be safely published via a racy
+     * array store.
+     */
+    private static final class Entry {
+        private final Header header;
+        private final int hash;
+        private final byte[] bytes;
+        private final String value;
+
+        private Entry(final Header header, final int hash, final byte[] bytes,
+                final String value) {
+            this.header = header;
+            this.hash = hash;
+            this.bytes = bytes;
+            this.value = value;
+        }
+        
+        private boolean matches(final Header header,
+                final byte[] b, final int start, final int end) {
+            if (this.header != header || bytes.length != end - start) {
+                return false;
+            }
+            
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != b[start + i]) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+        
+        private boolean matches(final Header header,
+                final Buffer b, final int start, final int end) {
+            if (this.header != header || bytes.length != end - start) {
+                return false;
+            }
+            
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != b.get(start + i)) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+    }
+}
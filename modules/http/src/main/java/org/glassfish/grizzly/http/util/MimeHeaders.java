@@ -165,12 +165,20 @@ servlet needs direct access to headers).
      */
     public static final int DEFAULT_HEADER_SIZE = 8;
 
+    private static final int KNOWN_HEADERS_COUNT = Header.values().length;
+
     public static DataChunk NOOP_CHUNK = new DataChunk.Immutable(null);
 
     /**
      * The header fields.
      */
     private MimeHeaderField[] headers = new MimeHeaderField[DEFAULT_HEADER_SIZE];
+
+    /**
+     * The number of header fields per known {@link Header} ordinal, which lets
+     * us answer lookups of absent known headers in O(1).
+     */
+    private final int[] knownHeaderCounts = new int[KNOWN_HEADERS_COUNT];
     /**
      * The current number of header fields.
      */
@@ -222,6 +230,7 @@ servlet needs direct access to headers).
         count = 0;
         mark = 0;
         marked = false;
+        Arrays.fill(knownHeaderCounts, 0);
 
     }
 
@@ -267,6 +276,7 @@ servlet needs direct access to headers).
                 f = new MimeHeaderField();
                 headers[i] = f;
             }
+            f.header = sourceField.header;
             if (sourceField.nameB.type == DataChunk.Type.Buffer) {
                 copyBufferChunk(sourceField.nameB, f.nameB);
             } else {
@@ -279,6 +289,13 @@ servlet needs direct access to headers).
             }
         }
 
+        Arrays.fill(knownHeaderCounts, 0);
+        for (int i = 0; i < count; i++) {
+            final Header header = headers[i] != null ? headers[i].header : null;
+            if (header != null) {
+                knownHeaderCounts[header.ordinal()]++;
+            }
+        }
     }
 
     private static void copyBufferChunk(DataChunk source, DataChunk dest) {
@@ -324,6 +341,16 @@ servlet needs direct access to headers).
         return n >= 0 && n < count ? headers[n].getValue() : null;
     }
 
+    /**
+     * Returns the known {@link Header} the Nth header name was recognized as,
+     * or null if the name is not a known header or there is no such header.
+     *
+     * @since 3.0
+     */
+    public Header getKnownHeader(int n) {
+        return n >= 0 && n < count ? headers[n].header : null;
+    }
+
     /**
      * Get the header's "serialized" flag.
      *
@@ -370,8 +397,15 @@ servlet needs direct access to headers).
         // of constructing the hashtable
 
         // A custom search tree may be better
+        final Header header = Header.find(name);
+        if (header != null) {
+            return indexOf(header, fromIndex);
+        }
+
         for (int i = fromIndex; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
+            // a known header name can't match unknown one
+            if (headers[i].header == null
+                    && headers[i].getName().equalsIgnoreCase(name)) {
                 return i;
             }
         }
@@ -389,9 +423,13 @@ servlet needs direct access to headers).
         // of constructing the hashtable
 
         // A custom search tree may be better
-        final byte[] bytes = header.getLowerCaseBytes();
+        if (knownHeaderCounts[header.ordinal()] == 0) {
+            return -1;
+        }
+
+        // known header names are recognized when added
         for (int i = fromIndex; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCaseLowerCase(bytes)) {
+            if (headers[i].header == header) {
                 return i;
             }
         }
@@ -494,6 +532,7 @@ servlet needs direct access to headers).
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setString(name);
+        setKnownHeader(mh, Header.find(name));
         return mh.getValue();
     }
 
@@ -506,6 +545,7 @@ servlet needs direct access to headers).
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setBytes(header.toByteArray());
+        setKnownHeader(mh, header);
         return mh.getValue();
     }
 
@@ -515,11 +555,24 @@ servlet needs direct access to headers).
      */
     public DataChunk addValue(final byte[] buffer, final int startN,
                               final int len) {
+        return addValue(buffer, startN, len,
+                Header.find(buffer, startN, startN + len));
+    }
+
+    /** Create a new named header using un-translated byte[], which
+     has already been recognized as the known {@link Header}
+     (or <tt>null</tt> if the name is not a known header).
+     
+     @since 3.0
+     */
+    public DataChunk addValue(final byte[] buffer, final int startN,
+                              final int len, final Header knownHeader) {
         if (!isValidName(buffer)) {
             return NOOP_CHUNK;
         }
         MimeHeaderField mhf = createHeader();
         mhf.getName().setBytes(buffer, startN, startN + len);
+        setKnownHeader(mhf, knownHeader);
         return mhf.getValue();
     }
 
@@ -529,11 +582,24 @@ servlet needs direct access to headers).
      */
     public DataChunk addValue(final Buffer buffer, final int startN,
                               final int len) {
+        return addValue(buffer, startN, len,
+                Header.find(buffer, startN, startN + len));
+    }
+
+    /** Create a new named header using un-translated Buffer, which
+     has already been recognized as the known {@link Header}
+     (or <tt>null</tt> if the name is not a known header).
+     
+     @since 3.0
+     */
+    public DataChunk addValue(final Buffer buffer, final int startN,
+                              final int len, final Header knownHeader) {
         if (!isValidName(buffer)) {
             return NOOP_CHUNK;
         }
         MimeHeaderField mhf = createHeader();
         mhf.getName().setBuffer(buffer, startN, startN + len);
+        setKnownHeader(mhf, knownHeader);
         return mhf.getValue();
     }
 
@@ -547,18 +613,29 @@ servlet needs direct access to headers).
         if (!isValidName(name)) {
             return NOOP_CHUNK;
         }
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                for (int j = i + 1; j < count; j++) {
-                    if (headers[j].getName().equalsIgnoreCase(name)) {
-                        removeHeader(j--);
+        final Header header = Header.find(name);
+        if (header != null) {
+            final DataChunk value = findAndRemoveDuplicates(header);
+            if (value != null) {
+                return value;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                if (headers[i].header == null
+                        && headers[i].getName().equalsIgnoreCase(name)) {
+                    for (int j = i + 1; j < count; j++) {
+                        if (headers[j].header == null
+                                && headers[j].getName().equalsIgnoreCase(name)) {
+                            removeHeader(j--);
+                        }
                     }
+                    return headers[i].getValue();
                 }
-                return headers[i].getValue();
             }
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setString(name);
+        setKnownHeader(mh, header);
         return mh.getValue();
     }
 
@@ -572,23 +649,44 @@ servlet needs direct access to headers).
         if (!isValidName(header)) {
             return NOOP_CHUNK;
         }
-        final byte[] bytes = header.getLowerCaseBytes();
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCaseLowerCase(bytes)) {
-                for (int j = i + 1; j < count; j++) {
-                    if (headers[j].getName().equalsIgnoreCaseLowerCase(bytes)) {
-                        removeHeader(j--);
-                    }
-                }
-                return headers[i].getValue();
-            }
+        final DataChunk value = findAndRemoveDuplicates(header);
+        if (value != null) {
+            return value;
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setBytes(header.toByteArray());
+        setKnownHeader(mh, header);
 
         return mh.getValue();
     }
 
+    /**
+     * Returns the value of the first header field of the known {@link Header},
+     * removing all the other fields of the same header, or <tt>null</tt> if
+     * there is no such header field.
+     */
+    private DataChunk findAndRemoveDuplicates(final Header header) {
+        final int i = indexOf(header, 0);
+        if (i < 0) {
+            return null;
+        }
+
+        for (int j = i + 1; j < count; j++) {
+            if (headers[j].header == header) {
+                removeHeader(j--);
+            }
+        }
+
+        return headers[i].getValue();
+    }
+
+    private void setKnownHeader(final MimeHeaderField mh, final Header header) {
+        mh.header = header;
+        if (header != null) {
+            knownHeaderCounts[header.ordinal()]++;
+        }
+    }
+
     //-------------------- Getting headers --------------------
     /**
      * Finds and returns a header field with the given name.  If no such
@@ -596,12 +694,8 @@ servlet needs direct access to headers).
      * in the header, an arbitrary one is returned.
      */
     public DataChunk getValue(String name) {
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                return headers[i].getValue();
-            }
-        }
-        return null;
+        final int i = indexOf(name, 0);
+        return i >= 0 ? headers[i].getValue() : null;
     }
 
     /**
@@ -610,13 +704,8 @@ servlet needs direct access to headers).
      * in the header, an arbitrary one is returned.
      */
     public DataChunk getValue(final Header header) {
-        final byte[] bytes = header.getLowerCaseBytes();
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCaseLowerCase(bytes)) {
-                return headers[i].getValue();
-            }
-        }
-        return null;
+        final int i = indexOf(header, 0);
+        return i >= 0 ? headers[i].getValue() : null;
     }
 
     // bad shortcut - it'll convert to string ( too early probably,
@@ -641,8 +730,15 @@ servlet needs direct access to headers).
         // XXX
         // warning: rather sticky code; heavily tuned
 
+        final Header header = Header.find(name);
+        if (header != null) {
+            removeHeader(header);
+            return;
+        }
+
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
+            if (headers[i].header == null
+                    && headers[i].getName().equalsIgnoreCase(name)) {
                 removeHeader(i--);
             }
         }
@@ -650,8 +746,8 @@ servlet needs direct access to headers).
 
     public void removeHeader(final Header header) {
 
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(header.getBytes())) {
+        for (int i = 0; knownHeaderCounts[header.ordinal()] > 0 && i < count; i++) {
+            if (headers[i].header == header) {
                 removeHeader(i--);
             }
         }
@@ -706,8 +802,7 @@ servlet needs direct access to headers).
      */
     public void removeHeaderMatches(final Header header, final String regex) {
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCaseLowerCase(
-                    header.getLowerCaseBytes())
+            if (headers[i].header == header
                     && getValue(i) != null
                     && getValue(i).toString() != null
                     && getValue(i).toString().matches(regex)) {
@@ -723,6 +818,9 @@ servlet needs direct access to headers).
     void removeHeader(int idx) {
         MimeHeaderField mh = headers[idx];
 
+        if (mh.header != null) {
+            knownHeaderCounts[mh.header.ordinal()]--;
+        }
         mh.recycle();
         headers[idx] = headers[count - 1];
         headers[count - 1] = mh;
@@ -896,6 +994,11 @@ final class MimeHeaderField {
     protected final DataChunk nameB = DataChunk.newInstance();
     protected final DataChunk valueB = DataChunk.newInstance();
 
+    /**
+     * The known {@link Header} the name was recognized as, or <tt>null</tt>.
+     */
+    Header header;
+
     private boolean isSerialized;
     /**
      * Creates a new, uninitialized header field.
@@ -905,6 +1008,7 @@ final class MimeHeaderField {
 
     public void recycle() {
         isSerialized = false;
+        header = null;
         nameB.recycle();
         valueB.recycle();
     }
@@ -0,0 +1,205 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.HttpRequestParseTest.StandaloneConnection;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link HeaderScanner} tests.
+ */
+public class HeaderScannerTest {
+
+    private static final String REQUEST =
+            "GET /index.html HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "X-Very-Long-Header-Name-For-Bulk-Scan: value with inner spaces and trailing spaces    \r\n"
+            + "Cookie: _ga=GA1.2.1234567890.1500000000; session=Zm9vYmFyYmF6cXV4cXV1eGNvcmdlZ3JhdWx0\r\n"
+            + "X-Folded-Header-Value: first part of the value\r\n          second part of the value  \r\n"
+            + "X-Tab:\tTABBED\tVALUE\tWITH\tTABS\r\n"
+            + "TRACEPARENT:00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01\n"
+            + "X-Empty:\r\n"
+            + "X-Spaces-Only:                        \r\n"
+            + "Content-Length: 0\r\n"
+            + "\r\n";
+
+    @Test
+    public void testMatches() {
+        for (int b = 0; b < 256; b++) {
+            for (int lane = 0; lane < 8; lane++) {
+                final long word = fill((byte) 'a', lane, (byte) b);
+                final long expected = b == ':' ? 0x80L << (lane * 8) : 0;
+                assertEquals(expected, HeaderScanner.matches(word, 0x3A3A3A3A3A3A3A3AL));
+            }
+        }
+    }
+
+    @Test
+    public void testNotVisible() {
+        for (int b = 0; b < 256; b++) {
+            for (int lane = 0; lane < 8; lane++) {
+                final long word = fill((byte) 'a', lane, (byte) b);
+                final long expected = b < 0x21 || b > 0x7E ? 0x80L << (lane * 8) : 0;
+                assertEquals(expected, HeaderScanner.notVisible(word));
+            }
+        }
+    }
+
+    @Test
+    public void testToLowerCase() {
+        for (int b = 0; b < 128; b++) {
+            for (int lane = 0; lane < 8; lane++) {
+                final long word = fill((byte) 'Q', lane, (byte) b);
+                final int expectedByte = b >= 'A' && b <= 'Z' ? b + 0x20 : b;
+                assertEquals(fill((byte) 'q', lane, (byte) expectedByte),
+                        HeaderScanner.toLowerCase(word));
+            }
+        }
+    }
+
+    @Test
+    public void testHeapBuffer() throws Exception {
+        final byte[] bytes = REQUEST.getBytes(Charsets.ASCII_CHARSET);
+        final MemoryManager mm = MemoryManager.DEFAULT_MEMORY_MANAGER;
+        check(parse(Buffers.wrap(mm, bytes), false), false);
+    }
+
+    @Test
+    public void testHeapBufferWithOffset() throws Exception {
+        final byte[] bytes = REQUEST.getBytes(Charsets.ASCII_CHARSET);
+        final byte[] array = new byte[bytes.length + 13];
+        System.arraycopy(bytes, 0, array, 5, bytes.length);
+        final MemoryManager mm = MemoryManager.DEFAULT_MEMORY_MANAGER;
+        check(parse(Buffers.wrap(mm, array, 5, bytes.length), false), false);
+    }
+
+    @Test
+    public void testDirectBuffer() throws Exception {
+        check(parse(directBuffer(), false), false);
+    }
+
+    @Test
+    public void testDirectBufferPreserveCase() throws Exception {
+        check(parse(directBuffer(), true), true);
+    }
+
+    private static Buffer directBuffer() {
+        final byte[] bytes = REQUEST.getBytes(Charsets.ASCII_CHARSET);
+        final ByteBuffer bb = ByteBuffer.allocateDirect(bytes.length);
+        bb.put(bytes).flip();
+        return Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, bb);
+    }
+
+    private static void check(final HttpRequestPacket request,
+            final boolean isCasePreserved) {
+        assertEquals("localhost",
+                request.getHeader("Host"));
+        assertEquals("value with inner spaces and trailing spaces",
+                request.getHeader("X-Very-Long-Header-Name-For-Bulk-Scan"));
+        assertEquals("_ga=GA1.2.1234567890.1500000000; session=Zm9vYmFyYmF6cXV4cXV1eGNvcmdlZ3JhdWx0",
+                request.getHeader("Cookie"));
+        assertEquals("first part of the value second part of the value",
+                request.getHeader("X-Folded-Header-Value"));
+        assertEquals("TABBED\tVALUE\tWITH\tTABS",
+                request.getHeader("X-Tab"));
+        assertEquals("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01",
+                request.getHeader("traceparent"));
+        assertEquals("", request.getHeader("X-Empty"));
+        assertEquals("", request.getHeader("X-Spaces-Only"));
+        assertEquals(0, request.getContentLength());
+
+        assertEquals(isCasePreserved
+                ? "X-Very-Long-Header-Name-For-Bulk-Scan"
+                : "x-very-long-header-name-for-bulk-scan",
+                parsedName(request, "X-Very-Long-Header-Name-For-Bulk-Scan"));
+        assertEquals(isCasePreserved ? "TRACEPARENT" : "traceparent",
+                parsedName(request, "traceparent"));
+    }
+
+    private static String parsedName(final HttpRequestPacket request,
+            final String name) {
+        for (String parsedName : request.getHeaders().names()) {
+            if (parsedName.equalsIgnoreCase(name)) {
+                return parsedName;
+            }
+        }
+
+        throw new AssertionError("Header not found: " + name);
+    }
+
+    private static HttpRequestPacket parse(final Buffer input,
+            final boolean preserveCase) throws IOException {
+        final HttpServerFilter filter = new HttpServerFilter(true, 8192, null, null) {
+            @Override
+            protected void onHttpHeaderError(final HttpHeader httpHeader,
+                    final FilterChainContext ctx,
+                    final Throwable t) throws IOException {
+                throw new IllegalStateException(t);
+            }
+        };
+        filter.setPreserveHeaderCase(preserveCase);
+
+        final FilterChainContext ctx =
+                FilterChainContext.create(new StandaloneConnection());
+        ctx.setMessage(input);
+        filter.handleRead(ctx);
+
+        return (HttpRequestPacket) ((HttpContent) ctx.getMessage()).getHttpHeader();
+    }
+
+    private static long fill(final byte filler, final int lane, final byte b) {
+        long word = 0;
+        for (int i = 0; i < 8; i++) {
+            word |= ((long) ((i == lane ? b : filler) & 0xFF)) << (i * 8);
+        }
+
+        return word;
+    }
+}
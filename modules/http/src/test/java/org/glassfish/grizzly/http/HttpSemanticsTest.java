@@ -887,6 +887,93 @@ public class HttpSemanticsTest extends TestCase {
         assertFalse(response.getProcessingState().isKeepAlive());
     }
     
+    public void testPreEncodedHeaders() throws Throwable {
+        final PreEncodedHeaders preEncodedHeaders = PreEncodedHeaders.builder()
+                .header(Header.Server, "Grizzly")
+                .header(Header.ContentType, "application/json")
+                .header("X-Static", "yes")
+                .build();
+        
+        final BaseFilter serverResponseFilter = new BaseFilter() {
+            @Override
+            public NextAction handleRead(FilterChainContext ctx) throws IOException {
+                final HttpContent httpContent = ctx.getMessage();
+
+                if (!httpContent.isLast()) {
+                    return ctx.getStopAction(httpContent);
+                }
+
+                HttpRequestPacket request =
+                        (HttpRequestPacket) httpContent.getHttpHeader();
+                HttpResponsePacket response = request.getResponse();
+                HttpStatus.OK_200.setValues(response);
+                response.setPreEncodedHeaders(preEncodedHeaders);
+                response.setContentLength(0);
+                ctx.write(response);
+                return ctx.getStopAction();
+            }
+        };
+
+        ExpectedResult result = new ExpectedResult();
+        result.setProtocol("HTTP/1.1");
+        result.setStatusCode(200);
+        result.addHeader("Content-Length", "0");
+        result.addHeader("Server", "Grizzly");
+        result.addHeader("Content-Type", "application/json");
+        result.addHeader("X-Static", "yes");
+        result.setStatusMessage("ok");
+        doTest(createHttpRequest(), result, serverResponseFilter);
+    }
+
+    public void testPreEncodedHeadersEncoding() throws Throwable {
+        final TCPNIOConnection connection = new TCPNIOConnection(
+                TCPNIOTransportBuilder.newInstance().build(), null);
+        
+        Buffer requestBuf = Buffers.wrap(connection.getMemoryManager(),
+                "GET /path HTTP/1.1\n"
+                        + "Host: localhost:" + PORT + '\n'
+                        + '\n');
+        
+        FilterChainContext ctx = FilterChainContext.create(connection);
+        ctx.setMessage(requestBuf);
+        httpServerFilter.handleRead(ctx);
+        
+        final HttpRequestPacket request =
+                (HttpRequestPacket) ((HttpContent) ctx.getMessage())
+                        .getHttpHeader();
+        
+        final HttpResponsePacket response = request.getResponse();
+        response.setContentLength(0);
+        response.setContentType("text/plain");
+        response.setPreEncodedHeaders(PreEncodedHeaders.builder()
+                .header(Header.ContentType, "application/json")
+                .header("X-Static", "yes")
+                .build());
+        
+        final String encoded = httpServerFilter.encodeHttpPacket(ctx, response)
+                .toStringContent(Charsets.ASCII_CHARSET);
+        
+        // the pre-encoded Content-Type wins, the Date line is added once
+        assertTrue(encoded, encoded.contains("\r\nContent-Type: application/json\r\n"));
+        assertFalse(encoded, encoded.contains("text/plain"));
+        assertTrue(encoded, encoded.contains("\r\nX-Static: yes\r\n"));
+        assertEquals(encoded, encoded.indexOf("\r\nDate: "),
+                encoded.lastIndexOf("\r\nDate: "));
+        assertTrue(encoded, encoded.endsWith("\r\n\r\n"));
+        
+        try {
+            PreEncodedHeaders.builder().header(Header.ContentLength, "0");
+            fail("Content-Length can't be pre-encoded");
+        } catch (IllegalArgumentException expected) {
+        }
+        
+        try {
+            PreEncodedHeaders.builder().header("X-Split", "a\r\nX-Injected: b");
+            fail("CRLF can't be a part of the value");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+    
     // --------------------------------------------------------- Private Methods
 
     
@@ -0,0 +1,224 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.util;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentStringCacheTest {
+
+    @Test
+    public void testByteChunkHit() {
+        final ConcurrentStringCache cache = new ConcurrentStringCache(16, 128);
+
+        final String s1 = cache.toString(byteChunk("text/html"));
+        final ByteChunk bc = byteChunk("text/html");
+        final String s2 = cache.toString(bc);
+
+        assertEquals("text/html", s2);
+        assertSame(s1, s2);
+        assertSame(s1, bc.toString());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testCharsetIsPartOfKey() {
+        final ConcurrentStringCache cache = new ConcurrentStringCache(16, 128);
+        final Charset utf8 = Charsets.UTF8_CHARSET;
+
+        final byte[] bytes = "caf\u00e9".getBytes(utf8);
+        final ByteChunk latin1 = new ByteChunk();
+        latin1.setBytes(bytes, 0, bytes.length);
+        final ByteChunk utf = new ByteChunk();
+        utf.setBytes(bytes.clone(), 0, bytes.length);
+        utf.setCharset(utf8);
+
+        assertEquals(new String(bytes, Constants.DEFAULT_HTTP_CHARSET),
+                cache.toString(latin1));
+        assertEquals("caf\u00e9", cache.toString(utf));
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testBufferAndByteChunksShareEntries() {
+        final ConcurrentStringCache cache = new ConcurrentStringCache(16, 128);
+
+        final String s1 = cache.toString(byteChunk("gzip, deflate"));
+        final BufferChunk bc = new BufferChunk();
+        bc.setBufferChunk(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                "xgzip, deflate"), 1, 14);
+
+        assertSame(s1, cache.toString(bc));
+    }
+
+    @Test
+    public void testCharChunk() {
+        final ConcurrentStringCache cache = new ConcurrentStringCache(16, 128);
+
+        final CharChunk cc1 = new CharChunk();
+        cc1.setChars("/index.html".toCharArray(), 0, 11);
+        final CharChunk cc2 = new CharChunk();
+        cc2.setChars("/index.html".toCharArray(), 0, 11);
+
+        assertSame(cache.toString(cc1), cache.toString(cc2));
+        // char and byte content are never mixed up
+        assertNotSame(cache.toString(cc1), cache.toString(byteChunk("/index.html")));
+    }
+
+    @Test
+    public void testLongStringsNotCached() {
+        final ConcurrentStringCache cache = new ConcurrentStringCache(16, 4);
+
+        assertNotSame(cache.toString(byteChunk("abcdef")),
+                cache.toString(byteChunk("abcdef")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveOneOffs() {
+        // a single bucket
+        final ConcurrentStringCache cache = new ConcurrentStringCache(
+                ConcurrentStringCache.WAYS, 128);
+
+        final String hot = cache.toString(byteChunk("hot"));
+        for (int i = 0; i < 10; i++) {
+            assertSame(hot, cache.toString(byteChunk("hot")));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            cache.toString(byteChunk("one-off-" + i));
+        }
+        
+        assertSame(hot, cache.toString(byteChunk("hot")));
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(ConcurrentStringCache.WAYS, cache.size());
+        
+        // a newly popular string still gets into the cache
+        for (int i = 0; i < 100; i++) {
+            cache.toString(byteChunk("new-hot"));
+        }
+        final long hits = cache.getHitCount();
+        cache.toString(byteChunk("new-hot"));
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ConcurrentStringCache cache = new ConcurrentStringCache(64, 128);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Callable<Void> task = new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < 100000; i++) {
+                        final String value = "value-" + (i % 200);
+                        assertEquals(value, cache.toString(byteChunk(value)));
+                    }
+                    return null;
+                }
+            };
+
+            final Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(task);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(400000, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.size() <= cache.getMaxEntries());
+    }
+
+    @Test
+    public void testStringCacheFacade() {
+        final boolean enabled = StringCache.getByteEnabled();
+        StringCache.setByteEnabled(true);
+        try {
+            StringCache.reset();
+            final String s1 = byteChunk("keep-alive").toString();
+            final String s2 = byteChunk("keep-alive").toString();
+            assertSame(s1, s2);
+            assertEquals(1, StringCache.getHitCountTotal());
+            assertEquals(2, StringCache.getAccessCount());
+        } finally {
+            StringCache.setByteEnabled(enabled);
+            StringCache.reset();
+        }
+    }
+
+    @Test
+    public void testStringCacheDisabledBySize() {
+        final boolean enabled = StringCache.getByteEnabled();
+        final int cacheSize = StringCache.getCacheSize();
+        StringCache.setByteEnabled(true);
+        try {
+            StringCache.setCacheSize(0);
+            assertEquals("keep-alive", byteChunk("keep-alive").toString());
+            assertEquals("keep-alive", byteChunk("keep-alive").toString());
+            assertEquals(0, StringCache.getAccessCount());
+            assertEquals(0, StringCache.getSize());
+        } finally {
+            StringCache.setByteEnabled(enabled);
+            StringCache.setCacheSize(cacheSize);
+        }
+    }
+
+    private static ByteChunk byteChunk(final String s) {
+        final byte[] bytes = s.getBytes(Charsets.ASCII_CHARSET);
+        final ByteChunk bc = new ByteChunk();
+        bc.setBytes(bytes, 0, bytes.length);
+        return bc;
+    }
+}
@@ -40,6 +40,7 @@
 
 package org.glassfish.grizzly.http.util;
 
+import org.glassfish.grizzly.utils.Charsets;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -167,4 +168,85 @@ public class MimeHeadersTest {
         Assert.assertArrayEquals(expectedValuesSet2, list.toArray(new String[list.size()]));
     }
 
+    @Test
+    public void testKnownHeaderLookups() throws Exception {
+        final MimeHeaders headers = new MimeHeaders();
+        final byte[] name = "Accept-Encoding".getBytes(Charsets.ASCII_CHARSET);
+        headers.addValue(name, 0, name.length).setString("gzip");
+        headers.addValue("user-agent").setString("test");
+        headers.addValue(Header.Host).setString("localhost");
+        headers.addValue("X-Unknown").setString("unknown");
+
+        final int idx = headers.indexOf(Header.AcceptEncoding, 0);
+        Assert.assertEquals(Header.AcceptEncoding, headers.getKnownHeader(idx));
+        Assert.assertEquals(idx, headers.indexOf("ACCEPT-ENCODING", 0));
+        Assert.assertEquals("gzip", headers.getHeader(Header.AcceptEncoding));
+        Assert.assertEquals("test", headers.getHeader(Header.UserAgent));
+        Assert.assertEquals("localhost", headers.getHeader("HOST"));
+        Assert.assertEquals("unknown", headers.getHeader("x-unknown"));
+        Assert.assertNull(headers.getKnownHeader(
+                headers.indexOf("x-unknown", 0)));
+        Assert.assertNull(headers.getValue(Header.Cookie));
+        Assert.assertEquals(-1, headers.indexOf("Cookie", 0));
+
+        headers.addValue("accept-encoding").setString("br");
+        headers.setValue(Header.AcceptEncoding).setString("deflate");
+        Assert.assertEquals("deflate", headers.getHeader("Accept-Encoding"));
+        Assert.assertEquals(-1, headers.indexOf(Header.AcceptEncoding, idx + 1));
+
+        final MimeHeaders copy = new MimeHeaders();
+        copy.copyFrom(headers);
+        Assert.assertEquals("localhost", copy.getHeader(Header.Host));
+
+        headers.removeHeader("Accept-Encoding");
+        Assert.assertNull(headers.getValue(Header.AcceptEncoding));
+        Assert.assertEquals("deflate", copy.getHeader(Header.AcceptEncoding));
+
+        headers.clear();
+        Assert.assertNull(headers.getValue(Header.Host));
+        Assert.assertEquals(-1, headers.indexOf(Header.UserAgent, 0));
+    }
+
+    @Test
+    public void testHeaderValueCache() throws Exception {
+        final HeaderValueCache cache = new HeaderValueCache(16);
+        final byte[] value = "gzip, deflate, br".getBytes(Charsets.ASCII_CHARSET);
+        
+        // the value is cached on the second sighting
+        final DataChunk first = DataChunk.newInstance();
+        first.setBytes(value.clone(), 0, value.length);
+        cache.intern(Header.AcceptEncoding, first);
+
+        final DataChunk second = DataChunk.newInstance();
+        second.setBytes(value.clone(), 0, value.length);
+        cache.intern(Header.AcceptEncoding, second);
+        Assert.assertNotSame(first.toString(), second.toString());
+
+        final DataChunk third = DataChunk.newInstance();
+        third.setBytes(value.clone(), 0, value.length);
+        cache.intern(Header.AcceptEncoding, third);
+
+        Assert.assertEquals("gzip, deflate, br", third.toString());
+        Assert.assertSame(second.toString(), third.toString());
+        
+        // the same length value of the same header doesn't evict the cached one
+        final byte[] other = "gzip, deflate, xx".getBytes(Charsets.ASCII_CHARSET);
+        for (int i = 0; i < 2; i++) {
+            final DataChunk chunk = DataChunk.newInstance();
+            chunk.setBytes(other.clone(), 0, other.length);
+            cache.intern(Header.AcceptEncoding, chunk);
+        }
+        
+        final DataChunk fourth = DataChunk.newInstance();
+        fourth.setBytes(value.clone(), 0, value.length);
+        cache.intern(Header.AcceptEncoding, fourth);
+        Assert.assertSame(third.toString(), fourth.toString());
+        
+        // not cacheable
+        final DataChunk notCached = DataChunk.newInstance();
+        notCached.setBytes(value.clone(), 0, value.length);
+        cache.intern(Header.Authorization, notCached);
+        Assert.assertNotSame(third.toString(), notCached.toString());
+    }
+
 }
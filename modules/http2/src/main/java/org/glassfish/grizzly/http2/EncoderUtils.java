@@ -43,10 +43,12 @@ package org.glassfish.grizzly.http2;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.PreEncodedHeaders;
 import org.glassfish.grizzly.http.util.Ascii;
 import org.glassfish.grizzly.http.util.BufferChunk;
 import org.glassfish.grizzly.http.util.ByteChunk;
@@ -93,6 +95,15 @@ class EncoderUtils extends EncoderDecoderUtilsBase {
 
         encodeUserHeaders(headers, encoder);
 
+        final PreEncodedHeaders preEncodedHeaders = response.getPreEncodedHeaders();
+        if (preEncodedHeaders != null) {
+            for (int i = 0; i < preEncodedHeaders.size(); i++) {
+                encoder.encodeHeader(
+                        preEncodedHeaders.getName(i).toLowerCase(Locale.ENGLISH),
+                        preEncodedHeaders.getValue(i));
+            }
+        }
+
         return encoder.flushHeaders();
     }
     
@@ -169,6 +169,9 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             return true;
         }
 
+        // coalesce the frames written while processing the input
+        final Http2SessionOutputSink outputSink = http2Session.getOutputSink();
+        final boolean isCorked = outputSink.cork();
         try {
             try {
                 for (Http2Frame inFrame : framesList) {
@@ -216,6 +219,10 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
                         ctx.getConnection() + " during Http2Frame processing", e);
             }
             http2Session.terminate(ErrorCode.INTERNAL_ERROR, e.getMessage());
+        } finally {
+            if (isCorked) {
+                outputSink.uncork();
+            }
         }
         
         return false;
@@ -612,6 +619,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
         PingFrame pingFrame = (PingFrame) frame;
 
         if (pingFrame.isAckSet()) {
+            http2Session.onPingAck(pingFrame.getOpaqueData());
             return;
         }
 
@@ -1022,6 +1030,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
 
         // Always ACK the data to maintain flow-control state
         http2Session.ackConsumedData(data.remaining());
+        http2Session.onDataReceived(data.remaining());
 
         // If we're going away, ignore any frames for streams greater than the last stream ID from the goaway frame.
         if (ignoreFrameForStreamId(http2Session, streamId)) {
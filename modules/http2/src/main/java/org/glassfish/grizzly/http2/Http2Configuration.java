@@ -41,6 +41,9 @@
 package org.glassfish.grizzly.http2;
 
 import org.glassfish.grizzly.filterchain.Filter;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 
 import java.util.concurrent.ExecutorService;
@@ -51,12 +54,19 @@ import java.util.concurrent.ExecutorService;
  * @see Http2ClientFilter
  * @see Http2ServerFilter
  */
-public class Http2Configuration {
+public class Http2Configuration implements MonitoringAware<Http2Probe> {
 
     public static final int DEFAULT_MAX_HEADER_LIST_SIZE = 4096;
     public static final float DEFAULT_STREAMS_HIGH_WATER_MARK = 0.5f;
     public static final float DEFAULT_STREAMS_CLEAN_PERCENTAGE = 0.5f;
     public static final int DEFAULT_CLEAN_FREQUENCY_CHECK = 50;
+    public static final int DEFAULT_MAX_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * HTTP/2 probes
+     */
+    protected final DefaultMonitoringConfig<Http2Probe> monitoringConfig =
+            new DefaultMonitoringConfig<>(Http2Probe.class);
 
     private volatile int maxConcurrentStreams;
     private volatile int initialWindowSize;
@@ -68,6 +78,11 @@ public class Http2Configuration {
     private volatile boolean disableCipherCheck;
     private volatile boolean priorKnowledge;
     private volatile boolean pushEnabled;
+    private volatile Http2OutputScheduler.Factory outputSchedulerFactory;
+    private volatile int outputQuantum;
+    private volatile boolean adaptiveWindow;
+    private volatile int maxWindowSize;
+    private volatile boolean coalesceWrites;
     private final ExecutorService executorService;
     private final ThreadPoolConfig threadPoolConfig;
 
@@ -88,6 +103,11 @@ public class Http2Configuration {
         streamsHighWaterMark = builder.streamsHighWaterMark;
         cleanPercentage = builder.cleanPercentage;
         cleanFrequencyCheck = builder.cleanFrequencyCheck;
+        outputSchedulerFactory = builder.outputSchedulerFactory;
+        outputQuantum = builder.outputQuantum;
+        adaptiveWindow = builder.adaptiveWindow;
+        maxWindowSize = builder.maxWindowSize;
+        coalesceWrites = builder.coalesceWrites;
     }
 
 
@@ -261,6 +281,131 @@ public class Http2Configuration {
         this.cleanFrequencyCheck = cleanFrequencyCheck;
     }
 
+    /**
+     * @return the {@link Http2OutputScheduler.Factory}, which creates the
+     *  {@link Http2OutputScheduler} for every HTTP/2 session.
+     *  If not explicitly configured, this returns {@link Http2OutputScheduler#WEIGHTED_FAIR}.
+     *
+     * @since 3.0
+     */
+    public Http2OutputScheduler.Factory getOutputSchedulerFactory() {
+        return outputSchedulerFactory;
+    }
+
+    /**
+     * Sets the {@link Http2OutputScheduler.Factory}, which creates the
+     * {@link Http2OutputScheduler} for every HTTP/2 session, the scheduler
+     * decides how the DATA frames of the session's streams are interleaved.
+     * Pass {@link Http2OutputScheduler#FIFO} to write the DATA frames in the
+     * order they were queued.
+     *
+     * @since 3.0
+     */
+    public void setOutputSchedulerFactory(final Http2OutputScheduler.Factory outputSchedulerFactory) {
+        this.outputSchedulerFactory = outputSchedulerFactory;
+    }
+
+    /**
+     * @return the number of DATA bytes a stream with the default weight writes
+     *  per turn, when the {@link Http2OutputScheduler#WEIGHTED_FAIR} scheduler
+     *  is used. Non-positive value means the peer's max frame payload size.
+     *
+     * @since 3.0
+     */
+    public int getOutputQuantum() {
+        return outputQuantum;
+    }
+
+    /**
+     * Sets the number of DATA bytes a stream with the default weight writes
+     * per turn, when the {@link Http2OutputScheduler#WEIGHTED_FAIR} scheduler
+     * is used. Non-positive value means the peer's max frame payload size.
+     *
+     * @since 3.0
+     */
+    public void setOutputQuantum(final int outputQuantum) {
+        this.outputQuantum = outputQuantum;
+    }
+
+    /**
+     * @return <code>true</code> if the local flow-control windows grow
+     *  automatically, based on the estimated bandwidth-delay product of the
+     *  connection. If not explicitly configured, this returns <code>false</code>.
+     *
+     * @since 3.0
+     */
+    public boolean isAdaptiveWindow() {
+        return adaptiveWindow;
+    }
+
+    /**
+     * Enables or disables the adaptive flow control. If enabled, each session
+     * measures the PING round-trip time and the amount of DATA received
+     * during the round-trip, and grows the connection and stream windows,
+     * advertised to the peer, up to {@link #getMaxWindowSize()}, when the
+     * windows limit the throughput. The windows never shrink.
+     *
+     * @since 3.0
+     */
+    public void setAdaptiveWindow(final boolean adaptiveWindow) {
+        this.adaptiveWindow = adaptiveWindow;
+    }
+
+    /**
+     * @return the maximum size, in bytes, the adaptive flow control may grow
+     *  the local windows to. If not explicitly configured, this returns
+     *  {@value #DEFAULT_MAX_WINDOW_SIZE}.
+     *
+     * @since 3.0
+     */
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * Sets the maximum size, in bytes, the adaptive flow control may grow
+     * the local windows to.
+     *
+     * @since 3.0
+     */
+    public void setMaxWindowSize(final int maxWindowSize) {
+        this.maxWindowSize = maxWindowSize;
+    }
+
+    /**
+     * @return <code>true</code> if the frames, written while a session's input
+     *  is being processed, are coalesced into a single write.
+     *  If not explicitly configured, this returns <code>true</code>.
+     *
+     * @since 3.0
+     */
+    public boolean isCoalesceWrites() {
+        return coalesceWrites;
+    }
+
+    /**
+     * Enables or disables write coalescing. If enabled, the frames written by
+     * the thread, processing a session's input, and the frames written by
+     * other threads meanwhile, are queued, and written at once, when the
+     * input processing completes, so the session responds with one gathering
+     * write per read instead of a write per frame.
+     *
+     * @since 3.0
+     */
+    public void setCoalesceWrites(final boolean coalesceWrites) {
+        this.coalesceWrites = coalesceWrites;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 3.0
+     */
+    @Override
+    public MonitoringConfig<Http2Probe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+
     /**
      * @return the thread pool configuration for servicing HTTP/2 streams, if any.
      */
@@ -289,6 +434,12 @@ public class Http2Configuration {
         private float streamsHighWaterMark = DEFAULT_STREAMS_HIGH_WATER_MARK;
         private float cleanPercentage = DEFAULT_STREAMS_CLEAN_PERCENTAGE;
         private int cleanFrequencyCheck = DEFAULT_CLEAN_FREQUENCY_CHECK;
+        private Http2OutputScheduler.Factory outputSchedulerFactory =
+                Http2OutputScheduler.WEIGHTED_FAIR;
+        private int outputQuantum = -1;
+        private boolean adaptiveWindow;
+        private int maxWindowSize = DEFAULT_MAX_WINDOW_SIZE;
+        private boolean coalesceWrites = true;
         private ThreadPoolConfig threadPoolConfig;
         private ExecutorService executorService;
 
@@ -394,6 +545,46 @@ public class Http2Configuration {
             return this;
         }
 
+        /**
+         * @see #setOutputSchedulerFactory(Http2OutputScheduler.Factory)
+         */
+        public Http2ConfigurationBuilder outputSchedulerFactory(final Http2OutputScheduler.Factory val) {
+            outputSchedulerFactory = val;
+            return this;
+        }
+
+        /**
+         * @see #setOutputQuantum(int)
+         */
+        public Http2ConfigurationBuilder outputQuantum(final int val) {
+            outputQuantum = val;
+            return this;
+        }
+
+        /**
+         * @see #setAdaptiveWindow(boolean)
+         */
+        public Http2ConfigurationBuilder adaptiveWindow(final boolean val) {
+            adaptiveWindow = val;
+            return this;
+        }
+
+        /**
+         * @see #setMaxWindowSize(int)
+         */
+        public Http2ConfigurationBuilder maxWindowSize(final int val) {
+            maxWindowSize = val;
+            return this;
+        }
+
+        /**
+         * @see #setCoalesceWrites(boolean)
+         */
+        public Http2ConfigurationBuilder coalesceWrites(final boolean val) {
+            coalesceWrites = val;
+            return this;
+        }
+
         /**
          * @return a new {@link Http2Configuration} instances based on the values of this builder.
          */
@@ -0,0 +1,242 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+
+/**
+ * Decides the order, in which the DATA frames of the {@link Http2Session}'s
+ * streams are written, once they passed the stream flow control.
+ *
+ * The {@link Http2SessionOutputSink} represents every stream, which has DATA
+ * to write, with an {@link Entry}, {@link #add(Entry) adds} it to the scheduler,
+ * {@link #poll() polls} the next {@link Entry} to write and lets it write up to
+ * {@link #getQuantum(Entry)} bytes before the {@link Entry}, if it still has
+ * DATA to write, is added back to the scheduler.
+ * The scheduler is not required to be thread-safe, the
+ * {@link Http2SessionOutputSink} calls it under its own lock.
+ *
+ * @see Http2Configuration#setOutputSchedulerFactory(Factory)
+ * @since 3.0
+ */
+public interface Http2OutputScheduler {
+
+    /**
+     * Doesn't schedule anything, all the DATA frames of a session are written
+     * in the order they were queued.
+     */
+    Factory FIFO = new Factory() {
+        @Override
+        public Http2OutputScheduler create(final Http2Session http2Session) {
+            return null;
+        }
+    };
+
+    /**
+     * Creates {@link WeightedFairOutputScheduler}s, which honor the RFC 9218
+     * urgency and incremental parameters, the RFC 7540 stream dependencies and
+     * weights.
+     */
+    Factory WEIGHTED_FAIR = new Factory() {
+        @Override
+        public Http2OutputScheduler create(final Http2Session http2Session) {
+            final int quantum = http2Session.handlerFilter.getConfiguration()
+                    .getOutputQuantum();
+            return new WeightedFairOutputScheduler(quantum > 0
+                    ? quantum
+                    : http2Session.getPeerMaxFramePayloadSize());
+        }
+    };
+
+    /**
+     * Adds the {@link Entry}, which has DATA to write, to the schedule.
+     *
+     * @param entry the {@link Entry}
+     */
+    void add(Entry entry);
+
+    /**
+     * Removes and returns the {@link Entry}, which should write next.
+     *
+     * @return the {@link Entry}, which should write next, or <tt>null</tt>,
+     *         if there's nothing scheduled.
+     */
+    Entry poll();
+
+    /**
+     * @param entry the {@link Entry} returned by {@link #poll()}.
+     * @return the number of DATA bytes the {@link Entry} may write during its turn.
+     */
+    int getQuantum(Entry entry);
+
+    /**
+     * @return <tt>true</tt>, if nothing is scheduled.
+     */
+    boolean isEmpty();
+
+    /**
+     * Creates the {@link Http2OutputScheduler} for a {@link Http2Session}.
+     */
+    interface Factory {
+        /**
+         * @param http2Session the {@link Http2Session}.
+         * @return the {@link Http2OutputScheduler} for the {@link Http2Session},
+         *         or <tt>null</tt> to write the session's DATA frames in FIFO order.
+         */
+        Http2OutputScheduler create(Http2Session http2Session);
+    }
+
+    /**
+     * The scheduling parameters of a stream.
+     */
+    final class Entry {
+        /**
+         * The RFC 7540 default stream weight.
+         */
+        public static final int DEFAULT_WEIGHT = 16;
+
+        /**
+         * The RFC 9218 default urgency.
+         */
+        public static final int DEFAULT_URGENCY = 3;
+
+        /**
+         * The RFC 9218 priority header name.
+         */
+        public static final String PRIORITY_HEADER = "priority";
+
+        private final int streamId;
+        private final Entry parent;
+        private final int weight;
+        private final int urgency;
+        private final boolean incremental;
+
+        // the DATA records, queued by Http2SessionOutputSink
+        final Queue<Object> records = new ArrayDeque<>(2);
+        boolean isScheduled;
+
+        /**
+         * @param streamId the stream ID.
+         * @param parent the {@link Entry} of the stream, this stream depends on,
+         *               or <tt>null</tt>.
+         * @param weight the RFC 7540 weight [1; 256].
+         * @param urgency the RFC 9218 urgency [0; 7], lower is more urgent.
+         * @param incremental the RFC 9218 incremental parameter.
+         */
+        public Entry(final int streamId, final Entry parent, final int weight,
+                final int urgency, final boolean incremental) {
+            this.streamId = streamId;
+            this.parent = parent;
+            this.weight = Math.min(256, Math.max(1, weight));
+            this.urgency = Math.min(7, Math.max(0, urgency));
+            this.incremental = incremental;
+        }
+
+        public int getStreamId() {
+            return streamId;
+        }
+
+        public Entry getParent() {
+            return parent;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getUrgency() {
+            return urgency;
+        }
+
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        /**
+         * @return <tt>true</tt>, if the {@link Entry} is added to the scheduler.
+         */
+        public boolean isScheduled() {
+            return isScheduled;
+        }
+
+        /**
+         * Creates the {@link Entry} for the {@link Http2Stream}. The stream's
+         * RFC 9218 <tt>priority</tt> header, if any, defines the urgency and
+         * incremental parameters, the missing parameters get the RFC 9218
+         * defaults: the default urgency and non-incremental.
+         */
+        static Entry create(final Http2Stream stream, final Entry parent) {
+            int urgency = DEFAULT_URGENCY;
+            boolean incremental = false;
+
+            final HttpRequestPacket request = stream.getRequest();
+            final String priority = request != null
+                    ? request.getHeader(PRIORITY_HEADER)
+                    : null;
+            if (priority != null) {
+                for (String param : priority.split(",")) {
+                    param = param.trim();
+                    if (param.startsWith("u=")) {
+                        try {
+                            urgency = Integer.parseInt(param.substring(2).trim());
+                        } catch (NumberFormatException ignored) {
+                        }
+                    } else if (param.equals("i") || param.equals("i=?1")) {
+                        incremental = true;
+                    }
+                }
+            }
+
+            return new Entry(stream.getId(), parent,
+                    stream.getPriority() > 0 ? stream.getPriority() : DEFAULT_WEIGHT,
+                    urgency, incremental);
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{streamId=" + streamId
+                    + ", weight=" + weight
+                    + ", urgency=" + urgency
+                    + ", incremental=" + incremental + '}';
+        }
+    }
+}
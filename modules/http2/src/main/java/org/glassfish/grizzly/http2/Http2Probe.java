@@ -0,0 +1,121 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+import org.glassfish.grizzly.Connection;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by Grizzly
+ * HTTP/2 sessions. The probes are registered using
+ * {@link Http2Configuration#getMonitoringConfig()}.
+ *
+ * @since 3.0
+ */
+public interface Http2Probe {
+
+    /**
+     * Method will be called, when the adaptive flow control measured a
+     * bandwidth-delay product sample.
+     *
+     * @param connection {@link Connection}, the event belongs to.
+     * @param rttNanos the smoothed PING round-trip time, in nanoseconds.
+     * @param bdp the number of bytes received during the round-trip.
+     */
+    void onBdpSampleEvent(Connection<?> connection, long rttNanos, int bdp);
+
+    /**
+     * Method will be called, when the local (receive) flow-control windows
+     * of the session have been changed.
+     *
+     * @param connection {@link Connection}, the event belongs to.
+     * @param connectionWindowSize the new connection window size.
+     * @param streamWindowSize the new initial stream window size.
+     */
+    void onLocalWindowSizeChangeEvent(Connection<?> connection,
+            int connectionWindowSize, int streamWindowSize);
+
+    /**
+     * Method will be called, when the session had DATA to write, but
+     * could not, because the peer's connection flow-control window was
+     * exhausted, and then the peer opened the window.
+     *
+     * @param connection {@link Connection}, the event belongs to.
+     * @param stallNanos how long, in nanoseconds, the output was stalled.
+     */
+    void onPeerWindowStallEvent(Connection<?> connection, long stallNanos);
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * {@link Http2Probe} adapter that provides no-op implementations for
+     * all interface methods allowing easy extension by the developer.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public static class Adapter implements Http2Probe {
+
+
+        // --------------------------------------------- Methods from Http2Probe
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onBdpSampleEvent(Connection<?> connection,
+                long rttNanos, int bdp) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onLocalWindowSizeChangeEvent(Connection<?> connection,
+                int connectionWindowSize, int streamWindowSize) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onPeerWindowStallEvent(Connection<?> connection,
+                long stallNanos) {}
+
+    } // END Adapter
+}
@@ -0,0 +1,114 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+import org.glassfish.grizzly.Connection;
+
+/**
+ * Utility class, which has notification methods for different
+ * {@link Http2Probe} events.
+ */
+final class Http2ProbeNotifier {
+
+    /**
+     * Notify registered {@link Http2Probe}s about the "BDP sample" event.
+     *
+     * @param http2Session the <tt>Http2Session</tt> event occurred on.
+     * @param rttNanos the smoothed PING round-trip time, in nanoseconds.
+     * @param bdp the number of bytes received during the round-trip.
+     */
+    static void notifyBdpSample(final Http2Session http2Session,
+            final long rttNanos, final int bdp) {
+
+        final Http2Probe[] probes = getProbes(http2Session);
+        if (probes != null) {
+            final Connection<?> connection = http2Session.getConnection();
+            for (Http2Probe probe : probes) {
+                probe.onBdpSampleEvent(connection, rttNanos, bdp);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link Http2Probe}s about the "local window size
+     * changed" event.
+     *
+     * @param http2Session the <tt>Http2Session</tt> event occurred on.
+     * @param connectionWindowSize the new connection window size.
+     * @param streamWindowSize the new initial stream window size.
+     */
+    static void notifyLocalWindowSizeChange(final Http2Session http2Session,
+            final int connectionWindowSize, final int streamWindowSize) {
+
+        final Http2Probe[] probes = getProbes(http2Session);
+        if (probes != null) {
+            final Connection<?> connection = http2Session.getConnection();
+            for (Http2Probe probe : probes) {
+                probe.onLocalWindowSizeChangeEvent(connection,
+                        connectionWindowSize, streamWindowSize);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link Http2Probe}s about the "peer window stall"
+     * event.
+     *
+     * @param http2Session the <tt>Http2Session</tt> event occurred on.
+     * @param stallNanos how long, in nanoseconds, the output was stalled.
+     */
+    static void notifyPeerWindowStall(final Http2Session http2Session,
+            final long stallNanos) {
+
+        final Http2Probe[] probes = getProbes(http2Session);
+        if (probes != null) {
+            final Connection<?> connection = http2Session.getConnection();
+            for (Http2Probe probe : probes) {
+                probe.onPeerWindowStallEvent(connection, stallNanos);
+            }
+        }
+    }
+
+    private static Http2Probe[] getProbes(final Http2Session http2Session) {
+        return http2Session.handlerFilter.getConfiguration()
+                .monitoringConfig.getProbesUnsafe();
+    }
+}
@@ -71,6 +71,7 @@ import org.glassfish.grizzly.http.HttpPacket;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.PreEncodedHeaders;
 import org.glassfish.grizzly.http.Protocol;
 import org.glassfish.grizzly.http.server.http2.PushEvent;
 import org.glassfish.grizzly.http.util.FastHttpDateFormat;
@@ -856,7 +857,9 @@ public class Http2ServerFilter extends Http2BaseFilter {
                                               headersFrame.getStreamId(),
                                               headersFrame.getStreamDependency(),
                                               headersFrame.isExclusive(),
-                                              0);
+                                              headersFrame.isFlagSet(HeadersFrame.PRIORITIZED)
+                                                      ? headersFrame.getWeight() + 1
+                                                      : 0);
         if (stream == null) { // GOAWAY has been sent, so ignoring this request
             request.recycle();
             return;
@@ -1047,9 +1050,13 @@ public class Http2ServerFilter extends Http2BaseFilter {
     private void prepareOutgoingResponse(final HttpResponsePacket response) {
         response.setProtocol(Protocol.HTTP_2_0);
 
-        String contentType = response.getContentType();
-        if (contentType != null) {
-            response.getHeaders().setValue(Header.ContentType).setString(contentType);
+        final PreEncodedHeaders preEncodedHeaders = response.getPreEncodedHeaders();
+        if (preEncodedHeaders == null
+                || !preEncodedHeaders.contains(Header.ContentType)) {
+            String contentType = response.getContentType();
+            if (contentType != null) {
+                response.getHeaders().setValue(Header.ContentType).setString(contentType);
+            }
         }
 
         if (response.getContentLength() != -1) {
@@ -200,6 +200,9 @@ public class Http2Session {
     private volatile SSLBaseFilter sslFilter;
     
     private final AtomicInteger unackedReadBytes  = new AtomicInteger();
+    
+    // not null, if the adaptive flow control is enabled
+    private final Http2WindowTuner windowTuner;
         
     public Http2Session(final Connection<?> connection,
                         final boolean isServer,
@@ -233,6 +236,10 @@ public class Http2Session {
 
         maxHeaderListSize = handlerFilter.getConfiguration().getMaxHeaderListSize();
 
+        windowTuner = http2Configuration.isAdaptiveWindow()
+                ? new Http2WindowTuner(http2Configuration.getMaxWindowSize())
+                : null;
+
         if (isServer) {
             lastLocalStreamId = 0;
             lastPeerStreamId = -1;
@@ -502,6 +509,34 @@ public class Http2Session {
     public int getAvailablePeerConnectionWindowSize() {
         return outputSink.getAvailablePeerConnectionWindowSize();
     }
+
+    /**
+     * @return the total time, in nanoseconds, the session had DATA to write,
+     *  but could not, because the peer's connection flow-control window was
+     *  exhausted.
+     *
+     * @since 3.0
+     */
+    public long getPeerWindowStallNanos() {
+        return outputSink.getPeerWindowStallNanos();
+    }
+
+    /**
+     * @return the smoothed PING round-trip time, in nanoseconds, measured by
+     *  the adaptive flow control, or <tt>0</tt> if it is not measured.
+     *
+     * @see Http2Configuration#isAdaptiveWindow()
+     * @since 3.0
+     */
+    public long getRttNanos() {
+        if (windowTuner == null) {
+            return 0;
+        }
+
+        synchronized (windowTuner) {
+            return windowTuner.getRttNanos();
+        }
+    }
     
     /**
      * @return the maximum number of concurrent streams allowed for this session by our side.
@@ -1390,6 +1425,98 @@ public class Http2Session {
         }
     }
 
+    /**
+     * Feeds the adaptive flow control (if enabled) with the size of the
+     * received DATA frame and sends the BDP PING, if a new measurement
+     * has to start.
+     * 
+     * @param sz size, in bytes, of the received data
+     */
+    void onDataReceived(final int sz) {
+        if (windowTuner == null || !isPrefaceSent) {
+            return;
+        }
+        
+        final boolean sendPing;
+        synchronized (windowTuner) {
+            sendPing = windowTuner.onDataReceived(sz,
+                    getTunedWindowSize(), System.nanoTime());
+        }
+        
+        if (sendPing) {
+            final PingFrame pingFrame = PingFrame.builder()
+                    .opaqueData(Http2WindowTuner.BDP_PING_DATA)
+                    .build();
+            NetLogger.log(NetLogger.Context.TX, this, pingFrame);
+            outputSink.writeDownStream(pingFrame);
+        }
+    }
+
+    /**
+     * Processes the PING acknowledgement, and grows the local windows if the
+     * PING was sent by the adaptive flow control and the estimated
+     * bandwidth-delay product exceeds the current windows.
+     * 
+     * @param opaqueData the PING opaque data
+     * @return <tt>true</tt>, if the PING was sent by the adaptive flow control
+     */
+    boolean onPingAck(final long opaqueData) {
+        if (windowTuner == null || opaqueData != Http2WindowTuner.BDP_PING_DATA) {
+            return false;
+        }
+        
+        final int newWindowSize;
+        final long rttNanos;
+        final int bdp;
+        synchronized (windowTuner) {
+            newWindowSize = windowTuner.onPingAck(getTunedWindowSize(),
+                    System.nanoTime());
+            rttNanos = windowTuner.getRttNanos();
+            bdp = windowTuner.getSampleBytes();
+        }
+        
+        Http2ProbeNotifier.notifyBdpSample(this, rttNanos, bdp);
+        
+        if (newWindowSize > 0) {
+            growLocalWindows(newWindowSize);
+        }
+        
+        return true;
+    }
+    
+    private int getTunedWindowSize() {
+        return Math.min(localConnectionWindowSize, localStreamWindowSize);
+    }
+    
+    private void growLocalWindows(final int newWindowSize) {
+        synchronized (sessionLock) {
+            final int connectionDelta = newWindowSize - localConnectionWindowSize;
+            if (connectionDelta > 0) {
+                localConnectionWindowSize = newWindowSize;
+                sendWindowUpdate(0, connectionDelta);
+            }
+
+            if (newWindowSize > localStreamWindowSize) {
+                // the peer applies the difference to all the open streams
+                localStreamWindowSize = newWindowSize;
+                
+                final SettingsFrame settingsFrame = SettingsFrame.builder()
+                        .setting(SETTINGS_INITIAL_WINDOW_SIZE, newWindowSize)
+                        .build();
+                NetLogger.log(NetLogger.Context.TX, this, settingsFrame);
+                outputSink.writeDownStream(settingsFrame);
+            }
+        }
+        
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Http2Session {0}. Grow local windows: connection={1} stream={2}",
+                    new Object[]{this, localConnectionWindowSize, localStreamWindowSize});
+        }
+
+        Http2ProbeNotifier.notifyLocalWindowSizeChange(this,
+                localConnectionWindowSize, localStreamWindowSize);
+    }
+
     /*
      * This method is not thread safe and should be guarded by the session lock.
      */
@@ -40,16 +40,19 @@
 
 package org.glassfish.grizzly.http2;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.WritableMessage;
 import org.glassfish.grizzly.WriteHandler;
@@ -61,10 +64,14 @@ import org.glassfish.grizzly.http2.frames.DataFrame;
 import org.glassfish.grizzly.http2.frames.ErrorCode;
 import org.glassfish.grizzly.http2.frames.Http2Frame;
 import org.glassfish.grizzly.http2.utils.ChunkedCompletionHandler;
+import org.glassfish.grizzly.nio.NIOConnection;
 
 /**
  * Class represents an output sink associated with specific {@link Http2Session}
  * and is responsible for session (connection) level flow control.
+ * The order, in which the streams' DATA frames are written, is decided by
+ * the session's {@link Http2OutputScheduler}, if any, otherwise the frames
+ * are written in FIFO order.
  * 
  *
  */
@@ -90,15 +97,53 @@ public class Http2SessionOutputSink {
     private final List<Http2Frame> tmpFramesList = new LinkedList<>();
     private final AtomicBoolean writerLock = new AtomicBoolean();
 
+    // the time the output got stalled by the exhausted peer window, 0 if not stalled
+    private final AtomicLong stallStartNanos = new AtomicLong();
+    private final AtomicLong stallNanos = new AtomicLong();
+
+    // the output scheduler, null means FIFO
+    private final Http2OutputScheduler scheduler;
+    // the scheduler state, guarded by the scheduler instance
+    private Http2OutputScheduler.Entry currentEntry;
+    private int currentQuantum;
+    private boolean isClosed;
+
     public Http2SessionOutputSink(Http2Session session) {
         this.http2Session = session;
         availConnectionWindowSize = new AtomicInteger(
                 http2Session.getDefaultConnectionWindowSize());
+        
+        final Http2OutputScheduler.Factory schedulerFactory =
+                session.handlerFilter.getConfiguration().getOutputSchedulerFactory();
+        scheduler = schedulerFactory != null
+                ? schedulerFactory.create(session)
+                : null;
     }
 
     protected Http2FrameCodec frameCodec() {
         return http2Session.handlerFilter.frameCodec;
     }
+
+    /**
+     * Starts coalescing the frames, written by the current thread, if
+     * enabled by {@link Http2Configuration#isCoalesceWrites()}.
+     * 
+     * @return <tt>true</tt> if the frames will be coalesced, in this case
+     *  {@link #uncork()} has to be called to write them.
+     */
+    protected boolean cork() {
+        final Connection connection = http2Session.getConnection();
+        return http2Session.handlerFilter.getConfiguration().isCoalesceWrites()
+                && connection instanceof NIOConnection
+                && ((NIOConnection) connection).cork();
+    }
+
+    /**
+     * Writes the frames, coalesced since {@link #cork()}.
+     */
+    protected void uncork() {
+        ((NIOConnection) http2Session.getConnection()).uncork();
+    }
     
     protected void writeDownStream(final Http2Frame frame) {
         
@@ -160,6 +205,15 @@ public class Http2SessionOutputSink {
                     new Object[] {delta, newWindowSize});
         }
 
+        if (newWindowSize > 0 && stallStartNanos.get() != 0) {
+            final long stallStart = stallStartNanos.getAndSet(0);
+            if (stallStart != 0) {
+                final long stall = System.nanoTime() - stallStart;
+                stallNanos.addAndGet(stall);
+                Http2ProbeNotifier.notifyPeerWindowStall(http2Session, stall);
+            }
+        }
+
         flushOutputQueue();
     }
 
@@ -211,7 +265,13 @@ public class Http2SessionOutputSink {
                 stream.getId(), data,
                 completionHandler, isLast);
 
-        outputQueue.offer(record);
+        if (scheduler == null) {
+            outputQueue.offer(record);
+        } else if (!schedule(stream, record)) {
+            record.notifyFailure(new IOException("Connection closed"));
+            return;
+        }
+        
         outputQueue.reserveSpace(record.isZeroSizeData() ? 1 : dataSize);
 
         flushOutputQueue();
@@ -252,8 +312,14 @@ public class Http2SessionOutputSink {
             while (availWindowSize > bytesToTransfer &&
                     queueSize > queueSizeToFree) {
 
-                final Http2SessionOutputSink.OutputQueueRecord record = outputQueue.poll();
+                final Http2SessionOutputSink.OutputQueueRecord record =
+                        scheduler == null ? outputQueue.poll() : nextScheduled();
 
+                if (record == null && scheduler != null) {
+                    // the session is closed
+                    break;
+                }
+                
                 if (record == null) {
                     // keep this warning for now
                     // should be reported when null record is spotted
@@ -264,9 +330,14 @@ public class Http2SessionOutputSink {
 
                 assert record != null;
 
+                int maxDataSize = Math.min(MAX_FRAME_PAYLOAD_SIZE,
+                        availWindowSize - bytesToTransfer);
+                if (scheduler != null) {
+                    maxDataSize = Math.min(maxDataSize, currentQuantum);
+                }
+                
                 final int serializedBytes = record.serializeTo(
-                        tmpFramesList,
-                        Math.min(MAX_FRAME_PAYLOAD_SIZE, availWindowSize - bytesToTransfer));
+                        tmpFramesList, maxDataSize);
                 bytesToTransfer += serializedBytes;
                 queueSizeToFree += serializedBytes;
 
@@ -274,9 +345,13 @@ public class Http2SessionOutputSink {
                     if (record.isZeroSizeData()) {
                         queueSizeToFree++;
                     }
-                } else {
+                } else if (scheduler == null) {
                     outputQueue.setCurrentElement(record);
                 }
+                
+                if (scheduler != null) {
+                    onScheduledWritten(record, serializedBytes);
+                }
 
                 final CompletionHandler<WriteResult> recordCompletionHandler =
                         record.getCompletionHandler();
@@ -331,13 +406,142 @@ public class Http2SessionOutputSink {
             tmpcnt++;
         }
 
+        if (availConnectionWindowSize.get() <= 0 && !outputQueue.isEmpty()) {
+            stallStartNanos.compareAndSet(0, System.nanoTime());
+        }
+
         if (needToNotify) {
             outputQueue.doNotify();
         }
     }
 
+    /**
+     * @return the total time, in nanoseconds, the sink had DATA to write,
+     *  but could not, because the peer's connection window was exhausted.
+     */
+    protected long getPeerWindowStallNanos() {
+        return stallNanos.get();
+    }
+
     public void close() {
         outputQueue.onClose();
+        
+        if (scheduler != null) {
+            final List<OutputQueueRecord> records = new LinkedList<>();
+            synchronized (scheduler) {
+                isClosed = true;
+                
+                Http2OutputScheduler.Entry entry = currentEntry;
+                currentEntry = null;
+                if (entry == null) {
+                    entry = scheduler.poll();
+                }
+                
+                while (entry != null) {
+                    Object record;
+                    while ((record = entry.records.poll()) != null) {
+                        records.add((OutputQueueRecord) record);
+                    }
+                    
+                    entry = scheduler.poll();
+                }
+            }
+            
+            if (!records.isEmpty()) {
+                final IOException error = new IOException("Connection closed");
+                for (OutputQueueRecord record : records) {
+                    record.notifyFailure(error);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the record on the stream's scheduler entry.
+     * 
+     * @return <tt>false</tt>, if the session is closed.
+     */
+    private boolean schedule(final Http2Stream stream,
+            final OutputQueueRecord record) {
+        synchronized (scheduler) {
+            if (isClosed) {
+                return false;
+            }
+            
+            final Http2OutputScheduler.Entry entry = getSchedulerEntry(stream, 0);
+            final boolean isIdle = entry.records.isEmpty();
+            entry.records.add(record);
+            
+            if (isIdle && entry != currentEntry) {
+                scheduler.add(entry);
+            }
+            
+            return true;
+        }
+    }
+    
+    private Http2OutputScheduler.Entry getSchedulerEntry(final Http2Stream stream,
+            final int depth) {
+        Http2OutputScheduler.Entry entry = stream.outputSchedulerEntry;
+        if (entry == null) {
+            Http2OutputScheduler.Entry parentEntry = null;
+            final int parentStreamId = stream.getParentStreamId();
+            if (parentStreamId != 0 && parentStreamId != stream.getId() && depth < 32) {
+                final Http2Stream parentStream = http2Session.getStream(parentStreamId);
+                if (parentStream != null) {
+                    parentEntry = getSchedulerEntry(parentStream, depth + 1);
+                }
+            }
+            
+            entry = Http2OutputScheduler.Entry.create(stream, parentEntry);
+            stream.outputSchedulerEntry = entry;
+        }
+        
+        return entry;
+    }
+    
+    /**
+     * Returns the record to be written next according to the scheduler,
+     * or <tt>null</tt> if the session is closed.
+     */
+    private OutputQueueRecord nextScheduled() {
+        synchronized (scheduler) {
+            final Http2OutputScheduler.Entry current = currentEntry;
+            if (current != null
+                    && (currentQuantum <= 0 || current.records.isEmpty())) {
+                // the turn is over
+                currentEntry = null;
+                if (!current.records.isEmpty()) {
+                    scheduler.add(current);
+                }
+            }
+            
+            if (currentEntry == null) {
+                currentEntry = scheduler.poll();
+                if (currentEntry == null) {
+                    return null;
+                }
+                
+                currentQuantum = scheduler.getQuantum(currentEntry);
+            }
+            
+            return (OutputQueueRecord) currentEntry.records.peek();
+        }
+    }
+    
+    private void onScheduledWritten(final OutputQueueRecord record,
+            final int serializedBytes) {
+        synchronized (scheduler) {
+            final Http2OutputScheduler.Entry current = currentEntry;
+            if (current == null) {
+                return;
+            }
+            
+            currentQuantum -= serializedBytes;
+            if (record.isFinished() && current.records.peek() == record) {
+                current.records.poll();
+            }
+        }
     }
 
     private static class OutputQueueRecord extends AsyncQueueRecord<WriteResult> {
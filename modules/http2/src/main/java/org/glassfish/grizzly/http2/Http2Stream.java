@@ -154,6 +154,9 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
     // the counter for inbound HeaderFrames
     private int inboundHeaderFramesCounter;
     
+    // the output scheduling parameters, guarded by the Http2SessionOutputSink
+    Http2OutputScheduler.Entry outputSchedulerEntry;
+    
     public static Http2Stream getStreamFor(final HttpHeader httpHeader) {
         final HttpRequestPacket request;
 
@@ -270,6 +273,10 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
         return parentStreamId;
     }
 
+    /**
+     * @return the RFC 7540 weight [1; 256] of this stream, or <tt>0</tt>
+     *         if the weight wasn't specified.
+     */
     @SuppressWarnings("unused")
     public int getPriority() {
         return priority;
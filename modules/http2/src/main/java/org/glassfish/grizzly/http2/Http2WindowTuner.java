@@ -0,0 +1,150 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+/**
+ * Estimates the bandwidth-delay product (BDP) of an {@link Http2Session}
+ * and decides when the local (receive) flow-control windows have to grow.
+ * <p>
+ * When DATA arrives and no measurement is in progress, the session sends a
+ * PING and counts the DATA bytes received until the PING is acknowledged.
+ * If during that round-trip the peer sent close to the entire window, and
+ * the measured bandwidth is the highest seen so far, the window is the
+ * bottleneck, so it grows to twice the bytes received, up to the configured
+ * maximum.
+ * <p>
+ * The class is not thread safe, the session guards it.
+ */
+final class Http2WindowTuner {
+    /**
+     * The PING opaque data used to recognize the BDP PING acknowledgement.
+     */
+    static final long BDP_PING_DATA = 0x4744505054756e65L;
+
+    private final int maxWindowSize;
+
+    private boolean isPingInFlight;
+    private long pingSentNanos;
+    private int sampleBytes;
+
+    private long rttNanos;
+    private double maxBandwidth;
+
+    Http2WindowTuner(final int maxWindowSize) {
+        this.maxWindowSize = maxWindowSize;
+    }
+
+    int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * @return the smoothed PING round-trip time in nanoseconds, or <tt>0</tt>
+     *  if not measured yet.
+     */
+    long getRttNanos() {
+        return rttNanos;
+    }
+
+    /**
+     * @return the number of bytes received during the last measured round-trip.
+     */
+    int getSampleBytes() {
+        return sampleBytes;
+    }
+
+    /**
+     * Registers received DATA.
+     *
+     * @return <tt>true</tt>, if the BDP PING has to be sent.
+     */
+    boolean onDataReceived(final int size, final int windowSize,
+            final long nowNanos) {
+        if (size <= 0) {
+            return false;
+        }
+
+        if (isPingInFlight) {
+            sampleBytes += size;
+            return false;
+        }
+
+        if (windowSize >= maxWindowSize) {
+            return false;
+        }
+
+        isPingInFlight = true;
+        pingSentNanos = nowNanos;
+        sampleBytes = size;
+        return true;
+    }
+
+    /**
+     * Registers the BDP PING acknowledgement.
+     *
+     * @return the new window size, or <tt>-1</tt> if the window doesn't have
+     *  to change.
+     */
+    int onPingAck(final int windowSize, final long nowNanos) {
+        if (!isPingInFlight) {
+            return -1;
+        }
+
+        isPingInFlight = false;
+
+        final long rttSample = Math.max(1, nowNanos - pingSentNanos);
+        rttNanos = rttNanos == 0
+                ? rttSample
+                : rttNanos + (rttSample - rttNanos) / 8;
+
+        final double bandwidth = (double) sampleBytes / rttNanos;
+        if (sampleBytes < (long) windowSize * 2 / 3
+                || bandwidth <= maxBandwidth) {
+            return -1;
+        }
+
+        maxBandwidth = bandwidth;
+        final int newWindowSize =
+                (int) Math.min(maxWindowSize, (long) sampleBytes * 2);
+
+        return newWindowSize > windowSize ? newWindowSize : -1;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * {@link Http2OutputScheduler}, which:
+ * <ul>
+ *   <li>serves the streams with the lowest RFC 9218 urgency first;</li>
+ *   <li>within one urgency serves the non-incremental streams one by one,
+ *       in stream ID order, and then shares the output between the
+ *       incremental streams round-robin, each turn being
+ *       <tt>quantum * weight / 16</tt> bytes, where <tt>weight</tt>
+ *       is the RFC 7540 stream weight;</li>
+ *   <li>holds back a stream while the stream it depends on (RFC 7540),
+ *       directly or not, has DATA to write.</li>
+ * </ul>
+ *
+ * @since 3.0
+ */
+public class WeightedFairOutputScheduler implements Http2OutputScheduler {
+    private static final int URGENCY_LEVELS = 8;
+    private static final int MAX_DEPENDENCY_DEPTH = 32;
+
+    private static final Comparator<Entry> STREAM_ID_COMPARATOR =
+            new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry e1, final Entry e2) {
+            return Integer.compare(e1.getStreamId(), e2.getStreamId());
+        }
+    };
+
+    private final int quantum;
+
+    @SuppressWarnings("unchecked")
+    private final TreeSet<Entry>[] sequential = new TreeSet[URGENCY_LEVELS];
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Entry>[] incremental = new ArrayDeque[URGENCY_LEVELS];
+
+    private int size;
+
+    /**
+     * @param quantum the number of bytes an incremental stream with the
+     *                default weight writes per turn.
+     */
+    public WeightedFairOutputScheduler(final int quantum) {
+        if (quantum <= 0) {
+            throw new IllegalArgumentException("quantum has to be positive");
+        }
+
+        this.quantum = quantum;
+        for (int i = 0; i < URGENCY_LEVELS; i++) {
+            sequential[i] = new TreeSet<>(STREAM_ID_COMPARATOR);
+            incremental[i] = new ArrayDeque<>();
+        }
+    }
+
+    public int getQuantum() {
+        return quantum;
+    }
+
+    @Override
+    public void add(final Entry entry) {
+        if (entry.isIncremental()) {
+            incremental[entry.getUrgency()].add(entry);
+        } else {
+            sequential[entry.getUrgency()].add(entry);
+        }
+
+        entry.isScheduled = true;
+        size++;
+    }
+
+    @Override
+    public Entry poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        Entry entry = poll(true);
+        if (entry == null) {
+            // all the entries wait for each other (dependency loop)
+            entry = poll(false);
+        }
+
+        entry.isScheduled = false;
+        size--;
+        return entry;
+    }
+
+    @Override
+    public int getQuantum(final Entry entry) {
+        if (!entry.isIncremental()) {
+            return Integer.MAX_VALUE;
+        }
+
+        return (int) Math.max(1,
+                (long) quantum * entry.getWeight() / Entry.DEFAULT_WEIGHT);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private Entry poll(final boolean checkDependencies) {
+        for (int i = 0; i < URGENCY_LEVELS; i++) {
+            for (Iterator<Entry> it = sequential[i].iterator(); it.hasNext(); ) {
+                final Entry entry = it.next();
+                if (!checkDependencies || !isBlocked(entry)) {
+                    it.remove();
+                    return entry;
+                }
+            }
+
+            final ArrayDeque<Entry> ring = incremental[i];
+            for (int j = ring.size(); j > 0; j--) {
+                final Entry entry = ring.poll();
+                if (!checkDependencies || !isBlocked(entry)) {
+                    return entry;
+                }
+
+                ring.add(entry);
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isBlocked(final Entry entry) {
+        Entry ancestor = entry.getParent();
+        for (int i = 0; ancestor != null && i < MAX_DEPENDENCY_DEPTH; i++) {
+            if (ancestor.isScheduled) {
+                return true;
+            }
+
+            ancestor = ancestor.getParent();
+        }
+
+        return false;
+    }
+}
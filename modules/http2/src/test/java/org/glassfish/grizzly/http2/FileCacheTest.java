@@ -552,6 +552,9 @@ public class FileCacheTest extends AbstractHttp2Test {
         final AtomicInteger entryHitCounter = new AtomicInteger();
         final AtomicInteger entryMissedCounter = new AtomicInteger();
         final AtomicInteger entryErrorCounter = new AtomicInteger();
+        final AtomicInteger entryEvictedCounter = new AtomicInteger();
+        final AtomicInteger entryRejectedCounter = new AtomicInteger();
+        final AtomicInteger entryCompressedCounter = new AtomicInteger();
 
         @Override
         public void onEntryAddedEvent(FileCache fileCache, FileCacheEntry entry) {
@@ -578,6 +581,21 @@ public class FileCacheTest extends AbstractHttp2Test {
             entryErrorCounter.incrementAndGet();
         }
 
+        @Override
+        public void onEntryEvictedEvent(FileCache fileCache, FileCacheEntry entry) {
+            entryEvictedCounter.incrementAndGet();
+        }
+
+        @Override
+        public void onEntryRejectedEvent(FileCache fileCache, FileCacheEntry entry) {
+            entryRejectedCounter.incrementAndGet();
+        }
+
+        @Override
+        public void onEntryCompressedEvent(FileCache fileCache, FileCacheEntry entry) {
+            entryCompressedCounter.incrementAndGet();
+        }
+
         public int getEntryAddedCounter() {
             return entryAddedCounter.get();
         }
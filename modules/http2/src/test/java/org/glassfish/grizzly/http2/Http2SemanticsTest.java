@@ -42,21 +42,28 @@ package org.glassfish.grizzly.http2;
 
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.SocketConnectorHandler;
+import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.Filter;
 import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.FilterReg;
+import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.PreEncodedHeaders;
 import org.glassfish.grizzly.http.Protocol;
 import org.glassfish.grizzly.http.server.HttpHandler;
 import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.grizzly.http.server.Request;
 import org.glassfish.grizzly.http.server.Response;
 import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import org.glassfish.grizzly.utils.Charsets;
+import org.glassfish.grizzly.utils.Futures;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -179,6 +186,51 @@ public class Http2SemanticsTest extends AbstractHttp2Test {
     }
 
 
+    @Test
+    public void testPreEncodedContentType() throws Exception {
+        final PreEncodedHeaders preEncodedHeaders = PreEncodedHeaders.builder()
+                .header(Header.ContentType, "application/json")
+                .header(Header.CacheControl, "no-cache")
+                .build();
+        startHttpServer(new HttpHandler() {
+            @Override
+            public void service(Request request, Response response) throws Exception {
+                response.setContentType("text/plain");
+                response.setPreEncodedHeaders(preEncodedHeaders);
+                response.getWriter().write("{}");
+            }
+        }, "/path");
+
+        final FutureImpl<HttpResponsePacket> responseFuture =
+                Futures.createSafeFuture();
+        final Connection c = getConnection("localhost", PORT, new BaseFilter() {
+            @Override
+            public NextAction handleRead(final FilterChainContext ctx) {
+                final HttpContent content = ctx.getMessage();
+                if (content.isLast()) {
+                    responseFuture.result(
+                            (HttpResponsePacket) content.getHttpHeader());
+                }
+                return ctx.getStopAction();
+            }
+        });
+        HttpRequestPacket request = HttpRequestPacket.builder().method(Method.GET)
+                .uri("/path")
+                .protocol(Protocol.HTTP_1_1)
+                .host("localhost:" + PORT).build();
+        c.write(HttpContent.builder(request).content(Buffers.EMPTY_BUFFER).last(true).build());
+
+        final HttpResponsePacket response = responseFuture.get(10, TimeUnit.SECONDS);
+        int contentTypeCount = 0;
+        for (String value : response.getHeaders().values(Header.ContentType)) {
+            assertEquals("application/json", value);
+            contentTypeCount++;
+        }
+        assertEquals(1, contentTypeCount);
+        assertEquals("no-cache", response.getHeader(Header.CacheControl));
+    }
+
+
     // -------------------------------------------------------- Private Methods
 
 
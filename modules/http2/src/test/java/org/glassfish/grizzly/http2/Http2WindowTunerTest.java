@@ -0,0 +1,123 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Http2WindowTunerTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(100);
+
+
+    // ----------------------------------------------------------- Test Methods
+
+
+    @Test
+    public void growWhenWindowIsBottleneck() {
+        final Http2WindowTuner tuner = new Http2WindowTuner(1024 * 1024);
+        final int window = 65535;
+
+        assertTrue(tuner.onDataReceived(16384, window, 0));
+        // the measurement is in progress, no more PINGs
+        assertFalse(tuner.onDataReceived(16384, window, 10));
+        assertFalse(tuner.onDataReceived(16384, window, 20));
+        assertFalse(tuner.onDataReceived(16383, window, 30));
+
+        assertEquals(65535 * 2, tuner.onPingAck(window, RTT));
+        assertEquals(RTT, tuner.getRttNanos());
+        assertEquals(65535, tuner.getSampleBytes());
+    }
+
+    @Test
+    public void keepWindowWhenUnderused() {
+        final Http2WindowTuner tuner = new Http2WindowTuner(1024 * 1024);
+        final int window = 65535;
+
+        assertTrue(tuner.onDataReceived(1024, window, 0));
+        assertFalse(tuner.onDataReceived(1024, window, 10));
+
+        assertEquals(-1, tuner.onPingAck(window, RTT));
+        // the next DATA starts a new measurement
+        assertTrue(tuner.onDataReceived(1024, window, RTT + 10));
+    }
+
+    @Test
+    public void growOnlyOnBandwidthIncrease() {
+        final Http2WindowTuner tuner = new Http2WindowTuner(1024 * 1024);
+        int window = 65535;
+
+        assertTrue(tuner.onDataReceived(window, window, 0));
+        window = tuner.onPingAck(window, RTT);
+        assertEquals(65535 * 2, window);
+
+        // the same amount of bytes per the same round-trip,
+        // the window is not the bottleneck anymore
+        assertTrue(tuner.onDataReceived(65535, window, RTT));
+        assertEquals(-1, tuner.onPingAck(window, 2 * RTT));
+
+        // the window is filled
+        assertTrue(tuner.onDataReceived(window, window, 2 * RTT));
+        assertEquals(window * 2, tuner.onPingAck(window, 3 * RTT));
+    }
+
+    @Test
+    public void maxWindowSize() {
+        final Http2WindowTuner tuner = new Http2WindowTuner(100000);
+
+        assertTrue(tuner.onDataReceived(65535, 65535, 0));
+        assertEquals(100000, tuner.onPingAck(65535, RTT));
+
+        // the max window size is reached, no more measurements
+        assertFalse(tuner.onDataReceived(65535, 100000, RTT));
+    }
+
+    @Test
+    public void unexpectedPingAck() {
+        final Http2WindowTuner tuner = new Http2WindowTuner(1024 * 1024);
+        assertEquals(-1, tuner.onPingAck(65535, RTT));
+        assertFalse(tuner.onDataReceived(0, 65535, RTT));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+import org.glassfish.grizzly.http2.Http2OutputScheduler.Entry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WeightedFairOutputSchedulerTest {
+
+
+    // ----------------------------------------------------------- Test Methods
+
+
+    @Test
+    public void urgencyOrder() {
+        final WeightedFairOutputScheduler scheduler = new WeightedFairOutputScheduler(1024);
+        final Entry background = new Entry(1, null, 16, 7, true);
+        final Entry normal = new Entry(3, null, 16, 3, true);
+        final Entry urgent = new Entry(5, null, 16, 0, true);
+        scheduler.add(background);
+        scheduler.add(normal);
+        scheduler.add(urgent);
+
+        assertSame(urgent, scheduler.poll());
+        assertSame(normal, scheduler.poll());
+        assertSame(background, scheduler.poll());
+        assertNull(scheduler.poll());
+        assertTrue(scheduler.isEmpty());
+    }
+
+    @Test
+    public void sequentialBeforeIncremental() {
+        final WeightedFairOutputScheduler scheduler = new WeightedFairOutputScheduler(1024);
+        final Entry incremental = new Entry(1, null, 16, 3, true);
+        final Entry sequential7 = new Entry(7, null, 16, 3, false);
+        final Entry sequential3 = new Entry(3, null, 16, 3, false);
+        scheduler.add(incremental);
+        scheduler.add(sequential7);
+        scheduler.add(sequential3);
+
+        assertSame(sequential3, scheduler.poll());
+        assertSame(sequential7, scheduler.poll());
+        assertSame(incremental, scheduler.poll());
+        
+        assertEquals(Integer.MAX_VALUE, scheduler.getQuantum(sequential3));
+    }
+
+    @Test
+    public void incrementalRoundRobin() {
+        final WeightedFairOutputScheduler scheduler = new WeightedFairOutputScheduler(1024);
+        final Entry e1 = new Entry(1, null, 16, 3, true);
+        final Entry e3 = new Entry(3, null, 16, 3, true);
+        scheduler.add(e1);
+        scheduler.add(e3);
+
+        for (int i = 0; i < 3; i++) {
+            final Entry first = scheduler.poll();
+            assertSame(e1, first);
+            scheduler.add(first);
+            final Entry second = scheduler.poll();
+            assertSame(e3, second);
+            scheduler.add(second);
+        }
+    }
+
+    @Test
+    public void weightedQuantum() {
+        final WeightedFairOutputScheduler scheduler = new WeightedFairOutputScheduler(1024);
+        assertEquals(1024, scheduler.getQuantum(new Entry(1, null, 16, 3, true)));
+        assertEquals(16384, scheduler.getQuantum(new Entry(1, null, 256, 3, true)));
+        assertEquals(64, scheduler.getQuantum(new Entry(1, null, 1, 3, true)));
+        assertEquals(1, new WeightedFairOutputScheduler(1).getQuantum(
+                new Entry(1, null, 1, 3, true)));
+    }
+
+    @Test
+    public void dependencyBlocksChild() {
+        final WeightedFairOutputScheduler scheduler = new WeightedFairOutputScheduler(1024);
+        final Entry parent = new Entry(1, null, 16, 3, true);
+        final Entry child = new Entry(3, parent, 16, 0, true);
+        scheduler.add(child);
+        scheduler.add(parent);
+        assertTrue(parent.isScheduled());
+
+        // the child is more urgent, but waits for its parent
+        assertSame(parent, scheduler.poll());
+        assertFalse(parent.isScheduled());
+        assertSame(child, scheduler.poll());
+    }
+
+    @Test
+    public void dependencyChain() {
+        final WeightedFairOutputScheduler scheduler = new WeightedFairOutputScheduler(1024);
+        final Entry e1 = new Entry(1, null, 16, 3, true);
+        final Entry e3 = new Entry(3, e1, 16, 3, true);
+        final Entry e5 = new Entry(5, e3, 16, 3, false);
+        scheduler.add(e5);
+        scheduler.add(e3);
+        scheduler.add(e1);
+
+        assertSame(e1, scheduler.poll());
+        assertSame(e3, scheduler.poll());
+        assertSame(e5, scheduler.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidQuantum() {
+        new WeightedFairOutputScheduler(0);
+    }
+}
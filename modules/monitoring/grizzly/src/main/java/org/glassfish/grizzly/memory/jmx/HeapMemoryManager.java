@@ -66,4 +66,10 @@ public class HeapMemoryManager extends MemoryManager {
     public int getMaxThreadBufferSize() {
         return ((AbstractThreadLocalMemoryManager) memoryManager).getMaxBufferSize();
     }
+
+    @ManagedAttribute(id="leak-detection-sampling-rate")
+    @Description("The fraction of allocated buffers tracked by the leak detector, 0 if leak detection is disabled")
+    public float getLeakDetectionSamplingRate() {
+        return ((org.glassfish.grizzly.memory.HeapMemoryManager) memoryManager).getLeakDetectionSamplingRate();
+    }
 }
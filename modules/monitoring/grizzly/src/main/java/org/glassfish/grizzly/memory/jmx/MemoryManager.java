@@ -43,6 +43,8 @@ package org.glassfish.grizzly.memory.jmx;
 import org.glassfish.grizzly.monitoring.jmx.JmxObject;
 import org.glassfish.grizzly.memory.MemoryProbe;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import org.glassfish.gmbal.Description;
@@ -70,6 +72,11 @@ public class MemoryManager extends JmxObject {
     private final AtomicLong poolReleasedBytes = new AtomicLong();
     private final AtomicLong poolDepletedEventCount = new AtomicLong();
     private final AtomicLong poolRestoredToFullEventCount = new AtomicLong();
+    private final AtomicLong bufferLeakEventCount = new AtomicLong();
+    protected final AtomicLong slabAllocatedBytes = new AtomicLong();
+    protected final AtomicLong slabReleasedBytes = new AtomicLong();
+    protected final AtomicLong arenaExhaustedEventCount = new AtomicLong();
+    private volatile String lastBufferLeakAllocationTrace;
 
     public MemoryManager(org.glassfish.grizzly.memory.MemoryManager memoryManager) {
         this.memoryManager = memoryManager;
@@ -134,6 +141,18 @@ public class MemoryManager extends JmxObject {
         return poolRestoredToFullEventCount.get();
     }
 
+    @ManagedAttribute(id="buffer-leak-event-count")
+    @Description("Total number of tracked buffers, which have been garbage collected without being released to the memory manager.")
+    public long getBufferLeakEventCount() {
+        return bufferLeakEventCount.get();
+    }
+
+    @ManagedAttribute(id="last-buffer-leak-allocation-trace")
+    @Description("The allocation stack trace of the last detected buffer leak")
+    public String getLastBufferLeakAllocationTrace() {
+        return lastBufferLeakAllocationTrace;
+    }
+
     private class JmxMemoryProbe implements MemoryProbe {
 
         @Override
@@ -163,5 +182,29 @@ public class MemoryManager extends JmxObject {
             poolRestoredToFullEventCount.incrementAndGet();
         }
 
+        @Override
+        public void onSlabAllocateEvent(int arenaIndex, int slabSize) {
+            slabAllocatedBytes.addAndGet(slabSize);
+        }
+
+        @Override
+        public void onSlabReleaseEvent(int arenaIndex, int slabSize) {
+            slabReleasedBytes.addAndGet(slabSize);
+        }
+
+        @Override
+        public void onArenaExhaustedEvent(int arenaIndex) {
+            arenaExhaustedEventCount.incrementAndGet();
+        }
+
+        @Override
+        public void onBufferLeakEvent(int size, Throwable allocationTrace) {
+            bufferLeakEventCount.incrementAndGet();
+
+            final StringWriter sw = new StringWriter();
+            allocationTrace.printStackTrace(new PrintWriter(sw));
+            lastBufferLeakAllocationTrace = sw.toString();
+        }
+
     }
 }
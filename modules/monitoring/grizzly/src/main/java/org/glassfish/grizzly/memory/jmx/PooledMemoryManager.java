@@ -60,4 +60,9 @@ public class PooledMemoryManager extends MemoryManager {
         super(memoryManager);
     }
 
+    @ManagedAttribute(id="leak-detection-sampling-rate")
+    @Description("The fraction of allocated buffers tracked by the leak detector, 0 if leak detection is disabled")
+    public float getLeakDetectionSamplingRate() {
+        return ((org.glassfish.grizzly.memory.PooledMemoryManager) memoryManager).getLeakDetectionSamplingRate();
+    }
 }
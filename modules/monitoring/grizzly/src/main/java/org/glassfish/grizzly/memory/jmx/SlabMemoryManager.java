@@ -0,0 +1,122 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.memory.jmx;
+
+import org.glassfish.gmbal.Description;
+import org.glassfish.gmbal.ManagedAttribute;
+import org.glassfish.gmbal.ManagedObject;
+
+/**
+ * {@link org.glassfish.grizzly.memory.SlabMemoryManager} JMX object.
+ *
+ * @since 3.0
+ */
+@ManagedObject
+@Description("Grizzly Direct Memory Manager, which carves buffers out of per-thread arena memory slabs")
+public class SlabMemoryManager extends MemoryManager {
+
+    public SlabMemoryManager(org.glassfish.grizzly.memory.SlabMemoryManager memoryManager) {
+        super(memoryManager);
+    }
+
+    @ManagedAttribute(id="slab-size")
+    @Description("The amount of direct memory an arena reserves at once")
+    public int getSlabSize() {
+        return slabMemoryManager().getSlabSize();
+    }
+
+    @ManagedAttribute(id="max-buffer-size")
+    @Description("The max size of a single buffer carved out of a slab")
+    public int getMaxBufferSize() {
+        return slabMemoryManager().getMaxBufferSize();
+    }
+
+    @ManagedAttribute(id="arenas-count")
+    @Description("The number of arenas")
+    public int getArenasCount() {
+        return slabMemoryManager().getArenasCount();
+    }
+
+    @ManagedAttribute(id="max-memory")
+    @Description("The max amount of memory all the arenas may reserve together")
+    public long getMaxMemory() {
+        return slabMemoryManager().getMaxMemory();
+    }
+
+    @ManagedAttribute(id="reserved-bytes")
+    @Description("The amount of direct memory reserved by all the arenas")
+    public long getReservedBytes() {
+        return slabMemoryManager().getReservedBytes();
+    }
+
+    @ManagedAttribute(id="used-bytes")
+    @Description("The amount of arena memory used by the allocated buffers")
+    public long getUsedBytes() {
+        return slabMemoryManager().getUsedBytes();
+    }
+
+    @ManagedAttribute(id="slab-allocated-bytes")
+    @Description("Total number of bytes reserved by the arenas as slabs")
+    public long getSlabAllocatedBytes() {
+        return slabAllocatedBytes.get();
+    }
+
+    @ManagedAttribute(id="slab-released-bytes")
+    @Description("Total number of bytes returned by the arenas as empty slabs")
+    public long getSlabReleasedBytes() {
+        return slabReleasedBytes.get();
+    }
+
+    @ManagedAttribute(id="arena-exhausted-event-count")
+    @Description("Total number of allocations served outside of the arenas, because the memory limit was reached")
+    public long getArenaExhaustedEventCount() {
+        return arenaExhaustedEventCount.get();
+    }
+
+    @ManagedAttribute(id="leak-detection-sampling-rate")
+    @Description("The fraction of allocated buffers tracked by the leak detector")
+    public float getLeakDetectionSamplingRate() {
+        return slabMemoryManager().getLeakDetectionSamplingRate();
+    }
+
+    private org.glassfish.grizzly.memory.SlabMemoryManager slabMemoryManager() {
+        return (org.glassfish.grizzly.memory.SlabMemoryManager) memoryManager;
+    }
+}
@@ -45,6 +45,7 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -57,9 +58,11 @@ import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.ConnectionProbe;
 import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.IOStrategy;
 import org.glassfish.grizzly.Transport;
 import org.glassfish.grizzly.TransportProbe;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
 import org.glassfish.grizzly.monitoring.jmx.JmxObject;
 import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
 import org.glassfish.grizzly.jmxbase.GrizzlyJmxManager;
@@ -89,6 +92,9 @@ public class NIOTransport extends JmxObject {
     private final AtomicInteger openConnectionsNum = new AtomicInteger();
     private final AtomicLong totalConnectionsNum = new AtomicLong();
 
+    private final ConcurrentMap<Integer, AtomicLong> acceptsPerSelectorThread =
+            new ConcurrentSkipListMap<>();
+
     private GrizzlyJmxManager mom;
     
     private MemoryManager currentMemoryManager;
@@ -97,6 +103,9 @@ public class NIOTransport extends JmxObject {
     private ExecutorService currentThreadPool;
     private Object threadPoolJmx;
 
+    private IOStrategy currentIOStrategy;
+    private Object ioStrategyJmx;
+
 
     private final Object subtreeLock = new Object();
 
@@ -218,6 +227,11 @@ public class NIOTransport extends JmxObject {
         return totalConnectionsNum.get();
     }
 
+    @ManagedAttribute(id="accepts-per-selector-thread")
+    public String getAcceptsPerSelectorThread() {
+        return acceptsPerSelectorThread.toString();
+    }
+
     private static String getType(Object o) {
         return o != null ? o.getClass().getName() : "N/A";
     }
@@ -271,6 +285,27 @@ public class NIOTransport extends JmxObject {
                 threadPoolJmx = jmx;
             }
         }
+
+        // rebuild IOStrategy sub element (if the strategy is monitorable)
+        final IOStrategy ioStrategy = transport.getIOStrategy();
+        if (currentIOStrategy != ioStrategy) {
+            if (currentIOStrategy != null) {
+                mom.deregister(ioStrategyJmx);
+
+                currentIOStrategy = null;
+                ioStrategyJmx = null;
+            }
+
+            if (ioStrategy instanceof MonitoringAware) {
+                final Object jmx = ((MonitoringAware) ioStrategy)
+                        .getMonitoringConfig().createManagementObject();
+                if (jmx != null) {
+                    mom.register(this, jmx);
+                    currentIOStrategy = ioStrategy;
+                    ioStrategyJmx = jmx;
+                }
+            }
+        }
     }
 
     private static class EventDate {
@@ -341,6 +376,22 @@ public class NIOTransport extends JmxObject {
                 rebuildSubTree();
             }
         }
+
+        @Override
+        public void onAcceptEvent(Transport transport, Connection serverConnection,
+                Connection clientConnection, int selectorRunnerIndex) {
+            AtomicLong counter = acceptsPerSelectorThread.get(selectorRunnerIndex);
+            if (counter == null) {
+                final AtomicLong newCounter = new AtomicLong();
+                counter = acceptsPerSelectorThread.putIfAbsent(
+                        selectorRunnerIndex, newCounter);
+                if (counter == null) {
+                    counter = newCounter;
+                }
+            }
+
+            counter.incrementAndGet();
+        }
     }
 
     private class JmxConnectionProbe implements ConnectionProbe {
@@ -0,0 +1,165 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.strategies.jmx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.glassfish.gmbal.Description;
+import org.glassfish.gmbal.GmbalMBean;
+import org.glassfish.gmbal.ManagedAttribute;
+import org.glassfish.gmbal.ManagedObject;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.jmxbase.GrizzlyJmxManager;
+import org.glassfish.grizzly.monitoring.jmx.JmxObject;
+import org.glassfish.grizzly.strategies.AdaptiveIOStrategyProbe;
+
+/**
+ * JMX managed object for {@link org.glassfish.grizzly.strategies.AdaptiveIOStrategy}.
+ *
+ * @since 3.0
+ */
+@ManagedObject
+@Description("Grizzly adaptive IOStrategy, which chooses between selector and worker threads.")
+public class AdaptiveIOStrategy extends JmxObject {
+
+    private final org.glassfish.grizzly.strategies.AdaptiveIOStrategy strategy;
+    private final AdaptiveIOStrategyProbe probe = new JmxAdaptiveIOStrategyProbe();
+
+    private final AtomicLong sameThreadDecisionsCount = new AtomicLong();
+    private final AtomicLong workerThreadDecisionsCount = new AtomicLong();
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    public AdaptiveIOStrategy(
+            final org.glassfish.grizzly.strategies.AdaptiveIOStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+
+    // -------------------------------------------------- Methods from JmxObject
+
+
+    @Override
+    public String getJmxName() {
+        return "AdaptiveIOStrategy";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onRegister(GrizzlyJmxManager mom, GmbalMBean bean) {
+        strategy.getMonitoringConfig().addProbes(probe);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDeregister(GrizzlyJmxManager mom) {
+        strategy.getMonitoringConfig().removeProbes(probe);
+    }
+
+
+    // -------------------------------------------------------------- Attributes
+
+
+    /**
+     * @return the max. estimated READ processing time (in microseconds),
+     *  which lets the strategy process events in the selector thread.
+     */
+    @ManagedAttribute(id="same-thread-threshold-micros")
+    @Description("The max. estimated READ processing time (in microseconds), which lets the strategy process events in the selector thread.")
+    public long getSameThreadThreshold() {
+        return strategy.getSameThreadThreshold(TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @return the READ processing time EWMA (in microseconds).
+     */
+    @ManagedAttribute(id="average-processing-time-micros")
+    @Description("The READ processing time moving average (in microseconds).")
+    public long getAverageProcessingTime() {
+        return strategy.getAverageProcessingTime(TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @return the number of events processed in the selector thread.
+     */
+    @ManagedAttribute(id="same-thread-decisions-count")
+    @Description("The number of events processed in the selector thread.")
+    public long getSameThreadDecisionsCount() {
+        return sameThreadDecisionsCount.get();
+    }
+
+    /**
+     * @return the number of events handed off to the worker thread pool.
+     */
+    @ManagedAttribute(id="worker-thread-decisions-count")
+    @Description("The number of events handed off to the worker thread pool.")
+    public long getWorkerThreadDecisionsCount() {
+        return workerThreadDecisionsCount.get();
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    private final class JmxAdaptiveIOStrategyProbe
+            extends AdaptiveIOStrategyProbe.Adapter {
+
+        @Override
+        public void onSameThreadDecisionEvent(
+                org.glassfish.grizzly.strategies.AdaptiveIOStrategy strategy,
+                Connection connection, IOEvent ioEvent, long estimatedNanos) {
+            sameThreadDecisionsCount.incrementAndGet();
+        }
+
+        @Override
+        public void onWorkerThreadDecisionEvent(
+                org.glassfish.grizzly.strategies.AdaptiveIOStrategy strategy,
+                Connection connection, IOEvent ioEvent, long estimatedNanos) {
+            workerThreadDecisionsCount.incrementAndGet();
+        }
+    }
+}
@@ -87,6 +87,21 @@ public class FileCache extends JmxObject {
      */
     private final AtomicInteger cacheErrorCount = new AtomicInteger();
 
+    /**
+     * The number of entries evicted to make room for more frequently used ones.
+     */
+    private final AtomicLong cacheEvictionCount = new AtomicLong();
+
+    /**
+     * The number of entries denied admission by the cache policy.
+     */
+    private final AtomicLong cacheAdmissionRejectionCount = new AtomicLong();
+
+    /**
+     * The number of entries, which compressed representation has been created.
+     */
+    private final AtomicLong cacheCompressionCount = new AtomicLong();
+
     /**
      * The {@link FileCacheProbe} used to track cache statistics.
      */
@@ -164,6 +179,17 @@ public class FileCache extends JmxObject {
         return fileCache.isEnabled();
     }
 
+    /**
+     * @see org.glassfish.grizzly.http.server.filecache.FileCache#isFileWatchEnabled()
+     *
+     * @since 3.0
+     */
+    @ManagedAttribute(id="file-watch-enabled")
+    @Description("Indicates whether or not the cached files are watched for changes.")
+    public boolean isFileWatchEnabled() {
+        return fileCache.isFileWatchEnabled();
+    }
+
     /**
      * @see org.glassfish.grizzly.http.server.filecache.FileCache#getSecondsMaxAge()
      */
@@ -255,6 +281,53 @@ public class FileCache extends JmxObject {
         return cacheErrorCount.get();
     }
 
+    /**
+     * @return the ratio of cache hits to cache lookups, or <tt>0</tt> if there
+     *  were no lookups yet.
+     *
+     * @since 3.0
+     */
+    @ManagedAttribute(id="cache-hit-ratio")
+    @Description("The ratio of cache hits to cache lookups.")
+    public double getCacheHitRatio() {
+        final long hits = cacheHitCount.get();
+        final long lookups = hits + cacheMissCount.get();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    /**
+     * @return the total number of cache evictions.
+     *
+     * @since 3.0
+     */
+    @ManagedAttribute(id="cache-eviction-count")
+    @Description("The total number of entries evicted to make room for more frequently used resources.")
+    public long getCacheEvictionCount() {
+        return cacheEvictionCount.get();
+    }
+
+    /**
+     * @return the total number of cache admission rejections.
+     *
+     * @since 3.0
+     */
+    @ManagedAttribute(id="cache-admission-rejection-count")
+    @Description("The total number of resources not cached, because they were used less frequently than the entries they would evict.")
+    public long getCacheAdmissionRejectionCount() {
+        return cacheAdmissionRejectionCount.get();
+    }
+
+    /**
+     * @return the total number of entries compressed in the background.
+     *
+     * @since 3.0
+     */
+    @ManagedAttribute(id="cache-compression-count")
+    @Description("The total number of cached resources, which compressed representation has been created in the background.")
+    public long getCacheCompressionCount() {
+        return cacheCompressionCount.get();
+    }
+
     /**
      * @return the total size, in bytes, of the heap memory cache.
      */
@@ -313,6 +386,21 @@ public class FileCache extends JmxObject {
             cacheErrorCount.incrementAndGet();
         }
 
+        @Override
+        public void onEntryEvictedEvent(org.glassfish.grizzly.http.server.filecache.FileCache fileCache, FileCacheEntry entry) {
+            cacheEvictionCount.incrementAndGet();
+        }
+
+        @Override
+        public void onEntryRejectedEvent(org.glassfish.grizzly.http.server.filecache.FileCache fileCache, FileCacheEntry entry) {
+            cacheAdmissionRejectionCount.incrementAndGet();
+        }
+
+        @Override
+        public void onEntryCompressedEvent(org.glassfish.grizzly.http.server.filecache.FileCache fileCache, FileCacheEntry entry) {
+            cacheCompressionCount.incrementAndGet();
+        }
+
     } // END JMXFileCacheProbe
 
 }
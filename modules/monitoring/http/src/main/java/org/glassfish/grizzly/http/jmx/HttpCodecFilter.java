@@ -49,6 +49,7 @@ import org.glassfish.grizzly.http.HttpHeader;
 import org.glassfish.grizzly.http.HttpProbe;
 import org.glassfish.grizzly.http.LZMAContentEncoding;
 import org.glassfish.grizzly.http.TransferEncoding;
+import org.glassfish.grizzly.http.util.StringCache;
 import org.glassfish.grizzly.monitoring.jmx.JmxObject;
 import org.glassfish.gmbal.Description;
 import org.glassfish.gmbal.GmbalMBean;
@@ -212,6 +213,45 @@ public class HttpCodecFilter extends JmxObject {
     }
 
 
+    /**
+     * @return the number of {@link StringCache} lookups, which returned
+     *  a cached string.
+     */
+    @ManagedAttribute(id = "string-cache-hit-count")
+    @Description("The number of request strings (like header values) returned from the string cache.")
+    public long getStringCacheHitCount() {
+        return StringCache.getHitCountTotal();
+    }
+
+    /**
+     * @return the number of {@link StringCache} lookups, which had to decode
+     *  the string.
+     */
+    @ManagedAttribute(id = "string-cache-miss-count")
+    @Description("The number of request strings (like header values), which were not found in the string cache.")
+    public long getStringCacheMissCount() {
+        return StringCache.getMissCountTotal();
+    }
+
+    /**
+     * @return the number of strings evicted from the {@link StringCache}.
+     */
+    @ManagedAttribute(id = "string-cache-eviction-count")
+    @Description("The number of strings replaced in the string cache by more frequently used ones.")
+    public long getStringCacheEvictionCount() {
+        return StringCache.getEvictionCountTotal();
+    }
+
+    /**
+     * @return the number of strings currently cached by the {@link StringCache}.
+     */
+    @ManagedAttribute(id = "string-cache-size")
+    @Description("The number of strings currently held by the string cache.")
+    public int getStringCacheSize() {
+        return StringCache.getSize();
+    }
+
+
     // --------------------------------------------------------- Private Methods
 
 
@@ -76,6 +76,7 @@ public abstract class HandShake {
     //private final Map<String, String[]> queryParams = new TreeMap<String, String[]>();
     private List<String> subProtocol = new ArrayList<String>();
     private List<Extension> extensions = new ArrayList<Extension>(); // client extensions
+    private List<Extension> negotiatedExtensions = Collections.emptyList();
 
     public HandShake(URI url) {
         builder = HttpRequestPacket.builder()
@@ -193,6 +194,16 @@ public abstract class HandShake {
         this.extensions = extensions;
     }
 
+    /**
+     * @return the extensions both peers agreed on: the extensions sent
+     *  in the server response. Empty until the handshake is complete.
+     *
+     * @since 3.0
+     */
+    public List<Extension> getNegotiatedExtensions() {
+        return negotiatedExtensions;
+    }
+
     protected final String joinExtensions(List<Extension> extensions) {
         StringBuilder sb = new StringBuilder();
         for (Extension e : extensions) {
@@ -253,6 +264,23 @@ public abstract class HandShake {
         }
     }
 
+    private void checkForExtensions(final HttpResponsePacket headers) {
+        final String value = headers.getHeader(Constants.SEC_WS_EXTENSIONS_HEADER);
+        if (value == null || value.trim().isEmpty()) {
+            return;
+        }
+
+        final List<Extension> accepted = parseExtensionsHeader(value);
+        for (Extension e : accepted) {
+            if (intersection(Collections.singletonList(e), getExtensions()).isEmpty()) {
+                throw new HandshakeException(String.format("Invalid %s header returned: '%s'",
+                        Constants.SEC_WS_EXTENSIONS_HEADER, value));
+            }
+        }
+
+        negotiatedExtensions = accepted;
+    }
+
     private void validate(final String header,
             final String validValue, final String value) {
         boolean found = false;
@@ -325,6 +353,7 @@ public abstract class HandShake {
         checkForHeader(headers, Constants.UPGRADE, Constants.WEBSOCKET);
         checkForHeader(headers, Constants.CONNECTION, Constants.UPGRADE);
         checkForSubProtocol(headers);
+        checkForExtensions(headers);
     }
 
     public void respond(final FilterChainContext ctx,
@@ -346,8 +375,13 @@ public abstract class HandShake {
                                  application.getSupportedExtensions());
             if (!intersection.isEmpty()) {
                 application.onExtensionNegotiation(intersection);
-                response.setHeader(Constants.SEC_WS_EXTENSIONS_HEADER,
-                                   joinExtensions(intersection));
+                final List<Extension> accepted = acceptExtensions(intersection,
+                        application.getSupportedExtensions());
+                if (!accepted.isEmpty()) {
+                    negotiatedExtensions = accepted;
+                    response.setHeader(Constants.SEC_WS_EXTENSIONS_HEADER,
+                                       joinExtensions(accepted));
+                }
             }
         }
 
@@ -379,6 +413,24 @@ public abstract class HandShake {
         return intersection;
     }
 
+    /**
+     * Returns the extensions, which will be sent in the server response,
+     * with the parameters the server agreed on. The default implementation
+     * accepts the requested extensions as is.
+     *
+     * @param requested the extensions requested by the client and supported
+     *                  by the application
+     * @param supported the extensions supported by the application
+     *
+     * @return the accepted extensions
+     *
+     * @since 3.0
+     */
+    protected List<Extension> acceptExtensions(final List<Extension> requested,
+                                               final List<Extension> supported) {
+        return requested;
+    }
+
     protected final List<Extension> parseExtensionsHeader(final String headerValue) {
         List<Extension> resolved = new ArrayList<Extension>();
         String[] parts = headerValue.split(",");
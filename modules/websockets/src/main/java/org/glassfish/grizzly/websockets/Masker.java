@@ -40,9 +40,12 @@
 
 package org.glassfish.grizzly.websockets;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.SecureRandom;
 
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferArray;
 
 public class Masker {
     private Buffer buffer;
@@ -73,14 +76,59 @@ public class Masker {
     }
 
     public byte[] unmask(int count) {
-        byte[] bytes = get(count);
         if (mask != null) {
-            for (int i = 0; i < bytes.length; i++) {
-                bytes[i] ^= mask[index++ % Constants.MASK_SIZE];
-            }
+            final int position = buffer.position();
+            unmask(buffer, position, position + count);
         }
 
-        return bytes;
+        return get(count);
+    }
+
+    /**
+     * Unmasks the <tt>buffer</tt> content between <tt>position</tt> and
+     * <tt>limit</tt> in place. The <tt>buffer</tt> may be heap, direct or
+     * composite; neither its position nor its limit is changed.
+     *
+     * @param buffer the {@link Buffer} to unmask
+     * @param position the position of the first byte to unmask
+     * @param limit the position after the last byte to unmask
+     *
+     * @since 3.0
+     */
+    public void unmask(final Buffer buffer, final int position,
+            final int limit) {
+        mask(buffer, position, limit);
+    }
+
+    /**
+     * Masks the <tt>buffer</tt> content between <tt>position</tt> and
+     * <tt>limit</tt> in place. The <tt>buffer</tt> may be heap, direct or
+     * composite; neither its position nor its limit is changed.
+     *
+     * @param buffer the {@link Buffer} to mask
+     * @param position the position of the first byte to mask
+     * @param limit the position after the last byte to mask
+     *
+     * @since 3.0
+     */
+    public void mask(final Buffer buffer, final int position,
+            final int limit) {
+        if (mask == null || position == limit) {
+            return;
+        }
+
+        final ByteBufferArray array = buffer.toByteBufferArray(position, limit);
+        try {
+            final ByteBuffer[] byteBuffers = array.getArray();
+            final int size = array.size();
+            for (int i = 0; i < size; i++) {
+                final ByteBuffer byteBuffer = byteBuffers[i];
+                mask(byteBuffer, byteBuffer.position(), byteBuffer.limit());
+            }
+        } finally {
+            array.restore();
+            array.recycle();
+        }
     }
 
     public void generateMask() {
@@ -92,14 +140,41 @@ public class Masker {
         bytes[location] = mask == null ? b : (byte) (b ^ mask[index++ % Constants.MASK_SIZE]);
     }
 
+    /**
+     * Writes the masked <tt>bytes</tt> to <tt>target</tt>, starting at
+     * <tt>location</tt>. The bytes are XORed 8 at a time as they are copied,
+     * so the payload is read and written in a single pass and <tt>bytes</tt>
+     * is left unchanged.
+     */
     public void mask(byte[] target, int location, byte[] bytes) {
-        if(bytes != null && target != null) {
-            for (int i = 0; i < bytes.length; i++) {
-                target[location + i] = mask == null
-                        ? bytes[i]
-                        : (byte) (bytes[i] ^ mask[index++ % Constants.MASK_SIZE]);
+        if (bytes == null || target == null) {
+            return;
+        }
+
+        if (mask == null) {
+            System.arraycopy(bytes, 0, target, location, bytes.length);
+            return;
+        }
+
+        final ByteBuffer src = ByteBuffer.wrap(bytes);
+        final ByteBuffer dst = ByteBuffer.wrap(target);
+        final int length = bytes.length;
+        int i = 0;
+
+        if (length >= 8) {
+            final long longMask = longMask(ByteOrder.BIG_ENDIAN);
+            final int longLimit = length - 7;
+            for (; i < longLimit; i += 8) {
+                dst.putLong(location + i, src.getLong(i) ^ longMask);
             }
         }
+
+        int idx = index;
+        for (; i < length; i++) {
+            target[location + i] = (byte) (bytes[i] ^ mask[idx++ & 3]);
+        }
+
+        index = idx;
     }
 
     public byte[] maskAndPrepend(byte[] packet) {
@@ -121,4 +196,48 @@ public class Masker {
     public void readMask() {
         mask = get(Constants.MASK_SIZE);
     }
+
+    /**
+     * XORs the <tt>byteBuffer</tt> content between <tt>position</tt> and
+     * <tt>limit</tt> with the mask, 8 bytes at a time.
+     */
+    private void mask(final ByteBuffer byteBuffer, final int position,
+            final int limit) {
+        int i = position;
+
+        if (limit - position >= 8) {
+            final long longMask = longMask(byteBuffer.order());
+            final int longLimit = limit - 7;
+            for (; i < longLimit; i += 8) {
+                byteBuffer.putLong(i, byteBuffer.getLong(i) ^ longMask);
+            }
+        }
+
+        // the mask index isn't changed by 8 bytes long XORs
+        int idx = index;
+        for (; i < limit; i++) {
+            byteBuffer.put(i, (byte) (byteBuffer.get(i) ^ mask[idx++ & 3]));
+        }
+
+        index = idx;
+    }
+
+    /**
+     * Returns the mask, rotated to the current mask index and repeated twice,
+     * as a long in the given byte order.
+     */
+    private long longMask(final ByteOrder order) {
+        long longMask = 0;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = 0; i < 8; i++) {
+                longMask = (longMask << 8) | (mask[(index + i) & 3] & 0xFF);
+            }
+        } else {
+            for (int i = 7; i >= 0; i--) {
+                longMask = (longMask << 8) | (mask[(index + i) & 3] & 0xFF);
+            }
+        }
+
+        return longMask;
+    }
 }
@@ -40,9 +40,16 @@
 
 package org.glassfish.grizzly.websockets;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * The default {@link Broadcaster} optimized to send the same text to a set of
  * clients.
+ * The message is framed once per {@link ProtocolHandler#getFramingKey()},
+ * so the recipients with the same framing, for example the connections
+ * without compression or the connections using <tt>permessage-deflate</tt>
+ * without server context takeover, share the same raw frame.
  * NOTE: works with {@link DefaultWebSocket}s and inherited classes.
  * 
  *
@@ -55,23 +62,7 @@ public class OptimizedBroadcaster implements Broadcaster {
     @Override
     public void broadcast(final Iterable<? extends WebSocket> recipients,
             final String text) {
-        
-        byte[] rawDataToSend = null;
-        
-        for (WebSocket websocket : recipients) {
-            final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
-            
-            if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(text);
-                }
-                
-                try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
-                } catch (WebSocketException ignored) {
-                }
-            }
-        }
+        broadcast0(recipients, text, true);
     }
     
     /**
@@ -80,63 +71,81 @@ public class OptimizedBroadcaster implements Broadcaster {
     @Override
     public void broadcast(final Iterable<? extends WebSocket> recipients,
             final byte[] binary) {
-        
-        byte[] rawDataToSend = null;
-        
-        for (WebSocket websocket : recipients) {
-            final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
-            
-            if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(binary);
-                }
-                
-                try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
-                } catch (WebSocketException ignored) {
-                }
-            }
-        }
+        broadcast0(recipients, binary, true);
     }
 
     @Override
     public void broadcastFragment(Iterable<? extends WebSocket> recipients,
             String text, boolean last) {
-        byte[] rawDataToSend = null;
-        
-        for (WebSocket websocket : recipients) {
-            final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
-            
-            if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(text, last);
-                }
-                
-                try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
-                } catch (WebSocketException ignored) {
-                }
-            }
-        }
+        broadcast0(recipients, text, last);
     }
 
     @Override
     public void broadcastFragment(Iterable<? extends WebSocket> recipients, byte[] binary, boolean last) {
+        broadcast0(recipients, binary, last);
+    }
+
+    private static void broadcast0(final Iterable<? extends WebSocket> recipients,
+            final Object data, final boolean last) {
+
+        // the common case is a single framing shared by all the recipients
+        Object framingKey = null;
         byte[] rawDataToSend = null;
-        
+        Map<Object, byte[]> otherRawData = null;
+
         for (WebSocket websocket : recipients) {
             final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
-            
+
             if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(binary, last);
-                }
-                
                 try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
+                    final Object key = defaultWebSocket.protocolHandler.getFramingKey();
+                    if (key == null) {
+                        // the frame depends on the connection state, so
+                        // it's framed by the regular send
+                        send(defaultWebSocket, data, last);
+                        continue;
+                    }
+
+                    final byte[] rawData;
+                    if (rawDataToSend == null) {
+                        rawData = rawDataToSend = toRawData(defaultWebSocket, data, last);
+                        framingKey = key;
+                    } else if (key.equals(framingKey)) {
+                        rawData = rawDataToSend;
+                    } else {
+                        if (otherRawData == null) {
+                            otherRawData = new HashMap<Object, byte[]>(4);
+                        }
+
+                        byte[] raw = otherRawData.get(key);
+                        if (raw == null) {
+                            raw = toRawData(defaultWebSocket, data, last);
+                            otherRawData.put(key, raw);
+                        }
+                        rawData = raw;
+                    }
+
+                    defaultWebSocket.sendRaw(rawData);
                 } catch (WebSocketException ignored) {
                 }
             }
         }
     }
+
+    private static byte[] toRawData(final DefaultWebSocket websocket,
+            final Object data, final boolean last) {
+        return data instanceof String
+                ? websocket.toRawData((String) data, last)
+                : websocket.toRawData((byte[]) data, last);
+    }
+
+    private static void send(final DefaultWebSocket websocket,
+            final Object data, final boolean last) {
+        if (data instanceof String) {
+            websocket.stream(last, (String) data);
+        } else {
+            final byte[] bytes = (byte[]) data;
+            websocket.stream(last, bytes, 0, bytes.length);
+        }
+    }
 }
@@ -46,6 +46,7 @@ import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
+import java.util.List;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
@@ -90,9 +91,21 @@ public abstract class ProtocolHandler {
                 ((HttpRequestPacket) request.getHttpHeader()).getResponse();
         
         handshake.respond(ctx, app, response);
+        onExtensionsNegotiated(handshake.getNegotiatedExtensions());
         return handshake;
     }
 
+    /**
+     * Invoked once the handshake is complete with the extensions both
+     * peers agreed on. The default implementation does nothing.
+     *
+     * @param extensions the negotiated extensions
+     *
+     * @since 3.0
+     */
+    protected void onExtensionsNegotiated(List<Extension> extensions) {
+    }
+
     public final GrizzlyFuture<DataFrame> send(DataFrame frame) {
         return send(frame, null);
     }
@@ -139,6 +152,22 @@ public abstract class ProtocolHandler {
     }
 
     public abstract byte[] frame(DataFrame frame);
+
+    /**
+     * Returns the key identifying the way this handler frames the
+     * {@link DataFrame}s. The frames, created by handlers with equal keys,
+     * are interchangeable, so a broadcast message may be framed once for
+     * all such recipients. The default implementation returns the handler
+     * class, or <tt>null</tt> if the frames are masked.
+     *
+     * @return the framing key or <tt>null</tt> if the frames depend on the
+     *  connection state and can't be sent over other connections.
+     *
+     * @since 3.0
+     */
+    public Object getFramingKey() {
+        return maskData ? null : getClass();
+    }
 /*
     public void readFrame() {
         while (connection.ready()) {
@@ -322,7 +351,40 @@ public abstract class ProtocolHandler {
     }
 
     protected void utf8Decode(boolean finalFragment, byte[] data, DataFrame dataFrame) {
-            final ByteBuffer b = getByteBuffer(data);
+        utf8Decode(finalFragment, getByteBuffer(data), dataFrame, false);
+    }
+
+    /**
+     * Decodes the UTF-8 text payload between the <tt>data</tt> position and
+     * limit straight from the <tt>data</tt> {@link Buffer}, without copying it
+     * into an intermediate byte[] first. The <tt>data</tt> position isn't
+     * changed, and the bytes of an incomplete trailing UTF-8 sequence are
+     * copied out, so the <tt>data</tt> may be reused once the method returns.
+     *
+     * @param finalFragment <tt>true</tt> if this is the final fragment of
+     *  the message
+     * @param data the {@link Buffer} holding the unmasked text payload
+     * @param dataFrame the {@link DataFrame} to set the decoded text to
+     *
+     * @since 3.0
+     */
+    protected void utf8Decode(boolean finalFragment, Buffer data, DataFrame dataFrame) {
+        final ByteBuffer b;
+        if (remainder == null) {
+            b = data.toByteBuffer();
+        } else {
+            final int position = data.position();
+            final byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            data.position(position);
+            b = getByteBuffer(bytes);
+        }
+
+        utf8Decode(finalFragment, b, dataFrame, true);
+    }
+
+    private void utf8Decode(boolean finalFragment, ByteBuffer b,
+            DataFrame dataFrame, boolean copyRemainder) {
             int n = (int) (b.remaining() * currentDecoder.averageCharsPerByte());
             CharBuffer cb = CharBuffer.allocate(n);
             for (; ; ) {
@@ -336,13 +398,18 @@ public abstract class ProtocolHandler {
                         currentDecoder.reset();
                     } else {
                         if (b.hasRemaining()) {
-                            remainder = b;
+                            if (copyRemainder) {
+                                final byte[] rest = new byte[b.remaining()];
+                                b.get(rest);
+                                remainder = ByteBuffer.wrap(rest);
+                            } else {
+                                remainder = b;
+                            }
                         }
                     }
                     cb.flip();
                     String res = cb.toString();
                     dataFrame.setPayload(res);
-                    dataFrame.setPayload(Utf8Utils.encode(Charsets.UTF8_CHARSET, res));
                     break;
                 }
                 if (result.isOverflow()) {
@@ -81,6 +81,13 @@ public interface WebSocket {
      * without sending or receiving a Close control frame.
      */
     int ABNORMAL_CLOSE = 1006;
+    /**
+     * Indicates that an endpoint is terminating the connection because it has received a message that is too big for
+     * it to process.
+     *
+     * @since 3.0
+     */
+    int MESSAGE_TOO_BIG = 1009;
 
     /**
      * <p>
@@ -147,7 +147,9 @@ public abstract class WebSocketApplication extends WebSocketAdapter {
      * Return the websocket extensions supported by this <code>WebSocketApplication</code>.
      * The {@link Extension}s added to this {@link List} should not include
      * any {@link Extension.Parameter}s as they will be ignored.  This is used
-     * exclusively for matching the requested extensions.
+     * exclusively for matching the requested extensions. The only exception
+     * is {@link org.glassfish.grizzly.websockets.rfc6455.PerMessageDeflate},
+     * which reads the server preferences from the parameters.
      * 
      * @return the websocket extensions supported by this
      *  <code>WebSocketApplication</code>.
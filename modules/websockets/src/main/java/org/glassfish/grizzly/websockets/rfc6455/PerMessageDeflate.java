@@ -0,0 +1,516 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.websockets.rfc6455;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.glassfish.grizzly.websockets.Extension;
+import org.glassfish.grizzly.websockets.HandshakeException;
+import org.glassfish.grizzly.websockets.MessageTooBigError;
+import org.glassfish.grizzly.websockets.ProtocolError;
+
+/**
+ * The <tt>permessage-deflate</tt> WebSocket extension as defined in
+ * <a href="https://tools.ietf.org/html/rfc7692">RFC 7692</a>.
+ *
+ * To enable the extension on the server side add
+ * <tt>new Extension(PerMessageDeflate.NAME)</tt> to the
+ * {@link org.glassfish.grizzly.websockets.WebSocketApplication#getSupportedExtensions()}.
+ * The <tt>server_no_context_takeover</tt> and <tt>client_no_context_takeover</tt>
+ * parameters of the supported extension, if set, are always included in
+ * the negotiation response. Sending <tt>server_no_context_takeover</tt>
+ * lets the {@link org.glassfish.grizzly.websockets.OptimizedBroadcaster}
+ * compress a broadcast message once for all the recipients.
+ *
+ * To enable the extension on the client side add
+ * <tt>new Extension(PerMessageDeflate.NAME)</tt> to the
+ * {@link org.glassfish.grizzly.websockets.HandShake#getExtensions()}.
+ *
+ * {@link Deflater} doesn't support window sizes smaller than 32K, so the
+ * offers with a <tt>server_max_window_bits</tt> less than 15 are declined
+ * and the client never offers <tt>client_max_window_bits</tt>.
+ *
+ * A received message, which inflates to more than
+ * {@link #getMaxMessageSize()} bytes, fails the connection with the
+ * <tt>1009</tt> (Message Too Big) close code.
+ *
+ * @since 3.0
+ */
+public final class PerMessageDeflate {
+
+    /**
+     * The extension name.
+     */
+    public static final String NAME = "permessage-deflate";
+
+    public static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    public static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    public static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+    public static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+    /**
+     * The maximum number of idle {@link Deflater}s and {@link Inflater}s
+     * kept for reuse by new connections.
+     */
+    public static final String POOL_SIZE_PROP_NAME =
+            "org.glassfish.grizzly.websockets.rfc6455.PerMessageDeflate.pool-size";
+
+    /**
+     * The default maximum size, in bytes, of a decompressed message.
+     */
+    public static final String MAX_MESSAGE_SIZE_PROP_NAME =
+            "org.glassfish.grizzly.websockets.rfc6455.PerMessageDeflate.max-message-size";
+
+    private static final int MAX_WINDOW_BITS = 15;
+    private static final int MIN_WINDOW_BITS = 8;
+
+    private static final byte[] TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    private static final int POOL_SIZE = Integer.getInteger(POOL_SIZE_PROP_NAME, 64);
+
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    private static final Queue<Deflater> DEFLATERS =
+            new ArrayBlockingQueue<Deflater>(Math.max(1, POOL_SIZE));
+    private static final Queue<Inflater> INFLATERS =
+            new ArrayBlockingQueue<Inflater>(Math.max(1, POOL_SIZE));
+
+    private final boolean compressNoContextTakeover;
+    private final boolean decompressNoContextTakeover;
+
+    private Deflater deflater;
+    private Inflater inflater;
+    private boolean released;
+
+    private volatile int maxMessageSize = Integer.getInteger(
+            MAX_MESSAGE_SIZE_PROP_NAME, DEFAULT_MAX_MESSAGE_SIZE);
+    // the decompressed size of the fragments of the message being received
+    private long messageSize;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private PerMessageDeflate(final boolean compressNoContextTakeover,
+                              final boolean decompressNoContextTakeover) {
+        this.compressNoContextTakeover = compressNoContextTakeover;
+        this.decompressNoContextTakeover = decompressNoContextTakeover;
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @return <tt>true</tt> if each outgoing message is compressed with
+     *  a fresh compression context, so its compressed form depends on the
+     *  message only.
+     */
+    public boolean isCompressNoContextTakeover() {
+        return compressNoContextTakeover;
+    }
+
+    /**
+     * @return <tt>true</tt> if the peer compresses each message with
+     *  a fresh compression context.
+     */
+    public boolean isDecompressNoContextTakeover() {
+        return decompressNoContextTakeover;
+    }
+
+    /**
+     * @return the maximum size, in bytes, of a decompressed message.
+     */
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * Sets the maximum size, in bytes, of a decompressed message, a bigger
+     * message fails the connection with the <tt>1009</tt> (Message Too Big)
+     * close code. By default the size is limited to 16M, unless the
+     * <tt>org.glassfish.grizzly.websockets.rfc6455.PerMessageDeflate.max-message-size</tt>
+     * system property is set.
+     *
+     * @param maxMessageSize the maximum message size in bytes.
+     */
+    public void setMaxMessageSize(final int maxMessageSize) {
+        if (maxMessageSize < 0) {
+            throw new IllegalArgumentException("maxMessageSize can't be negative");
+        }
+
+        this.maxMessageSize = maxMessageSize;
+    }
+
+
+    // ------------------------------------------------- Package-Private Methods
+
+
+    /**
+     * Negotiates the client offer on the server side.
+     *
+     * @param offer the client offer
+     * @param supported the extension as configured by the application
+     *
+     * @return the {@link Extension} to be sent in the response or
+     *  <tt>null</tt> if the offer can't be accepted.
+     */
+    static Extension accept(final Extension offer, final Extension supported) {
+        final Set<String> names = new HashSet<String>();
+        for (Extension.Parameter p : offer.getParameters()) {
+            if (!names.add(p.getName())) {
+                return null;
+            }
+
+            final String name = p.getName();
+            if (SERVER_NO_CONTEXT_TAKEOVER.equals(name)
+                    || CLIENT_NO_CONTEXT_TAKEOVER.equals(name)) {
+                if (p.getValue() != null) {
+                    return null;
+                }
+            } else if (SERVER_MAX_WINDOW_BITS.equals(name)) {
+                // the Deflater window can't be limited
+                if (parseWindowBits(p.getValue()) != MAX_WINDOW_BITS) {
+                    return null;
+                }
+            } else if (CLIENT_MAX_WINDOW_BITS.equals(name)) {
+                // optional value, the Inflater handles any window size
+                if (p.getValue() != null && parseWindowBits(p.getValue()) < 0) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+
+        final Extension response = new Extension(NAME);
+        if (names.contains(SERVER_NO_CONTEXT_TAKEOVER)
+                || hasParameter(supported, SERVER_NO_CONTEXT_TAKEOVER)) {
+            response.getParameters().add(
+                    new Extension.Parameter(SERVER_NO_CONTEXT_TAKEOVER, null));
+        }
+        if (names.contains(CLIENT_NO_CONTEXT_TAKEOVER)
+                || hasParameter(supported, CLIENT_NO_CONTEXT_TAKEOVER)) {
+            response.getParameters().add(
+                    new Extension.Parameter(CLIENT_NO_CONTEXT_TAKEOVER, null));
+        }
+        if (names.contains(SERVER_MAX_WINDOW_BITS)) {
+            // RFC 7692, 7.1.2.1: the offered limit must be echoed back
+            response.getParameters().add(new Extension.Parameter(
+                    SERVER_MAX_WINDOW_BITS, String.valueOf(MAX_WINDOW_BITS)));
+        }
+
+        return response;
+    }
+
+    /**
+     * Validates the server response on the client side.
+     *
+     * @throws HandshakeException if the client can't work with the
+     *  negotiated parameters.
+     */
+    static void validateResponse(final Extension response) {
+        final Set<String> names = new HashSet<String>();
+        for (Extension.Parameter p : response.getParameters()) {
+            final String name = p.getName();
+            if (!names.add(name)) {
+                throw new HandshakeException(
+                        "Duplicate " + NAME + " parameter: " + name);
+            }
+
+            if (SERVER_NO_CONTEXT_TAKEOVER.equals(name)
+                    || CLIENT_NO_CONTEXT_TAKEOVER.equals(name)) {
+                if (p.getValue() != null) {
+                    throw new HandshakeException(
+                            "Invalid " + NAME + " parameter: " + p);
+                }
+            } else if (SERVER_MAX_WINDOW_BITS.equals(name)) {
+                if (parseWindowBits(p.getValue()) < 0) {
+                    throw new HandshakeException(
+                            "Invalid " + NAME + " parameter: " + p);
+                }
+            } else if (CLIENT_MAX_WINDOW_BITS.equals(name)) {
+                // not offered by the client
+                throw new HandshakeException(
+                        "Unexpected " + NAME + " parameter: " + p);
+            } else {
+                throw new HandshakeException(
+                        "Unknown " + NAME + " parameter: " + p);
+            }
+        }
+    }
+
+    /**
+     * Creates the connection compression state for the negotiated extension.
+     *
+     * @param negotiated the negotiated extension
+     * @param client <tt>true</tt> for the client side of the connection
+     */
+    static PerMessageDeflate create(final Extension negotiated,
+                                    final boolean client) {
+        final boolean serverNoContextTakeover =
+                hasParameter(negotiated, SERVER_NO_CONTEXT_TAKEOVER);
+        final boolean clientNoContextTakeover =
+                hasParameter(negotiated, CLIENT_NO_CONTEXT_TAKEOVER);
+
+        return client
+                ? new PerMessageDeflate(clientNoContextTakeover, serverNoContextTakeover)
+                : new PerMessageDeflate(serverNoContextTakeover, clientNoContextTakeover);
+    }
+
+    /**
+     * Compresses a message frame payload.
+     *
+     * @param data the frame payload
+     * @param last <tt>true</tt> for the last frame of the message
+     */
+    synchronized byte[] compress(final byte[] data, final boolean last) {
+        final Deflater d = deflater();
+        d.setInput(data);
+
+        byte[] out = new byte[Math.max(64, data.length / 2 + TAIL.length)];
+        int len = 0;
+        for (;;) {
+            len += d.deflate(out, len, out.length - len, Deflater.SYNC_FLUSH);
+            if (len < out.length) {
+                break;
+            }
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+
+        if (last) {
+            // the sync flush tail is implied for the last frame
+            if (len >= TAIL.length && endsWithTail(out, len)) {
+                len -= TAIL.length;
+            }
+
+            if (len == 0) {
+                out[len++] = 0;
+            }
+
+            if (compressNoContextTakeover) {
+                d.reset();
+            }
+        }
+
+        return Arrays.copyOf(out, len);
+    }
+
+    /**
+     * Decompresses a message frame payload.
+     *
+     * @param data the frame payload
+     * @param last <tt>true</tt> for the last frame of the message
+     *
+     * @throws MessageTooBigError if the decompressed message exceeds
+     *  {@link #getMaxMessageSize()}.
+     */
+    synchronized byte[] decompress(final byte[] data, final boolean last) {
+        final Inflater i = inflater();
+
+        // the fragment may inflate to one byte over the limit,
+        // so exceeding the limit is detected
+        final int limit = (int) Math.min(Integer.MAX_VALUE - 8,
+                maxMessageSize - messageSize + 1);
+        byte[] out = new byte[(int) Math.min(limit,
+                Math.max(64, data.length * 4L))];
+        int len = 0;
+        try {
+            // the sync flush tail, which is implied for the last frame,
+            // is decompressed after the payload
+            byte[] input = data;
+            while (input != null) {
+                i.setInput(input);
+                for (;;) {
+                    if (len == out.length) {
+                        if (len == limit) {
+                            throw messageTooBig(i);
+                        }
+                        out = Arrays.copyOf(out,
+                                (int) Math.min(limit, out.length * 2L));
+                    }
+
+                    final int n = i.inflate(out, len, out.length - len);
+                    len += n;
+                    if (n == 0) {
+                        if (i.needsInput() || i.finished()) {
+                            break;
+                        }
+
+                        if (i.needsDictionary()) {
+                            throw new DataFormatException(
+                                    "Preset dictionaries aren't supported");
+                        }
+                    }
+                }
+
+                input = last && input == data && !i.finished() ? TAIL : null;
+            }
+        } catch (DataFormatException e) {
+            throw new ProtocolError("Invalid " + NAME + " data", e);
+        }
+
+        if (len == limit) {
+            throw messageTooBig(i);
+        }
+
+        if (last) {
+            messageSize = 0;
+            if (decompressNoContextTakeover || i.finished()) {
+                i.reset();
+            }
+        } else {
+            messageSize += len;
+        }
+
+        return Arrays.copyOf(out, len);
+    }
+
+    /**
+     * Returns the {@link Deflater} and {@link Inflater} of the connection
+     * to the pool.
+     */
+    synchronized void release() {
+        released = true;
+
+        if (deflater != null) {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+            deflater = null;
+        }
+
+        if (inflater != null) {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+            inflater = null;
+        }
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+    private Deflater deflater() {
+        if (deflater == null) {
+            Deflater d = released ? null : DEFLATERS.poll();
+            if (d == null) {
+                d = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            }
+            deflater = d;
+        }
+
+        return deflater;
+    }
+
+    private Inflater inflater() {
+        if (inflater == null) {
+            Inflater i = released ? null : INFLATERS.poll();
+            if (i == null) {
+                i = new Inflater(true);
+            }
+            inflater = i;
+        }
+
+        return inflater;
+    }
+
+    private MessageTooBigError messageTooBig(final Inflater i) {
+        // the connection is failed, the rest of the message is never inflated
+        messageSize = 0;
+        i.reset();
+
+        return new MessageTooBigError("The decompressed " + NAME
+                + " message exceeds " + maxMessageSize + " bytes");
+    }
+
+    private static boolean endsWithTail(final byte[] out, final int len) {
+        for (int i = 0; i < TAIL.length; i++) {
+            if (out[len - TAIL.length + i] != TAIL[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean hasParameter(final Extension extension,
+                                        final String name) {
+        if (extension != null) {
+            for (Extension.Parameter p : extension.getParameters()) {
+                if (name.equals(p.getName())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the window bits or <tt>-1</tt> if the value is not valid
+     */
+    private static int parseWindowBits(final String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        // the value may be quoted
+        final String v = value.length() > 1 && value.charAt(0) == '"'
+                && value.charAt(value.length() - 1) == '"'
+                ? value.substring(1, value.length() - 1)
+                : value;
+        try {
+            final int bits = Integer.parseInt(v);
+            return bits >= MIN_WINDOW_BITS && bits <= MAX_WINDOW_BITS ? bits : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -40,6 +40,7 @@
 package org.glassfish.grizzly.websockets.rfc6455;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -49,6 +50,7 @@ import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.websockets.Constants;
+import org.glassfish.grizzly.websockets.Extension;
 import org.glassfish.grizzly.websockets.HandShake;
 import org.glassfish.grizzly.websockets.HandshakeException;
 import org.glassfish.grizzly.websockets.SecKey;
@@ -121,6 +123,43 @@ public class RFC6455HandShake extends HandShake {
     throws HandshakeException {
         super.validateServerResponse(headers);
         secKey.validateServerKey(headers.getHeader(Constants.SEC_WS_ACCEPT));
+
+        boolean perMessageDeflate = false;
+        for (Extension e : getNegotiatedExtensions()) {
+            if (PerMessageDeflate.NAME.equals(e.getName())) {
+                if (perMessageDeflate) {
+                    throw new HandshakeException(
+                            "Duplicate " + PerMessageDeflate.NAME + " extension");
+                }
+                PerMessageDeflate.validateResponse(e);
+                perMessageDeflate = true;
+            }
+        }
+    }
+
+    @Override
+    protected List<Extension> acceptExtensions(final List<Extension> requested,
+                                               final List<Extension> supported) {
+        final List<Extension> accepted = new ArrayList<Extension>(requested.size());
+        boolean perMessageDeflate = false;
+        for (Extension e : requested) {
+            if (PerMessageDeflate.NAME.equals(e.getName())) {
+                // the offers are in the order of client preference,
+                // accept the first one we can work with
+                if (!perMessageDeflate) {
+                    final Extension response = PerMessageDeflate.accept(e,
+                            find(supported, PerMessageDeflate.NAME));
+                    if (response != null) {
+                        accepted.add(response);
+                        perMessageDeflate = true;
+                    }
+                }
+            } else {
+                accepted.add(e);
+            }
+        }
+
+        return accepted;
     }
 
     public List<String> getEnabledExtensions() {
@@ -131,4 +170,19 @@ public class RFC6455HandShake extends HandShake {
         return enabledProtocols;
     }
 
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private static Extension find(final List<Extension> extensions,
+                                  final String name) {
+        for (Extension e : extensions) {
+            if (name.equals(e.getName())) {
+                return e;
+            }
+        }
+
+        return null;
+    }
+
 }
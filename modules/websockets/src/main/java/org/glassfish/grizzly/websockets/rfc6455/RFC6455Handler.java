@@ -41,10 +41,16 @@
 package org.glassfish.grizzly.websockets.rfc6455;
 
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.CloseListener;
+import org.glassfish.grizzly.CloseReason;
+import org.glassfish.grizzly.Closeable;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.GrizzlyFuture;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.websockets.Constants;
 import org.glassfish.grizzly.websockets.DataFrame;
+import org.glassfish.grizzly.websockets.Extension;
 import org.glassfish.grizzly.websockets.FrameType;
 import org.glassfish.grizzly.websockets.HandShake;
 import org.glassfish.grizzly.websockets.Masker;
@@ -57,13 +63,20 @@ import org.glassfish.grizzly.websockets.frametypes.PingFrameType;
 import org.glassfish.grizzly.websockets.frametypes.PongFrameType;
 import org.glassfish.grizzly.websockets.frametypes.TextFrameType;
 
+import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Locale;
 
 public class RFC6455Handler extends ProtocolHandler {
 
     private final ParsingState state = new ParsingState();
 
+    private volatile PerMessageDeflate perMessageDeflate;
+
+    // true, if the message being parsed is compressed
+    private boolean inCompressed;
+
     // ------------------------------------------------------------ Constructors
 
 
@@ -86,10 +99,76 @@ public class RFC6455Handler extends ProtocolHandler {
                 (HttpRequestPacket) requestContent.getHttpHeader());
     }
 
+    @Override
+    protected void onExtensionsNegotiated(final List<Extension> extensions) {
+        for (Extension e : extensions) {
+            if (PerMessageDeflate.NAME.equals(e.getName())) {
+                final PerMessageDeflate deflate =
+                        PerMessageDeflate.create(e, maskData);
+                perMessageDeflate = deflate;
+                connection.addCloseListener(new CloseListener() {
+                    @Override
+                    public void onClosed(final Closeable closeable,
+                            final CloseReason reason) throws IOException {
+                        deflate.release();
+                    }
+                });
+                break;
+            }
+        }
+    }
+
+    @Override
+    public GrizzlyFuture<DataFrame> send(final DataFrame frame,
+            final CompletionHandler<DataFrame> completionHandler) {
+        final PerMessageDeflate deflate = perMessageDeflate;
+        if (deflate == null) {
+            return super.send(frame, completionHandler);
+        }
+
+        // the compressed frames have to be written in the order
+        // they're compressed
+        synchronized (deflate) {
+            return super.send(frame, completionHandler);
+        }
+    }
+
+    @Override
+    public Object getFramingKey() {
+        final PerMessageDeflate deflate = perMessageDeflate;
+        if (deflate == null) {
+            return super.getFramingKey();
+        }
+
+        // a message, compressed with a fresh compression context,
+        // doesn't depend on the previous messages sent over the connection
+        return !maskData && deflate.isCompressNoContextTakeover()
+                ? PerMessageDeflate.class
+                : null;
+    }
+
+    /**
+     * @return the negotiated <tt>permessage-deflate</tt> extension state or
+     *  <tt>null</tt> if the extension isn't used by the connection.
+     *
+     * @since 3.0
+     */
+    public PerMessageDeflate getPerMessageDeflate() {
+        return perMessageDeflate;
+    }
+
     @Override
     public byte[] frame(DataFrame frame) {
+        final boolean firstFrame = outFragmentedType == 0;
         byte opcode = checkForLastFrame(frame, getOpcode(frame.getType()));
-        final byte[] bytes = frame.getType().getBytes(frame);
+        byte[] bytes = frame.getType().getBytes(frame);
+        if (perMessageDeflate != null && !isControlFrame(opcode)) {
+            bytes = perMessageDeflate.compress(bytes, frame.isLast());
+            if (firstFrame) {
+                // RSV1 marks the compressed message
+                opcode |= 0x40;
+            }
+        }
         final byte[] lengthBytes = encodeLength(bytes.length);
 
         int length = 1 + lengthBytes.length + bytes.length + (maskData
@@ -103,6 +182,8 @@ public class RFC6455Handler extends ProtocolHandler {
         if (maskData) {
             Masker masker = new Masker();
             packet[1] |= 0x80;
+            // the frame is returned as a byte[], so the payload is masked
+            // while it's copied into the packet
             masker.mask(packet, payloadStart, bytes);
             System.arraycopy(masker.getMask(), 0, packet,
                              payloadStart - Constants.MASK_SIZE,
@@ -126,7 +207,8 @@ public class RFC6455Handler extends ProtocolHandler {
                     }
 
                     byte opcode = buffer.get();
-                    boolean rsvBitSet = isBitSet(opcode, 6)
+                    final boolean rsv1 = isBitSet(opcode, 6);
+                    boolean rsvBitSet = (rsv1 && perMessageDeflate == null)
                             || isBitSet(opcode, 5)
                             || isBitSet(opcode, 4);
                     if (rsvBitSet) {
@@ -134,7 +216,12 @@ public class RFC6455Handler extends ProtocolHandler {
                     }
                     state.finalFragment = isBitSet(opcode, 7);
                     state.controlFrame = isControlFrame(opcode);
-                    state.opcode = (byte) (opcode & 0x7f);
+                    state.opcode = (byte) (opcode & 0x0f);
+                    if (rsv1 && (state.controlFrame
+                            || isContinuationFrame(state.opcode))) {
+                        throw new ProtocolError(
+                                "RSV1 bit set on a control or continuation frame");
+                    }
                     state.frameType = valueOf(inFragmentedType, state.opcode);
                     if (!state.finalFragment && state.controlFrame) {
                         throw new ProtocolError("Fragmented control frame");
@@ -160,6 +247,10 @@ public class RFC6455Handler extends ProtocolHandler {
                                 inFragmentedType = state.opcode;
                             }
                         }
+                        if (!isContinuationFrame(state.opcode)) {
+                            inCompressed = rsv1;
+                        }
+                        state.compressed = inCompressed;
                     }
                     byte lengthCode = buffer.get();
 
@@ -206,25 +297,47 @@ public class RFC6455Handler extends ProtocolHandler {
                         return null;
                     }
 
-                    state.masker.setBuffer(buffer);
-                    final byte[] data = state.masker.unmask((int) state.length);
-                    if (data.length != state.length) {
-                        throw new ProtocolError(String.format(
-                                "Data read (%s) is not the expected" +
-                                        " size (%s)", data.length,
-                                state.length));
-                    }
-                    dataFrame =
-                            state.frameType.create(state.finalFragment, data);
+                    // the payload is unmasked in place, text payloads are
+                    // decoded straight from the read buffer; binary and
+                    // control payloads are copied out once, as the DataFrame
+                    // and WebSocket APIs hand them over as a byte[], and so
+                    // are compressed payloads, as Inflater only takes a byte[]
+                    final int start = buffer.position();
+                    final int end = start + (int) state.length;
+                    state.masker.unmask(buffer, start, end);
+
+                    final boolean text = !state.controlFrame
+                            && (isTextFrame(state.opcode) || inFragmentedType == 1);
+                    if (text && !state.compressed) {
+                        final int limit = buffer.limit();
+                        buffer.limit(end);
+                        try {
+                            dataFrame = state.frameType.create(
+                                    state.finalFragment, (byte[]) null);
+                            utf8Decode(state.finalFragment, buffer, dataFrame);
+                        } finally {
+                            buffer.position(end);
+                            buffer.limit(limit);
+                        }
+                    } else {
+                        byte[] data = new byte[end - start];
+                        buffer.get(data);
+                        if (state.compressed) {
+                            data = perMessageDeflate.decompress(data,
+                                    state.finalFragment);
+                        }
+                        dataFrame =
+                                state.frameType.create(state.finalFragment, data);
 
-                    if (!state.controlFrame && (isTextFrame(
-                            state.opcode) || inFragmentedType == 1)) {
-                        utf8Decode(state.finalFragment, data, dataFrame);
+                        if (text) {
+                            utf8Decode(state.finalFragment, data, dataFrame);
+                        }
                     }
 
                     if (!state.controlFrame && state.finalFragment) {
                         inFragmentedType = 0;
                         processingFragment = false;
+                        inCompressed = false;
                     }
                     state.recycle();
 
@@ -315,6 +428,7 @@ public class RFC6455Handler extends ProtocolHandler {
         long length = -1;
         FrameType frameType;
         boolean masked;
+        boolean compressed;
         Masker masker;
         boolean finalFragment;
         boolean controlFrame;
@@ -326,6 +440,7 @@ public class RFC6455Handler extends ProtocolHandler {
             length = -1;
             lengthCode = -1;
             masked = false;
+            compressed = false;
             masker = null;
             finalFragment = false;
             controlFrame = false;
@@ -0,0 +1,223 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.websockets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.grizzly.websockets.rfc6455.PerMessageDeflate;
+import org.glassfish.grizzly.websockets.rfc6455.RFC6455Handler;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the <tt>permessage-deflate</tt> extension end to end.
+ */
+public class CompressionTest extends BaseWebSocketTestUtilities {
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void testEcho() throws Exception {
+        final EchoWebSocketApplication app = new EchoWebSocketApplication();
+        app.getSupportedExtensions().add(new Extension(PerMessageDeflate.NAME));
+
+        final WebSocketServer server = WebSocketServer.createServer(PORT);
+        server.register("", "/echo", app);
+        server.start();
+        try {
+            final StringBuilder large = new StringBuilder();
+            while (large.length() < 100000) {
+                large.append("{\"symbol\":\"ACME\",\"price\":").append(large.length()).append("},");
+            }
+
+            final TrackingWebSocket client = newClient("/echo", ITERATIONS + 1, true);
+            Assert.assertNotNull(getPerMessageDeflate(client));
+
+            for (int i = 0; i < ITERATIONS; i++) {
+                client.send("message " + i);
+            }
+            client.send(large.toString());
+
+            Assert.assertTrue("All messages should come back: " + client.getReceived(),
+                    client.waitOnMessages());
+            client.close();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testMessageTooBig() throws Exception {
+        final EchoWebSocketApplication app = new EchoWebSocketApplication();
+        app.getSupportedExtensions().add(new Extension(PerMessageDeflate.NAME));
+
+        final WebSocketServer server = WebSocketServer.createServer(PORT);
+        server.register("", "/echo", app);
+        server.start();
+        System.setProperty(PerMessageDeflate.MAX_MESSAGE_SIZE_PROP_NAME, "65536");
+        try {
+            final AtomicInteger closeCode = new AtomicInteger();
+            final CountDownLatch closed = new CountDownLatch(1);
+            final WebSocketClient client = new WebSocketClient(
+                    String.format("ws://localhost:%s/echo", PORT),
+                    Version.RFC6455, new WebSocketAdapter() {
+                        @Override
+                        public void onClose(WebSocket socket, DataFrame frame) {
+                            closeCode.set(((ClosingFrame) frame).getCode());
+                            closed.countDown();
+                        }
+                    });
+            client.getExtensions().add(new Extension(PerMessageDeflate.NAME));
+            client.connect();
+            Assert.assertNotNull(getPerMessageDeflate(client));
+
+            // a 1M message compresses to a few KB
+            final byte[] message = new byte[1024 * 1024];
+            Arrays.fill(message, (byte) 'a');
+            client.send(message);
+
+            Assert.assertTrue(closed.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(WebSocket.MESSAGE_TOO_BIG, closeCode.get());
+        } finally {
+            System.clearProperty(PerMessageDeflate.MAX_MESSAGE_SIZE_PROP_NAME);
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testNotSupported() throws Exception {
+        final WebSocketServer server = WebSocketServer.createServer(PORT);
+        server.register("", "/echo", new EchoWebSocketApplication());
+        server.start();
+        try {
+            final TrackingWebSocket client = newClient("/echo", ITERATIONS, true);
+            Assert.assertNull(getPerMessageDeflate(client));
+
+            for (int i = 0; i < ITERATIONS; i++) {
+                client.send("message " + i);
+            }
+
+            Assert.assertTrue("All messages should come back: " + client.getReceived(),
+                    client.waitOnMessages());
+            client.close();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testBroadcastWithContextTakeover() throws Exception {
+        testBroadcast(false);
+    }
+
+    @Test
+    public void testBroadcastWithoutContextTakeover() throws Exception {
+        testBroadcast(true);
+    }
+
+    private void testBroadcast(final boolean noContextTakeover) throws Exception {
+        final int websocketsCount = 4;
+
+        final ServerSideBroadcastTest.BroadcastApplication app =
+                new ServerSideBroadcastTest.BroadcastApplication(new OptimizedBroadcaster());
+        final Extension supported = new Extension(PerMessageDeflate.NAME);
+        if (noContextTakeover) {
+            supported.getParameters().add(new Extension.Parameter(
+                    PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, null));
+        }
+        app.getSupportedExtensions().add(supported);
+
+        final WebSocketServer server = WebSocketServer.createServer(PORT);
+        server.register("", "/broadcast", app);
+        server.start();
+        final List<TrackingWebSocket> clients = new ArrayList<TrackingWebSocket>();
+        try {
+            // the last client doesn't support compression
+            for (int i = 0; i < websocketsCount; i++) {
+                final boolean compress = i < websocketsCount - 1;
+                final TrackingWebSocket client = newClient("/broadcast",
+                        websocketsCount * ITERATIONS, compress);
+                Assert.assertEquals(compress, getPerMessageDeflate(client) != null);
+                if (compress) {
+                    Assert.assertEquals(noContextTakeover,
+                            getPerMessageDeflate(client).isDecompressNoContextTakeover());
+                }
+                clients.add(client);
+            }
+
+            for (int count = 0; count < ITERATIONS; count++) {
+                for (int i = 0; i < clients.size(); i++) {
+                    final String message = "client " + i + ": message " + count;
+                    for (TrackingWebSocket recipient : clients) {
+                        recipient.sent.add(message);
+                    }
+                    clients.get(i).send(message);
+                }
+            }
+
+            for (TrackingWebSocket client : clients) {
+                Assert.assertTrue("All messages should come back: " + client.getReceived(),
+                        client.waitOnMessages());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static TrackingWebSocket newClient(final String path, final int count,
+            final boolean compress) throws Exception {
+        final TrackingWebSocket client = new TrackingWebSocket(
+                String.format("ws://localhost:%s%s", PORT, path),
+                Version.RFC6455, count);
+        if (compress) {
+            client.getExtensions().add(new Extension(PerMessageDeflate.NAME));
+        }
+        client.connect();
+        return client;
+    }
+
+    private static PerMessageDeflate getPerMessageDeflate(final WebSocketClient client) {
+        return ((RFC6455Handler) client.getProtocolHandler()).getPerMessageDeflate();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.websockets;
+
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.ByteBufferManager;
+import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the bulk {@link Masker} operations against byte-by-byte masking.
+ */
+public class MaskerTest {
+
+    private static final byte[] MASK = {(byte) 0x37, (byte) 0xfa, (byte) 0x21, (byte) 0x3d};
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testHeapBuffer() {
+        testBuffer(new HeapMemoryManager());
+    }
+
+    @Test
+    public void testDirectBuffer() {
+        testBuffer(new ByteBufferManager(true));
+    }
+
+    @Test
+    public void testLittleEndianBuffer() {
+        final byte[] payload = randomBytes(100);
+        final Buffer buffer = Buffers.wrap(new HeapMemoryManager(), payload.clone());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        masker().mask(buffer, 0, payload.length);
+
+        assertArrayEquals(maskBytewise(payload, 0), toArray(buffer));
+    }
+
+    @Test
+    public void testCompositeBuffer() {
+        final MemoryManager heapMM = new HeapMemoryManager();
+        final MemoryManager directMM = new ByteBufferManager(true);
+        final byte[] payload = randomBytes(1000);
+
+        // mixed heap and direct parts of odd sizes, so the parts aren't
+        // aligned with the mask
+        final CompositeBuffer composite = CompositeBuffer.newBuffer(heapMM);
+        int offset = 0;
+        int i = 0;
+        for (int size : new int[] {3, 17, 1, 250, 729}) {
+            final byte[] part = new byte[size];
+            System.arraycopy(payload, offset, part, 0, size);
+            composite.append(newBuffer(i++ % 2 == 0 ? heapMM : directMM, part));
+            offset += size;
+        }
+
+        final byte[] expected = maskBytewise(payload, 0);
+        masker().mask(composite, 0, composite.limit());
+
+        assertArrayEquals(expected, toArray(composite));
+    }
+
+    @Test
+    public void testSequentialCalls() {
+        final byte[] payload = randomBytes(200);
+        final Buffer buffer = Buffers.wrap(new HeapMemoryManager(), payload.clone());
+        final Masker masker = masker();
+
+        // the mask index is carried over between the calls
+        masker.mask(buffer, 0, 5);
+        masker.mask(buffer, 5, 6);
+        masker.mask(buffer, 6, 77);
+        masker.mask(buffer, 77, 200);
+
+        assertArrayEquals(maskBytewise(payload, 0), toArray(buffer));
+    }
+
+    @Test
+    public void testPositionAndLimitPreserved() {
+        final byte[] payload = randomBytes(64);
+        final Buffer buffer = newBuffer(new ByteBufferManager(true), payload);
+        buffer.position(3);
+        buffer.limit(60);
+
+        masker().unmask(buffer, 10, 50);
+
+        assertEquals(3, buffer.position());
+        assertEquals(60, buffer.limit());
+        buffer.clear();
+        final byte[] expected = payload.clone();
+        System.arraycopy(maskBytewise(payload, 10), 10, expected, 10, 40);
+        assertArrayEquals(expected, toArray(buffer));
+    }
+
+    @Test
+    public void testUnmaskFromBuffer() {
+        final byte[] payload = randomBytes(133);
+        final byte[] frame = new byte[MASK.length + payload.length];
+        System.arraycopy(MASK, 0, frame, 0, MASK.length);
+        System.arraycopy(maskBytewise(payload, 0), 0, frame, MASK.length, payload.length);
+
+        final Masker masker = new Masker(
+                Buffers.wrap(new HeapMemoryManager(), frame));
+        masker.readMask();
+
+        assertArrayEquals(payload, masker.unmask(payload.length));
+    }
+
+    @Test
+    public void testMaskIntoArray() {
+        for (int size = 0; size < 40; size++) {
+            final byte[] payload = randomBytes(size);
+            final byte[] original = payload.clone();
+            final byte[] target = new byte[payload.length + 3];
+
+            masker().mask(target, 3, payload);
+
+            final byte[] expected = new byte[target.length];
+            System.arraycopy(maskBytewise(payload, 0), 0, expected, 3, payload.length);
+            assertArrayEquals("size=" + size, expected, target);
+            assertArrayEquals("size=" + size, original, payload);
+        }
+    }
+
+    private void testBuffer(final MemoryManager mm) {
+        for (int size = 0; size < 40; size++) {
+            final byte[] payload = randomBytes(size);
+            final Buffer buffer = newBuffer(mm, payload);
+
+            final byte[] expected = maskBytewise(payload, 0);
+            masker().mask(buffer, 0, size);
+
+            assertArrayEquals("size=" + size, expected, toArray(buffer));
+        }
+    }
+
+    private static Masker masker() {
+        final Masker masker = new Masker(
+                Buffers.wrap(new HeapMemoryManager(), MASK.clone()));
+        masker.readMask();
+        return masker;
+    }
+
+    private static byte[] maskBytewise(final byte[] payload, final int from) {
+        final byte[] result = payload.clone();
+        for (int i = from; i < result.length; i++) {
+            result[i] ^= MASK[(i - from) % MASK.length];
+        }
+        return result;
+    }
+
+    private static Buffer newBuffer(final MemoryManager mm, final byte[] bytes) {
+        final Buffer buffer = mm.allocate(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] toArray(final Buffer buffer) {
+        final int position = buffer.position();
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        buffer.position(position);
+        return bytes;
+    }
+
+    private byte[] randomBytes(final int size) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -43,6 +43,8 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -68,6 +70,7 @@ public class WebSocketClient extends SimpleWebSocket {
     private Version version;
     private final URI address;
     private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    private final List<Extension> extensions = new ArrayList<Extension>();
     protected TCPNIOTransport transport;
 
     public WebSocketClient(String uri, WebSocketListener... listeners) {
@@ -89,6 +92,17 @@ public class WebSocketClient extends SimpleWebSocket {
         return address;
     }
 
+    /**
+     * @return the extensions to be requested by the handshake
+     */
+    public List<Extension> getExtensions() {
+        return extensions;
+    }
+
+    public ProtocolHandler getProtocolHandler() {
+        return protocolHandler;
+    }
+
     public void execute(Runnable runnable) {
         executorService.submit(runnable);
     }
@@ -122,6 +136,7 @@ public class WebSocketClient extends SimpleWebSocket {
                     final WebSocketHolder holder = WebSocketHolder.set(conn, protocolHandler,
                             WebSocketClient.this);
                     holder.handshake = protocolHandler.createClientHandShake(address);
+                    holder.handshake.getExtensions().addAll(extensions);
                 }
             };
             final FutureImpl<Boolean> completeFuture = Futures.createSafeFuture();
@@ -0,0 +1,342 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.websockets.rfc6455;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.glassfish.grizzly.websockets.Extension;
+import org.glassfish.grizzly.websockets.HandshakeException;
+import org.glassfish.grizzly.websockets.MessageTooBigError;
+import org.glassfish.grizzly.websockets.WebSocket;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link PerMessageDeflate} negotiation and compression tests.
+ */
+public class PerMessageDeflateTest {
+
+    private static final Charset ASCII = Charset.forName("ASCII");
+
+    // RFC 7692, 7.2.3.1: "Hello" compressed
+    private static final byte[] HELLO = {(byte) 0xf2, 0x48, (byte) 0xcd,
+            (byte) 0xc9, (byte) 0xc9, 0x07, 0x00};
+
+    @Test
+    public void testDecompressRfcSample() {
+        final PerMessageDeflate deflate = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), false);
+
+        assertArrayEquals("Hello".getBytes(ASCII), deflate.decompress(HELLO, true));
+        // the context is taken over
+        assertArrayEquals("Hello".getBytes(ASCII),
+                deflate.decompress(new byte[] {(byte) 0xf2, 0x00, 0x11, 0x00, 0x00}, true));
+        deflate.release();
+    }
+
+    @Test
+    public void testDecompressFragmentedRfcSample() {
+        final PerMessageDeflate deflate = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), false);
+
+        final byte[] first = deflate.decompress(Arrays.copyOfRange(HELLO, 0, 3), false);
+        final byte[] second = deflate.decompress(Arrays.copyOfRange(HELLO, 3, HELLO.length), true);
+
+        assertEquals("Hello", new String(first, ASCII) + new String(second, ASCII));
+        deflate.release();
+    }
+
+    @Test
+    public void testCompressRfcSample() {
+        final PerMessageDeflate deflate = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), false);
+
+        assertArrayEquals(HELLO, deflate.compress("Hello".getBytes(ASCII), true));
+        deflate.release();
+    }
+
+    @Test
+    public void testRoundTripWithContextTakeover() {
+        final PerMessageDeflate server = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), false);
+        final PerMessageDeflate client = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), true);
+
+        final byte[] message = "market-data: {\"symbol\":\"ACME\",\"price\":42}".getBytes(ASCII);
+        final byte[] first = server.compress(message, true);
+        final byte[] second = server.compress(message, true);
+        // the second message refers to the first one
+        assertTrue(second.length < first.length);
+
+        assertArrayEquals(message, client.decompress(first, true));
+        assertArrayEquals(message, client.decompress(second, true));
+
+        server.release();
+        client.release();
+    }
+
+    @Test
+    public void testRoundTripWithoutContextTakeover() {
+        final Extension negotiated = new Extension(PerMessageDeflate.NAME);
+        negotiated.getParameters().add(new Extension.Parameter(
+                PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, null));
+        final PerMessageDeflate server = PerMessageDeflate.create(negotiated, false);
+        final PerMessageDeflate client = PerMessageDeflate.create(negotiated, true);
+        assertTrue(server.isCompressNoContextTakeover());
+        assertTrue(client.isDecompressNoContextTakeover());
+        assertFalse(client.isCompressNoContextTakeover());
+
+        final byte[] message = new byte[10000];
+        new Random(42).nextBytes(message);
+        Arrays.fill(message, 5000, 10000, (byte) 'x');
+
+        final byte[] first = server.compress(message, true);
+        final byte[] second = server.compress(message, true);
+        // the messages are compressed independently
+        assertArrayEquals(first, second);
+
+        assertArrayEquals(message, client.decompress(first, true));
+        assertArrayEquals(message, client.decompress(second, true));
+
+        server.release();
+        client.release();
+    }
+
+    @Test
+    public void testFragmentedRoundTrip() {
+        final PerMessageDeflate server = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), false);
+        final PerMessageDeflate client = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), true);
+
+        final String[] fragments = {"first fragment, ", "", "second fragment, ", "last fragment"};
+        for (int i = 0; i < 2; i++) {
+            final StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < fragments.length; j++) {
+                final boolean last = j == fragments.length - 1;
+                final byte[] compressed = server.compress(fragments[j].getBytes(ASCII), last);
+                sb.append(new String(client.decompress(compressed, last), ASCII));
+            }
+            assertEquals("first fragment, second fragment, last fragment", sb.toString());
+        }
+
+        server.release();
+        client.release();
+    }
+
+    @Test
+    public void testEmptyMessage() {
+        final PerMessageDeflate server = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), false);
+        final PerMessageDeflate client = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), true);
+
+        final byte[] compressed = server.compress(new byte[0], true);
+        assertTrue(compressed.length > 0);
+        assertEquals(0, client.decompress(compressed, true).length);
+
+        server.release();
+        client.release();
+    }
+
+    @Test
+    public void testMessageTooBig() {
+        final PerMessageDeflate server = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), false);
+        final PerMessageDeflate client = PerMessageDeflate.create(
+                new Extension(PerMessageDeflate.NAME), true);
+        server.setMaxMessageSize(10000);
+
+        // exactly the limit
+        assertEquals(10000, server.decompress(
+                client.compress(new byte[10000], true), true).length);
+
+        // a highly compressible message over the limit
+        final byte[] compressed = client.compress(new byte[10000000], true);
+        assertTrue(compressed.length < 20000);
+        try {
+            server.decompress(compressed, true);
+            fail("MessageTooBigError expected");
+        } catch (MessageTooBigError expected) {
+            assertEquals(WebSocket.MESSAGE_TOO_BIG, expected.getClosingCode());
+        }
+
+        server.release();
+        client.release();
+    }
+
+    @Test
+    public void testFragmentedMessageTooBig() {
+        final Extension negotiated = new Extension(PerMessageDeflate.NAME);
+        negotiated.getParameters().add(new Extension.Parameter(
+                PerMessageDeflate.CLIENT_NO_CONTEXT_TAKEOVER, null));
+        final PerMessageDeflate server = PerMessageDeflate.create(negotiated, false);
+        final PerMessageDeflate client = PerMessageDeflate.create(negotiated, true);
+        server.setMaxMessageSize(10000);
+
+        // the fragments are within the limit, the message isn't
+        assertEquals(6000, server.decompress(
+                client.compress(new byte[6000], false), false).length);
+        try {
+            server.decompress(client.compress(new byte[6000], true), true);
+            fail("MessageTooBigError expected");
+        } catch (MessageTooBigError expected) {
+        }
+
+        // the size of the next message is counted from scratch
+        final byte[] message = new byte[8000];
+        assertArrayEquals(message, server.decompress(
+                client.compress(message, true), true));
+
+        server.release();
+        client.release();
+    }
+
+    @Test
+    public void testAccept() {
+        final Extension supported = new Extension(PerMessageDeflate.NAME);
+
+        // no parameters
+        Extension response = PerMessageDeflate.accept(offer(), supported);
+        assertNotNull(response);
+        assertTrue(response.getParameters().isEmpty());
+
+        // client asks for no context takeover
+        response = PerMessageDeflate.accept(offer(
+                PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, null,
+                PerMessageDeflate.CLIENT_NO_CONTEXT_TAKEOVER, null), supported);
+        assertEquals(PerMessageDeflate.NAME + "; "
+                + PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER + "; "
+                + PerMessageDeflate.CLIENT_NO_CONTEXT_TAKEOVER, response.toString());
+
+        // client_max_window_bits only states the client support
+        response = PerMessageDeflate.accept(offer(
+                PerMessageDeflate.CLIENT_MAX_WINDOW_BITS, null), supported);
+        assertNotNull(response);
+        assertTrue(response.getParameters().isEmpty());
+
+        // the server window can't be limited
+        assertNull(PerMessageDeflate.accept(offer(
+                PerMessageDeflate.SERVER_MAX_WINDOW_BITS, "10"), supported));
+        assertNotNull(PerMessageDeflate.accept(offer(
+                PerMessageDeflate.SERVER_MAX_WINDOW_BITS, "15"), supported));
+
+        // invalid offers
+        assertNull(PerMessageDeflate.accept(offer("unknown", null), supported));
+        assertNull(PerMessageDeflate.accept(offer(
+                PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, null,
+                PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, null), supported));
+        assertNull(PerMessageDeflate.accept(offer(
+                PerMessageDeflate.CLIENT_MAX_WINDOW_BITS, "16"), supported));
+    }
+
+    @Test
+    public void testAcceptServerMaxWindowBits() {
+        final Extension supported = new Extension(PerMessageDeflate.NAME);
+
+        // RFC 7692, 7.1.2.1: the offered server_max_window_bits must be
+        // included in the response
+        Extension response = PerMessageDeflate.accept(offer(
+                PerMessageDeflate.SERVER_MAX_WINDOW_BITS, "15"), supported);
+        assertEquals(PerMessageDeflate.NAME + "; "
+                + PerMessageDeflate.SERVER_MAX_WINDOW_BITS + "=15", response.toString());
+        PerMessageDeflate.validateResponse(response);
+
+        response = PerMessageDeflate.accept(offer(
+                PerMessageDeflate.CLIENT_NO_CONTEXT_TAKEOVER, null,
+                PerMessageDeflate.SERVER_MAX_WINDOW_BITS, "15",
+                PerMessageDeflate.CLIENT_MAX_WINDOW_BITS, null), supported);
+        assertEquals(PerMessageDeflate.NAME + "; "
+                + PerMessageDeflate.CLIENT_NO_CONTEXT_TAKEOVER + "; "
+                + PerMessageDeflate.SERVER_MAX_WINDOW_BITS + "=15", response.toString());
+        PerMessageDeflate.validateResponse(response);
+    }
+
+    @Test
+    public void testAcceptWithServerPreferences() {
+        final Extension supported = new Extension(PerMessageDeflate.NAME);
+        supported.getParameters().add(new Extension.Parameter(
+                PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, null));
+
+        final Extension response = PerMessageDeflate.accept(offer(), supported);
+        assertEquals(PerMessageDeflate.NAME + "; "
+                + PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, response.toString());
+        assertTrue(PerMessageDeflate.create(response, false).isCompressNoContextTakeover());
+    }
+
+    @Test
+    public void testValidateResponse() {
+        PerMessageDeflate.validateResponse(offer(
+                PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, null,
+                PerMessageDeflate.SERVER_MAX_WINDOW_BITS, "10"));
+
+        // not offered by the client
+        try {
+            PerMessageDeflate.validateResponse(offer(
+                    PerMessageDeflate.CLIENT_MAX_WINDOW_BITS, "10"));
+            fail("HandshakeException expected");
+        } catch (HandshakeException expected) {
+        }
+
+        try {
+            PerMessageDeflate.validateResponse(offer("unknown", null));
+            fail("HandshakeException expected");
+        } catch (HandshakeException expected) {
+        }
+    }
+
+    private static Extension offer(final String... parameters) {
+        final Extension e = new Extension(PerMessageDeflate.NAME);
+        for (int i = 0; i < parameters.length; i += 2) {
+            e.getParameters().add(
+                    new Extension.Parameter(parameters[i], parameters[i + 1]));
+        }
+        return e;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.websockets.rfc6455;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.websockets.DataFrame;
+import org.glassfish.grizzly.websockets.frametypes.BinaryFrameType;
+import org.glassfish.grizzly.websockets.frametypes.TextFrameType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link RFC6455Handler} framing and parsing of masked frames.
+ */
+public class RFC6455HandlerTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final MemoryManager mm = new ByteBufferManager(true);
+
+    @Test
+    public void testFragmentedTextFromDirectBuffer() {
+        final String text = "h\u00e9llo, w\u00f6rld \u20ac";
+        final byte[] bytes = text.getBytes(UTF8);
+        // split in the middle of the euro sign
+        final int split = bytes.length - 2;
+
+        final RFC6455Handler client = new RFC6455Handler(true);
+        final byte[] first = client.frame(new DataFrame(new TextFrameType(),
+                Arrays.copyOfRange(bytes, 0, split), false));
+        final byte[] second = client.frame(new DataFrame(new TextFrameType(),
+                Arrays.copyOfRange(bytes, split, bytes.length), true));
+
+        final Buffer buffer = newBuffer(first, second, new byte[] {42});
+        final RFC6455Handler server = new RFC6455Handler(false);
+
+        final DataFrame firstFrame = server.parse(buffer);
+        assertFalse(firstFrame.isLast());
+        assertEquals(first.length, buffer.position());
+
+        final DataFrame secondFrame = server.parse(buffer);
+        assertTrue(secondFrame.isLast());
+        assertEquals(first.length + second.length, buffer.position());
+        assertEquals(buffer.limit(), buffer.position() + 1);
+
+        assertEquals(text, firstFrame.getTextPayload()
+                + secondFrame.getTextPayload());
+    }
+
+    @Test
+    public void testBinaryFromDirectBuffer() {
+        final byte[] payload = new byte[1000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+
+        final byte[] frame = new RFC6455Handler(true).frame(
+                new DataFrame(new BinaryFrameType(), payload.clone()));
+
+        final Buffer buffer = newBuffer(frame);
+        final DataFrame dataFrame = new RFC6455Handler(false).parse(buffer);
+
+        assertArrayEquals(payload, dataFrame.getBytes());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private Buffer newBuffer(final byte[]... parts) {
+        int size = 0;
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+
+        final Buffer buffer = mm.allocate(size);
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}